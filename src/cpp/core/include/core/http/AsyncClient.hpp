@@ -14,6 +14,9 @@
 #ifndef CORE_HTTP_ASYNC_CLIENT_HPP
 #define CORE_HTTP_ASYNC_CLIENT_HPP
 
+#include <string>
+#include <sstream>
+
 #include <boost/shared_ptr.hpp>
 #include <boost/function.hpp>
 #include <boost/enable_shared_from_this.hpp>
@@ -54,6 +57,12 @@ namespace http {
 typedef boost::function<void(const http::Response&)> ResponseHandler;
 typedef boost::function<void(const core::Error&)> ErrorHandler;
 
+// handlers for streamed responses. the headers handler returns true if
+// the content should be streamed and the content handler, which is called
+// with each chunk of content, returns false to stop reading the response
+typedef boost::function<bool(const http::Response&)> HeadersHandler;
+typedef boost::function<bool(const std::string&)> ContentHandler;
+
 
 template <typename SocketService>
 class AsyncClient :
@@ -63,7 +72,8 @@ class AsyncClient :
 public:
    AsyncClient(boost::asio::io_service& ioService)
       : ioService_(ioService),
-        connectionRetryContext_(ioService)
+        connectionRetryContext_(ioService),
+        streaming_(false)
    {
    }
 
@@ -82,6 +92,19 @@ public:
       connectionRetryContext_.profile = connectionRetryProfile;
    }
 
+   // stream the response rather than reading all of it before calling the
+   // response handler: the headers handler is called once the headers have
+   // been read and, if it chooses to stream the response, the content
+   // handler is called with each chunk of content as it arrives. the
+   // response handler (which then receives a response without a body) is
+   // called when the response ends. must do this prior to calling execute
+   void setStreamingHandlers(const HeadersHandler& headersHandler,
+                             const ContentHandler& contentHandler)
+   {
+      headersHandler_ = headersHandler;
+      contentHandler_ = contentHandler;
+   }
+
    // execute the async client
    void execute(const ResponseHandler& responseHandler,
                 const ErrorHandler& errorHandler)
@@ -320,9 +343,19 @@ private:
             // parse headers
             ResponseParser::parseHeaders(&responseBuffer_, &response_);
 
+            // streaming: pass along any leftover buffer contents
+            if (headersHandler_ && contentHandler_)
+               streaming_ = headersHandler_(response_);
+            if (streaming_)
+            {
+               if (!streamContent())
+                  return;
+            }
             // append any lefover buffer contents to the body
-            if (responseBuffer_.size() > 0)
+            else if (responseBuffer_.size() > 0)
+            {
                ResponseParser::appendToBody(&responseBuffer_, &response_);
+            }
 
             // start reading content
             readSomeContent();
@@ -341,8 +374,16 @@ private:
       {
          if (!ec)
          {
-            // copy content
-            ResponseParser::appendToBody(&responseBuffer_, &response_);
+            // copy (or stream) content
+            if (streaming_)
+            {
+               if (!streamContent())
+                  return;
+            }
+            else
+            {
+               ResponseParser::appendToBody(&responseBuffer_, &response_);
+            }
 
             // continue reading content
             readSomeContent();
@@ -362,6 +403,24 @@ private:
       CATCH_UNEXPECTED_ASYNC_CLIENT_EXCEPTION
   }
 
+   // pass the buffered content to the content handler. returns false (after
+   // closing the connection) if the handler asked us to stop reading
+   bool streamContent()
+   {
+      if (responseBuffer_.size() == 0)
+         return true;
+
+      std::ostringstream contentStream;
+      contentStream << &responseBuffer_;
+      if (!contentHandler_(contentStream.str()))
+      {
+         close();
+         return false;
+      }
+
+      return true;
+   }
+
 // struct and instance variable to track connection retry state
 private:
    struct ConnectionRetryContext
@@ -382,6 +441,9 @@ private:
    ConnectionRetryContext connectionRetryContext_;
    ResponseHandler responseHandler_;
    ErrorHandler errorHandler_;
+   HeadersHandler headersHandler_;
+   ContentHandler contentHandler_;
+   bool streaming_;
    http::Request request_;
    boost::asio::streambuf responseBuffer_;
    http::Response response_;
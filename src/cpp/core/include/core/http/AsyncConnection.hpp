@@ -14,6 +14,8 @@
 #ifndef CORE_HTTP_ASYNC_CONNECTION_HPP
 #define CORE_HTTP_ASYNC_CONNECTION_HPP
 
+#include <string>
+
 #include <boost/shared_ptr.hpp>
 #include <boost/asio/io_service.hpp>
 
@@ -45,6 +47,16 @@ public:
    // simple wrappers for writing an existing response or error
    virtual void writeResponse(const http::Response& response) = 0;
    virtual void writeError(const Error& error) = 0;
+
+   // streaming responses: write the status line and headers of the response
+   // (which is sent without a Content-Length) and then any number of chunks
+   // of body data. the connection is closed once endStream is called and
+   // the data has been written, or when a write fails. writeStreamData
+   // returns false once the stream has ended
+   virtual void writeStreamHeaders(const http::Response& response) = 0;
+   virtual bool writeStreamData(const std::string& data) = 0;
+   virtual void endStream() = 0;
+   virtual bool isStreaming() = 0;
 };
 
 } // namespace http
@@ -14,10 +14,15 @@
 #ifndef CORE_HTTP_ASYNC_CONNECTION_IMPL_HPP
 #define CORE_HTTP_ASYNC_CONNECTION_IMPL_HPP
 
+#include <deque>
+#include <string>
+#include <vector>
+
 #include <boost/array.hpp>
 #include <boost/shared_ptr.hpp>
 #include <boost/function.hpp>
 #include <boost/enable_shared_from_this.hpp>
+#include <boost/thread/mutex.hpp>
 
 #include <boost/asio/write.hpp>
 #include <boost/asio/io_service.hpp>
@@ -25,6 +30,7 @@
 
 #include <core/Error.hpp>
 #include <core/Log.hpp>
+#include <core/Thread.hpp>
 
 #include <core/http/Request.hpp>
 #include <core/http/Response.hpp>
@@ -55,7 +61,10 @@ public:
       : ioService_(ioService),
         socket_(ioService),
         handler_(handler),
-        responseFilter_(responseFilter)
+        responseFilter_(responseFilter),
+        streaming_(false),
+        streamEnded_(false),
+        streamWritePending_(false)
         
    {
    }
@@ -117,6 +126,73 @@ public:
       response_.setError(error);
       writeResponse();
    }
+
+   virtual void writeStreamHeaders(const http::Response& response)
+   {
+      // add extra response headers (as in writeResponse)
+      response_.assign(response);
+      response_.setHeader("Date", util::httpDate());
+      response_.setHeader("Connection", "close");
+      if (responseFilter_)
+         responseFilter_(&response_);
+
+      // the headers are queued ahead of the data
+      std::string headers;
+      std::vector<boost::asio::const_buffer> buffers = response_.toBuffers();
+      for (std::size_t i = 0; i < buffers.size(); i++)
+      {
+         headers.append(boost::asio::buffer_cast<const char*>(buffers[i]),
+                        boost::asio::buffer_size(buffers[i]));
+      }
+
+      LOCK_MUTEX(streamMutex_)
+      {
+         streaming_ = true;
+         queueStreamData(headers);
+      }
+      END_LOCK_MUTEX
+   }
+
+   virtual bool writeStreamData(const std::string& data)
+   {
+      LOCK_MUTEX(streamMutex_)
+      {
+         if (!streaming_ || streamEnded_)
+            return false;
+
+         queueStreamData(data);
+         return true;
+      }
+      END_LOCK_MUTEX
+
+      return false;
+   }
+
+   virtual void endStream()
+   {
+      LOCK_MUTEX(streamMutex_)
+      {
+         if (!streaming_ || streamEnded_)
+            return;
+
+         // close now unless there is data still to be written
+         streamEnded_ = true;
+         if (!streamWritePending_)
+            closeStream();
+      }
+      END_LOCK_MUTEX
+   }
+
+   virtual bool isStreaming()
+   {
+      LOCK_MUTEX(streamMutex_)
+      {
+         return streaming_;
+      }
+      END_LOCK_MUTEX
+
+      return false;
+   }
    
 private:
    
@@ -200,6 +276,70 @@ private:
       CATCH_UNEXPECTED_EXCEPTION
    }
    
+   // stream data is written one chunk at a time (asio doesn't allow
+   // concurrent writes to a socket). these are called with the stream
+   // mutex held
+   void queueStreamData(const std::string& data)
+   {
+      streamData_.push_back(data);
+      if (!streamWritePending_)
+         writeNextStreamData();
+   }
+
+   void writeNextStreamData()
+   {
+      streamWritePending_ = true;
+      boost::asio::async_write(
+          socket_,
+          boost::asio::buffer(streamData_.front()),
+          boost::bind(
+               &AsyncConnectionImpl<ProtocolType>::handleStreamWrite,
+               AsyncConnectionImpl<ProtocolType>::shared_from_this(),
+               boost::asio::placeholders::error)
+      );
+   }
+
+   void handleStreamWrite(const boost::system::error_code& e)
+   {
+      try
+      {
+         LOCK_MUTEX(streamMutex_)
+         {
+            streamWritePending_ = false;
+
+            if (e)
+            {
+               // log the error if it wasn't connection terminated
+               Error error(e, ERROR_LOCATION);
+               if (!http::isConnectionTerminatedError(error))
+                  LOG_ERROR(error);
+
+               // the stream is over
+               streamEnded_ = true;
+               streamData_.clear();
+               closeStream();
+            }
+            else
+            {
+               streamData_.pop_front();
+               if (!streamData_.empty())
+                  writeNextStreamData();
+               else if (streamEnded_)
+                  closeStream();
+            }
+         }
+         END_LOCK_MUTEX
+      }
+      CATCH_UNEXPECTED_EXCEPTION
+   }
+
+   void closeStream()
+   {
+      Error error = closeSocket(socket_);
+      if (error)
+         LOG_ERROR(error);
+   }
+
    void readSome()
    {
       socket_.async_read_some(
@@ -221,6 +361,13 @@ private:
    RequestParser requestParser_ ;
    http::Request request_;
    http::Response response_;
+
+   // streaming response state
+   boost::mutex streamMutex_;
+   bool streaming_;
+   bool streamEnded_;
+   bool streamWritePending_;
+   std::deque<std::string> streamData_;
 };
    
 
@@ -107,7 +107,10 @@ namespace json {
 
 struct JsonRpcRequest
 {
-   JsonRpcRequest() : version(0), isBackgroundConnection(false) {}
+   JsonRpcRequest()
+      : version(0), isBackgroundConnection(false), etagRequested(false)
+   {
+   }
    
    std::string method ;
    json::Array params ;
@@ -117,6 +120,11 @@ struct JsonRpcRequest
    double version;
    bool isBackgroundConnection ;
 
+   // clients which cache results ask for them to be tagged (passing the
+   // etag of the result they already have, if any)
+   bool etagRequested;
+   std::string etag;
+
    bool empty() const { return method.empty(); }
    
    void clear() 
@@ -124,6 +132,8 @@ struct JsonRpcRequest
       method.clear() ;
       params.clear() ;
       kwparams.clear() ;
+      etagRequested = false;
+      etag.clear();
    }
 };
 
@@ -91,6 +91,14 @@ Error parseJsonRpcRequest(const std::string& input, JsonRpcRequest* pRequest)
             
             pRequest->version = fieldValue.get_value<double>();
          }
+         else if (fieldName == "etag")
+         {
+            if (fieldValue.type() != json::StringType)
+               return Error(errc::InvalidRequest, ERROR_LOCATION);
+
+            pRequest->etagRequested = true;
+            pRequest->etag = fieldValue.get_str();
+         }
       }
 
       // method is required
@@ -182,6 +182,57 @@ void handleEventsError(
    ptrConnection->writeResponse();
 }
 
+void handleStreamEventsError(
+      boost::shared_ptr<core::http::AsyncConnection> ptrConnection,
+      const Error& error)
+{
+   // once the stream has started we can only end it (the client reconnects
+   // or falls back to get_events)
+   if (ptrConnection->isStreaming())
+   {
+      logIfNotConnectionTerminated(error, ptrConnection->request());
+      ptrConnection->endStream();
+   }
+   else
+   {
+      handleEventsError(ptrConnection, error);
+   }
+}
+
+bool handleStreamHeaders(
+      boost::shared_ptr<core::http::AsyncConnection> ptrConnection,
+      const http::Response& response)
+{
+   // the session reports errors (e.g. an invalid client id) with an
+   // ordinary response so only event streams are streamed through
+   if (!boost::algorithm::starts_with(response.contentType(),
+                                      "text/event-stream"))
+   {
+      return false;
+   }
+
+   ptrConnection->writeStreamHeaders(response);
+   return true;
+}
+
+bool handleStreamContent(
+      boost::shared_ptr<core::http::AsyncConnection> ptrConnection,
+      const std::string& content)
+{
+   // stop reading from the session once the client has gone away
+   return ptrConnection->writeStreamData(content);
+}
+
+void handleStreamResponse(
+      boost::shared_ptr<core::http::AsyncConnection> ptrConnection,
+      const http::Response& response)
+{
+   if (ptrConnection->isStreaming())
+      ptrConnection->endStream();
+   else
+      ptrConnection->writeResponse(response);
+}
+
 void proxyRequest(
       const std::string& username,
       boost::shared_ptr<core::http::AsyncConnection> ptrConnection,
@@ -209,6 +260,34 @@ void proxyRequest(
          errorHandler);
 }
 
+// proxy a request whose response is streamed. if the session responds with
+// something other than a stream then that response is proxied as usual
+void proxyStreamRequest(
+      const std::string& username,
+      boost::shared_ptr<core::http::AsyncConnection> ptrConnection,
+      const http::ErrorHandler& errorHandler)
+{
+   // calculate stream path
+   FilePath streamPath = session::local_streams::streamPath(username);
+
+   // create async client
+   boost::shared_ptr<http::LocalStreamAsyncClient> pClient(
+    new http::LocalStreamAsyncClient(ptrConnection->ioService(), streamPath));
+
+   // assign request
+   pClient->request().assign(ptrConnection->request());
+
+   // stream the response
+   pClient->setStreamingHandlers(
+         boost::bind(handleStreamHeaders, ptrConnection, _1),
+         boost::bind(handleStreamContent, ptrConnection, _1));
+
+   // execute
+   pClient->execute(
+         boost::bind(handleStreamResponse, ptrConnection, _1),
+         errorHandler);
+}
+
 // function used to periodically validate that the user is valid (has an
 // account on the system and belongs to the required group if specified)
 // we used to do this on every request but now do it on client_init and
@@ -302,6 +381,19 @@ void proxyEventsRequest(
    if (!validateUser(ptrConnection, username))
       return;
 
+   // the event stream is written through to the client as the session
+   // writes it (rather than once the session's response is complete)
+   if (boost::algorithm::contains(ptrConnection->request().uri(),
+                                  "events/stream_events"))
+   {
+      proxyStreamRequest(username,
+                         ptrConnection,
+                         boost::bind(handleStreamEventsError,
+                                     ptrConnection,
+                                     _1));
+      return;
+   }
+
    proxyRequest(username,
                 ptrConnection,
                 boost::bind(handleEventsError, ptrConnection, _1));
@@ -74,6 +74,7 @@ const int kUiPrefsChanged = 47;
 const int kHandleUnsavedChanges = 48;
 const int kPosixShellOutput = 49;
 const int kPosixShellExit = 50;
+const int kSourceDocChangedOnDisk = 51;
 }   
 
 void ClientEvent::init(int type, const json::Value& data)
@@ -187,6 +188,8 @@ std::string ClientEvent::typeName() const
          return "posix_shell_output";
       case client_events::kPosixShellExit:
          return "posix_shell_exit";
+      case client_events::kSourceDocChangedOnDisk:
+         return "source_doc_changed_on_disk";
       default:
          LOG_WARNING_MESSAGE("unexpected event type: " + 
                              boost::lexical_cast<std::string>(type_));
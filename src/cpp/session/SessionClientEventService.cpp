@@ -14,8 +14,13 @@
 #include "SessionClientEventService.hpp"
 
 #include <algorithm>
+#include <cstring>
+#include <map>
+#include <set>
+#include <sstream>
 
 #include <boost/function.hpp>
+#include <boost/algorithm/string/predicate.hpp>
 
 #include <core/BoostThread.hpp>
 #include <core/Log.hpp>
@@ -26,6 +31,8 @@
 
 
 #include <core/http/Request.hpp>
+#include <core/http/Response.hpp>
+#include <core/http/SocketUtils.hpp>
 
 #include <session/SessionOptions.hpp>
 #include <session/SessionHttpConnectionListener.hpp>
@@ -40,12 +47,275 @@ namespace {
 
 const int kLastChanceWaitSeconds = 4;
 
+// streamed connections write a heartbeat when idle so that we detect
+// clients which have gone away without closing the connection
+const int kStreamHeartbeatSeconds = 15;
+
+// streaming is only available in desktop mode so use the desktop batch delays
+const int kStreamBatchDelayMs = 2;
+const int kStreamMaxTotalBatchDelayMs = 10;
+
+// delivered events retained for resume while streaming (the client doesn't
+// confirm receipt until it reconnects so we need to bound this)
+const std::size_t kMaxRetainedStreamEvents = 1000;
+
+// delivered events retained (regardless of confirmation) so that clients
+// which detect a gap in the events they received can request a replay
+const std::size_t kMaxReplayEvents = 1000;
+
 bool hasEventIdLessThanOrEqualTo(const json::Value& event, int targetId)
 {
    const json::Object& eventJSON = event.get_obj();
    int eventId = eventJSON.find("id")->second.get_int();
    return eventId <= targetId;
 }
+
+bool isStreamEvents(boost::shared_ptr<HttpConnection> ptrConnection)
+{
+   return boost::algorithm::contains(ptrConnection->request().uri(),
+                                     "events/stream_events");
+}
+
+// server-sent events frame (the id of the frame is the id of the last
+// event it contains so the browser tracks our lastEventId)
+std::string eventStreamFrame(const json::Array& events)
+{
+   const json::Object& lastEvent = events.back().get_obj();
+   std::ostringstream ostr;
+   ostr << "id: " << lastEvent.find("id")->second.get_int() << "\n";
+   ostr << "data: ";
+   json::write(events, ostr);
+   ostr << "\n\n";
+   return ostr.str();
+}
+
+void logIfNotConnectionTerminated(const Error& error)
+{
+   if (!core::http::isConnectionTerminatedError(error))
+      LOG_ERROR(error);
+}
+
+// compact encoding of events (requested by clients which support it):
+//
+//   { ids: [...], types: [...], data: [...], strings: [...], refs: [...] }
+//
+// where types are indexes into the strings table and strings within event
+// data which repeat within the batch (e.g. paths) are replaced by
+// { __sref: <index into strings> } when doing so makes the batch smaller.
+// refs lists the indexes of the events whose data contains references (so
+// the client needs to resolve references only within those events)
+//
+// strings aren't shared within file change and workspace assign events:
+// batches of those are dominated by shared strings (paths and object
+// types) and resolving the references cost more decode time on the client
+// than the smaller batch saved, so their data is always sent as is
+const char * const kStringRefField = "__sref";
+
+bool canShareStrings(const std::string& type)
+{
+   return type != "file_changed" && type != "workspace_assign";
+}
+
+typedef std::map<std::string,int> StringCounts;
+typedef std::set<std::string> SharedStrings;
+
+// encoded size of a string (ignoring escapes) and of a reference to the
+// string table entry with the given number of digits, e.g. {"__sref":12}
+std::size_t stringSize(const std::string& str)
+{
+   return str.length() + 2;
+}
+
+std::size_t refSize(std::size_t indexDigits)
+{
+   return std::strlen(kStringRefField) + 5 + indexDigits;
+}
+
+std::size_t digits(std::size_t value)
+{
+   std::size_t count = 1;
+   while (value >= 10)
+   {
+      value /= 10;
+      count++;
+   }
+   return count;
+}
+
+void countStrings(const json::Value& value, StringCounts* pCounts)
+{
+   if (value.type() == json::StringType)
+   {
+      // strings no longer than the smallest reference are never shared
+      const std::string& str = value.get_str();
+      if (stringSize(str) > refSize(1))
+         (*pCounts)[str]++;
+   }
+   else if (value.type() == json::ArrayType)
+   {
+      const json::Array& array = value.get_array();
+      for (json::Array::const_iterator it = array.begin();
+           it != array.end();
+           ++it)
+      {
+         countStrings(*it, pCounts);
+      }
+   }
+   else if (value.type() == json::ObjectType)
+   {
+      const json::Object& object = value.get_obj();
+      for (json::Object::const_iterator it = object.begin();
+           it != object.end();
+           ++it)
+      {
+         countStrings(it->second, pCounts);
+      }
+   }
+}
+
+// strings which are worth sharing: the references to them plus their
+// entry in the string table are smaller than the strings they replace
+SharedStrings sharedStrings(const StringCounts& counts,
+                            std::size_t typeCount)
+{
+   // size references for the largest index the table could need
+   std::size_t ref = refSize(digits(typeCount + counts.size()));
+
+   SharedStrings shared;
+   for (StringCounts::const_iterator it = counts.begin();
+        it != counts.end();
+        ++it)
+   {
+      std::size_t size = stringSize(it->first);
+      std::size_t count = it->second;
+      if (count > 1 && size > ref && count * (size - ref) > size + 1)
+         shared.insert(it->first);
+   }
+   return shared;
+}
+
+class StringTable
+{
+public:
+   int indexOf(const std::string& str)
+   {
+      std::map<std::string,int>::const_iterator it = indexes_.find(str);
+      if (it != indexes_.end())
+         return it->second;
+
+      int index = static_cast<int>(strings_.size());
+      strings_.push_back(str);
+      indexes_[str] = index;
+      return index;
+   }
+
+   std::size_t size() const { return strings_.size(); }
+
+   const json::Array& strings() const { return strings_; }
+
+private:
+   json::Array strings_;
+   std::map<std::string,int> indexes_;
+};
+
+json::Value shareStrings(const json::Value& value,
+                         const SharedStrings& shared,
+                         StringTable* pTable,
+                         bool* pHasRefs)
+{
+   if (value.type() == json::StringType)
+   {
+      if (shared.find(value.get_str()) == shared.end())
+         return value;
+
+      json::Object ref;
+      ref[kStringRefField] = pTable->indexOf(value.get_str());
+      *pHasRefs = true;
+      return ref;
+   }
+   else if (value.type() == json::ArrayType)
+   {
+      const json::Array& array = value.get_array();
+      json::Array result;
+      for (json::Array::const_iterator it = array.begin();
+           it != array.end();
+           ++it)
+      {
+         result.push_back(shareStrings(*it, shared, pTable, pHasRefs));
+      }
+      return result;
+   }
+   else if (value.type() == json::ObjectType)
+   {
+      const json::Object& object = value.get_obj();
+      json::Object result;
+      for (json::Object::const_iterator it = object.begin();
+           it != object.end();
+           ++it)
+      {
+         result[it->first] = shareStrings(it->second,
+                                          shared,
+                                          pTable,
+                                          pHasRefs);
+      }
+      return result;
+   }
+   else
+   {
+      return value;
+   }
+}
+
+json::Object compactEvents(const json::Array& events)
+{
+   // add the event types to the table first (they are always shared)
+   StringTable table;
+   StringCounts counts;
+   for (json::Array::const_iterator it = events.begin();
+        it != events.end();
+        ++it)
+   {
+      const json::Object& event = it->get_obj();
+      const std::string& type = event.find("type")->second.get_str();
+      table.indexOf(type);
+      if (canShareStrings(type))
+         countStrings(event.find("data")->second, &counts);
+   }
+   SharedStrings shared = sharedStrings(counts, table.size());
+
+   json::Array ids, types, data, refs;
+   for (json::Array::const_iterator it = events.begin();
+        it != events.end();
+        ++it)
+   {
+      const json::Object& event = it->get_obj();
+      const std::string& type = event.find("type")->second.get_str();
+      ids.push_back(event.find("id")->second);
+      types.push_back(table.indexOf(type));
+
+      // only rebuild the data of events which contain shared strings
+      const json::Value& eventData = event.find("data")->second;
+      bool hasRefs = false;
+      if (shared.empty() || !canShareStrings(type))
+      {
+         data.push_back(eventData);
+      }
+      else
+      {
+         data.push_back(shareStrings(eventData, shared, &table, &hasRefs));
+         if (hasRefs)
+            refs.push_back(static_cast<int>(ids.size() - 1));
+      }
+   }
+
+   json::Object result;
+   result["ids"] = ids;
+   result["types"] = types;
+   result["data"] = data;
+   result["strings"] = table.strings();
+   result["refs"] = refs;
+   return result;
+}
          
 } // anonymous namespace
 
@@ -114,7 +384,10 @@ void ClientEventService::setClientId(const std::string& clientId, bool clearEven
    {
       clientId_ = clientId.c_str(); // avoid ref count
       if (clearEvents)
+      {
          clientEvents_.clear();
+         replayEvents_.clear();
+      }
    }
    END_LOCK_MUTEX
 
@@ -166,18 +439,211 @@ void ClientEventService::addClientEvent(const json::Object& eventObject)
    LOCK_MUTEX(mutex_)
    {
       clientEvents_.push_back(eventObject);
+
+      replayEvents_.push_back(eventObject);
+      if (replayEvents_.size() > kMaxReplayEvents)
+      {
+         replayEvents_.erase(replayEvents_.begin(),
+                             replayEvents_.end() - kMaxReplayEvents);
+      }
+   }
+   END_LOCK_MUTEX
+}
+
+void ClientEventService::replayEvents(int afterEventId,
+                                      int upToEventId,
+                                      json::Array* pEvents)
+{
+   LOCK_MUTEX(mutex_)
+   {
+      for (json::Array::const_iterator it = replayEvents_.begin();
+           it != replayEvents_.end();
+           ++it)
+      {
+         if (!hasEventIdLessThanOrEqualTo(*it, afterEventId) &&
+             hasEventIdLessThanOrEqualTo(*it, upToEventId))
+         {
+            pEvents->push_back(*it);
+         }
+      }
    }
    END_LOCK_MUTEX
 }
 
 void ClientEventService::setClientEventResult(
+                                       bool compact,
                                        core::json::JsonRpcResponse* pResponse)
 {
+   // the compact encoding is computed from a copy of the events so that
+   // we don't hold the lock (and block the thread enqueing events) while
+   // encoding them
+   json::Array clientEvents;
+   LOCK_MUTEX(mutex_)
+   {
+      if (compact)
+         clientEvents = clientEvents_;
+      else
+         pResponse->setResult(clientEvents_);
+   }
+   END_LOCK_MUTEX
+
+   if (compact)
+      pResponse->setResult(compactEvents(clientEvents));
+}
+
+void ClientEventService::dequeClientEvents(int* pNextEventId,
+                                           json::Array* pNewEvents)
+{
+   // deque the events
+   std::vector<ClientEvent> events;
+   clientEventQueue().remove(&events);
+
+   // convert to json and add event id
+   for (std::vector<ClientEvent>::const_iterator
+        it = events.begin(); it != events.end(); ++it)
+   {
+      json::Object event ;
+      it->asJsonObject((*pNextEventId)++, &event);
+      addClientEvent(event);
+      if (pNewEvents)
+         pNewEvents->push_back(event);
+   }
+}
+
+void ClientEventService::trimDeliveredEvents(std::size_t maxEvents)
+{
+   LOCK_MUTEX(mutex_)
+   {
+      if (clientEvents_.size() > maxEvents)
+      {
+         clientEvents_.erase(clientEvents_.begin(),
+                             clientEvents_.end() - maxEvents);
+      }
+   }
+   END_LOCK_MUTEX
+}
+
+void ClientEventService::streamEvents(
+                           boost::shared_ptr<HttpConnection> ptrConnection,
+                           int* pNextEventId,
+                           bool* pStopServer)
+{
+   using namespace boost::posix_time;
+   const core::http::Request& request = ptrConnection->request();
+
+   // streaming requires a direct connection to the session (in server mode
+   // requests are proxied by rserver, which reads the entire response
+   // before forwarding it). the client falls back to get_events on error
+   if (session::options().programMode() != kSessionProgramModeDesktop)
+   {
+      core::http::Response response;
+      response.setStatusCode(core::http::status::NotFound);
+      ptrConnection->sendResponse(response);
+      return;
+   }
+
+   // send an error back if this request came from the wrong client
+   if (request.queryParamValue("clientId") != clientId())
+   {
+      Error error = Error(json::errc::InvalidClientId, ERROR_LOCATION);
+      ptrConnection->sendJsonRpcError(error);
+      return;
+   }
+
+   // remove all events already seen by the client from our internal list
+   // and sync the next event id (see comments in run)
+   int lastClientEventIdSeen = request.queryParamValue("lastEventId", -1);
+   erasePreviouslyDeliveredEvents(lastClientEventIdSeen);
+   *pNextEventId = std::max(*pNextEventId, lastClientEventIdSeen + 1);
+
+   // write headers
+   core::http::Response response;
+   response.setContentType("text/event-stream");
+   response.setHeader("Cache-Control", "no-cache");
+   Error error = ptrConnection->sendStreamHeaders(response);
+   if (error)
+   {
+      logIfNotConnectionTerminated(error);
+      ptrConnection->close();
+      return;
+   }
+
+   // events previously delivered but not yet seen by the client are sent
+   // first (same resume semantics as get_events)
+   json::Array events;
    LOCK_MUTEX(mutex_)
    {
-      pResponse->setResult(clientEvents_);
+      events = clientEvents_;
    }
    END_LOCK_MUTEX
+
+   ClientEventQueue& clientEventQueue = session::clientEventQueue();
+   ptime lastWriteTime = microsec_clock::universal_time();
+   while (true)
+   {
+      // wait up to a second for events (so we can check for interruption,
+      // superseding connections, and heartbeats)
+      try
+      {
+         if (events.empty() &&
+             (clientEventQueue.hasEvents() ||
+              clientEventQueue.waitForEvent(seconds(1))))
+         {
+            // wait for additional events that occur in rapid succession
+            boost::system_time maxBatchDelayTime =
+                  boost::get_system_time() +
+                  milliseconds(kStreamMaxTotalBatchDelayMs);
+
+            while (clientEventQueue.waitForEvent(
+                                    milliseconds(kStreamBatchDelayMs)) &&
+                   (boost::get_system_time() < maxBatchDelayTime) )
+            {
+            }
+         }
+
+         boost::this_thread::interruption_point();
+      }
+      catch(const boost::thread_interrupted& e)
+      {
+         // terminate after sending any remaining events
+         *pStopServer = true;
+      }
+
+      // deque the events
+      dequeClientEvents(pNextEventId, &events);
+
+      // write them (or a heartbeat comment if we have been idle)
+      ptime now = microsec_clock::universal_time();
+      std::string frame;
+      if (!events.empty())
+         frame = eventStreamFrame(events);
+      else if ((now - lastWriteTime) >= seconds(kStreamHeartbeatSeconds))
+         frame = ":\n\n";
+      events.clear();
+
+      if (!frame.empty())
+      {
+         Error error = ptrConnection->writeStreamData(frame);
+         if (error)
+         {
+            logIfNotConnectionTerminated(error);
+            break;
+         }
+         lastWriteTime = now;
+         trimDeliveredEvents(kMaxRetainedStreamEvents);
+      }
+
+      // stop if we were interrupted or a new events connection has arrived
+      // (e.g. the client fell back to get_events or re-opened the stream)
+      if (*pStopServer ||
+          !httpConnectionListener().eventsConnectionQueue()
+                                       .peekNextConnectionUri().empty())
+      {
+         break;
+      }
+   }
+
+   ptrConnection->close();
 }
 
 
@@ -242,6 +708,14 @@ void ClientEventService::run()
             continue;
          }
 
+         // streaming connections are serviced until they are closed or
+         // superseded by another connection
+         if (isStreamEvents(ptrConnection))
+         {
+            streamEvents(ptrConnection, &nextEventId, &stopServer);
+            continue;
+         }
+
          // parse the json rpc request
          json::JsonRpcRequest request;
          Error error = json::parseJsonRpcRequest(ptrConnection->request().body(),
@@ -272,6 +746,11 @@ void ClientEventService::run()
             continue;
          }
            
+         // clients which support the compact encoding of events ask for it
+         bool compact = request.params.size() > 1 &&
+                        json::isType<bool>(request.params[1]) &&
+                        request.params[1].get_bool();
+
          // remove all events already seen by the client from our internal list
          erasePreviouslyDeliveredEvents(lastClientEventIdSeen);
 
@@ -318,23 +797,13 @@ void ClientEventService::run()
          if (request.clientId == clientId())
          {
             // deque the events
-            std::vector<ClientEvent> events;
-            clientEventQueue.remove(&events);
-            
-            // convert to json and add event id
-            for (std::vector<ClientEvent>::const_iterator 
-                 it = events.begin(); it != events.end(); ++it)
-            {
-               json::Object event ;
-               it->asJsonObject(nextEventId++, &event);
-               addClientEvent(event);
-            }
+            dequeClientEvents(&nextEventId, NULL);
 
             // send them (pass false for kEventsPending b/c responses from the
             // event service shouldn't interact with automatic event service
             // starting/re-starting)
             json::JsonRpcResponse response;
-            setClientEventResult(&response);
+            setClientEventResult(compact, &response);
             response.setField(kEventsPending, "false");
             ptrConnection->sendJsonRpcResponse(response);
          }
@@ -17,6 +17,7 @@
 #include <string>
 
 #include <boost/utility.hpp>
+#include <boost/shared_ptr.hpp>
 
 #include <core/BoostThread.hpp>
 
@@ -29,6 +30,8 @@ namespace core {
 
 namespace session {
 
+class HttpConnection;
+
 // singleton
 class ClientEventService;
 ClientEventService& clientEventService();
@@ -46,17 +49,28 @@ public:
    void stop();
    
    void setClientId(const std::string& clientId, bool clearEvents);
+   
+   // recently delivered events with ids in (afterEventId, upToEventId]
+   void replayEvents(int afterEventId,
+                     int upToEventId,
+                     core::json::Array* pEvents);
 
 
 private:
    std::string clientId();
 
    void run();
+   void streamEvents(boost::shared_ptr<HttpConnection> ptrConnection,
+                     int* pNextEventId,
+                     bool* pStopServer);
 
    void erasePreviouslyDeliveredEvents(int lastClientEventIdSeen);
    bool havePendingClientEvents();
    void addClientEvent(const core::json::Object& eventObject);
-   void setClientEventResult(core::json::JsonRpcResponse* pResponse);
+   void setClientEventResult(bool compact,
+                             core::json::JsonRpcResponse* pResponse);
+   void dequeClientEvents(int* pNextEventId, core::json::Array* pNewEvents);
+   void trimDeliveredEvents(std::size_t maxEvents);
 
   
 private:
@@ -65,6 +79,7 @@ private:
 
    std::string clientId_ ;
    core::json::Array clientEvents_ ;
+   core::json::Array replayEvents_ ;
 };
    
   
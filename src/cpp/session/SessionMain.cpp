@@ -19,6 +19,7 @@
 #include <map>
 #include <algorithm>
 #include <cstdlib>
+#include <sstream>
 #include <csignal>
 
 #include <boost/shared_ptr.hpp>
@@ -43,6 +44,7 @@
 #include <core/ProgramStatus.hpp>
 #include <core/system/System.hpp>
 #include <core/FileSerializer.hpp>
+#include <core/Hash.hpp>
 #include <core/http/Request.hpp>
 #include <core/http/Response.hpp>
 #include <core/http/UriHandler.hpp>
@@ -168,6 +170,8 @@ const char * const kLocatorCompleted = "locator_completed";
 const char * const kHandleUnsavedChangesCompleted = "handle_unsaved_changes_completed";
 const char * const kQuitSession = "quit_session" ;   
 const char * const kInterrupt = "interrupt";
+const char * const kRpcBatch = "rpc_batch";
+const char * const kReplayClientEvents = "replay_client_events";
 
 // convenience function for disallowing suspend (note still doesn't override
 // the presence of s_forceSuspend = 1)
@@ -334,6 +338,10 @@ void handleClientInit(const boost::function<void()>& initFunction,
    json::Object sessionInfo ;
    sessionInfo["clientId"] = clientId;
    sessionInfo["mode"] = options.programMode();
+
+   // events can be streamed (in server mode rserver writes the stream
+   // through to the client as we write it)
+   sessionInfo["event_stream"] = true;
    
    // only send the user identity if we are in server mode
    if (options.programMode() == kSessionProgramModeServer)
@@ -467,8 +475,32 @@ enum ConnectionType
    BackgroundConnection
 };
 
+// tag the result with a hash of its contents for clients which cache it.
+// if the client already has this result then we send back a not modified
+// marker rather than the result itself
+void setResultEtag(bool etagRequested,
+                   const std::string& clientEtag,
+                   json::JsonRpcResponse* pJsonRpcResponse)
+{
+   if (!etagRequested || (pJsonRpcResponse == NULL))
+      return;
+
+   std::ostringstream ostr;
+   json::write(pJsonRpcResponse->result(), ostr);
+   std::string etag = core::hash::crc32Hash(ostr.str());
+
+   pJsonRpcResponse->setField("etag", etag);
+   if (etag == clientEtag)
+   {
+      pJsonRpcResponse->setResult(json::Value());
+      pJsonRpcResponse->setField("not_modified", true);
+   }
+}
+
 void endHandleRpcRequestDirect(boost::shared_ptr<HttpConnection> ptrConnection,
                          boost::posix_time::ptime executeStartTime,
+                         bool etagRequested,
+                         const std::string& clientEtag,
                          const core::Error& executeError,
                          json::JsonRpcResponse* pJsonRpcResponse)
 {
@@ -491,6 +523,9 @@ void endHandleRpcRequestDirect(boost::shared_ptr<HttpConnection> ptrConnection,
          pJsonRpcResponse->setField(kEventsPending, "false");
       }
 
+      // tag the result for caching clients
+      setResultEtag(etagRequested, clientEtag, pJsonRpcResponse);
+
       // send the response
       ptrConnection->sendJsonRpcResponse(*pJsonRpcResponse);
 
@@ -549,6 +584,8 @@ void handleRpcRequest(const core::json::JsonRpcRequest& request,
                          boost::bind(endHandleRpcRequestDirect,
                                      ptrConnection,
                                      executeStartTime,
+                                     request.etagRequested,
+                                     request.etag,
                                      _1,
                                      _2));
       }
@@ -577,10 +614,240 @@ void handleRpcRequest(const core::json::JsonRpcRequest& request,
       // application states
       LOG_ERROR(executeError);
 
-      endHandleRpcRequestDirect(ptrConnection, executeStartTime, executeError, NULL);
+      endHandleRpcRequestDirect(ptrConnection,
+                                executeStartTime,
+                                false,
+                                std::string(),
+                                executeError,
+                                NULL);
+   }
+
+
+}
+
+// state shared by the calls which make up an rpc batch (calls can complete
+// asynchronously so this is held by a shared_ptr)
+struct RpcBatchState
+{
+   RpcBatchState(boost::shared_ptr<HttpConnection> ptrConnection,
+                 std::size_t count)
+      : ptrConnection(ptrConnection), responses(count), pending(count)
+   {
+   }
+
+   boost::shared_ptr<HttpConnection> ptrConnection;
+   std::vector<json::JsonRpcResponse> responses;
+   std::size_t pending;
+};
+
+void sendRpcBatchResponse(boost::shared_ptr<RpcBatchState> pState)
+{
+   // collect the individual responses (each carries its own events
+   // pending flag so the envelope doesn't need one)
+   json::Array results;
+   BOOST_FOREACH(json::JsonRpcResponse& response, pState->responses)
+   {
+      results.push_back(response.getRawResponse());
+   }
+
+   json::JsonRpcResponse batchResponse;
+   batchResponse.setResult(results);
+   batchResponse.setField(kEventsPending, "false");
+   pState->ptrConnection->sendJsonRpcResponse(batchResponse);
+
+   // run after response functions (then detect changes again)
+   bool ranAfterResponse = false;
+   BOOST_FOREACH(json::JsonRpcResponse& response, pState->responses)
+   {
+      if (response.hasAfterResponse())
+      {
+         response.runAfterResponse();
+         ranAfterResponse = true;
+      }
+   }
+   if (ranAfterResponse)
+      detectChanges(module_context::ChangeSourceRPC);
+}
+
+void endHandleRpcBatchCall(boost::shared_ptr<RpcBatchState> pState,
+                           std::size_t index,
+                           boost::posix_time::ptime executeStartTime,
+                           bool etagRequested,
+                           const std::string& clientEtag,
+                           const core::Error& executeError,
+                           json::JsonRpcResponse* pJsonRpcResponse)
+{
+   json::JsonRpcResponse& response = pState->responses[index];
+   if (executeError)
+   {
+      response.setError(executeError);
+   }
+   else
+   {
+      if (pJsonRpcResponse)
+         response = *pJsonRpcResponse;
+
+      // allow modules to detect changes after rpc calls
+      if (!response.suppressDetectChanges())
+         detectChanges(module_context::ChangeSourceRPC);
+
+      // are there (or will there likely be) events pending?
+      if ( !clientEventQueue().eventAddedSince(executeStartTime) &&
+           !response.hasAfterResponse() )
+      {
+         response.setField(kEventsPending, "false");
+      }
+
+      // tag the result for caching clients
+      setResultEtag(etagRequested, clientEtag, &response);
+   }
+
+   // send the batch once all of its calls have completed
+   if (--(pState->pending) == 0)
+      sendRpcBatchResponse(pState);
+}
+
+Error readBatchedRpcRequest(const json::Value& callValue,
+                            const json::JsonRpcRequest& batchRequest,
+                            json::JsonRpcRequest* pRequest)
+{
+   if (!json::isType<json::Object>(callValue))
+      return Error(json::errc::InvalidRequest, ERROR_LOCATION);
+   const json::Object& call = callValue.get_obj();
+
+   Error error = json::readObject(call, "method", &(pRequest->method));
+   if (error)
+      return error;
+
+   error = json::readObject(call,
+                            "params",
+                            json::Array(),
+                            &(pRequest->params));
+   if (error)
+      return error;
+
+   error = json::readObject(call,
+                            "kwparams",
+                            json::Object(),
+                            &(pRequest->kwparams));
+   if (error)
+      return error;
+
+   error = json::readObject(call,
+                            "sourceWnd",
+                            std::string(),
+                            &(pRequest->sourceWindow));
+   if (error)
+      return error;
+
+   json::Object::const_iterator etagIt = call.find("etag");
+   if (etagIt != call.end())
+   {
+      if (!json::isType<std::string>(etagIt->second))
+         return Error(json::errc::InvalidRequest, ERROR_LOCATION);
+      pRequest->etagRequested = true;
+      pRequest->etag = etagIt->second.get_str();
+   }
+
+   // client id and version were validated for the batch as a whole
+   pRequest->clientId = batchRequest.clientId;
+   pRequest->version = batchRequest.version;
+   pRequest->isBackgroundConnection = batchRequest.isBackgroundConnection;
+
+   return Success();
+}
+
+// execute each of the calls contained in an rpc batch and send their
+// responses back together in a single http response
+void handleRpcBatchRequest(const core::json::JsonRpcRequest& request,
+                           boost::shared_ptr<HttpConnection> ptrConnection)
+{
+   json::Array calls;
+   Error error = json::readParam(request.params, 0, &calls);
+   if (error)
+   {
+      ptrConnection->sendJsonRpcError(error);
+      return;
    }
 
+   boost::shared_ptr<RpcBatchState> pState(
+                              new RpcBatchState(ptrConnection, calls.size()));
+   if (calls.empty())
+   {
+      sendRpcBatchResponse(pState);
+      return;
+   }
+
+   for (std::size_t i = 0; i < calls.size(); i++)
+   {
+      using namespace boost::posix_time;
+      ptime executeStartTime = microsec_clock::universal_time();
+
+      json::JsonRpcRequest callRequest;
+      Error callError = readBatchedRpcRequest(calls[i], request, &callRequest);
+      if (callError)
+      {
+         endHandleRpcBatchCall(pState,
+                               i,
+                               executeStartTime,
+                               false,
+                               std::string(),
+                               callError,
+                               NULL);
+         continue;
+      }
+
+      json::JsonRpcAsyncMethods::const_iterator it =
+                                    s_jsonRpcMethods.find(callRequest.method);
+      if (it == s_jsonRpcMethods.end())
+      {
+         Error executeError(json::errc::MethodNotFound, ERROR_LOCATION);
+         executeError.addProperty("method", callRequest.method);
+         LOG_ERROR(executeError);
+         endHandleRpcBatchCall(pState,
+                               i,
+                               executeStartTime,
+                               false,
+                               std::string(),
+                               executeError,
+                               NULL);
+         continue;
+      }
+
+      std::pair<bool, json::JsonRpcAsyncFunction> reg = it->second;
+      json::JsonRpcAsyncFunction handlerFunction = reg.second;
+      if (reg.first)
+      {
+         // direct return
+         handlerFunction(callRequest,
+                         boost::bind(endHandleRpcBatchCall,
+                                     pState,
+                                     i,
+                                     executeStartTime,
+                                     callRequest.etagRequested,
+                                     callRequest.etag,
+                                     _1,
+                                     _2));
+      }
+      else
+      {
+         // indirect return (asyncHandle style) -- the handle is returned
+         // within the batch and completion arrives as a client event
+         std::string handle = core::system::generateUuid(true);
+         json::JsonRpcResponse response;
+         response.setAsyncHandle(handle);
+         response.setField(kEventsPending, "false");
+         pState->responses[i] = response;
+         if (--(pState->pending) == 0)
+            sendRpcBatchResponse(pState);
 
+         handlerFunction(callRequest,
+                         boost::bind(endHandleRpcRequestIndirect,
+                                     handle,
+                                     _1,
+                                     _2));
+      }
+   }
 }
 
 bool isMethod(const std::string& uri, const std::string& method)
@@ -705,6 +972,14 @@ void handleConnection(boost::shared_ptr<HttpConnection> ptrConnection,
             r::session::quit(saveWorkspace); // does not return
          }
 
+         // rpc batch: execute each of the contained calls
+         else if ( jsonRpcRequest.method == kRpcBatch )
+         {
+            jsonRpcRequest.isBackgroundConnection =
+                  (connectionType == BackgroundConnection);
+            handleRpcBatchRequest(jsonRpcRequest, ptrConnection);
+         }
+
          // interrupt
          else if ( jsonRpcRequest.method == kInterrupt )
          {
@@ -1147,6 +1422,23 @@ Error bufferConsoleInput(const core::json::JsonRpcRequest& request,
    return extractConsoleInput(request);
 }
 
+// clients which detect a gap in the events they received (e.g. because
+// events were trimmed while they were reconnecting) ask for a replay of the
+// missing events rather than resyncing
+Error replayClientEvents(const core::json::JsonRpcRequest& request,
+                         json::JsonRpcResponse* pResponse)
+{
+   int afterEventId, upToEventId;
+   Error error = json::readParams(request.params, &afterEventId, &upToEventId);
+   if (error)
+      return error;
+
+   json::Array events;
+   clientEventService().replayEvents(afterEventId, upToEventId, &events);
+   pResponse->setResult(events);
+   return Success();
+}
+
 Error startHttpConnectionListener()
 {
    initializeHttpConnectionListener();
@@ -1259,6 +1551,7 @@ Error rInit(const r::session::RInitInfo& rInitInfo)
 
       // json-rpc listeners
       (bind(registerRpcMethod, kConsoleInput, bufferConsoleInput))
+      (bind(registerRpcMethod, kReplayClientEvents, replayClientEvents))
 
       // signal handlers
       (registerSignalHandlers)
@@ -750,6 +750,9 @@ void enqueFileChangedEvent(const core::system::FileChangeEvent& event,
    // enque it
    ClientEvent clientEvent(client_events::kFileChanged, fileChange);
    module_context::enqueClientEvent(clientEvent);
+
+   // notify other modules
+   events().onFileChanged(event);
 }
 } // namespace
 
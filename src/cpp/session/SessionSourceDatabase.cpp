@@ -14,6 +14,7 @@
 #include <session/SessionSourceDatabase.hpp>
 
 #include <string>
+#include <map>
 #include <vector>
 #include <algorithm>
 
@@ -387,6 +388,30 @@ namespace {
 
 FilePath s_sourceDBPath;
 
+// paths of the documents in the database (by id) so that documents can be
+// looked up by path without reading all of them
+std::map<std::string,std::string> s_documentPaths;
+bool s_documentPathsLoaded = false;
+
+Error loadDocumentPaths()
+{
+   if (s_documentPathsLoaded)
+      return Success();
+
+   std::vector<boost::shared_ptr<SourceDocument> > docs;
+   Error error = list(&docs);
+   if (error)
+      return error;
+
+   BOOST_FOREACH(const boost::shared_ptr<SourceDocument>& pDoc, docs)
+   {
+      s_documentPaths[pDoc->id()] = pDoc->path();
+   }
+   s_documentPathsLoaded = true;
+
+   return Success();
+}
+
 } // anonymous namespace
 
 FilePath path()
@@ -474,6 +499,8 @@ Error put(boost::shared_ptr<SourceDocument> pDoc)
    if (error)
       return error ;
 
+   s_documentPaths[pDoc->id()] = pDoc->path();
+
    // write properties to durable storage (if there is a path)
    if (!pDoc->path().empty())
    {
@@ -487,8 +514,28 @@ Error put(boost::shared_ptr<SourceDocument> pDoc)
    
 Error remove(const std::string& id)
 {
+   s_documentPaths.erase(id);
    return source_database::path().complete(id).removeIfExists();
 }
+
+Error idsForPath(const FilePath& filePath, std::vector<std::string>* pIds)
+{
+   Error error = loadDocumentPaths();
+   if (error)
+      return error;
+
+   typedef std::pair<const std::string,std::string> IdAndPath;
+   BOOST_FOREACH(const IdAndPath& document, s_documentPaths)
+   {
+      if (!document.second.empty() &&
+          module_context::resolveAliasedPath(document.second) == filePath)
+      {
+         pIds->push_back(document.first);
+      }
+   }
+
+   return Success();
+}
    
 Error removeAll()
 {
@@ -497,6 +544,8 @@ Error removeAll()
    if (error)
       return error ;
    
+   s_documentPaths.clear();
+
    BOOST_FOREACH( FilePath& filePath, files )
    {
       Error error = filePath.remove();
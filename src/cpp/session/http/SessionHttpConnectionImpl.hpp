@@ -148,6 +148,41 @@ public:
       sendResponse(response);
    }
 
+   virtual core::Error sendStreamHeaders(const core::http::Response& response)
+   {
+      try
+      {
+         // write the headers (response should have no body)
+         boost::asio::write(socket_,
+                            response.toBuffers(
+                                  core::http::Header::connectionClose()));
+      }
+      catch(const boost::system::system_error& e)
+      {
+         core::Error error(e.code(), ERROR_LOCATION);
+         error.addProperty("request-uri", request_.uri());
+         return error;
+      }
+
+      return core::Success();
+   }
+
+   virtual core::Error writeStreamData(const std::string& data)
+   {
+      try
+      {
+         boost::asio::write(socket_, boost::asio::buffer(data));
+      }
+      catch(const boost::system::system_error& e)
+      {
+         core::Error error(e.code(), ERROR_LOCATION);
+         error.addProperty("request-uri", request_.uri());
+         return error;
+      }
+
+      return core::Success();
+   }
+
    // close (occurs automatically after writeResponse, here in case it
    // need to be closed in other circumstances
    virtual void close()
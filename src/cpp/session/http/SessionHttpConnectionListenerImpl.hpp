@@ -289,8 +289,9 @@ private:
 
    static bool isGetEvents(boost::shared_ptr<HttpConnection> ptrConnection)
    {
-      return boost::algorithm::ends_with(ptrConnection->request().uri(),
-                                         "events/get_events");
+      const std::string& uri = ptrConnection->request().uri();
+      return boost::algorithm::ends_with(uri, "events/get_events") ||
+             boost::algorithm::contains(uri, "events/stream_events");
    }
 
    bool checkForAbort(
@@ -61,6 +61,12 @@ public:
    virtual void sendJsonRpcResponse(
                   const core::json::JsonRpcResponse& jsonRpcResponse) = 0;
 
+   // streaming responses: write the status line and headers of the response
+   // (the connection is held open without a Content-Length) and then write
+   // any number of chunks of body data. the stream is ended by close()
+   virtual core::Error sendStreamHeaders(
+                  const core::http::Response& response) = 0;
+   virtual core::Error writeStreamData(const std::string& data) = 0;
 
    // close (occurs automatically after writeResponse, here in case it
    // need to be closed in other circumstances
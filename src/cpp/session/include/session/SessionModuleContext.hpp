@@ -187,6 +187,8 @@ struct Events : boost::noncopyable
    boost::signal<void(bool)>           onBackgroundProcessing;
    boost::signal<void(bool)>           onShutdown;
    boost::signal<void ()>              onSysSleep;
+   boost::signal<void (const core::system::FileChangeEvent&)>
+                                       onFileChanged;
 };
 
 Events& events();
@@ -128,6 +128,10 @@ core::Error getDurableProperties(const std::string& path,
 core::Error list(std::vector<boost::shared_ptr<SourceDocument> >* pDocs);
 core::Error put(boost::shared_ptr<SourceDocument> pDoc);
 core::Error remove(const std::string& id);
+
+// ids of the documents (if any) with the given path
+core::Error idsForPath(const core::FilePath& filePath,
+                       std::vector<std::string>* pIds);
 core::Error removeAll();
 
 core::Error initialize();
@@ -73,6 +73,7 @@ extern const int kUiPrefsChanged;
 extern const int kHandleUnsavedChanges;
 extern const int kPosixShellOutput;
 extern const int kPosixShellExit;
+extern const int kSourceDocChangedOnDisk;
 }
    
 class ClientEvent
@@ -15,6 +15,14 @@
 
 #include <string>
 #include <map>
+#include <list>
+#include <limits>
+#include <set>
+#include <vector>
+#include <istream>
+#include <algorithm>
+#include <cctype>
+#include <cstring>
 
 #include <boost/bind.hpp>
 #include <boost/foreach.hpp>
@@ -356,11 +364,69 @@ Error saveDocument(const json::JsonRpcRequest& request,
    return Success();
 }
 
-Error saveDocumentDiff(const json::JsonRpcRequest& request,
-                       json::JsonRpcResponse* pResponse)
+// replace the characters [offset, offset+length) of contents with
+// replacement (returns false if contents isn't valid UTF8 or the range
+// is out of bounds)
+bool applyDocumentEdit(const std::string& replacement,
+                       int offset,
+                       int length,
+                       std::string* pContents)
 {
    using namespace core::string_utils;
 
+   // Offset and length are specified in characters, but contents
+   // is in UTF8 bytes. Convert before using.
+   std::string& contents = *pContents;
+   std::string::iterator rangeBegin = contents.begin();
+   Error error = utf8Advance(rangeBegin, offset, contents.end(), &rangeBegin);
+   if (error)
+      return false;
+
+   std::string::iterator rangeEnd = rangeBegin;
+   error = utf8Advance(rangeEnd, length, contents.end(), &rangeEnd);
+   if (error)
+      return false;
+
+   std::string::size_type pos = rangeBegin - contents.begin();
+   contents.erase(rangeBegin, rangeEnd);
+   contents.insert(pos, replacement);
+   return true;
+}
+
+// apply a list of [offset, length, replacement] edits in order (each is
+// relative to the result of the ones before it)
+bool applyDocumentEdits(const json::Array& edits, std::string* pContents)
+{
+   for (json::Array::const_iterator it = edits.begin();
+        it != edits.end();
+        ++it)
+   {
+      if (!json::isType<json::Array>(*it))
+         return false;
+      const json::Array& edit = it->get_array();
+      if (edit.size() != 3 ||
+          !json::isType<int>(edit[0]) ||
+          !json::isType<int>(edit[1]) ||
+          !json::isType<std::string>(edit[2]))
+      {
+         return false;
+      }
+
+      if (!applyDocumentEdit(edit[2].get_str(),
+                             edit[0].get_int(),
+                             edit[1].get_int(),
+                             pContents))
+      {
+         return false;
+      }
+   }
+
+   return true;
+}
+
+Error saveDocumentDiff(const json::JsonRpcRequest& request,
+                       json::JsonRpcResponse* pResponse)
+{
    // unique id and jsonPath (can be null for auto-save)
    std::string id;
    json::Value jsonPath, jsonType, jsonEncoding;
@@ -387,6 +453,13 @@ Error saveDocumentDiff(const json::JsonRpcRequest& request,
                                   &hash);
    if (error)
       return error ;
+
+   // Optionally a list of edits ([offset, length, replacement], each
+   // relative to the result of the previous ones) to apply instead of
+   // the single replacement above
+   json::Value jsonEdits;
+   if (request.params.size() > 8)
+      jsonEdits = request.params[8];
    
    // if this has no path then it is an autosave, in this case
    // suppress change detection
@@ -405,20 +478,15 @@ Error saveDocumentDiff(const json::JsonRpcRequest& request,
    {
       std::string contents(pDoc->contents());
 
-      // Offset and length are specified in characters, but contents
-      // is in UTF8 bytes. Convert before using.
-      std::string::iterator rangeBegin = contents.begin();
-      error = utf8Advance(rangeBegin, offset, contents.end(), &rangeBegin);
-      if (error)
-         return Success(); // UTF8 decoding failed. Abort differential save.
-
-      std::string::iterator rangeEnd = rangeBegin;
-      error = utf8Advance(rangeEnd, length, contents.end(), &rangeEnd);
-      if (error)
-         return Success(); // UTF8 decoding failed. Abort differential save.
-
-      contents.erase(rangeBegin, rangeEnd);
-      contents.insert(rangeBegin, replacement.begin(), replacement.end());
+      // If the edits can't be applied (bad UTF8 or a malformed edit) then
+      // abort the differential save (the client will send the contents)
+      bool applied;
+      if (json::isType<json::Array>(jsonEdits))
+         applied = applyDocumentEdits(jsonEdits.get_array(), &contents);
+      else
+         applied = applyDocumentEdit(replacement, offset, length, &contents);
+      if (!applied)
+         return Success();
       
       error = saveDocumentCore(contents, jsonPath, jsonType, jsonEncoding, pDoc);
       if (error)
@@ -435,33 +503,156 @@ Error saveDocumentDiff(const json::JsonRpcRequest& request,
    return Success();
 }
 
-Error checkForExternalEdit(const json::JsonRpcRequest& request,
-                           json::JsonRpcResponse* pResponse)
+json::Value objectMember(const json::Object& object, const std::string& name)
 {
-   pResponse->setSuppressDetectChanges(true);
+   json::Object::const_iterator it = object.find(name);
+   if (it != object.end())
+      return it->second;
+   else
+      return json::Value();
+}
 
-   // params
-   std::string id ;
-   Error error = json::readParams(request.params, &id);
+// save one of the documents in a save_documents request. the document is
+// given either as its contents or as a list of edits (see saveDocumentDiff)
+// and the hash of the version they apply to. the result is the new hash,
+// or null if the edits couldn't be applied
+Error saveDocumentsEntry(const json::Object& entry, json::Value* pResult)
+{
+   std::string id;
+   Error error = json::readObject(entry, "id", &id);
    if (error)
       return error;
 
-   boost::shared_ptr<SourceDocument> pDoc(new SourceDocument()) ;
+   json::Value jsonPath = objectMember(entry, "path");
+   json::Value jsonType = objectMember(entry, "type");
+   json::Value jsonEncoding = objectMember(entry, "encoding");
+   json::Value jsonEdits = objectMember(entry, "edits");
+
+   // get the doc
+   boost::shared_ptr<SourceDocument> pDoc(new SourceDocument());
    error = source_database::get(id, pDoc);
    if (error)
       return error ;
 
-   json::Object result;
+   std::string contents;
+   if (json::isType<json::Array>(jsonEdits))
+   {
+      std::string hash;
+      error = json::readObject(entry, "hash", &hash);
+      if (error)
+         return error;
+
+      contents = pDoc->contents();
+      if (pDoc->hash() != hash ||
+          !applyDocumentEdits(jsonEdits.get_array(), &contents))
+      {
+         *pResult = json::Value();
+         return Success();
+      }
+   }
+   else
+   {
+      error = json::readObject(entry, "contents", &contents);
+      if (error)
+         return error;
+   }
+
+   error = saveDocumentCore(contents, jsonPath, jsonType, jsonEncoding, pDoc);
+   if (error)
+      return error;
+
+   error = sourceDatabasePutWithUpdatedContents(pDoc);
+   if (error)
+      return error;
+
+   *pResult = pDoc->hash();
+   return Success();
+}
+
+// save a set of documents in one request (e.g. for Save All or when
+// quitting). each document gets its own result: an object with either the
+// new hash (null if its edits couldn't be applied) or an error message
+Error saveDocuments(const json::JsonRpcRequest& request,
+                    json::JsonRpcResponse* pResponse)
+{
+   json::Array entries;
+   Error error = json::readParams(request.params, &entries);
+   if (error)
+      return error;
+
+   // suppress change detection if these are all autosaves
+   bool hasPath = false;
+   json::Array results;
+   for (json::Array::const_iterator it = entries.begin();
+        it != entries.end();
+        ++it)
+   {
+      json::Value hash;
+      if (json::isType<json::Object>(*it))
+      {
+         const json::Object& entry = it->get_obj();
+         if (json::isType<std::string>(objectMember(entry, "path")))
+            hasPath = true;
+         error = saveDocumentsEntry(entry, &hash);
+      }
+      else
+      {
+         error = Error(json::errc::ParamTypeMismatch, ERROR_LOCATION);
+      }
+
+      json::Object result;
+      if (error)
+      {
+         LOG_ERROR(error);
+         result["error"] = error.summary();
+      }
+      else
+      {
+         result["hash"] = hash;
+      }
+      results.push_back(result);
+   }
+
+   if (!hasPath)
+      pResponse->setSuppressDetectChanges(true);
+
+   pResponse->setResult(results);
+   return Success();
+}
+
+// check whether a document's file has been modified or deleted since it
+// was last read or written (sets pChanged if it has). documents whose
+// files are monitored are skipped if unmonitoredOnly is set
+Error checkDocumentOnDisk(const std::string& id,
+                          bool unmonitoredOnly,
+                          json::Object* pResult,
+                          bool* pChanged)
+{
+   boost::shared_ptr<SourceDocument> pDoc(new SourceDocument()) ;
+   Error error = source_database::get(id, pDoc);
+   if (error)
+      return error ;
+
+   json::Object& result = *pResult;
+   result["id"] = id;
    result["modified"] = false;
    result["deleted"] = false;
+   *pChanged = false;
 
    // Only check if this document has ever been saved
    if (!pDoc->path().empty())
    {
       FilePath docFile = module_context::resolveAliasedPath(pDoc->path());
+      // changes to files in monitored directories are pushed to the client
+      // (see onFileChanged below) so they needn't be checked for on request
+      if (unmonitoredOnly &&
+          module_context::isDirectoryMonitored(docFile.parent()))
+         return Success();
+
       if (!docFile.exists() || docFile.isDirectory())
       {
          result["deleted"] = true;
+         *pChanged = true;
 
          pDoc->setDirty(true);
          error = source_database::put(pDoc);
@@ -479,10 +670,594 @@ Error checkForExternalEdit(const json::JsonRpcRequest& request,
             json::Object fsItem = module_context::createFileSystemItem(filePath);
             result["item"] = fsItem;
             result["modified"] = true;
+            *pChanged = true;
+         }
+      }
+   }
+
+   return Success();
+}
+
+// check a set of documents in one request, returning results only for
+// those which have changed
+Error checkForExternalEdits(const json::JsonRpcRequest& request,
+                            json::JsonRpcResponse* pResponse)
+{
+   pResponse->setSuppressDetectChanges(true);
+
+   json::Array ids;
+   bool unmonitoredOnly;
+   Error error = json::readParams(request.params, &ids, &unmonitoredOnly);
+   if (error)
+      return error;
+
+   json::Array results;
+   BOOST_FOREACH(const json::Value& id, ids)
+   {
+      if (!json::isType<std::string>(id))
+         return Error(json::errc::ParamTypeMismatch, ERROR_LOCATION);
+
+      json::Object result;
+      bool changed;
+      error = checkDocumentOnDisk(id.get_str(),
+                                  unmonitoredOnly,
+                                  &result,
+                                  &changed);
+      if (error)
+         LOG_ERROR(error);
+      else if (changed)
+         results.push_back(result);
+   }
+
+   pResponse->setResult(results);
+
+   return Success();
+}
+
+// paths of files which have changed on disk (checked against the
+// documents which are open once we're idle, so that saves we're in the
+// middle of making have been recorded in the source database)
+std::set<std::string> s_changedFiles;
+
+bool checkChangedFiles()
+{
+   std::set<std::string> changedFiles;
+   changedFiles.swap(s_changedFiles);
+
+   BOOST_FOREACH(const std::string& changedFile, changedFiles)
+   {
+      std::vector<std::string> ids;
+      Error error = source_database::idsForPath(FilePath(changedFile), &ids);
+      if (error)
+      {
+         LOG_ERROR(error);
+         continue;
+      }
+
+      BOOST_FOREACH(const std::string& id, ids)
+      {
+         json::Object result;
+         bool changed;
+         error = checkDocumentOnDisk(id, false, &result, &changed);
+         if (error)
+            LOG_ERROR(error);
+         else if (changed)
+         {
+            ClientEvent event(client_events::kSourceDocChangedOnDisk, result);
+            module_context::enqueClientEvent(event);
+         }
+      }
+   }
+
+   return false;
+}
+
+void onFileChanged(const core::system::FileChangeEvent& event)
+{
+   if (event.type() != core::system::FileChangeEvent::FileModified &&
+       event.type() != core::system::FileChangeEvent::FileRemoved)
+   {
+      return;
+   }
+
+   if (s_changedFiles.empty())
+   {
+      module_context::scheduleIncrementalWork(
+                              boost::posix_time::milliseconds(20),
+                              checkChangedFiles);
+   }
+   s_changedFiles.insert(event.fileInfo().absolutePath());
+}
+
+// files which are too large to open in the editor are viewed a range of
+// lines at a time. to find a line without reading the whole file we keep
+// the offset of every kLineIndexInterval'th line (reading forward from the
+// nearest one), which keeps the index small even for very large files
+const int kLineIndexInterval = 1000;
+
+// an index is built incrementally: a request only indexes as much of the
+// file as it needs (up to kMaxLineIndexBytesPerRequest) and the rest is
+// indexed kLineIndexChunkSize bytes at a time when the session is idle
+const std::streamsize kLineIndexChunkSize = 1024 * 1024;
+const std::streamoff kMaxLineIndexBytesPerRequest = 32 * kLineIndexChunkSize;
+
+// maximum number of lines returned by a single get_file_lines request
+const int kMaxFileLinesRequest = 10000;
+
+// lines longer than this are truncated when they are read (both for the
+// client and for searching)
+const std::size_t kMaxFileLineLength = 4096;
+
+// maximum number of lines scanned by a single search_file_lines request
+// (the client continues the search from where we left off)
+const int kMaxFileLinesSearched = 500000;
+
+// number of file indexes we keep around
+const std::size_t kMaxLineIndexes = 10;
+
+struct LineIndex
+{
+   LineIndex()
+      : size(0), lastWriteTime(0), lineCount(0), indexedOffset(0),
+        partialLine(false), complete(false)
+   {
+   }
+
+   uintmax_t size;
+   std::time_t lastWriteTime;
+
+   // lines found so far (all of the lines once the index is complete)
+   int lineCount;
+
+   // offsets[n] is the offset of line (n * kLineIndexInterval)
+   std::vector<std::streamoff> offsets;
+
+   // how much of the file has been indexed
+   std::streamoff indexedOffset;
+   bool partialLine;
+   bool complete;
+};
+
+// most recently used first
+typedef std::list<std::pair<std::string, boost::shared_ptr<LineIndex> > >
+                                                               LineIndexes;
+LineIndexes s_lineIndexes;
+bool s_indexingLines = false;
+
+bool isCurrent(const LineIndex& index, const FilePath& filePath)
+{
+   return index.size == filePath.size() &&
+          index.lastWriteTime == filePath.lastWriteTime();
+}
+
+// index the file until at least minLines lines are known (or maxBytes
+// have been read, or the whole file has been indexed)
+Error extendLineIndex(const FilePath& filePath,
+                      int minLines,
+                      std::streamoff maxBytes,
+                      LineIndex* pIndex)
+{
+   if (pIndex->complete)
+      return Success();
+
+   boost::shared_ptr<std::istream> pStream;
+   Error error = filePath.open_r(&pStream);
+   if (error)
+      return error;
+   pStream->seekg(pIndex->indexedOffset);
+
+   std::vector<char> buffer(kLineIndexChunkSize);
+   std::streamoff bytesRead = 0;
+   while (pIndex->lineCount < minLines && bytesRead < maxBytes)
+   {
+      pStream->read(&buffer[0], buffer.size());
+      std::streamsize count = pStream->gcount();
+      if (count <= 0)
+      {
+         // last line with no terminating newline
+         if (pIndex->partialLine)
+            pIndex->lineCount++;
+         pIndex->complete = true;
+         break;
+      }
+
+      const char* begin = &buffer[0];
+      const char* end = begin + count;
+      for (const char* pos = begin;
+           (pos = static_cast<const char*>(
+                        std::memchr(pos, '\n', end - pos))) != NULL;
+           pos++)
+      {
+         pIndex->lineCount++;
+         if (pIndex->lineCount % kLineIndexInterval == 0)
+         {
+            pIndex->offsets.push_back(
+                           pIndex->indexedOffset + (pos - begin) + 1);
+         }
+      }
+
+      pIndex->partialLine = buffer[count - 1] != '\n';
+      pIndex->indexedOffset += count;
+      bytesRead += count;
+   }
+
+   return Success();
+}
+
+// index a chunk of the most recently used incomplete index
+bool indexLines()
+{
+   for (LineIndexes::iterator it = s_lineIndexes.begin();
+        it != s_lineIndexes.end();
+        ++it)
+   {
+      boost::shared_ptr<LineIndex> pIndex = it->second;
+      if (pIndex->complete)
+         continue;
+
+      // drop indexes of files which have changed (they are rebuilt on
+      // the next request)
+      FilePath filePath(it->first);
+      Error error;
+      if (!filePath.exists() || !isCurrent(*pIndex, filePath))
+      {
+         s_lineIndexes.erase(it);
+      }
+      else
+      {
+         error = extendLineIndex(filePath,
+                                 std::numeric_limits<int>::max(),
+                                 kLineIndexChunkSize,
+                                 pIndex.get());
+         if (error)
+         {
+            LOG_ERROR(error);
+            s_lineIndexes.erase(it);
+         }
+      }
+      return true;
+   }
+
+   s_indexingLines = false;
+   return false;
+}
+
+// get the index for a file, making sure (within the per request limit)
+// that it covers at least minLines lines
+Error getLineIndex(const FilePath& filePath,
+                   int minLines,
+                   boost::shared_ptr<LineIndex>* ppIndex)
+{
+   // use the existing index if the file hasn't changed
+   std::string path = filePath.absolutePath();
+   boost::shared_ptr<LineIndex> pIndex;
+   for (LineIndexes::iterator it = s_lineIndexes.begin();
+        it != s_lineIndexes.end();
+        ++it)
+   {
+      if (it->first == path)
+      {
+         if (isCurrent(*it->second, filePath))
+         {
+            pIndex = it->second;
+            s_lineIndexes.splice(s_lineIndexes.begin(), s_lineIndexes, it);
+         }
+         else
+         {
+            s_lineIndexes.erase(it);
+         }
+         break;
+      }
+   }
+
+   if (!pIndex)
+   {
+      pIndex.reset(new LineIndex());
+      pIndex->size = filePath.size();
+      pIndex->lastWriteTime = filePath.lastWriteTime();
+      pIndex->offsets.push_back(0);
+
+      s_lineIndexes.push_front(std::make_pair(path, pIndex));
+      if (s_lineIndexes.size() > kMaxLineIndexes)
+         s_lineIndexes.pop_back();
+   }
+
+   Error error = extendLineIndex(filePath,
+                                 minLines,
+                                 kMaxLineIndexBytesPerRequest,
+                                 pIndex.get());
+   if (error)
+      return error;
+
+   if (!pIndex->complete && !s_indexingLines)
+   {
+      s_indexingLines = true;
+      module_context::scheduleIncrementalWork(
+                              boost::posix_time::milliseconds(20),
+                              indexLines);
+   }
+
+   *ppIndex = pIndex;
+   return Success();
+}
+
+// open a file positioned at the start of the specified line (which must
+// be covered by the index)
+Error openFileAtLine(const FilePath& filePath,
+                     const LineIndex& index,
+                     int line,
+                     boost::shared_ptr<std::istream>* ppStream)
+{
+   Error error = filePath.open_r(ppStream);
+   if (error)
+      return error;
+
+   std::istream& stream = **ppStream;
+   stream.seekg(index.offsets[line / kLineIndexInterval]);
+   for (int i = 0; i < line % kLineIndexInterval && stream.good(); i++)
+      stream.ignore(std::numeric_limits<std::streamsize>::max(), '\n');
+
+   return Success();
+}
+
+// read a line, keeping at most maxLength bytes of it (the rest of a longer
+// line is skipped rather than read into memory)
+bool readFileLine(std::istream& stream,
+                  std::size_t maxLength,
+                  std::string* pLine)
+{
+   pLine->resize(maxLength + 1);
+   stream.getline(&(*pLine)[0], pLine->size());
+   std::streamsize count = stream.gcount();
+
+   std::size_t length;
+   if (stream.fail())
+   {
+      // nothing left to read
+      if (count == 0)
+         return false;
+
+      // the line was too long
+      length = count;
+      stream.clear();
+      stream.ignore(std::numeric_limits<std::streamsize>::max(), '\n');
+   }
+   else if (stream.eof())
+   {
+      // last line with no terminating newline
+      length = count;
+   }
+   else
+   {
+      // (count includes the newline)
+      length = count - 1;
+   }
+   pLine->resize(length);
+
+   if (!pLine->empty() && (*pLine)[pLine->size() - 1] == '\r')
+      pLine->erase(pLine->size() - 1);
+
+   return true;
+}
+
+// remove a UTF-8 sequence which was cut short when a line was truncated
+void trimPartialUtf8(std::string* pStr)
+{
+   std::size_t pos = pStr->size();
+   std::size_t continuation = 0;
+   while (pos > 0 && continuation < 3 &&
+          ((*pStr)[pos - 1] & 0xC0) == 0x80)
+   {
+      pos--;
+      continuation++;
+   }
+   if (pos == 0)
+      return;
+
+   unsigned char lead = (*pStr)[pos - 1];
+   std::size_t expected = lead >= 0xF0 ? 3 :
+                          lead >= 0xE0 ? 2 :
+                          lead >= 0xC0 ? 1 : 0;
+   if (continuation < expected)
+      pStr->erase(pos - 1);
+}
+
+std::string resolveViewedFileEncoding(const std::string& encoding)
+{
+   return encoding.empty() ? std::string(::locale2charset(NULL)) : encoding;
+}
+
+bool isUtf8(const std::string& encoding)
+{
+   std::string lower = string_utils::toLower(encoding);
+   return lower == "utf-8" || lower == "utf8";
+}
+
+// convert a line read from a file to UTF-8 (characters which can't be
+// converted are substituted)
+std::string decodeFileLine(const std::string& line,
+                           const std::string& encoding)
+{
+   if (isUtf8(encoding))
+   {
+      std::string decoded = line;
+      trimPartialUtf8(&decoded);
+      return decoded;
+   }
+
+   std::string decoded;
+   Error error = r::util::iconvstr(line, encoding, "UTF-8", true, &decoded);
+   if (error)
+   {
+      LOG_ERROR(error);
+      return line;
+   }
+   return decoded;
+}
+
+Error resolveViewedFile(const std::string& path, FilePath* pFilePath)
+{
+   *pFilePath = module_context::resolveAliasedPath(path);
+   if (!pFilePath->exists() || pFilePath->isDirectory())
+   {
+      return systemError(boost::system::errc::no_such_file_or_directory,
+                         ERROR_LOCATION);
+   }
+   return Success();
+}
+
+// returns a range of lines from a file. if the file hasn't been completely
+// indexed yet the result may have fewer lines than requested (and
+// total_lines is the number of lines indexed so far)
+Error getFileLines(const json::JsonRpcRequest& request,
+                   json::JsonRpcResponse* pResponse)
+{
+   pResponse->setSuppressDetectChanges(true);
+
+   std::string path, encoding;
+   int start, count;
+   Error error = json::readParams(request.params,
+                                  &path,
+                                  &encoding,
+                                  &start,
+                                  &count);
+   if (error)
+      return error;
+   encoding = resolveViewedFileEncoding(encoding);
+
+   FilePath filePath;
+   error = resolveViewedFile(path, &filePath);
+   if (error)
+      return error;
+
+   start = std::max(0, start);
+   count = std::max(0, std::min(count, kMaxFileLinesRequest));
+
+   boost::shared_ptr<LineIndex> pIndex;
+   error = getLineIndex(filePath, start + count, &pIndex);
+   if (error)
+      return error;
+
+   start = std::min(start, pIndex->lineCount);
+   count = std::min(count, pIndex->lineCount - start);
+
+   json::Array lines;
+   if (count > 0)
+   {
+      boost::shared_ptr<std::istream> pStream;
+      error = openFileAtLine(filePath, *pIndex, start, &pStream);
+      if (error)
+         return error;
+
+      std::string line;
+      while (static_cast<int>(lines.size()) < count &&
+             readFileLine(*pStream, kMaxFileLineLength, &line))
+      {
+         lines.push_back(decodeFileLine(line, encoding));
+      }
+   }
+
+   json::Object result;
+   result["start"] = start;
+   result["lines"] = lines;
+   result["total_lines"] = pIndex->lineCount;
+   result["complete"] = pIndex->complete;
+   pResponse->setResult(result);
+
+   return Success();
+}
+
+bool charsEqualIgnoreCase(char a, char b)
+{
+   return std::tolower(static_cast<unsigned char>(a)) ==
+          std::tolower(static_cast<unsigned char>(b));
+}
+
+// find the lines (from start onwards) which contain a string. the scan
+// stops after maxResults matches or kMaxFileLinesSearched lines, returning
+// the line to continue from (or -1 if the end of the file was reached)
+Error searchFileLines(const json::JsonRpcRequest& request,
+                      json::JsonRpcResponse* pResponse)
+{
+   pResponse->setSuppressDetectChanges(true);
+
+   std::string path, encoding, query;
+   int start, maxResults;
+   Error error = json::readParams(request.params,
+                                  &path,
+                                  &encoding,
+                                  &query,
+                                  &start,
+                                  &maxResults);
+   if (error)
+      return error;
+   encoding = resolveViewedFileEncoding(encoding);
+
+   FilePath filePath;
+   error = resolveViewedFile(path, &filePath);
+   if (error)
+      return error;
+
+   // search the file's bytes for the query in the file's encoding
+   if (!isUtf8(encoding))
+   {
+      std::string encodedQuery;
+      error = r::util::iconvstr(query, "UTF-8", encoding, false,
+                                &encodedQuery);
+      if (error)
+         return error;
+      query = encodedQuery;
+   }
+
+   start = std::max(0, start);
+
+   boost::shared_ptr<LineIndex> pIndex;
+   error = getLineIndex(filePath, start + 1, &pIndex);
+   if (error)
+      return error;
+
+   json::Array matches;
+   int nextLine = -1;
+   if (!query.empty() && start >= pIndex->lineCount && !pIndex->complete)
+   {
+      // the index hasn't reached the start line yet
+      nextLine = start;
+   }
+   else if (!query.empty() && start < pIndex->lineCount)
+   {
+      boost::shared_ptr<std::istream> pStream;
+      error = openFileAtLine(filePath, *pIndex, start, &pStream);
+      if (error)
+         return error;
+
+      // lines past the end of the index are read sequentially, so the
+      // search doesn't need to wait for the index to be built
+      int lineNumber = start;
+      std::string line;
+      while (readFileLine(*pStream, kMaxFileLineLength, &line))
+      {
+         if (std::search(line.begin(), line.end(),
+                         query.begin(), query.end(),
+                         charsEqualIgnoreCase) != line.end())
+         {
+            matches.push_back(lineNumber);
+         }
+         lineNumber++;
+
+         if (static_cast<int>(matches.size()) >= maxResults ||
+             lineNumber - start >= kMaxFileLinesSearched)
+         {
+            if (pStream->peek() != std::char_traits<char>::eof())
+               nextLine = lineNumber;
+            break;
          }
       }
    }
 
+   json::Object result;
+   result["matches"] = matches;
+   result["next_line"] = nextLine;
+   result["total_lines"] = pIndex->complete ? pIndex->lineCount : -1;
    pResponse->setResult(result);
 
    return Success();
@@ -799,6 +1574,7 @@ Error initialize()
    // connect to events
    using namespace module_context;
    events().onShutdown.connect(onShutdown);
+   events().onFileChanged.connect(onFileChanged);
 
    // add suspend/resume handler
    addSuspendHandler(SuspendHandler(onSuspend, onResume));
@@ -813,7 +1589,8 @@ Error initialize()
       (bind(registerRpcMethod, "open_document", openDocument))
       (bind(registerRpcMethod, "save_document", saveDocument))
       (bind(registerRpcMethod, "save_document_diff", saveDocumentDiff))
-      (bind(registerRpcMethod, "check_for_external_edit", checkForExternalEdit))
+      (bind(registerRpcMethod, "save_documents", saveDocuments))
+      (bind(registerRpcMethod, "check_for_external_edits", checkForExternalEdits))
       (bind(registerRpcMethod, "ignore_external_edit", ignoreExternalEdit))
       (bind(registerRpcMethod, "set_source_document_on_save", setSourceDocumentOnSave))
       (bind(registerRpcMethod, "modify_document_properties", modifyDocumentProperties))
@@ -821,6 +1598,8 @@ Error initialize()
       (bind(registerRpcMethod, "reopen_with_encoding", reopenWithEncoding))
       (bind(registerRpcMethod, "close_document", closeDocument))
       (bind(registerRpcMethod, "close_all_documents", closeAllDocuments))
+      (bind(registerRpcMethod, "get_file_lines", getFileLines))
+      (bind(registerRpcMethod, "search_file_lines", searchFileLines))
       (bind(sourceModuleRFile, "SessionSource.R"));
    return initBlock.execute();
 
@@ -0,0 +1,86 @@
+/*
+ * ClientMetrics.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client;
+
+import com.google.gwt.event.shared.HandlerRegistration;
+
+import java.util.ArrayList;
+
+// Registry of client side performance counters (for diagnostics). Sources
+// register themselves and are asked for their current values when the
+// metrics are displayed (see RequestLogVisualization).
+public class ClientMetrics
+{
+   public interface Source
+   {
+      void collect(Values values);
+   }
+
+   // name/value pairs reported by a source (in the order they were added)
+   public static class Values
+   {
+      public void add(String name, Object value)
+      {
+         names_.add(name);
+         values_.add(String.valueOf(value));
+      }
+
+      public int size()
+      {
+         return names_.size();
+      }
+
+      public String getName(int index)
+      {
+         return names_.get(index);
+      }
+
+      public String getValue(int index)
+      {
+         return values_.get(index);
+      }
+
+      private final ArrayList<String> names_ = new ArrayList<String>();
+      private final ArrayList<String> values_ = new ArrayList<String>();
+   }
+
+   public static HandlerRegistration register(String name, Source source)
+   {
+      final Pair<String, Source> entry = new Pair<String, Source>(name, source);
+      sources_.add(entry);
+      return new HandlerRegistration()
+      {
+         public void removeHandler()
+         {
+            sources_.remove(entry);
+         }
+      };
+   }
+
+   // current values of every registered source, keyed by source name
+   public static ArrayList<Pair<String, Values>> collect()
+   {
+      ArrayList<Pair<String, Values>> result =
+                                    new ArrayList<Pair<String, Values>>();
+      for (Pair<String, Source> entry : sources_)
+      {
+         Values values = new Values();
+         entry.second.collect(values);
+         result.add(new Pair<String, Values>(entry.first, values));
+      }
+      return result;
+   }
+
+   private static final ArrayList<Pair<String, Source>> sources_ =
+                                    new ArrayList<Pair<String, Source>>();
+}
@@ -0,0 +1,114 @@
+/*
+ * RingBuffer.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client;
+
+import java.util.ArrayList;
+
+/**
+ * FIFO queue backed by a circular array. Adding to the tail or the head and
+ * removing from the head are all O(1); the backing array doubles in size 
+ * when full.
+ */
+public class RingBuffer<T>
+{
+   public RingBuffer()
+   {
+      this(16);
+   }
+
+   public RingBuffer(int initialCapacity)
+   {
+      items_ = new ArrayList<T>(initialCapacity);
+      for (int i = 0; i < initialCapacity; i++)
+         items_.add(null);
+   }
+
+   public void add(T item)
+   {
+      if (size_ == items_.size())
+         grow();
+
+      items_.set((head_ + size_) % items_.size(), item);
+      size_++;
+   }
+
+   public void addFirst(T item)
+   {
+      if (size_ == items_.size())
+         grow();
+
+      head_ = (head_ + items_.size() - 1) % items_.size();
+      items_.set(head_, item);
+      size_++;
+   }
+
+   public T peek()
+   {
+      if (size_ == 0)
+         return null;
+      return items_.get(head_);
+   }
+
+   public T remove()
+   {
+      if (size_ == 0)
+         return null;
+
+      T item = items_.get(head_);
+      items_.set(head_, null);
+      head_ = (head_ + 1) % items_.size();
+      size_--;
+      return item;
+   }
+
+   public T get(int index)
+   {
+      if (index < 0 || index >= size_)
+         throw new IndexOutOfBoundsException();
+      return items_.get((head_ + index) % items_.size());
+   }
+
+   public int size()
+   {
+      return size_;
+   }
+
+   public boolean isEmpty()
+   {
+      return size_ == 0;
+   }
+
+   public void clear()
+   {
+      for (int i = 0; i < items_.size(); i++)
+         items_.set(i, null);
+      head_ = 0;
+      size_ = 0;
+   }
+
+   private void grow()
+   {
+      int capacity = Math.max(items_.size(), 1);
+      ArrayList<T> items = new ArrayList<T>(capacity * 2);
+      for (int i = 0; i < size_; i++)
+         items.add(get(i));
+      for (int i = size_; i < capacity * 2; i++)
+         items.add(null);
+      items_ = items;
+      head_ = 0;
+   }
+
+   private ArrayList<T> items_;
+   private int head_ = 0;
+   private int size_ = 0;
+}
@@ -12,12 +12,21 @@
  */
 package org.rstudio.core.client;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+
 import org.rstudio.core.client.regex.Match;
 import org.rstudio.core.client.regex.Pattern;
 
 /**
  * Simulates a console that behaves like the R console, specifically with
  * regard to \r (carriage return) and \b (backspace) characters.
+ *
+ * Output is held as a list of lines and \r and \b only ever affect the
+ * current (last) line, so the cost of each submit is proportional to the
+ * size of the data and the current line rather than to all of the output.
+ * Callers which mirror the output elsewhere can use the index returned by
+ * submit to update only the lines which changed.
  */
 public class VirtualConsole
 {
@@ -25,15 +34,27 @@ public class VirtualConsole
    {
    }
 
-   public void submit(String data)
+   // returns the index of the first line changed by the submit (lines from
+   // that index through the last line may have changed), or -1 if nothing
+   // changed
+   public int submit(String data)
    {
       if (StringUtil.isNullOrEmpty(data))
-         return;
+         return -1;
+
+      int firstChanged = lines_.size() - 1;
 
       if (CONTROL_SPECIAL.match(data, 0) == null)
       {
-         text(data);
-         return;
+         int tail = 0;
+         for (int i = data.indexOf('\n'); i >= 0; i = data.indexOf('\n', tail))
+         {
+            text(data.substring(tail, i));
+            newline();
+            tail = i + 1;
+         }
+         text(data.substring(tail));
+         return firstChanged;
       }
 
       int tail = 0;
@@ -70,43 +91,64 @@ public class VirtualConsole
 
       // If there was any plain text after the last control character, add it
       text(data.substring(tail));
+
+      return firstChanged;
+   }
+
+   // number of lines (a trailing newline results in an empty last line)
+   public int getLineCount()
+   {
+      return lines_.size();
+   }
+
+   public String getLine(int index)
+   {
+      if (index == lines_.size() - 1)
+         return line_.toString();
+      return lines_.get(index);
    }
 
    private void backspace()
    {
-      if (pos == 0)
+      if (pos_ == 0)
          return;
-      o.deleteCharAt(--pos);
+      line_.deleteCharAt(--pos_);
    }
 
    private void carriageReturn()
    {
-      if (pos == 0)
-         return;
-      while (pos > 0 && o.charAt(pos - 1) != '\n')
-         pos--;
-      // Now we're either at the beginning of the buffer, or just past a '\n'
+      pos_ = 0;
    }
 
    private void newline()
    {
-      while (pos < o.length() && o.charAt(pos) != '\n')
-         pos++;
-      // Now we're either at the end of the buffer, or on top of a '\n'
-      text("\n");
+      lines_.set(lines_.size() - 1, line_.toString());
+      lines_.add("");
+      line_ = new StringBuilder();
+      pos_ = 0;
    }
 
    private void text(String text)
    {
       assert text.indexOf('\r') < 0 && text.indexOf('\b') < 0;
 
-      o.replace(pos, pos + text.length(), text);
-      pos += text.length();
+      if (text.length() == 0)
+         return;
+
+      line_.replace(pos_, Math.min(pos_ + text.length(), line_.length()), text);
+      pos_ += text.length();
    }
 
    @Override
    public String toString()
    {
+      StringBuilder o = new StringBuilder();
+      for (int i = 0; i < lines_.size(); i++)
+      {
+         if (i > 0)
+            o.append('\n');
+         o.append(getLine(i));
+      }
       return o.toString();
    }
 
@@ -117,8 +159,12 @@ public class VirtualConsole
       return console.toString();
    }
 
-   private final StringBuilder o = new StringBuilder();
-   private int pos = 0;
+   // completed lines (the entry for the current line is a placeholder,
+   // its contents are in line_)
+   private final ArrayList<String> lines_ = 
+                              new ArrayList<String>(Arrays.asList(""));
+   private StringBuilder line_ = new StringBuilder();
+   private int pos_ = 0;
    private static final Pattern CONTROL = Pattern.create("[\r\b\n]");
    private static final Pattern CONTROL_SPECIAL = Pattern.create("[\r\b]");
 }
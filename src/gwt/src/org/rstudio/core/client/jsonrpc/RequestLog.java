@@ -12,25 +12,23 @@
  */
 package org.rstudio.core.client.jsonrpc;
 
-import java.util.ArrayList;
+import org.rstudio.core.client.RingBuffer;
 
+// Log of recent requests (for diagnostics). Entries are kept in a ring
+// buffer bounded both by count and by the total size of the request and
+// response text they hold (large payloads are truncated when logged).
+// Latency and size statistics are accumulated for every request which
+// completes, including those no longer in the log.
 public class RequestLog
 {
    public static RequestLogEntry log(String requestId, String requestData)
    {
       RequestLogEntry entry = new RequestLogEntry(System.currentTimeMillis(),
-                                                  requestId, requestData);
+                                                  requestId,
+                                                  truncate(requestData),
+                                                  requestData.length());
       entries_.add(entry);
-
-      for (int i = 0; entries_.size() > MAX_ENTRIES && i < entries_.size(); i++)
-      {
-         RequestLogEntry oldEntry = entries_.get(i);
-         if (!oldEntry.isAlive())
-         {
-            entries_.remove(i);
-            i--;
-         }
-      }
+      trim();
 
       return entry;
    }
@@ -43,8 +41,50 @@ public class RequestLog
       return entries;
    }
 
-   private static final ArrayList<RequestLogEntry> entries_ =
-         new ArrayList<RequestLogEntry>();
+   public static RequestLogStats getStats()
+   {
+      return stats_;
+   }
+
+   // called by RequestLogEntry when the response to a request is logged
+   static void onResponseLogged(RequestLogEntry entry)
+   {
+      stats_.add(entry);
+      trim();
+   }
+
+   static String truncate(String data)
+   {
+      if (data == null || data.length() <= MAX_PAYLOAD_CHARS)
+         return data;
+
+      return data.substring(0, MAX_PAYLOAD_CHARS) +
+             "... [" + (data.length() - MAX_PAYLOAD_CHARS) +
+             " characters truncated]";
+   }
+
+   // evict the oldest entries until we are within our limits. note that
+   // entries which are still alive are evicted too (the request still
+   // completes normally, it just no longer appears in the log)
+   private static void trim()
+   {
+      int chars = 0;
+      for (int i = 0; i < entries_.size(); i++)
+         chars += entries_.get(i).getLoggedSize();
+
+      while (entries_.size() > 1 &&
+             (entries_.size() > MAX_ENTRIES || chars > MAX_CHARS))
+      {
+         chars -= entries_.remove().getLoggedSize();
+      }
+   }
 
    private static final int MAX_ENTRIES = 50;
+   private static final int MAX_CHARS = 1024 * 1024;
+   private static final int MAX_PAYLOAD_CHARS = 16 * 1024;
+
+   private static final RingBuffer<RequestLogEntry> entries_ =
+         new RingBuffer<RequestLogEntry>(MAX_ENTRIES + 1);
+
+   private static final RequestLogStats stats_ = new RequestLogStats();
 }
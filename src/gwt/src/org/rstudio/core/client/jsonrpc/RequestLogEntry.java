@@ -30,10 +30,21 @@ public class RequestLogEntry
    public RequestLogEntry(long requestTime,
                           String requestId,
                           String requestData)
+   {
+      this(requestTime, requestId, requestData, requestData.length());
+   }
+
+   // requestSize is the size of the request before any truncation of
+   // requestData
+   public RequestLogEntry(long requestTime,
+                          String requestId,
+                          String requestData,
+                          int requestSize)
    {
       requestTime_ = requestTime;
       requestId_ = requestId;
       requestData_ = requestData;
+      requestSize_ = requestSize;
    }
 
    public long getRequestTime()
@@ -62,10 +73,55 @@ public class RequestLogEntry
    }
 
    public void logResponse(int responseType, String data)
+   {
+      logResponse(responseType, data, data != null ? data.length() : 0);
+   }
+
+   // log a summary of a response whose text isn't available (e.g. one
+   // call's share of a batch response) along with its size
+   public void logResponse(int responseType, String data, int size)
    {
       responseType_ = responseType;
       responseTime_ = System.currentTimeMillis();
-      responseData_ = data;
+      responseSize_ = size;
+      responseData_ = RequestLog.truncate(data);
+      RequestLog.onResponseLogged(this);
+   }
+
+   // sizes (in characters) of the request and response before truncation
+   public int getRequestSize()
+   {
+      return requestSize_;
+   }
+
+   public Integer getResponseSize()
+   {
+      return responseSize_;
+   }
+
+   // size of the (possibly truncated) text held by this entry
+   int getLoggedSize()
+   {
+      return requestData_.length() +
+             (responseData_ != null ? responseData_.length() : 0);
+   }
+
+   // record the time taken to decode the response (deferred indicates
+   // the response was large enough that its decode was deferred)
+   public void logDecode(int decodeMs, boolean deferred)
+   {
+      decodeTime_ = decodeMs;
+      decodeDeferred_ = deferred;
+   }
+
+   public Integer getDecodeTime()
+   {
+      return decodeTime_;
+   }
+
+   public boolean getDecodeDeferred()
+   {
+      return decodeDeferred_;
    }
 
    public int getResponseType()
@@ -94,10 +150,14 @@ public class RequestLogEntry
    {
       RequestLogEntry clone = new RequestLogEntry(requestTime_,
                                                   requestId_,
-                                                  requestData_);
+                                                  requestData_,
+                                                  requestSize_);
       clone.responseType_ = responseType_;
+      clone.responseSize_ = responseSize_;
       clone.responseData_ = responseData_;
       clone.responseTime_ = responseTime_;
+      clone.decodeTime_ = decodeTime_;
+      clone.decodeDeferred_ = decodeDeferred_;
       return clone;
    }
 
@@ -111,6 +171,11 @@ public class RequestLogEntry
       {
          writer.writeValue(responseTime_.toString());
          writer.writeValue(responseData_);
+         writer.writeValue(decodeTime_ != null ? decodeTime_.toString() : "");
+         writer.writeValue(decodeDeferred_ ? "1" : "0");
+         writer.writeValue(requestSize_ + "");
+         writer.writeValue(responseSize_ != null ? 
+                                       responseSize_.toString() : "");
       }
       writer.endLine();
    }
@@ -135,13 +200,33 @@ public class RequestLogEntry
       entry.responseType_ = respType;
       entry.responseTime_ = respTime;
       entry.responseData_ = respData;
+      if (respType != ResponseType.None && line.length >= 8)
+      {
+         if (line[6].length() > 0)
+            entry.decodeTime_ = Integer.parseInt(line[6]);
+         entry.decodeDeferred_ = line[7].equals("1");
+      }
+      if (respType != ResponseType.None && line.length >= 10)
+      {
+         entry.requestSize_ = Integer.parseInt(line[8]);
+         if (line[9].length() > 0)
+            entry.responseSize_ = Integer.parseInt(line[9]);
+      }
+      else if (respData != null)
+      {
+         entry.responseSize_ = respData.length();
+      }
       return entry;
    }
 
    private final long requestTime_;
    private final String requestId_;
    private final String requestData_;
+   private int requestSize_;
+   private Integer responseSize_;
    private Long responseTime_;
    private String responseData_;
    private int responseType_ = ResponseType.None;
+   private Integer decodeTime_;
+   private boolean decodeDeferred_;
 }
@@ -0,0 +1,169 @@
+/*
+ * RequestLogStats.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.jsonrpc;
+
+import org.rstudio.core.client.CsvWriter;
+import org.rstudio.core.client.jsonrpc.RequestLogEntry.ResponseType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+
+// Per-method latency and payload size statistics for completed requests.
+// Latency percentiles are computed over the most recent SAMPLE_COUNT
+// requests for each method.
+public class RequestLogStats
+{
+   public static class MethodStats
+   {
+      MethodStats(String method)
+      {
+         method_ = method;
+      }
+
+      public String getMethod()
+      {
+         return method_;
+      }
+
+      public int getCount()
+      {
+         return count_;
+      }
+
+      public int getErrorCount()
+      {
+         return errorCount_;
+      }
+
+      public long getRequestSize()
+      {
+         return requestSize_;
+      }
+
+      public long getResponseSize()
+      {
+         return responseSize_;
+      }
+
+      // latency (in ms) below which the given fraction of recent requests
+      // completed (e.g. 0.95 for the 95th percentile)
+      public int getLatencyPercentile(double fraction)
+      {
+         int samples = Math.min(count_, SAMPLE_COUNT);
+         if (samples == 0)
+            return 0;
+
+         int[] sorted = new int[samples];
+         System.arraycopy(latencies_, 0, sorted, 0, samples);
+         Arrays.sort(sorted);
+         int index = (int)Math.ceil(fraction * samples) - 1;
+         return sorted[Math.max(0, Math.min(samples - 1, index))];
+      }
+
+      void add(RequestLogEntry entry)
+      {
+         latencies_[count_ % SAMPLE_COUNT] =
+               (int)(entry.getResponseTime() - entry.getRequestTime());
+         count_++;
+         if (entry.getResponseType() == ResponseType.Error)
+            errorCount_++;
+         requestSize_ += entry.getRequestSize();
+         if (entry.getResponseSize() != null)
+            responseSize_ += entry.getResponseSize();
+      }
+
+      private final String method_;
+      private int count_ = 0;
+      private int errorCount_ = 0;
+      private long requestSize_ = 0;
+      private long responseSize_ = 0;
+      private final int[] latencies_ = new int[SAMPLE_COUNT];
+   }
+
+   public static RequestLogStats fromEntries(RequestLogEntry[] entries)
+   {
+      RequestLogStats stats = new RequestLogStats();
+      for (RequestLogEntry entry : entries)
+         stats.add(entry);
+      return stats;
+   }
+
+   public void add(RequestLogEntry entry)
+   {
+      // only completed requests are included (cancelled requests say
+      // nothing about the latency of the method)
+      if (entry.getResponseTime() == null ||
+          entry.getResponseType() == ResponseType.None ||
+          entry.getResponseType() == ResponseType.Cancelled)
+      {
+         return;
+      }
+
+      String method = entry.getRequestMethodName();
+      if (method == null)
+         method = "(unknown)";
+
+      MethodStats stats = stats_.get(method);
+      if (stats == null)
+      {
+         stats = new MethodStats(method);
+         stats_.put(method, stats);
+      }
+      stats.add(entry);
+   }
+
+   // stats for each method (in order of method name)
+   public ArrayList<MethodStats> getMethodStats()
+   {
+      ArrayList<String> methods = new ArrayList<String>(stats_.keySet());
+      Collections.sort(methods);
+
+      ArrayList<MethodStats> result = new ArrayList<MethodStats>();
+      for (String method : methods)
+         result.add(stats_.get(method));
+      return result;
+   }
+
+   public void toCsv(CsvWriter writer)
+   {
+      writer.writeValue("method");
+      writer.writeValue("count");
+      writer.writeValue("errors");
+      writer.writeValue("p50");
+      writer.writeValue("p95");
+      writer.writeValue("p99");
+      writer.writeValue("request_size");
+      writer.writeValue("response_size");
+      writer.endLine();
+
+      for (MethodStats stats : getMethodStats())
+      {
+         writer.writeValue(stats.getMethod());
+         writer.writeValue(stats.getCount() + "");
+         writer.writeValue(stats.getErrorCount() + "");
+         writer.writeValue(stats.getLatencyPercentile(0.50) + "");
+         writer.writeValue(stats.getLatencyPercentile(0.95) + "");
+         writer.writeValue(stats.getLatencyPercentile(0.99) + "");
+         writer.writeValue(stats.getRequestSize() + "");
+         writer.writeValue(stats.getResponseSize() + "");
+         writer.endLine();
+      }
+   }
+
+   private static final int SAMPLE_COUNT = 256;
+
+   private final HashMap<String, MethodStats> stats_ =
+                                       new HashMap<String, MethodStats>();
+}
@@ -26,6 +26,17 @@ public class RpcError extends JavaScriptObject
       return error ;
    }-*/;
    
+   // transmission error for a request which received a non-200 http 
+   // response (status is 0 if no response was received at all)
+   public static final native RpcError createForStatus(int status, 
+                                                       String message) /*-{
+      var error = new Object();
+      error.code = @org.rstudio.core.client.jsonrpc.RpcError::TRANSMISSION_ERROR;
+      error.message = message ;
+      error.status = status ;
+      return error ;
+   }-*/;
+   
    protected RpcError()
    {
    }
@@ -70,6 +81,12 @@ public class RpcError extends JavaScriptObject
       return this.message;
    }-*/;
    
+   // http status of a transmission error (-1 if there was no http response
+   // status, e.g. because the request couldn't be made)
+   public final native int getStatus() /*-{
+      return this.status !== undefined ? this.status : -1;
+   }-*/;
+   
    public final native RpcUnderlyingError getError() /*-{
       return this.error;
    }-*/;
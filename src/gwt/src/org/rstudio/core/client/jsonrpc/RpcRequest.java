@@ -18,14 +18,18 @@ import com.google.gwt.json.client.JSONArray;
 import com.google.gwt.json.client.JSONNumber;
 import com.google.gwt.json.client.JSONObject;
 import com.google.gwt.json.client.JSONString;
+import com.google.gwt.user.client.Command;
 import com.google.gwt.user.client.Random;
 import org.rstudio.core.client.Debug;
 import org.rstudio.core.client.jsonrpc.RequestLogEntry.ResponseType;
 
-// NOTE: RpcRequest is an immutable object (all fields are marked final).
-// this means that it is safe to re-submit an RpcRequest since the 
-// re-submission will always be identical to the initial submission (useful
-// for retries after network or authentication errors)
+// NOTE: the content of an RpcRequest is immutable (the fields which make up
+// the request are marked final). this means that it is safe to re-submit an
+// RpcRequest since the re-submission will always be identical to the initial
+// submission (useful for retries after network or authentication errors).
+// the only mutable state is that of the current submission (the http request
+// and log entry) and whether the request has been cancelled. a cancelled
+// request is never sent again
 public class RpcRequest 
 {
    public static final boolean TRACE = false ;
@@ -38,6 +42,31 @@ public class RpcRequest
                      String sourceWindow,
                      String clientId,
                      double clientVersion)
+   {
+      this(url, 
+           method, 
+           params, 
+           kwparams, 
+           redactLog, 
+           sourceWindow, 
+           clientId, 
+           clientVersion, 
+           null);
+   }
+   
+   // etag is the tag of the cached result for this request (empty if the
+   // caller caches results but doesn't have one yet). the server includes
+   // the tag of the result in the response, and responds "not_modified"
+   // rather than with the result if it matches
+   public RpcRequest(String url, 
+                     String method, 
+                     JSONArray params, 
+                     JSONObject kwparams,
+                     boolean redactLog,
+                     String sourceWindow,
+                     String clientId,
+                     double clientVersion,
+                     String etag)
    {
       url_ = url;
       method_ = method;
@@ -53,6 +82,27 @@ public class RpcRequest
       else
          clientId_ = null;
       clientVersion_ = new JSONNumber(clientVersion);
+      if (etag != null)
+         etag_ = new JSONString(etag);
+      else
+         etag_ = null;
+   }
+   
+   public String getMethod()
+   {
+      return method_;
+   }
+   
+   public boolean getRedactLog()
+   {
+      return redactLog_;
+   }
+   
+   // length of the response text (-1 if the response hasn't been received
+   // or was part of a batch, in which case its length isn't known)
+   public int getResponseSize()
+   {
+      return responseSize_;
    }
    
    public void send(RpcRequestCallback callback)
@@ -61,24 +111,13 @@ public class RpcRequest
       final RpcRequest enclosingRequest = this ;
       final RpcRequestCallback requestCallback = callback ;
       
-      // build json request object
-      JSONObject request = new JSONObject() ;
-      request.put("method", new JSONString(method_)) ;
-      if ( params_ != null )
-         request.put("params", params_);  
-      if ( kwparams_ != null)
-         request.put("kwparams", kwparams_);
-      
-      // add src window if we have it
-      if (sourceWindow_ != null)
-         request.put("sourceWnd", sourceWindow_);
-      
-      // add client id if we have it
-      if (clientId_ != null)
-         request.put("clientId", clientId_);
+      // the request may have been cancelled before it was sent (e.g. while
+      // waiting for a batch to be flushed)
+      if (cancelled_)
+         return;
       
-      // add client version
-      request.put("version", clientVersion_);
+      // build json request object
+      JSONObject request = toJSONObject();
       
       // configure request builder
       RequestBuilder builder = new RequestBuilder(RequestBuilder.POST, url_);
@@ -118,29 +157,57 @@ public class RpcRequest
                int status = response.getStatusCode();
                if ( status == 200 )
                {
-                  // attempt to parse the response
-                  RpcResponse rpcResponse = null ;
-                  try
-                  {
-                     String responseText = response.getText();
-                     if (TRACE)
-                        Debug.log("Response: " + responseText) ;
-                     requestLogEntry_.logResponse(ResponseType.Normal,
-                                                 responseText);
-                     rpcResponse = RpcResponse.parse(responseText);
-                     
-                     // response received and validated, process it!
-                     requestCallback.onResponseReceived(enclosingRequest, 
-                                                        rpcResponse) ;
-                  }
-                  catch(Exception e)
-                  {
-                     // ERROR: Unable to parse JSON
-                     RpcError error = RpcError.create(
+                  String responseText = response.getText();
+                  responseSize_ = responseText.length();
+                  if (TRACE)
+                     Debug.log("Response: " + responseText) ;
+                  requestLogEntry_.logResponse(ResponseType.Normal,
+                                              responseText);
+                  
+                  // decode the response (large responses are decoded
+                  // asynchronously so we keep a reference to the log entry)
+                  final RequestLogEntry logEntry = requestLogEntry_;
+                  RpcResponseDecoder.decode(
+                                    responseText,
+                                    new RpcResponseDecoder.Callback() {
+                     public void onDecoded(RpcResponse rpcResponse,
+                                           int decodeMs,
+                                           boolean deferred)
+                     {
+                        // ignore if cancelled while decoding
+                        if (cancelled_)
+                           return;
+                        
+                        logEntry.logDecode(decodeMs, deferred);
+                        
+                        try
+                        {
+                           // ERROR: Unable to parse JSON
+                           if (rpcResponse == null)
+                           {
+                              RpcError error = RpcError.create(
+                                          RpcError.TRANSMISSION_ERROR,
+                                          "Unable to parse response from " +
+                                          "server (method " + method_ + ")");
+                              requestCallback.onError(enclosingRequest, 
+                                                      error);
+                              return;
+                           }
+                           
+                           // response received and validated, process it!
+                           requestCallback.onResponseReceived(
+                                                      enclosingRequest, 
+                                                      rpcResponse) ;
+                        }
+                        catch(Exception e)
+                        {
+                           RpcError error = RpcError.create(
                                                 RpcError.TRANSMISSION_ERROR,
                                                 e.getLocalizedMessage());
-                     requestCallback.onError(enclosingRequest, error) ;
-                  }
+                           requestCallback.onError(enclosingRequest, error) ;
+                        }
+                     }
+                  });
                }
                else
                {
@@ -160,9 +227,7 @@ public class RpcRequest
                  
                   requestLogEntry_.logResponse(ResponseType.Unknown,
                                               message);
-                  RpcError error = RpcError.create(
-                                             RpcError.TRANSMISSION_ERROR,
-                                             message) ;
+                  RpcError error = RpcError.createForStatus(status, message);
                   requestCallback.onError(enclosingRequest, error);
                }
             };
@@ -183,8 +248,102 @@ public class RpcRequest
       }
    }
    
+   // build the json request object for this call (used both for standalone
+   // submission and as an element of an RpcRequestBatch)
+   JSONObject toJSONObject()
+   {
+      JSONObject request = new JSONObject() ;
+      request.put("method", new JSONString(method_)) ;
+      if ( params_ != null )
+         request.put("params", params_);  
+      if ( kwparams_ != null)
+         request.put("kwparams", kwparams_);
+      
+      // add src window if we have it
+      if (sourceWindow_ != null)
+         request.put("sourceWnd", sourceWindow_);
+      
+      // add client id if we have it
+      if (clientId_ != null)
+         request.put("clientId", clientId_);
+      
+      // add client version
+      request.put("version", clientVersion_);
+      
+      // add etag if we have one
+      if (etag_ != null)
+         request.put("etag", etag_);
+      
+      return request;
+   }
+   
+   // the following methods are called by RpcRequestBatch to drive the
+   // lifecycle of a request which is being sent as part of a batch
+   
+   void onBatchSubmitted(String requestId, String requestString)
+   {
+      requestLogEntry_ = RequestLog.log(requestId,
+                                        redactLog_ ? "[REDACTED]"
+                                                   : requestString);
+   }
+   
+   void onBatchResponseReceived(RpcResponse response,
+                                String responseText,
+                                int responseSize,
+                                int decodeMs,
+                                boolean deferred,
+                                RpcRequestCallback callback)
+   {
+      if (cancelled_)
+         return;
+      
+      if (TRACE)
+         Debug.log("Response: " + responseText) ;
+      
+      // note that the decode time is that of the batch as a whole
+      if (requestLogEntry_ != null)
+      {
+         requestLogEntry_.logResponse(ResponseType.Normal, 
+                                      responseText,
+                                      responseSize);
+         requestLogEntry_.logDecode(decodeMs, deferred);
+      }
+      
+      callback.onResponseReceived(this, response);
+   }
+   
+   void onBatchError(int responseType, 
+                     RpcError error,
+                     RpcRequestCallback callback)
+   {
+      if (cancelled_)
+         return;
+      
+      if (requestLogEntry_ != null)
+         requestLogEntry_.logResponse(responseType, error.getMessage());
+      
+      callback.onError(this, error);
+   }
+   
+   public boolean isCancelled()
+   {
+      return cancelled_;
+   }
+   
+   // the handler is called when the request is cancelled (after which its
+   // callback won't be called). this allows whoever dispatched the request
+   // to account for its completion
+   public void setCancelHandler(Command cancelHandler)
+   {
+      cancelHandler_ = cancelHandler;
+   }
+   
    public void cancel()
    {
+      // batched requests don't own an http request, note the cancellation
+      // so that the response is dropped when the batch returns
+      cancelled_ = true;
+      
       if (request_ != null)
       {
          request_.cancel();
@@ -196,6 +355,13 @@ public class RpcRequest
          requestLogEntry_.logResponse(ResponseType.Cancelled, "Cancelled");
          requestLogEntry_ = null;
       }
+      
+      if (cancelHandler_ != null)
+      {
+         Command cancelHandler = cancelHandler_;
+         cancelHandler_ = null;
+         cancelHandler.execute();
+      }
    }
      
    final private String url_ ;
@@ -206,8 +372,12 @@ public class RpcRequest
    final private JSONString sourceWindow_;
    final private JSONString clientId_;
    final private JSONNumber clientVersion_;
+   final private JSONString etag_;
    private Request request_ = null;
    private RequestLogEntry requestLogEntry_ = null;
+   private boolean cancelled_ = false;
+   private Command cancelHandler_ = null;
+   private int responseSize_ = -1;
    
      
 }
@@ -0,0 +1,264 @@
+/*
+ * RpcRequestBatch.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.jsonrpc;
+
+import com.google.gwt.core.client.JsArray;
+import com.google.gwt.http.client.*;
+import com.google.gwt.json.client.JSONArray;
+import com.google.gwt.json.client.JSONNumber;
+import com.google.gwt.json.client.JSONObject;
+import com.google.gwt.json.client.JSONString;
+import com.google.gwt.user.client.Random;
+import org.rstudio.core.client.Debug;
+import org.rstudio.core.client.jsonrpc.RequestLogEntry.ResponseType;
+
+import java.util.ArrayList;
+
+// Sends a set of RpcRequests to the server in a single http round trip. The
+// requests are wrapped in an envelope which is itself a json-rpc request
+// (so it can be validated by the server like any other request):
+//
+//    { "method": "rpc_batch", "params": [ [ <call>, <call>, ... ] ], ... }
+//
+// The server responds with a result array containing the individual
+// json-rpc response for each call (in the same order as the calls). Each
+// call's RpcRequestCallback is then invoked individually, exactly as if
+// the request had been sent on its own.
+public class RpcRequestBatch
+{
+   public static final String METHOD = "rpc_batch";
+
+   public RpcRequestBatch(String url, String clientId, double clientVersion)
+   {
+      url_ = url;
+      clientId_ = clientId;
+      clientVersion_ = clientVersion;
+   }
+
+   public void add(RpcRequest request, RpcRequestCallback callback)
+   {
+      requests_.add(request);
+      callbacks_.add(callback);
+   }
+
+   public int size()
+   {
+      return requests_.size();
+   }
+
+   public void send()
+   {
+      // drop requests which were cancelled before the batch was sent (their
+      // callbacks must not be called)
+      for (int i = requests_.size() - 1; i >= 0; i--)
+      {
+         if (requests_.get(i).isCancelled())
+         {
+            requests_.remove(i);
+            callbacks_.remove(i);
+         }
+      }
+      
+      // nothing to do for an empty batch
+      if (requests_.size() == 0)
+         return;
+
+      // no need for an envelope if there is only a single request
+      if (requests_.size() == 1)
+      {
+         requests_.get(0).send(callbacks_.get(0));
+         return;
+      }
+
+      // build the envelope (log each of the calls individually so that
+      // they appear in the request log with redaction honored)
+      String requestId = Integer.toString(Random.nextInt());
+      JSONArray calls = new JSONArray();
+      for (int i = 0; i<requests_.size(); i++)
+      {
+         JSONObject call = requests_.get(i).toJSONObject();
+         calls.set(i, call);
+         requests_.get(i).onBatchSubmitted(requestId, call.toString());
+      }
+      JSONArray params = new JSONArray();
+      params.set(0, calls);
+
+      JSONObject request = new JSONObject();
+      request.put("method", new JSONString(METHOD));
+      request.put("params", params);
+      if (clientId_ != null)
+         request.put("clientId", new JSONString(clientId_));
+      request.put("version", new JSONNumber(clientVersion_));
+
+      // configure request builder
+      RequestBuilder builder = new RequestBuilder(RequestBuilder.POST, url_);
+      builder.setHeader("Content-Type", "application/json") ;
+      builder.setHeader("Accept", "application/json");
+      builder.setHeader("X-RS-RID", requestId);
+
+      // send request
+      try
+      {
+         String requestString = request.toString();
+         if (RpcRequest.TRACE)
+            Debug.log("Batch Request: " + requestString) ;
+
+         builder.sendRequest(requestString, new RequestCallback() {
+
+            public void onError(Request request, Throwable exception)
+            {
+               RpcError error = RpcError.create(
+                                          RpcError.TRANSMISSION_ERROR,
+                                          exception.getLocalizedMessage());
+               onBatchError(ResponseType.Error, error);
+            }
+
+            public void onResponseReceived(Request request,
+                                           Response response)
+            {
+               int status = response.getStatusCode();
+               if (status == 200)
+               {
+                  final String responseText = response.getText();
+                  RpcResponseDecoder.decode(
+                                    responseText,
+                                    new RpcResponseDecoder.Callback() {
+                     public void onDecoded(RpcResponse envelope,
+                                           int decodeMs,
+                                           boolean deferred)
+                     {
+                        if (envelope == null)
+                        {
+                           RpcError error = RpcError.create(
+                                          RpcError.TRANSMISSION_ERROR,
+                                          "Unable to parse batch response");
+                           onBatchError(ResponseType.Error, error);
+                        }
+                        else
+                        {
+                           onBatchResponseReceived(envelope, 
+                                                   responseText.length(),
+                                                   decodeMs,
+                                                   deferred);
+                        }
+                     }
+                  });
+               }
+               else
+               {
+                  String message = "Status code " +
+                                   Integer.toString(status) +
+                                   " returned";
+                  if (status == 0)
+                     message = "Unable to establish connection with R session";
+
+                  RpcError error = RpcError.createForStatus(status, message);
+                  onBatchError(ResponseType.Unknown, error);
+               }
+            }
+         });
+      }
+      catch(RequestException e)
+      {
+         RpcError error = RpcError.create(RpcError.TRANSMISSION_ERROR,
+                                          e.getLocalizedMessage());
+         onBatchError(ResponseType.Unknown, error);
+      }
+   }
+
+   private void onBatchResponseReceived(RpcResponse envelope,
+                                        int responseSize,
+                                        int decodeMs,
+                                        boolean deferred)
+   {
+      // the responses aren't re-serialized for the request log (that would
+      // cost as much as decoding them did). instead each call logs a
+      // placeholder and an equal share of the batch response's size
+      int count = requests_.size();
+      int sizeShare = count > 0 ? responseSize / count : 0;
+      
+      // an error on the envelope (e.g. invalid client id) applies to
+      // every call in the batch
+      if (envelope.getError() != null)
+      {
+         for (int i = 0; i<requests_.size(); i++)
+         {
+            RpcResponse response = RpcResponse.create(envelope.getError());
+            requests_.get(i).onBatchResponseReceived(
+                                             response,
+                                             envelope.getError().getMessage(),
+                                             sizeShare,
+                                             decodeMs,
+                                             deferred,
+                                             callbacks_.get(i));
+         }
+         return;
+      }
+
+      JsArray<RpcResponse> responses = envelope.getResult();
+      for (int i = 0; i<requests_.size(); i++)
+      {
+         RpcRequest request = requests_.get(i);
+         RpcRequestCallback callback = callbacks_.get(i);
+
+         // isolate failures so that one call can't prevent the others
+         // from being completed
+         try
+         {
+            RpcResponse response = null;
+            if (responses != null && i < responses.length())
+               response = responses.get(i);
+
+            if (response != null)
+            {
+               request.onBatchResponseReceived(response,
+                                               summarize(i, count),
+                                               sizeShare,
+                                               decodeMs,
+                                               deferred,
+                                               callback);
+            }
+            else
+            {
+               RpcError error = RpcError.create(
+                                       RpcError.TRANSMISSION_ERROR,
+                                       "No response for batched request");
+               request.onBatchError(ResponseType.Unknown, error, callback);
+            }
+         }
+         catch(Exception e)
+         {
+            Debug.log("Error processing batched response for " +
+                      request.getMethod() + ": " + e.getMessage());
+         }
+      }
+   }
+
+   private void onBatchError(int responseType, RpcError error)
+   {
+      for (int i = 0; i<requests_.size(); i++)
+         requests_.get(i).onBatchError(responseType, error, callbacks_.get(i));
+   }
+
+   private static String summarize(int index, int count)
+   {
+      return "[Batched response " + (index + 1) + " of " + count + "]";
+   }
+
+   private final String url_;
+   private final String clientId_;
+   private final double clientVersion_;
+   private final ArrayList<RpcRequest> requests_ = new ArrayList<RpcRequest>();
+   private final ArrayList<RpcRequestCallback> callbacks_ =
+                                       new ArrayList<RpcRequestCallback>();
+}
@@ -21,21 +21,19 @@ public class RpcResponse extends JavaScriptObject
    {
    }
    
+   // strict parse using the native JSON parser (returns null if the
+   // response is not valid json). note that we prefer the JSON object of
+   // the window the module is running in so that the resulting objects
+   // are created within the same context as the rest of our code
    public final native static RpcResponse parse(String json) /*-{
+      var parser = (typeof(JSON) !== 'undefined') ? JSON : $wnd.JSON;
       try
       {
-         return eval('(' + json + ')');
+         return parser.parse(json);
       }
-      catch( ex )
+      catch (ex)
       {
-         try
-         {
-            return $wnd.JSON.parse(json);
-         }
-         catch (ex2)
-         {
-            return null;
-         }
+         return null;
       }
    }-*/;
    
@@ -55,6 +53,18 @@ public class RpcResponse extends JavaScriptObject
       return getField("asyncHandle");
    }
    
+   // tag of the result (only present if requested)
+   public final String getEtag()
+   {
+      return getField("etag");
+   }
+   
+   // true if the result matched the etag sent with the request (in which
+   // case the result itself is not included)
+   public final native boolean isNotModified() /*-{
+      return this.not_modified === true;
+   }-*/;
+   
    public final <T> T getResult()
    {
       T field = this.<T>getField("result");
@@ -0,0 +1,68 @@
+/*
+ * RpcResponseDecoder.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.jsonrpc;
+
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+
+// Decodes the text of json-rpc responses. Small responses are parsed
+// immediately. Large responses are parsed in a deferred command, so that
+// the event which delivered the response completes and pending input and
+// painting can be processed before the parse. (Parsing in a Web Worker
+// doesn't help: the parsed object has to be structured-cloned back to the
+// ui thread, which costs about as much as parsing it there.)
+public class RpcResponseDecoder
+{
+   public interface Callback
+   {
+      // response is null if the text could not be parsed. decodeMs is the
+      // elapsed time of the parse and deferred indicates that the parse
+      // was deferred rather than performed immediately
+      void onDecoded(RpcResponse response, int decodeMs, boolean deferred);
+   }
+
+   public static void decode(final String text, final Callback callback)
+   {
+      // small responses are parsed synchronously
+      if (text.length() < LARGE_RESPONSE_CHARS)
+      {
+         parseAndNotify(text, callback, false);
+      }
+
+      // otherwise defer the parse
+      else
+      {
+         Scheduler.get().scheduleDeferred(new ScheduledCommand() {
+            @Override
+            public void execute()
+            {
+               parseAndNotify(text, callback, true);
+            }
+         });
+      }
+   }
+
+   private static void parseAndNotify(String text,
+                                      Callback callback,
+                                      boolean deferred)
+   {
+      Duration duration = new Duration();
+      RpcResponse response = RpcResponse.parse(text);
+      callback.onDecoded(response, duration.elapsedMillis(), deferred);
+   }
+
+   // responses at least this large (in characters) are parsed off of the
+   // critical path
+   private static final int LARGE_RESPONSE_CHARS = 256 * 1024;
+}
@@ -15,4 +15,17 @@ package org.rstudio.core.client.jsonrpc;
 public abstract class RpcResponseHandler
 {
    public abstract void onResponseReceived(RpcResponse response);
+
+   // handlers whose response is no longer needed can return true to allow
+   // queued requests to be dropped rather than sent
+   public boolean isCancelled()
+   {
+      return false;
+   }
+
+   // called in place of onResponseReceived if the request was cancelled
+   // or dropped (in which case no response will be received)
+   public void onCancelled()
+   {
+   }
 }
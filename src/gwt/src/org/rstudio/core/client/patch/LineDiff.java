@@ -0,0 +1,323 @@
+/*
+ * LineDiff.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.patch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import com.google.gwt.core.client.Duration;
+
+/**
+ * Computes the differences between two strings as a list of replacements
+ * (hunks), so that edits at the top and bottom of a document don't result
+ * in everything between them being sent. Lines are compared using Myers'
+ * O(ND) algorithm and each changed block of lines is then narrowed down
+ * to the characters which differ. If the line diff takes longer than the
+ * time limit (or the lines differ too much) a single replacement covering
+ * all the changes (as per SubstringDiff) is produced instead.
+ */
+public class LineDiff
+{
+   public static class Hunk
+   {
+      private Hunk(int offset, int length, String replacement)
+      {
+         offset_ = offset;
+         length_ = length;
+         replacement_ = replacement;
+      }
+
+      // offset of the replaced range. hunks are ordered and the offset is
+      // relative to the string as it is after the previous hunks have been
+      // applied (which is also the offset of the replacement in newVal)
+      public int getOffset()
+      {
+         return offset_;
+      }
+
+      public int getLength()
+      {
+         return length_;
+      }
+
+      public String getReplacement()
+      {
+         return replacement_;
+      }
+
+      private final int offset_;
+      private final int length_;
+      private final String replacement_;
+   }
+
+   public LineDiff(String origVal, String newVal)
+   {
+      this(origVal, newVal, DEFAULT_TIME_LIMIT_MS);
+   }
+
+   public LineDiff(String origVal, String newVal, int timeLimitMs)
+   {
+      if (!diffLines(origVal, newVal, timeLimitMs))
+      {
+         hunks_.clear();
+         complete_ = false;
+         SubstringDiff diff = new SubstringDiff(origVal, newVal);
+         if (!diff.isEmpty())
+         {
+            hunks_.add(new Hunk(diff.getOffset(),
+                                diff.getLength(),
+                                diff.getReplacement()));
+         }
+      }
+   }
+
+   public ArrayList<Hunk> getHunks()
+   {
+      return hunks_;
+   }
+
+   /**
+    * @return True iff there was no difference between the strings.
+    */
+   public boolean isEmpty()
+   {
+      return hunks_.isEmpty();
+   }
+
+   /**
+    * @return False if the line diff didn't finish in time (in which case
+    * there is a single hunk).
+    */
+   public boolean isComplete()
+   {
+      return complete_;
+   }
+
+   public String patch(String original)
+   {
+      String result = original;
+      for (Hunk hunk : hunks_)
+      {
+         result = result.substring(0, hunk.getOffset())
+                  + hunk.getReplacement()
+                  + result.substring(hunk.getOffset() + hunk.getLength());
+      }
+      return result;
+   }
+
+   private boolean diffLines(String origVal, String newVal, int timeLimitMs)
+   {
+      double deadline = Duration.currentTimeMillis() + timeLimitMs;
+
+      ArrayList<String> origLines = splitLines(origVal);
+      ArrayList<String> newLines = splitLines(newVal);
+
+      // lines common to the start and end of both strings needn't take
+      // part in the diff
+      int head = 0;
+      int headLimit = Math.min(origLines.size(), newLines.size());
+      while (head < headLimit &&
+             origLines.get(head).equals(newLines.get(head)))
+      {
+         head++;
+      }
+      int tail = 0;
+      int tailLimit = headLimit - head;
+      while (tail < tailLimit &&
+             origLines.get(origLines.size() - tail - 1).equals(
+                               newLines.get(newLines.size() - tail - 1)))
+      {
+         tail++;
+      }
+
+      // compare lines by id rather than by text
+      HashMap<String, Integer> ids = new HashMap<String, Integer>();
+      int[] a = lineIds(origLines, head, origLines.size() - tail, ids);
+      int[] b = lineIds(newLines, head, newLines.size() - tail, ids);
+
+      ArrayList<int[]> ranges = diff(a, b, deadline);
+      if (ranges == null)
+         return false;
+
+      // character offset of the start of each line
+      int[] origStarts = lineStarts(origLines);
+      int[] newStarts = lineStarts(newLines);
+
+      // ranges come back in reverse order
+      for (int i = ranges.size() - 1; i >= 0; i--)
+      {
+         int[] range = ranges.get(i);
+         int origStart = origStarts[head + range[0]];
+         int origEnd = origStarts[head + range[1]];
+         int newStart = newStarts[head + range[2]];
+         int newEnd = newStarts[head + range[3]];
+
+         // narrow the hunk down to the characters which differ
+         SubstringDiff diff = new SubstringDiff(
+                                 origVal.substring(origStart, origEnd),
+                                 newVal.substring(newStart, newEnd));
+         if (!diff.isEmpty())
+         {
+            hunks_.add(new Hunk(newStart + diff.getOffset(),
+                                diff.getLength(),
+                                diff.getReplacement()));
+         }
+      }
+
+      return true;
+   }
+
+   // Myers' algorithm. Returns the changed ranges as {aStart, aEnd, bStart,
+   // bEnd} in reverse order, or null if the deadline passes or the edit
+   // distance exceeds MAX_EDIT_DISTANCE.
+   private static ArrayList<int[]> diff(int[] a, int[] b, double deadline)
+   {
+      int n = a.length;
+      int m = b.length;
+      int max = n + m;
+      int offset = max + 1;
+      int[] v = new int[2 * max + 3];
+
+      // v as it was at the start of each step (entries -d..d)
+      ArrayList<int[]> trace = new ArrayList<int[]>();
+
+      int d;
+      boolean found = false;
+      for (d = 0; d <= max && !found; d++)
+      {
+         if (d > MAX_EDIT_DISTANCE || Duration.currentTimeMillis() > deadline)
+            return null;
+
+         int[] snapshot = new int[2 * d + 1];
+         System.arraycopy(v, offset - d, snapshot, 0, 2 * d + 1);
+         trace.add(snapshot);
+
+         for (int k = -d; k <= d; k += 2)
+         {
+            int x;
+            if (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1]))
+               x = v[offset + k + 1];
+            else
+               x = v[offset + k - 1] + 1;
+            int y = x - k;
+            while (x < n && y < m && a[x] == b[y])
+            {
+               x++;
+               y++;
+            }
+            v[offset + k] = x;
+            if (x >= n && y >= m)
+            {
+               found = true;
+               break;
+            }
+         }
+      }
+      d--;
+
+      // walk back from the end to find the edits, grouping adjacent edits
+      // into ranges
+      ArrayList<int[]> ranges = new ArrayList<int[]>();
+      int x = n;
+      int y = m;
+      int rangeEndX = -1;
+      int rangeEndY = -1;
+      for (; d > 0; d--)
+      {
+         int[] snapshot = trace.get(d);
+         int k = x - y;
+         int prevK;
+         if (k == -d || (k != d && snapshot[k - 1 + d] < snapshot[k + 1 + d]))
+            prevK = k + 1;
+         else
+            prevK = k - 1;
+         int prevX = snapshot[prevK + d];
+         int prevY = prevX - prevK;
+
+         // lines which match
+         if (x > prevX && y > prevY && rangeEndX >= 0)
+         {
+            ranges.add(new int[] {x, rangeEndX, y, rangeEndY});
+            rangeEndX = -1;
+         }
+         while (x > prevX && y > prevY)
+         {
+            x--;
+            y--;
+         }
+
+         // the edit
+         if (rangeEndX < 0)
+         {
+            rangeEndX = x;
+            rangeEndY = y;
+         }
+         x = prevX;
+         y = prevY;
+      }
+      if (rangeEndX >= 0)
+         ranges.add(new int[] {x, rangeEndX, y, rangeEndY});
+
+      return ranges;
+   }
+
+   // split a string into lines (each including its terminating \n)
+   private static ArrayList<String> splitLines(String value)
+   {
+      ArrayList<String> lines = new ArrayList<String>();
+      int start = 0;
+      while (start < value.length())
+      {
+         int end = value.indexOf('\n', start);
+         end = end < 0 ? value.length() : end + 1;
+         lines.add(value.substring(start, end));
+         start = end;
+      }
+      return lines;
+   }
+
+   private static int[] lineIds(ArrayList<String> lines,
+                                int start,
+                                int end,
+                                HashMap<String, Integer> ids)
+   {
+      int[] result = new int[end - start];
+      for (int i = start; i < end; i++)
+      {
+         Integer id = ids.get(lines.get(i));
+         if (id == null)
+         {
+            id = ids.size();
+            ids.put(lines.get(i), id);
+         }
+         result[i - start] = id;
+      }
+      return result;
+   }
+
+   private static int[] lineStarts(ArrayList<String> lines)
+   {
+      int[] starts = new int[lines.size() + 1];
+      for (int i = 0; i < lines.size(); i++)
+         starts[i + 1] = starts[i] + lines.get(i).length();
+      return starts;
+   }
+
+   private final ArrayList<Hunk> hunks_ = new ArrayList<Hunk>();
+   private boolean complete_ = true;
+
+   private static final int DEFAULT_TIME_LIMIT_MS = 50;
+
+   // the trace kept to recover the edits is O(d^2)
+   private static final int MAX_EDIT_DISTANCE = 2000;
+}
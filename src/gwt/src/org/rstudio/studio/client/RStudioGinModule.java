@@ -16,6 +16,7 @@ import com.google.gwt.inject.client.AbstractGinModule;
 import com.google.gwt.user.client.ui.Widget;
 import com.google.inject.Singleton;
 import com.google.inject.name.Names;
+import org.rstudio.studio.client.application.ApplicationClientEventDecoders;
 import org.rstudio.studio.client.application.ApplicationQuit;
 import org.rstudio.studio.client.application.ApplicationView;
 import org.rstudio.studio.client.application.events.EventBus;
@@ -26,10 +27,12 @@ import org.rstudio.studio.client.common.DefaultGlobalDisplay;
 import org.rstudio.studio.client.common.GlobalDisplay;
 import org.rstudio.studio.client.common.codetools.CodeToolsServerOperations;
 import org.rstudio.studio.client.common.console.ConsoleProcess.ConsoleProcessFactory;
+import org.rstudio.studio.client.common.console.ConsoleProcessClientEventDecoders;
 import org.rstudio.studio.client.common.filetypes.FileTypeCommands;
 import org.rstudio.studio.client.common.mirrors.DefaultCRANMirror;
 import org.rstudio.studio.client.common.mirrors.model.MirrorsServerOperations;
 import org.rstudio.studio.client.common.posixshell.PosixShell;
+import org.rstudio.studio.client.common.posixshell.PosixShellClientEventDecoders;
 import org.rstudio.studio.client.common.posixshell.PosixShellWidget;
 import org.rstudio.studio.client.common.posixshell.model.PosixShellServerOperations;
 import org.rstudio.studio.client.common.satellite.Satellite;
@@ -37,12 +40,14 @@ import org.rstudio.studio.client.common.satellite.SatelliteManager;
 import org.rstudio.studio.client.common.vcs.GitServerOperations;
 import org.rstudio.studio.client.common.vcs.SVNServerOperations;
 import org.rstudio.studio.client.projects.Projects;
+import org.rstudio.studio.client.projects.ProjectsClientEventDecoders;
 import org.rstudio.studio.client.projects.model.ProjectsServerOperations;
 import org.rstudio.studio.client.server.Server;
 import org.rstudio.studio.client.server.remote.RemoteServer;
 import org.rstudio.studio.client.vcs.VCSApplicationView;
 import org.rstudio.studio.client.vcs.ui.VCSApplicationWindow;
 import org.rstudio.studio.client.workbench.ClientStateUpdater;
+import org.rstudio.studio.client.workbench.WorkbenchClientEventDecoders;
 import org.rstudio.studio.client.workbench.WorkbenchContext;
 import org.rstudio.studio.client.workbench.WorkbenchListManager;
 import org.rstudio.studio.client.workbench.WorkbenchMainView;
@@ -57,47 +62,58 @@ import org.rstudio.studio.client.workbench.prefs.model.PrefsServerOperations;
 import org.rstudio.studio.client.workbench.ui.WorkbenchScreen;
 import org.rstudio.studio.client.workbench.ui.WorkbenchTab;
 import org.rstudio.studio.client.workbench.views.choosefile.ChooseFile;
+import org.rstudio.studio.client.workbench.views.choosefile.ChooseFileClientEventDecoders;
 import org.rstudio.studio.client.workbench.views.choosefile.model.ChooseFileServerOperations;
+import org.rstudio.studio.client.workbench.views.console.ConsoleClientEventDecoders;
 import org.rstudio.studio.client.workbench.views.console.ConsolePane;
 import org.rstudio.studio.client.workbench.views.console.model.ConsoleServerOperations;
 import org.rstudio.studio.client.workbench.views.console.shell.Shell;
 import org.rstudio.studio.client.workbench.views.console.shell.ShellPane;
 import org.rstudio.studio.client.workbench.views.data.Data;
+import org.rstudio.studio.client.workbench.views.data.DataClientEventDecoders;
 import org.rstudio.studio.client.workbench.views.data.DataPane;
 import org.rstudio.studio.client.workbench.views.data.DataTab;
 import org.rstudio.studio.client.workbench.views.data.model.DataServerOperations;
 import org.rstudio.studio.client.workbench.views.edit.Edit;
+import org.rstudio.studio.client.workbench.views.edit.EditClientEventDecoders;
 import org.rstudio.studio.client.workbench.views.edit.model.EditServerOperations;
 import org.rstudio.studio.client.workbench.views.edit.ui.EditView;
 import org.rstudio.studio.client.workbench.views.files.Files;
+import org.rstudio.studio.client.workbench.views.files.FilesClientEventDecoders;
 import org.rstudio.studio.client.workbench.views.files.FilesPane;
 import org.rstudio.studio.client.workbench.views.files.FilesTab;
 import org.rstudio.studio.client.workbench.views.files.model.FilesServerOperations;
 import org.rstudio.studio.client.workbench.views.help.Help;
+import org.rstudio.studio.client.workbench.views.help.HelpClientEventDecoders;
 import org.rstudio.studio.client.workbench.views.help.HelpPane;
 import org.rstudio.studio.client.workbench.views.help.HelpTab;
 import org.rstudio.studio.client.workbench.views.help.model.HelpServerOperations;
 import org.rstudio.studio.client.workbench.views.help.search.HelpSearch;
 import org.rstudio.studio.client.workbench.views.help.search.HelpSearchWidget;
 import org.rstudio.studio.client.workbench.views.history.History;
+import org.rstudio.studio.client.workbench.views.history.HistoryClientEventDecoders;
 import org.rstudio.studio.client.workbench.views.history.HistoryTab;
 import org.rstudio.studio.client.workbench.views.history.model.HistoryServerOperations;
 import org.rstudio.studio.client.workbench.views.history.view.HistoryPane;
 import org.rstudio.studio.client.workbench.views.packages.Packages;
+import org.rstudio.studio.client.workbench.views.packages.PackagesClientEventDecoders;
 import org.rstudio.studio.client.workbench.views.packages.PackagesPane;
 import org.rstudio.studio.client.workbench.views.packages.PackagesTab;
 import org.rstudio.studio.client.workbench.views.packages.model.PackagesServerOperations;
 import org.rstudio.studio.client.workbench.views.plots.Plots;
+import org.rstudio.studio.client.workbench.views.plots.PlotsClientEventDecoders;
 import org.rstudio.studio.client.workbench.views.plots.PlotsPane;
 import org.rstudio.studio.client.workbench.views.plots.PlotsTab;
 import org.rstudio.studio.client.workbench.views.plots.model.PlotsServerOperations;
 import org.rstudio.studio.client.workbench.views.source.Source;
+import org.rstudio.studio.client.workbench.views.source.SourceClientEventDecoders;
 import org.rstudio.studio.client.workbench.views.source.SourcePane;
 import org.rstudio.studio.client.workbench.views.source.editors.EditingTargetSource;
 import org.rstudio.studio.client.workbench.views.source.editors.text.AceEditor;
 import org.rstudio.studio.client.workbench.views.source.editors.text.DocDisplay;
 import org.rstudio.studio.client.workbench.views.source.model.SourceServerOperations;
 import org.rstudio.studio.client.workbench.views.vcs.VCSTab;
+import org.rstudio.studio.client.workbench.views.vcs.VcsClientEventDecoders;
 import org.rstudio.studio.client.workbench.views.vcs.common.diff.LineTablePresenter;
 import org.rstudio.studio.client.workbench.views.vcs.common.diff.LineTableView;
 import org.rstudio.studio.client.workbench.views.vcs.dialog.HistoryPanel;
@@ -113,6 +129,7 @@ import org.rstudio.studio.client.workbench.views.vcs.svn.SVNPresenter;
 import org.rstudio.studio.client.workbench.views.vcs.svn.dialog.SVNReviewPanel;
 import org.rstudio.studio.client.workbench.views.vcs.svn.dialog.SVNReviewPresenter;
 import org.rstudio.studio.client.workbench.views.workspace.Workspace;
+import org.rstudio.studio.client.workbench.views.workspace.WorkspaceClientEventDecoders;
 import org.rstudio.studio.client.workbench.views.workspace.WorkspacePane;
 import org.rstudio.studio.client.workbench.views.workspace.WorkspaceTab;
 import org.rstudio.studio.client.workbench.views.workspace.model.WorkspaceServerOperations;
@@ -132,6 +149,26 @@ public class RStudioGinModule extends AbstractGinModule
       bind(ApplicationQuit.class).asEagerSingleton();
       bind(ClientStateUpdater.class).asEagerSingleton();
       bind(ConsoleProcessFactory.class).asEagerSingleton();
+
+      // modules register the decoders for the client events they receive
+      bind(ApplicationClientEventDecoders.class).asEagerSingleton();
+      bind(WorkbenchClientEventDecoders.class).asEagerSingleton();
+      bind(ConsoleClientEventDecoders.class).asEagerSingleton();
+      bind(SourceClientEventDecoders.class).asEagerSingleton();
+      bind(WorkspaceClientEventDecoders.class).asEagerSingleton();
+      bind(HelpClientEventDecoders.class).asEagerSingleton();
+      bind(PlotsClientEventDecoders.class).asEagerSingleton();
+      bind(PackagesClientEventDecoders.class).asEagerSingleton();
+      bind(DataClientEventDecoders.class).asEagerSingleton();
+      bind(HistoryClientEventDecoders.class).asEagerSingleton();
+      bind(FilesClientEventDecoders.class).asEagerSingleton();
+      bind(EditClientEventDecoders.class).asEagerSingleton();
+      bind(ChooseFileClientEventDecoders.class).asEagerSingleton();
+      bind(VcsClientEventDecoders.class).asEagerSingleton();
+      bind(ConsoleProcessClientEventDecoders.class).asEagerSingleton();
+      bind(PosixShellClientEventDecoders.class).asEagerSingleton();
+      bind(ProjectsClientEventDecoders.class).asEagerSingleton();
+
       bind(Commands.class).in(Singleton.class);
       bind(DefaultCRANMirror.class).in(Singleton.class);
       bind(ChooseFile.class).in(Singleton.class);
@@ -109,6 +109,7 @@ public class Application implements ApplicationEventHandlers
       events.addHandler(ServerUnavailableEvent.TYPE, this);
       events.addHandler(InvalidClientVersionEvent.TYPE, this);
       events.addHandler(ServerOfflineEvent.TYPE, this);
+      events.addHandler(ServerReconnectingEvent.TYPE, this);
       
       // register for uncaught exceptions
       uncaughtExHandler.register();
@@ -348,6 +349,37 @@ public class Application implements ApplicationEventHandlers
       view_.hideSerializationProgress();
    }
    
+   public void onServerReconnecting(ServerReconnectingEvent event)
+   {
+      // once we've stopped retrying tell the user we are disconnected (we
+      // reconnect when they next do something which makes a request)
+      if (event.isDisconnected())
+      {
+         view_.hideReconnectingProgress();
+         if (!showingDisconnected_)
+         {
+            showingDisconnected_ = true;
+            view_.showWarning(true, "Unable to connect to the R session. " +
+                                    "RStudio will try again the next time " +
+                                    "you run a command.");
+         }
+         return;
+      }
+      
+      if (showingDisconnected_)
+      {
+         showingDisconnected_ = false;
+         view_.hideWarning();
+      }
+      
+      // show progress (after a delay so brief interruptions go unnoticed) 
+      // rather than leaving the user to wonder why nothing is happening
+      if (event.isReconnecting())
+         view_.showReconnectingProgress("Reconnecting to R session...", 1000);
+      else
+         view_.hideReconnectingProgress();
+   }
+   
    public void onQuit(QuitEvent event)
    {
       cleanupWorkbench();  
@@ -560,4 +592,5 @@ public class Application implements ApplicationEventHandlers
    private final Provider<AceThemes> pAceThemes_;
 
    private ClientStateUpdater clientStateUpdaterInstance_;
+   private boolean showingDisconnected_ = false;
 }
@@ -0,0 +1,88 @@
+/*
+ * ApplicationClientEventDecoders.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.application;
+
+import com.google.gwt.event.shared.GwtEvent;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.rstudio.studio.client.application.events.HandleUnsavedChangesEvent;
+import org.rstudio.studio.client.application.events.QuitEvent;
+import org.rstudio.studio.client.application.events.SaveActionChangedEvent;
+import org.rstudio.studio.client.application.events.SessionAbendWarningEvent;
+import org.rstudio.studio.client.application.events.SessionSerializationEvent;
+import org.rstudio.studio.client.application.events.SuicideEvent;
+import org.rstudio.studio.client.application.model.SaveAction;
+import org.rstudio.studio.client.application.model.SessionSerializationAction;
+import org.rstudio.studio.client.server.Bool;
+import org.rstudio.studio.client.server.remote.ClientEvent;
+import org.rstudio.studio.client.server.remote.ClientEventDecoder;
+import org.rstudio.studio.client.server.remote.ClientEventDecoderRegistry;
+
+// Registers the decoders for the client events this module receives
+@Singleton
+public class ApplicationClientEventDecoders
+{
+   @Inject
+   public ApplicationClientEventDecoders(ClientEventDecoderRegistry registry)
+   {
+      registry.register(ClientEvent.SessionSerialization, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            SessionSerializationAction action = event.getData();
+            return new SessionSerializationEvent(action);
+         }
+      });
+
+      registry.register(ClientEvent.AbendWarning, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            return new SessionAbendWarningEvent();
+         }
+      });
+
+      registry.register(ClientEvent.HandleUnsavedChanges, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            return new HandleUnsavedChangesEvent();
+         }
+      });
+
+      registry.register(ClientEvent.Quit, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            boolean switchProjects = event.<Bool>getData().getValue();
+            return new QuitEvent(switchProjects);
+         }
+      });
+
+      registry.register(ClientEvent.Suicide, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            // NOTE: we don't explicitly stop listening for events here
+            // (RemoteServerEventListener tracks quit/suicide state)
+
+            // create event
+            String message = event.getData();
+            return new SuicideEvent(message);
+         }
+      });
+
+      registry.register(ClientEvent.SaveActionChanged, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            SaveAction action = event.getData();
+            return new SaveActionChangedEvent(action);
+         }
+      });
+   }
+}
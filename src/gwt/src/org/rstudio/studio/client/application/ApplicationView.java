@@ -50,6 +50,10 @@ public interface ApplicationView
                                   int timeoutMs);
    void hideSerializationProgress();
    
+   // connection status (independent of serialization progress)
+   void showReconnectingProgress(String message, int delayMs);
+   void hideReconnectingProgress();
+   
    Widget getWidget() ;
 
    void showWarning(boolean severe, String message);
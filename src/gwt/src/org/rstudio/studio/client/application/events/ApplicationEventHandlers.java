@@ -21,6 +21,7 @@ public interface ApplicationEventHandlers extends LogoutRequestedHandler,
                                                   ServerUnavailableHandler,
                                                   ClientDisconnectedHandler,
                                                   InvalidClientVersionHandler,
-                                                  ServerOfflineHandler
+                                                  ServerOfflineHandler,
+                                                  ServerReconnectingHandler
 {
 }
@@ -0,0 +1,65 @@
+/*
+ * ServerReconnectingEvent.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.application.events;
+
+import com.google.gwt.event.shared.GwtEvent;
+
+// fired when requests to the server start failing (reconnecting is true)
+// and again once a request succeeds (reconnecting is false). circuitOpen
+// indicates that retries are suspended for a while after repeated failures
+// and disconnected that we've stopped retrying automatically altogether
+public class ServerReconnectingEvent extends GwtEvent<ServerReconnectingHandler>
+{
+   public static final GwtEvent.Type<ServerReconnectingHandler> TYPE =
+      new GwtEvent.Type<ServerReconnectingHandler>();
+   
+   public ServerReconnectingEvent(boolean reconnecting, 
+                                  boolean circuitOpen,
+                                  boolean disconnected)
+   {
+      reconnecting_ = reconnecting;
+      circuitOpen_ = circuitOpen;
+      disconnected_ = disconnected;
+   }
+   
+   public boolean isReconnecting()
+   {
+      return reconnecting_;
+   }
+   
+   public boolean isCircuitOpen()
+   {
+      return circuitOpen_;
+   }
+   
+   public boolean isDisconnected()
+   {
+      return disconnected_;
+   }
+   
+   @Override
+   protected void dispatch(ServerReconnectingHandler handler)
+   {
+      handler.onServerReconnecting(this);
+   }
+
+   @Override
+   public GwtEvent.Type<ServerReconnectingHandler> getAssociatedType()
+   {
+      return TYPE;
+   }
+   
+   private final boolean reconnecting_;
+   private final boolean circuitOpen_;
+   private final boolean disconnected_;
+}
@@ -271,6 +271,25 @@ public class ApplicationWindow extends Composite
          activeSerializationProgress_ = null;
       }
    }
+   
+   public void showReconnectingProgress(String msg, int delayMs)
+   {
+      // leave existing progress alone (so its delay isn't restarted)
+      if (reconnectingProgress_ != null)
+         return;
+      
+      reconnectingProgress_ = 
+                  new ApplicationSerializationProgress(msg, false, delayMs);
+   }
+   
+   public void hideReconnectingProgress()
+   {
+      if (reconnectingProgress_ != null)
+      {
+         reconnectingProgress_.hide();
+         reconnectingProgress_ = null;
+      }
+   }
   
    public void onResize()
    {
@@ -283,6 +302,9 @@ public class ApplicationWindow extends Composite
 
    // active serialization progress message
    private ApplicationSerializationProgress activeSerializationProgress_;
+   
+   // shown while we reconnect to the server
+   private ApplicationSerializationProgress reconnectingProgress_;
   
    
 
@@ -45,8 +45,22 @@ public class RequestLogDetail extends Composite
       final FlowPanel panel = new FlowPanel();
       panel.getElement().getStyle().setOverflow(Overflow.AUTO);
 
+      String decode = "";
+      if (entry.getDecodeTime() != null)
+      {
+         decode = "Decode Time: " + entry.getDecodeTime() + "ms" +
+                  (entry.getDecodeDeferred() ? " (deferred)" : "") + "\n";
+      }
+
+      String size = "Size: " + entry.getRequestSize() + " sent";
+      if (entry.getResponseSize() != null)
+         size += ", " + entry.getResponseSize() + " received";
+      size += " (chars)\n";
+
       HTML html = new HTML();
-      html.setText("Request ID: " + entry.getRequestId() + "\n\n"
+      html.setText("Request ID: " + entry.getRequestId() + "\n"
+                   + size
+                   + decode + "\n"
                    + "== REQUEST ======\n"
                    + req
                    + "\n\n"
@@ -25,17 +25,23 @@ import com.google.gwt.event.logical.shared.CloseEvent;
 import com.google.gwt.event.logical.shared.CloseHandler;
 import com.google.gwt.event.logical.shared.HasCloseHandlers;
 import com.google.gwt.event.shared.HandlerRegistration;
+import com.google.gwt.safehtml.shared.SafeHtmlUtils;
 import com.google.gwt.user.client.Event;
 import com.google.gwt.user.client.Event.NativePreviewEvent;
 import com.google.gwt.user.client.Event.NativePreviewHandler;
 import com.google.gwt.user.client.Timer;
 import com.google.gwt.user.client.ui.*;
+import org.rstudio.core.client.ClientMetrics;
+import org.rstudio.core.client.ClientMetrics.Values;
 import org.rstudio.core.client.CsvReader;
 import org.rstudio.core.client.CsvWriter;
+import org.rstudio.core.client.Pair;
 import org.rstudio.core.client.command.KeyboardShortcut;
 import org.rstudio.core.client.jsonrpc.RequestLog;
 import org.rstudio.core.client.jsonrpc.RequestLogEntry;
 import org.rstudio.core.client.jsonrpc.RequestLogEntry.ResponseType;
+import org.rstudio.core.client.jsonrpc.RequestLogStats;
+import org.rstudio.core.client.jsonrpc.RequestLogStats.MethodStats;
 import org.rstudio.core.client.widget.ModalDialog;
 import org.rstudio.core.client.widget.OperationWithInput;
 import org.rstudio.core.client.widget.ScrollPanelWithClick;
@@ -114,6 +120,8 @@ public class RequestLogVisualization extends Composite
                             "<li>P: Play/pause</li>" +
                             "<li>E: Export</li>" +
                             "<li>I: Import</li>" +
+                            "<li>S: Show latency statistics and client metrics</li>" +
+                            "<li>X: Export latency statistics</li>" +
                             "<li>+/-: Zoom in/out</li>" +
                             "</ul>");
       detail_.setWidget(instructions_);
@@ -148,6 +156,7 @@ public class RequestLogVisualization extends Composite
       if (reloadEntries)
       {
          entries_ = RequestLog.getEntries();
+         imported_ = false;
          now_ = System.currentTimeMillis();
       }
 
@@ -201,7 +210,12 @@ public class RequestLogVisualization extends Composite
       HTML html = new HTML();
       html.getElement().getStyle().setOverflow(Overflow.VISIBLE);
       html.getElement().getStyle().setProperty("whiteSpace", "nowrap");
-      html.setText(entry.getRequestMethodName() + (active ? " (active)" : ""));
+      String decode = "";
+      if (entry.getDecodeTime() != null && entry.getDecodeTime() > 0)
+         decode = " (decode " + entry.getDecodeTime() + "ms)";
+      html.setText(entry.getRequestMethodName() +
+                   (active ? " (active)" : "") +
+                   decode);
       if (active)
          html.getElement().getStyle().setFontWeight(FontWeight.BOLD);
       String color;
@@ -245,6 +259,73 @@ public class RequestLogVisualization extends Composite
       overviewPanel_.getWidgetContainerElement(html).getStyle().setOverflow(Overflow.VISIBLE);
    }
 
+   // statistics for all requests made by this session (or for just the
+   // entries shown if they were imported)
+   private RequestLogStats getStats()
+   {
+      if (imported_)
+         return RequestLogStats.fromEntries(entries_);
+      else
+         return RequestLog.getStats();
+   }
+
+   private void showStats()
+   {
+      StringBuilder html = new StringBuilder();
+      html.append("<table cellpadding='2'><tr>" +
+                  "<th align='left'>Method</th>" +
+                  "<th>Count</th><th>Errors</th>" +
+                  "<th>p50 (ms)</th><th>p95 (ms)</th><th>p99 (ms)</th>" +
+                  "<th>Sent (chars)</th><th>Received (chars)</th></tr>");
+      for (MethodStats stats : getStats().getMethodStats())
+      {
+         html.append("<tr><td>")
+             .append(SafeHtmlUtils.htmlEscape(stats.getMethod()))
+             .append("</td><td align='right'>")
+             .append(stats.getCount())
+             .append("</td><td align='right'>")
+             .append(stats.getErrorCount())
+             .append("</td><td align='right'>")
+             .append(stats.getLatencyPercentile(0.50))
+             .append("</td><td align='right'>")
+             .append(stats.getLatencyPercentile(0.95))
+             .append("</td><td align='right'>")
+             .append(stats.getLatencyPercentile(0.99))
+             .append("</td><td align='right'>")
+             .append(stats.getRequestSize())
+             .append("</td><td align='right'>")
+             .append(stats.getResponseSize())
+             .append("</td></tr>");
+      }
+      html.append("</table>");
+
+      // client metrics describe this session (so aren't shown for imports)
+      if (!imported_)
+      {
+         for (Pair<String, Values> source : ClientMetrics.collect())
+         {
+            html.append("<h4>")
+                .append(SafeHtmlUtils.htmlEscape(source.first))
+                .append("</h4><table cellpadding='2'>");
+            Values values = source.second;
+            for (int i = 0; i < values.size(); i++)
+            {
+               html.append("<tr><td>")
+                   .append(SafeHtmlUtils.htmlEscape(values.getName(i)))
+                   .append("</td><td align='right'>")
+                   .append(SafeHtmlUtils.htmlEscape(values.getValue(i)))
+                   .append("</td></tr>");
+            }
+            html.append("</table>");
+         }
+      }
+
+      HTML statsHtml = new HTML(html.toString());
+      statsHtml.setSize("100%", "100%");
+      statsHtml.getElement().getStyle().setOverflow(Overflow.AUTO);
+      detail_.setWidget(statsHtml);
+   }
+
    public HandlerRegistration addCloseHandler(CloseHandler<RequestLogVisualization> handler)
    {
       return addHandler(handler, CloseEvent.getType());
@@ -290,6 +371,19 @@ public class RequestLogVisualization extends Composite
                                                      null);
             dialog.showModal();
          }
+         else if (keyCode == 'S')
+         {
+            showStats();
+         }
+         else if (keyCode == 'X')
+         {
+            CsvWriter writer = new CsvWriter();
+            getStats().toCsv(writer);
+            TextBoxDialog dialog = new TextBoxDialog("Export Statistics",
+                                                     writer.getValue(),
+                                                     null);
+            dialog.showModal();
+         }
          else if (keyCode == 'I')
          {
             TextBoxDialog dialog = new TextBoxDialog(
@@ -313,6 +407,7 @@ public class RequestLogVisualization extends Composite
                         }
                         now_ = Long.parseLong(now);
                         entries_ = entries.toArray(new RequestLogEntry[0]);
+                        imported_ = true;
                         refresh(false, true);
                      }
                   });
@@ -339,6 +434,7 @@ public class RequestLogVisualization extends Composite
    private double scaleMillisToPixels_ = 0.02;
    private long now_;
    private RequestLogEntry[] entries_;
+   private boolean imported_;
    private int totalHeight_;
    private LayoutPanel overviewPanel_;
    private long startTime_;
@@ -0,0 +1,92 @@
+/*
+ * ConsoleProcessClientEventDecoders.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.common.console;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.event.shared.GwtEvent;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.rstudio.studio.client.server.remote.ClientEvent;
+import org.rstudio.studio.client.server.remote.ClientEventCoalescer;
+import org.rstudio.studio.client.server.remote.ClientEventDecoder;
+import org.rstudio.studio.client.server.remote.ClientEventDecoderRegistry;
+import org.rstudio.studio.client.server.remote.ClientEventMergeRule;
+
+// Registers the decoders (and merge rules) for the client events this
+// module receives
+@Singleton
+public class ConsoleProcessClientEventDecoders
+{
+   @Inject
+   public ConsoleProcessClientEventDecoders(ClientEventDecoderRegistry registry,
+                                            ClientEventCoalescer coalescer)
+   {
+      registry.register(ClientEvent.ConsoleProcessOutput, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            ServerConsoleOutputEvent.Data data = event.getData();
+            return new ServerConsoleOutputEvent(data.getHandle(),
+                                               data.getOutput(),
+                                               data.isError());
+         }
+      });
+
+      registry.register(ClientEvent.ConsoleProcessExit, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            ServerProcessExitEvent.Data data = event.getData();
+            return new ServerProcessExitEvent(data.getHandle(),
+                                             data.getExitCode());
+         }
+      });
+
+      coalescer.register(ClientEvent.ConsoleProcessOutput,
+                         new ConsoleProcessOutputMergeRule());
+   }
+
+   // consecutive output from the same console process (and stream)
+   private static class ConsoleProcessOutputMergeRule
+                                          implements ClientEventMergeRule
+   {
+      public String getKey(ClientEvent event)
+      {
+         ServerConsoleOutputEvent.Data data = event.getData();
+         return data.getHandle() + (data.isError() ? ":err" : ":out");
+      }
+
+      public boolean adjacentOnly()
+      {
+         return true;
+      }
+
+      public ClientEvent merge(ClientEvent earlier, ClientEvent later)
+      {
+         ServerConsoleOutputEvent.Data earlierData = earlier.getData();
+         ServerConsoleOutputEvent.Data laterData = later.getData();
+         return ClientEvent.create(
+                     later.getId(),
+                     later.getType(),
+                     createProcessOutput(laterData.getHandle(),
+                                         earlierData.getOutput() +
+                                                   laterData.getOutput(),
+                                         laterData.isError()));
+      }
+
+      private static native JavaScriptObject createProcessOutput(
+                                                      String handle,
+                                                      String output,
+                                                      boolean error) /*-{
+         return { handle: handle, output: output, error: error };
+      }-*/;
+   }
+}
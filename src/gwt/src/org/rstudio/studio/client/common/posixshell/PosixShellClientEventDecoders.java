@@ -0,0 +1,48 @@
+/*
+ * PosixShellClientEventDecoders.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.common.posixshell;
+
+import com.google.gwt.event.shared.GwtEvent;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.rstudio.core.client.js.JsObject;
+import org.rstudio.studio.client.common.posixshell.events.PosixShellExitEvent;
+import org.rstudio.studio.client.common.posixshell.events.PosixShellOutputEvent;
+import org.rstudio.studio.client.server.remote.ClientEvent;
+import org.rstudio.studio.client.server.remote.ClientEventDecoder;
+import org.rstudio.studio.client.server.remote.ClientEventDecoderRegistry;
+
+// Registers the decoders for the client events this module receives
+@Singleton
+public class PosixShellClientEventDecoders
+{
+   @Inject
+   public PosixShellClientEventDecoders(ClientEventDecoderRegistry registry)
+   {
+      registry.register(ClientEvent.PosixShellOutput, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            String output = event.getData();
+            return new PosixShellOutputEvent(output);
+         }
+      });
+
+      registry.register(ClientEvent.PosixShellExit, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            int exitCode = ((JsObject)event.getData()).getInteger("exit_code");
+            return new PosixShellExitEvent(exitCode);
+         }
+      });
+   }
+}
@@ -14,12 +14,14 @@ package org.rstudio.studio.client.common.satellite;
 
 import org.rstudio.core.client.CommandWithArg;
 import org.rstudio.studio.client.application.events.EventBus;
+import org.rstudio.studio.client.server.remote.ClientEventDecoderRegistry;
 import org.rstudio.studio.client.server.remote.ClientEventDispatcher;
 import org.rstudio.studio.client.workbench.model.Session;
 import org.rstudio.studio.client.workbench.model.SessionInfo;
 import org.rstudio.studio.client.workbench.prefs.model.UIPrefs;
 
 import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArrayString;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
@@ -30,11 +32,12 @@ public class Satellite
    @Inject
    public Satellite(Session session,
                     EventBus eventBus,
+                    ClientEventDecoderRegistry eventDecoders,
                     Provider<UIPrefs> pUIPrefs)
    {
       session_ = session;
       pUIPrefs_ = pUIPrefs;
-      eventDispatcher_ = new ClientEventDispatcher(eventBus);
+      eventDispatcher_ = new ClientEventDispatcher(eventBus, eventDecoders);
    }
    
    public void initialize(String name, 
@@ -101,6 +104,25 @@ public class Satellite
       return params_;
    }
    
+   // tell the main window which client event types this satellite consumes
+   // (null to receive all events)
+   public void setEventSubscriptions(String[] eventTypes)
+   {
+      JsArrayString types = null;
+      if (eventTypes != null)
+      {
+         types = JsArrayString.createArray().cast();
+         for (String type : eventTypes)
+            types.push(type);
+      }
+      setEventSubscriptionsNative(getSatelliteName(), types);
+   }
+   
+   private native void setEventSubscriptionsNative(String name,
+                                                   JsArrayString types) /*-{
+      $wnd.opener.setRStudioSatelliteEventSubscriptions(name, $wnd, types);
+   }-*/;
+   
    public native void focusMainWindow() /*-{
       $wnd.opener.focus();
    }-*/;
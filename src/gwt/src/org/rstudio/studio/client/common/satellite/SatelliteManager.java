@@ -14,15 +14,19 @@ package org.rstudio.studio.client.common.satellite;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 
+import org.rstudio.core.client.ClientMetrics;
 import org.rstudio.core.client.Debug;
 import org.rstudio.core.client.Size;
 import org.rstudio.core.client.dom.WindowEx;
 import org.rstudio.studio.client.RStudioGinjector;
 import org.rstudio.studio.client.application.Desktop;
+import org.rstudio.studio.client.server.remote.ClientEvent;
 import org.rstudio.studio.client.workbench.model.Session;
 
 import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArrayString;
 import com.google.gwt.event.logical.shared.CloseEvent;
 import com.google.gwt.event.logical.shared.CloseHandler;
 import com.google.gwt.user.client.Window;
@@ -47,6 +51,14 @@ public class SatelliteManager implements CloseHandler<Window>
       
       // handle onClosed to automatically close all satellites
       Window.addCloseHandler(this);
+      
+      ClientMetrics.register("Satellite events", new ClientMetrics.Source()
+      {
+         public void collect(ClientMetrics.Values values)
+         {
+            collectMetrics(values);
+         }
+      });
    }
     
    // open a satellite window (re-activate existing if possible)
@@ -132,9 +144,11 @@ public class SatelliteManager implements CloseHandler<Window>
       satellites_.clear();  
    }
    
-   // dispatch an event to all satellites
+   // dispatch an event to all satellites subscribed to its type
    public void dispatchEvent(JavaScriptObject clientEvent)
    {
+      String type = getEventType(clientEvent);
+      
       // list of windows to remove (because they were closed)
       ArrayList<ActiveSatellite> removeWindows = null;
         
@@ -154,10 +168,15 @@ public class SatelliteManager implements CloseHandler<Window>
                   removeWindows = new ArrayList<ActiveSatellite>();
                removeWindows.add(satellite);
             }
-            else
+            else if (satellite.isSubscribed(type))
             {
+               satellite.onEventDelivered();
                callDispatchEvent(satelliteWnd, clientEvent);
             }
+            else
+            {
+               satellite.onEventDropped();
+            }
          }
          catch(Throwable e)
          {
@@ -187,11 +206,15 @@ public class SatelliteManager implements CloseHandler<Window>
       // get the satellite and add it to our list. in some cases (such as
       // the Ctrl+R reload of an existing satellite window) we actually
       // already have a reference to this satellite in our list so in that
-      // case we make sure not to add a duplicate
+      // case we make sure not to add a duplicate (and forward all events
+      // until the reloaded satellite declares its subscriptions)
       WindowEx satelliteWnd = wnd.<WindowEx>cast();
       ActiveSatellite satellite = new ActiveSatellite(name, satelliteWnd);
-      if (!satellites_.contains(satellite))
+      int index = satellites_.indexOf(satellite);
+      if (index == -1)
          satellites_.add(satellite);
+      else
+         satellites_.get(index).setSubscriptions(null);
       
       // call setSessionInfo
       callSetSessionInfo(satelliteWnd, session_.getSessionInfo());
@@ -202,7 +225,31 @@ public class SatelliteManager implements CloseHandler<Window>
          callSetParams(satelliteWnd, params);
    }
    
-   // export the global function requried for satellites to register
+   // called by satellites to declare the client event types they consume
+   private void setEventSubscriptions(String name, 
+                                      JavaScriptObject wnd,
+                                      JsArrayString types)
+   {
+      ActiveSatellite satellite = new ActiveSatellite(name, 
+                                                      wnd.<WindowEx>cast());
+      int index = satellites_.indexOf(satellite);
+      if (index != -1)
+         satellites_.get(index).setSubscriptions(types);
+   }
+   
+   // events forwarded to and filtered out for each open satellite (shown 
+   // with the request log stats)
+   private void collectMetrics(ClientMetrics.Values values)
+   {
+      for (ActiveSatellite satellite : satellites_)
+      {
+         values.add(satellite.getName(), 
+                    satellite.getEventsDelivered() + " delivered, " + 
+                    satellite.getEventsDropped() + " dropped");
+      }
+   }
+   
+   // export the global functions requried for satellites to register
    private native void exportSatelliteRegistrationCallback() /*-{
       var manager = this;     
       $wnd.registerAsRStudioSatellite = $entry(
@@ -210,6 +257,11 @@ public class SatelliteManager implements CloseHandler<Window>
             manager.@org.rstudio.studio.client.common.satellite.SatelliteManager::registerAsSatellite(Ljava/lang/String;Lcom/google/gwt/core/client/JavaScriptObject;)(name, satelliteWnd);
          }
       ); 
+      $wnd.setRStudioSatelliteEventSubscriptions = $entry(
+         function(name, satelliteWnd, types) {
+            manager.@org.rstudio.studio.client.common.satellite.SatelliteManager::setEventSubscriptions(Ljava/lang/String;Lcom/google/gwt/core/client/JavaScriptObject;Lcom/google/gwt/core/client/JsArrayString;)(name, satelliteWnd, types);
+         }
+      ); 
    }-*/;
    
    // call setSessionInfo on a satellite
@@ -236,6 +288,12 @@ public class SatelliteManager implements CloseHandler<Window>
       satellite.dispatchEventToRStudioSatellite(clientEvent);
    }-*/;
    
+   private String getEventType(JavaScriptObject clientEvent)
+   {
+      // events may be views onto a compact batch (see ClientEvent)
+      return clientEvent.<ClientEvent>cast().getType();
+   }
+   
    // check whether the current window is a satellite (note this method
    // is also implemeted in the Satellite class -- we don't want this class
    // to depend on Satellite so we duplicate the definition)
@@ -268,6 +326,46 @@ public class SatelliteManager implements CloseHandler<Window>
          return window_;
       }
       
+      // null types means the satellite consumes all events
+      public void setSubscriptions(JsArrayString types)
+      {
+         if (types == null)
+         {
+            subscriptions_ = null;
+         }
+         else
+         {
+            subscriptions_ = new HashSet<String>();
+            for (int i = 0; i<types.length(); i++)
+               subscriptions_.add(types.get(i));
+         }
+      }
+      
+      public boolean isSubscribed(String type)
+      {
+         return subscriptions_ == null || subscriptions_.contains(type);
+      }
+      
+      public void onEventDelivered()
+      {
+         eventsDelivered_++;
+      }
+      
+      public void onEventDropped()
+      {
+         eventsDropped_++;
+      }
+      
+      public int getEventsDelivered()
+      {
+         return eventsDelivered_;
+      }
+      
+      public int getEventsDropped()
+      {
+         return eventsDropped_;
+      }
+      
       @Override 
       public boolean equals(Object other)
       {
@@ -282,6 +380,9 @@ public class SatelliteManager implements CloseHandler<Window>
       
       private final String name_;
       private final WindowEx window_;
+      private HashSet<String> subscriptions_ = null;
+      private int eventsDelivered_ = 0;
+      private int eventsDropped_ = 0;
    }
    
 }
@@ -35,10 +35,12 @@ public abstract class SatelliteWindow extends Composite
                                       ProvidesResize
 {
    public SatelliteWindow(Provider<EventBus> pEventBus,
-                          Provider<FontSizeManager> pFontSizeManager)
+                          Provider<FontSizeManager> pFontSizeManager,
+                          Provider<Satellite> pSatellite)
    {
       // save references
       pEventBus_ = pEventBus;
+      pSatellite_ = pSatellite;
       pFontSizeManager_ = pFontSizeManager;
       
       // occupy full client area of the window
@@ -56,6 +58,9 @@ public abstract class SatelliteWindow extends Composite
    // rather they should override the abstract onInitialize method)
    public void show(JavaScriptObject params)
    {
+      // tell the main window which client events we consume
+      pSatellite_.get().setEventSubscriptions(getEventSubscriptions());
+      
       // react to font size changes
       EventBus eventBus = pEventBus_.get();
       eventBus.addHandler(ChangeFontSizeEvent.TYPE, new ChangeFontSizeHandler()
@@ -82,6 +87,14 @@ public abstract class SatelliteWindow extends Composite
       mainPanel_.onResize(); 
    }
    
+   // client event types (see ClientEvent) which this window consumes. the
+   // main window only forwards events of these types (null means forward
+   // all events)
+   protected String[] getEventSubscriptions()
+   {
+      return null;
+   }
+   
    abstract protected void onInitialize(LayoutPanel mainPanel, 
                                         JavaScriptObject params);
    
@@ -92,5 +105,6 @@ public abstract class SatelliteWindow extends Composite
 
    private final Provider<EventBus> pEventBus_;
    private final Provider<FontSizeManager> pFontSizeManager_;
+   private final Provider<Satellite> pSatellite_;
    private LayoutPanel mainPanel_;
 }
@@ -0,0 +1,357 @@
+/*
+ * ConsoleOutputBuffer.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.common.shell;
+
+import java.util.ArrayList;
+
+import org.rstudio.core.client.RingBuffer;
+
+import com.google.gwt.dom.client.Element;
+
+/**
+ * In-memory model of console output used by the virtualized console. Output
+ * is held as a list of lines, each made up of runs of text which share a
+ * style (class name), so that only the lines which are visible need to be
+ * rendered. Writes follow the same rules as the DOM based console: \r and
+ * \b are applied to the current line (and can't reach back past the start
+ * of the chunk which began the current run of output) and output which
+ * doesn't end in a newline is terminated before any other kind of text is
+ * written after it.
+ */
+public class ConsoleOutputBuffer
+{
+   public static class Line
+   {
+      private Line(int serial)
+      {
+         serial_ = serial;
+      }
+
+      public String getText()
+      {
+         return text_;
+      }
+
+      public int length()
+      {
+         return text_.length();
+      }
+
+      public int getRunCount()
+      {
+         return runClasses_.size();
+      }
+
+      public String getRunClass(int run)
+      {
+         return runClasses_.get(run);
+      }
+
+      public String getRunText(int run)
+      {
+         int start = 0;
+         for (int i = 0; i < run; i++)
+            start += runLengths_.get(i);
+         return text_.substring(start, start + runLengths_.get(run));
+      }
+
+      // incremented whenever the line's contents change
+      public int getVersion()
+      {
+         return version_;
+      }
+
+      // replace the text in [start, end) with text of the given class
+      private void replace(int start, int end, String text, String className)
+      {
+         ArrayList<String> classes = new ArrayList<String>();
+         ArrayList<Integer> lengths = new ArrayList<Integer>();
+
+         int runStart = 0;
+         for (int i = 0; i < runClasses_.size(); i++)
+         {
+            int runEnd = runStart + runLengths_.get(i);
+            if (runStart < start)
+               addRun(classes, lengths, runClasses_.get(i),
+                      Math.min(runEnd, start) - runStart);
+            runStart = runEnd;
+         }
+
+         addRun(classes, lengths, className, text.length());
+
+         runStart = 0;
+         for (int i = 0; i < runClasses_.size(); i++)
+         {
+            int runEnd = runStart + runLengths_.get(i);
+            if (runEnd > end)
+               addRun(classes, lengths, runClasses_.get(i),
+                      runEnd - Math.max(runStart, end));
+            runStart = runEnd;
+         }
+
+         text_ = text_.substring(0, start) + text + text_.substring(end);
+         runClasses_ = classes;
+         runLengths_ = lengths;
+         version_++;
+      }
+
+      private static void addRun(ArrayList<String> classes,
+                                 ArrayList<Integer> lengths,
+                                 String className,
+                                 int length)
+      {
+         if (length <= 0)
+            return;
+
+         int last = classes.size() - 1;
+         if (last >= 0 && equal(classes.get(last), className))
+            lengths.set(last, lengths.get(last) + length);
+         else
+         {
+            classes.add(className);
+            lengths.add(length);
+         }
+      }
+
+      private static boolean equal(String a, String b)
+      {
+         return a == null ? b == null : a.equals(b);
+      }
+
+      private String text_ = "";
+      private ArrayList<String> runClasses_ = new ArrayList<String>();
+      private ArrayList<Integer> runLengths_ = new ArrayList<Integer>();
+      private int version_ = 0;
+      private final int serial_;
+
+      // rendering state (maintained by the virtualized console renderer)
+      Element element_;
+      int renderedVersion_ = -1;
+   }
+
+   public ConsoleOutputBuffer()
+   {
+      clear();
+   }
+
+   // number of lines (there is always at least one, possibly empty, line)
+   public int getLineCount()
+   {
+      return lines_.size();
+   }
+
+   public Line getLine(int index)
+   {
+      return lines_.get(index);
+   }
+
+   // index of the line within the buffer (-1 if it is no longer present)
+   public int indexOf(Line line)
+   {
+      int index = line.serial_ - firstSerial_;
+      if (index < 0 || index >= lines_.size() || lines_.get(index) != line)
+         return -1;
+      return index;
+   }
+
+   public void append(String text, String className, boolean isOutput)
+   {
+      if (text == null)
+         return;
+
+      if (isEmpty())
+         headIsOutput_ = isOutput;
+
+      // output is terminated before any other kind of text is written
+      if (!isOutput && tailIsOutput_ && lastLine().length() > 0)
+         newLine();
+
+      // a chunk of text which doesn't continue a run of output starts a
+      // new segment (control characters can't reach back before it)
+      if (!isOutput || !tailIsOutput_)
+      {
+         floor_ = lastLine().length();
+         cursor_ = floor_;
+      }
+      tailIsOutput_ = isOutput;
+
+      int tail = 0;
+      for (int i = 0; i < text.length(); i++)
+      {
+         char c = text.charAt(i);
+         if (c != '\n' && c != '\r' && c != '\b')
+            continue;
+
+         write(text.substring(tail, i), className);
+         tail = i + 1;
+
+         switch (c)
+         {
+            case '\n':
+               newLine();
+               break;
+            case '\r':
+               cursor_ = floor_;
+               break;
+            case '\b':
+               if (cursor_ > floor_)
+               {
+                  lastLine().replace(cursor_ - 1, cursor_, "", className);
+                  cursor_--;
+               }
+               break;
+         }
+      }
+      write(text.substring(tail), className);
+   }
+
+   // add text to the top of the buffer (used when playing back the
+   // console's history from newest to oldest)
+   public void prepend(String text, String className, boolean isOutput)
+   {
+      if (text == null)
+         return;
+
+      ConsoleOutputBuffer chunk = new ConsoleOutputBuffer();
+      chunk.append(text, className, isOutput);
+      prepend(chunk);
+   }
+
+   // add the contents of another buffer (e.g. one built by appending an
+   // older part of the console's history in order) to the top of this one
+   public void prepend(ConsoleOutputBuffer chunk)
+   {
+      if (chunk.isEmpty())
+         return;
+
+      // output is terminated unless it is followed by more output
+      boolean empty = isEmpty();
+      if (chunk.tailIsOutput_ && (empty || !headIsOutput_) &&
+          chunk.lastLine().length() > 0)
+      {
+         chunk.newLine();
+      }
+      if (empty)
+         tailIsOutput_ = false;
+      headIsOutput_ = chunk.headIsOutput_;
+
+      // the chunk's last (unterminated) line joins our first line
+      Line first = lines_.get(0);
+      Line joined = chunk.lastLine();
+      for (int run = joined.getRunCount() - 1; run >= 0; run--)
+         first.replace(0, 0, joined.getRunText(run), joined.getRunClass(run));
+
+      // if our first line is also our last then the position of the next
+      // write moves along with the text in front of it
+      if (lines_.size() == 1)
+      {
+         cursor_ += joined.length();
+         floor_ += joined.length();
+      }
+
+      for (int i = chunk.getLineCount() - 2; i >= 0; i--)
+      {
+         Line line = new Line(--firstSerial_);
+         Line source = chunk.getLine(i);
+         for (int run = 0; run < source.getRunCount(); run++)
+         {
+            line.replace(line.length(), line.length(),
+                         source.getRunText(run), source.getRunClass(run));
+         }
+         lines_.addFirst(line);
+      }
+   }
+
+   // remove lines from the top of the buffer so that no more than maxLines
+   // remain (returns the number of lines removed)
+   public int trim(int maxLines)
+   {
+      int removed = 0;
+      while (lines_.size() > Math.max(maxLines, 1))
+      {
+         lines_.remove();
+         firstSerial_++;
+         removed++;
+      }
+      return removed;
+   }
+
+   public boolean isEmpty()
+   {
+      return lines_.size() == 1 && lastLine().length() == 0;
+   }
+
+   public void clear()
+   {
+      lines_.clear();
+      firstSerial_ = 0;
+      lines_.add(new Line(0));
+      tailIsOutput_ = false;
+      headIsOutput_ = false;
+      cursor_ = 0;
+      floor_ = 0;
+   }
+
+   // the text of lines [first, last)
+   public String getText(int first, int last)
+   {
+      StringBuilder text = new StringBuilder();
+      for (int i = first; i < last; i++)
+      {
+         if (i > first)
+            text.append('\n');
+         text.append(lines_.get(i).getText());
+      }
+      return text.toString();
+   }
+
+   private void write(String text, String className)
+   {
+      if (text.length() == 0)
+         return;
+
+      Line line = lastLine();
+      line.replace(cursor_,
+                   Math.min(cursor_ + text.length(), line.length()),
+                   text,
+                   className);
+      cursor_ += text.length();
+   }
+
+   private void newLine()
+   {
+      // the previous line now renders with a trailing newline
+      lastLine().version_++;
+      lines_.add(new Line(firstSerial_ + lines_.size()));
+      cursor_ = 0;
+      floor_ = 0;
+   }
+
+   private Line lastLine()
+   {
+      return lines_.get(lines_.size() - 1);
+   }
+
+   private final RingBuffer<Line> lines_ = new RingBuffer<Line>();
+   private int firstSerial_ = 0;
+
+   // whether the most recent text written to the end (or the start) of
+   // the buffer was output
+   private boolean tailIsOutput_ = false;
+   private boolean headIsOutput_ = false;
+
+   // position of the next write within the last line, and the position
+   // before which \r and \b can't move it
+   private int cursor_ = 0;
+   private int floor_ = 0;
+}
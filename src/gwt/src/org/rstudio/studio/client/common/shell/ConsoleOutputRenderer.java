@@ -0,0 +1,190 @@
+/*
+ * ConsoleOutputRenderer.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.common.shell;
+
+import java.util.ArrayList;
+
+import org.rstudio.studio.client.common.shell.ConsoleOutputBuffer.Line;
+
+import com.google.gwt.dom.client.Document;
+import com.google.gwt.dom.client.Element;
+import com.google.gwt.dom.client.SpanElement;
+import com.google.gwt.dom.client.Style.Unit;
+
+// Renders a window of the lines in a ConsoleOutputBuffer into an element
+// (each line gets its own span). The space taken by the lines above and
+// below the window is reserved using padding, with the height of those
+// lines estimated from the average height of the rendered lines (lines
+// may wrap so they don't all have the same height). Lines which are still
+// within the window when it moves are left in place, so the DOM changes
+// in proportion to the number of lines scrolled or written.
+class ConsoleOutputRenderer
+{
+   public ConsoleOutputRenderer(ConsoleOutputBuffer buffer,
+                                Element element,
+                                String outputClassName)
+   {
+      buffer_ = buffer;
+      element_ = element;
+      outputClassName_ = outputClassName;
+   }
+
+   // render lines [first, last). if keepRendered is true lines which are
+   // already rendered are kept (the window is extended to include them)
+   // so that a selection within them isn't disturbed
+   public void render(int first, int last, boolean keepRendered)
+   {
+      int count = buffer_.getLineCount();
+      first = Math.max(0, Math.min(first, count));
+      last = Math.max(first, Math.min(last, count));
+
+      // remove lines which have been trimmed or are outside the window
+      ArrayList<Line> rendered = new ArrayList<Line>();
+      for (Line line : rendered_)
+      {
+         int index = buffer_.indexOf(line);
+         if (index >= 0 && (keepRendered || (index >= first && index < last)))
+         {
+            rendered.add(line);
+            if (keepRendered)
+            {
+               first = Math.min(first, index);
+               last = Math.max(last, index + 1);
+            }
+         }
+         else
+         {
+            unrender(line);
+         }
+      }
+
+      // render the window in order, reusing up to date line elements
+      rendered_.clear();
+      Element previous = null;
+      for (int i = first; i < last; i++)
+      {
+         Line line = buffer_.getLine(i);
+         boolean isLast = i == count - 1;
+         if (line.element_ == null ||
+             line.renderedVersion_ != line.getVersion())
+         {
+            Element lineEl = createLineElement(line, isLast);
+            if (line.element_ != null)
+               element_.replaceChild(lineEl, line.element_);
+            line.element_ = lineEl;
+            line.renderedVersion_ = line.getVersion();
+         }
+
+         Element expected = previous == null ? element_.getFirstChildElement()
+                                             : previous.getNextSiblingElement();
+         if (expected != line.element_)
+         {
+            if (previous == null)
+               element_.insertFirst(line.element_);
+            else
+               element_.insertAfter(line.element_, previous);
+         }
+
+         previous = line.element_;
+         rendered_.add(line);
+      }
+
+      first_ = first;
+      last_ = last;
+
+      // measure the rendered lines to refine our estimate of line height
+      int renderedHeight = element_.getOffsetHeight() - paddingTop_ -
+                           paddingBottom_;
+      if (last > first && renderedHeight > 0)
+         lineHeight_ = Math.max(1.0, (double)renderedHeight / (last - first));
+
+      paddingTop_ = (int)Math.round(first * lineHeight_);
+      paddingBottom_ = (int)Math.round((count - last) * lineHeight_);
+      element_.getStyle().setPaddingTop(paddingTop_, Unit.PX);
+      element_.getStyle().setPaddingBottom(paddingBottom_, Unit.PX);
+   }
+
+   public void clear()
+   {
+      for (Line line : rendered_)
+         unrender(line);
+      rendered_.clear();
+      element_.setInnerText("");
+      first_ = last_ = 0;
+      paddingTop_ = paddingBottom_ = 0;
+      element_.getStyle().clearPaddingTop();
+      element_.getStyle().clearPaddingBottom();
+   }
+
+   public int getFirstRendered()
+   {
+      return first_;
+   }
+
+   public int getLastRendered()
+   {
+      return last_;
+   }
+
+   public double getLineHeight()
+   {
+      return lineHeight_;
+   }
+
+   private Element createLineElement(Line line, boolean isLast)
+   {
+      Document doc = Document.get();
+      SpanElement lineEl = doc.createSpanElement();
+      for (int run = 0; run < line.getRunCount(); run++)
+      {
+         String className = line.getRunClass(run);
+         String text = line.getRunText(run);
+         if (className == null || className.equals(outputClassName_))
+         {
+            lineEl.appendChild(doc.createTextNode(text));
+         }
+         else
+         {
+            SpanElement span = doc.createSpanElement();
+            span.setClassName(className);
+            span.setInnerText(text);
+            lineEl.appendChild(span);
+         }
+      }
+      if (!isLast)
+         lineEl.appendChild(doc.createTextNode("\n"));
+      return lineEl;
+   }
+
+   private void unrender(Line line)
+   {
+      if (line.element_ != null)
+      {
+         line.element_.removeFromParent();
+         line.element_ = null;
+         line.renderedVersion_ = -1;
+      }
+   }
+
+   private final ConsoleOutputBuffer buffer_;
+   private final Element element_;
+   private final String outputClassName_;
+   private final ArrayList<Line> rendered_ = new ArrayList<Line>();
+   private int first_ = 0;
+   private int last_ = 0;
+   private int paddingTop_ = 0;
+   private int paddingBottom_ = 0;
+   private double lineHeight_ = DEFAULT_LINE_HEIGHT;
+
+   private static final double DEFAULT_LINE_HEIGHT = 16;
+}
@@ -0,0 +1,167 @@
+/*
+ * ConsoleRenderScheduler.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.common.shell;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import com.google.gwt.animation.client.AnimationScheduler;
+import com.google.gwt.animation.client.AnimationScheduler.AnimationCallback;
+import com.google.gwt.core.client.Duration;
+import org.rstudio.core.client.ClientMetrics;
+
+/**
+ * Buffers writes to the console and flushes them to the DOM at most once
+ * per animation frame, so that a high rate of small writes results in one
+ * round of DOM updates (and one scroll and trim) per frame rather than one
+ * per write. Adjacent writes of the same class are merged before they are
+ * flushed. Also records the number of writes per flush and the time each
+ * flush takes.
+ */
+public class ConsoleRenderScheduler
+{
+   interface Target
+   {
+      void write(String text, String className);
+      void onFlushed();
+   }
+
+   ConsoleRenderScheduler(Target target)
+   {
+      target_ = target;
+   }
+
+   public void write(String text, String className, boolean mergeable)
+   {
+      writeCount_++;
+      pendingChars_ += text.length();
+
+      int last = pendingText_.size() - 1;
+      if (mergeable && last >= 0 && lastMergeable_ &&
+          className.equals(pendingClasses_.get(last)))
+      {
+         pendingText_.get(last).append(text);
+      }
+      else
+      {
+         pendingText_.add(new StringBuilder(text));
+         pendingClasses_.add(className);
+      }
+      lastMergeable_ = mergeable;
+
+      // animation frames aren't delivered to hidden windows so we don't let
+      // an unbounded number of writes (or amount of output, since adjacent
+      // writes are merged into one entry) accumulate
+      if (pendingText_.size() >= MAX_PENDING_WRITES ||
+          pendingChars_ >= MAX_PENDING_CHARS)
+      {
+         flush();
+      }
+      else if (!framePending_)
+      {
+         framePending_ = true;
+         AnimationScheduler.get().requestAnimationFrame(new AnimationCallback()
+         {
+            public void execute(double timestamp)
+            {
+               framePending_ = false;
+               flush();
+            }
+         });
+      }
+   }
+
+   public boolean hasPendingWrites()
+   {
+      return !pendingText_.isEmpty();
+   }
+
+   // apply all pending writes now
+   public void flush()
+   {
+      if (pendingText_.isEmpty())
+         return;
+
+      double start = Duration.currentTimeMillis();
+
+      ArrayList<StringBuilder> text = pendingText_;
+      ArrayList<String> classes = pendingClasses_;
+      int writes = writeCount_;
+      discard();
+
+      for (int i = 0; i < text.size(); i++)
+         target_.write(text.get(i).toString(), classes.get(i));
+      target_.onFlushed();
+
+      int frameTime = (int)(Duration.currentTimeMillis() - start);
+      frameTimes_[flushCount_ % SAMPLE_COUNT] = frameTime;
+      flushCount_++;
+      flushedWrites_ += writes;
+      maxFlushSize_ = Math.max(maxFlushSize_, writes);
+   }
+
+   // drop all pending writes (e.g. because the console has been cleared)
+   public void discard()
+   {
+      pendingText_ = new ArrayList<StringBuilder>();
+      pendingClasses_ = new ArrayList<String>();
+      lastMergeable_ = false;
+      writeCount_ = 0;
+      pendingChars_ = 0;
+   }
+
+   // flush size and frame time (shown with the request log stats)
+   void collectMetrics(ClientMetrics.Values values)
+   {
+      values.add("Flushes", flushCount_);
+      values.add("Mean writes per flush", flushCount_ == 0 ? 0 :
+                  Math.round((double)flushedWrites_ / flushCount_));
+      values.add("Max writes per flush", maxFlushSize_);
+      values.add("p50 flush time (ms)", getFrameTimePercentile(0.50));
+      values.add("p95 flush time (ms)", getFrameTimePercentile(0.95));
+      values.add("p99 flush time (ms)", getFrameTimePercentile(0.99));
+   }
+
+   // time (in ms) within which the given fraction of recent flushes
+   // completed (e.g. 0.95 for the 95th percentile)
+   private int getFrameTimePercentile(double fraction)
+   {
+      int samples = Math.min(flushCount_, SAMPLE_COUNT);
+      if (samples == 0)
+         return 0;
+
+      int[] sorted = new int[samples];
+      System.arraycopy(frameTimes_, 0, sorted, 0, samples);
+      Arrays.sort(sorted);
+      int index = (int)Math.ceil(fraction * samples) - 1;
+      return sorted[Math.max(0, Math.min(samples - 1, index))];
+   }
+
+   private final Target target_;
+   private ArrayList<StringBuilder> pendingText_ =
+                                          new ArrayList<StringBuilder>();
+   private ArrayList<String> pendingClasses_ = new ArrayList<String>();
+   private boolean lastMergeable_ = false;
+   private int writeCount_ = 0;
+   private int pendingChars_ = 0;
+   private boolean framePending_ = false;
+
+   private int flushCount_ = 0;
+   private long flushedWrites_ = 0;
+   private int maxFlushSize_ = 0;
+   private final int[] frameTimes_ = new int[SAMPLE_COUNT];
+
+   private static final int MAX_PENDING_WRITES = 1000;
+   private static final int MAX_PENDING_CHARS = 200000;
+   private static final int SAMPLE_COUNT = 256;
+}
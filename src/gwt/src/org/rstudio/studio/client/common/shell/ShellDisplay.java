@@ -41,6 +41,9 @@ public interface ShellDisplay extends CanFocus, HasKeyPressHandlers
 
    int getMaxOutputLines();
    void setMaxOutputLines(int maxLines);
+   
+   boolean isVirtualizedOutput();
+   void setVirtualizedOutput(boolean virtualized);
 
    HandlerRegistration addCapturingKeyDownHandler(KeyDownHandler handler);
    
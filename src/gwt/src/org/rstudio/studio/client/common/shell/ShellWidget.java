@@ -12,8 +12,10 @@
  */
 package org.rstudio.studio.client.common.shell;
 
+import com.google.gwt.animation.client.AnimationScheduler;
+import com.google.gwt.animation.client.AnimationScheduler.AnimationCallback;
+import com.google.gwt.core.client.Duration;
 import com.google.gwt.core.client.Scheduler;
-import com.google.gwt.core.client.Scheduler.RepeatingCommand;
 import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 import com.google.gwt.dom.client.Document;
 import com.google.gwt.dom.client.Node;
@@ -24,8 +26,8 @@ import com.google.gwt.event.dom.client.*;
 import com.google.gwt.event.shared.HandlerRegistration;
 import com.google.gwt.user.client.Element;
 import com.google.gwt.user.client.ui.*;
+import org.rstudio.core.client.ClientMetrics;
 import org.rstudio.core.client.StringUtil;
-import org.rstudio.core.client.TimeBufferedCommand;
 import org.rstudio.core.client.VirtualConsole;
 import org.rstudio.core.client.dom.DomUtils;
 import org.rstudio.core.client.jsonrpc.RpcObjectList;
@@ -145,19 +147,37 @@ public class ShellWidget extends Composite implements ShellDisplay,
 
       secondaryInputHandler.setInput(editor);
 
-      scrollToBottomCommand_ = new TimeBufferedCommand(5)
+      renderScheduler_ = new ConsoleRenderScheduler(
+                                       new ConsoleRenderScheduler.Target()
       {
-         @Override
-         protected void performAction(boolean shouldSchedulePassive)
+         public void write(String text, String className)
          {
-            if (!DomUtils.selectionExists())
-               scrollPanel_.scrollToBottom();
+            onWriteFlushed(text, className);
+         }
+
+         public void onFlushed()
+         {
+            onWritesFlushed();
+         }
+      });
+
+      outputBuffer_ = new ConsoleOutputBuffer();
+      outputRenderer_ = new ConsoleOutputRenderer(outputBuffer_,
+                                                  output_.getElement(),
+                                                  styles_.output());
+      scrollPanel_.addScrollHandler(new ScrollHandler()
+      {
+         public void onScroll(ScrollEvent event)
+         {
+            if (virtualized_)
+               scheduleRenderOutput();
          }
-      };
+      });
 
       initWidget(scrollPanel_) ;
 
       addCopyHook(getElement());
+      addVirtualizedCopyHook(getElement(), output_.getElement());
    }
 
    private native void addCopyHook(Element element) /*-{
@@ -172,9 +192,111 @@ public class ShellWidget extends Composite implements ShellDisplay,
       }
    }-*/;
 
-   private void scrollToBottomAsync()
+   // when the output is virtualized only part of it is rendered, so if
+   // the selection spans all of the rendered output we copy all of the
+   // output (along with whatever else was selected before or after it)
+   private native void addVirtualizedCopyHook(Element element,
+                                              Element outputElement) /*-{
+      if (!element.addEventListener || !$wnd.getSelection)
+         return;
+      
+      var thiz = this;
+      element.addEventListener("copy", $entry(function(e) {
+         var text = thiz.@org.rstudio.studio.client.common.shell.ShellWidget::getUnrenderedOutputText()();
+         if (text == null || !e.clipboardData)
+            return;
+            
+         var sel = $wnd.getSelection();
+         if (sel.rangeCount == 0)
+            return;
+            
+         var range = sel.getRangeAt(0);
+         var all = $doc.createRange();
+         all.selectNodeContents(outputElement);
+         if (range.compareBoundaryPoints(all.START_TO_START, all) > 0 ||
+             range.compareBoundaryPoints(all.END_TO_END, all) < 0)
+         {
+            return;
+         }
+         
+         var before = range.cloneRange();
+         before.setEndBefore(outputElement);
+         var after = range.cloneRange();
+         after.setStartAfter(outputElement);
+         e.clipboardData.setData("text/plain", 
+                                 before.toString() + text + after.toString());
+         e.preventDefault();
+      }), true);
+   }-*/;
+   
+   // all of the output text if only part of it is rendered (otherwise null)
+   private String getUnrenderedOutputText()
    {
-      scrollToBottomCommand_.nudge();
+      int count = outputBuffer_.getLineCount();
+      if (!virtualized_ ||
+          (outputRenderer_.getFirstRendered() == 0 &&
+           outputRenderer_.getLastRendered() == count))
+      {
+         return null;
+      }
+      return outputBuffer_.getText(0, count);
+   }
+
+   private void scrollToBottom()
+   {
+      if (virtualized_)
+         renderOutput(true);
+      scrollPanel_.scrollToBottom();
+   }
+   
+   private void scheduleRenderOutput()
+   {
+      if (renderOutputPending_)
+         return;
+      
+      renderOutputPending_ = true;
+      Scheduler.get().scheduleDeferred(new ScheduledCommand()
+      {
+         public void execute()
+         {
+            renderOutputPending_ = false;
+            if (virtualized_)
+               renderOutput(scrollPanel_.isScrolledToBottom());
+         }
+      });
+   }
+   
+   // render the lines of output which are visible (plus some overscan)
+   private void renderOutput(boolean atBottom)
+   {
+      int count = outputBuffer_.getLineCount();
+      double lineHeight = outputRenderer_.getLineHeight();
+      int visibleLines = 
+         (int)Math.ceil(scrollPanel_.getOffsetHeight() / lineHeight) + 1;
+      
+      int first, last;
+      if (atBottom)
+      {
+         last = count;
+         first = Math.max(0, last - visibleLines - OVERSCAN_LINES);
+      }
+      else
+      {
+         int scrollTop = scrollPanel_.getVerticalScrollPosition();
+         int outputTop = output_.getAbsoluteTop() - 
+                         scrollPanel_.getAbsoluteTop() + 
+                         scrollTop;
+         first = (int)Math.floor((scrollTop - outputTop) / lineHeight);
+         first = Math.max(0, first - OVERSCAN_LINES);
+         last = first + visibleLines + (2 * OVERSCAN_LINES);
+      }
+      
+      // don't remove rendered lines while there is a selection (they
+      // may be part of it)
+      outputRenderer_.render(first, last, DomUtils.selectionExists());
+      
+      if (atBottom)
+         scrollPanel_.scrollToBottom();
    }
 
    @Override
@@ -190,35 +312,75 @@ public class ShellWidget extends Composite implements ShellDisplay,
             // textarea is in the upper left corner of the screen and when focus
             // moves to it scrolling ensues.
             input_.forceCursorChange();
-            scrollPanel_.scrollToBottom();
+            scrollToBottom();
          }
       });
+      
+      metricsRegistration_ = ClientMetrics.register(
+            "Console rendering",
+            new ClientMetrics.Source()
+            {
+               public void collect(ClientMetrics.Values values)
+               {
+                  renderScheduler_.collectMetrics(values);
+               }
+            });
    }
    
+   @Override
+   protected void onUnload()
+   {
+      metricsRegistration_.removeHandler();
+      super.onUnload();
+   }
+   
+   // writes are applied by the render scheduler (at most once per
+   // animation frame), see onWritesFlushed
    public void consoleWriteError(String error)
    {
-      output(error, styles_.error(), false);
-      scrollToBottomAsync();
+      renderScheduler_.write(error, styles_.error(), false);
    }
 
    public void consoleWriteOutput(String output)
    {
-      output(output, styles_.output(), false);
-      scrollToBottomAsync();
+      // adjacent output is merged (it would be run through the same 
+      // VirtualConsole in any case)
+      renderScheduler_.write(output, styles_.output(), true);
    }
 
    public void consoleWriteInput(String input)
    {
-      pendingInput_.setText("");
-      pendingInput_.setVisible(false);
-      output(input, styles_.command() + KEYWORD_CLASS_NAME, false);
-      scrollToBottomAsync();
+      renderScheduler_.write(input, inputClassName(), false);
    }
 
    public void consoleWritePrompt(String prompt)
    {
-      output(prompt, styles_.prompt() + KEYWORD_CLASS_NAME, false);
-      scrollToBottomAsync();
+      renderScheduler_.write(prompt, 
+                             styles_.prompt() + KEYWORD_CLASS_NAME, 
+                             false);
+   }
+   
+   private void onWriteFlushed(String text, String className)
+   {
+      // the pending input is replaced by the input once it's echoed
+      if (className.equals(inputClassName()))
+      {
+         pendingInput_.setText("");
+         pendingInput_.setVisible(false);
+      }
+      writeOutput(text, className, false);
+   }
+   
+   private void onWritesFlushed()
+   {
+      trimExcess();
+      if (!DomUtils.selectionExists())
+         scrollToBottom();
+   }
+   
+   private String inputClassName()
+   {
+      return styles_.command() + KEYWORD_CLASS_NAME;
    }
 
    public void consolePrompt(String prompt, boolean showInput)
@@ -240,30 +402,45 @@ public class ShellWidget extends Composite implements ShellDisplay,
 
    public void ensureInputVisible()
    {
-      scrollPanel_.scrollToBottom();
+      scrollToBottom();
    }
 
    private boolean output(String text,
                           String className,
                           boolean addToTop)
+   {
+      writeOutput(text, className, addToTop);
+      return !trimExcess();
+   }
+   
+   // write output without trimming any excess lines
+   private void writeOutput(String text,
+                            String className,
+                            boolean addToTop)
    {
       Node node;
       boolean isOutput = StringUtil.isNullOrEmpty(className)
                          || className.equals(styles_.output());
 
-      if (isOutput && !addToTop && trailingOutput_ != null)
+      if (virtualized_)
       {
-         // Short-circuit the case where we're appending output to the
-         // bottom, and there's already some output there. We need to
-         // treat this differently in case the new output uses control
-         // characters to pound over parts of the previous output.
-
-         int oldLineCount = DomUtils.countLines(trailingOutput_, true);
-         trailingOutputConsole_.submit(text);
-         trailingOutput_.setNodeValue(
-               ensureNewLine(trailingOutputConsole_.toString()));
-         int newLineCount = DomUtils.countLines(trailingOutput_, true);
-         lines_ += newLineCount - oldLineCount;
+         if (addToTop)
+            outputBuffer_.prepend(text, className, isOutput);
+         else
+            outputBuffer_.append(text, className, isOutput);
+         scheduleRenderOutput();
+         return;
+      }
+
+      if (isOutput && !addToTop)
+      {
+         // Output appended to the bottom is held in a VirtualConsole (in
+         // case later output uses control characters to pound over parts
+         // of it) and rendered as a text node per line, so that only the
+         // nodes for the lines which changed need to be updated.
+         if (trailingOutput_ == null)
+            trailingOutputConsole_ = new VirtualConsole();
+         updateTrailingOutput(trailingOutputConsole_.submit(text));
       }
       else
       {
@@ -272,9 +449,7 @@ public class ShellWidget extends Composite implements ShellDisplay,
          text = VirtualConsole.consolify(text);
          if (isOutput)
          {
-            VirtualConsole console = new VirtualConsole();
-            console.submit(text);
-            String consoleSnapshot = console.toString();
+            String consoleSnapshot = text;
 
             // We use ensureNewLine to make sure that even if output
             // doesn't end with \n, a prompt will appear on its own line.
@@ -282,27 +457,16 @@ public class ShellWidget extends Composite implements ShellDisplay,
             // on an output that's going to be followed by another output)
             // we can end up inserting newlines where they don't belong.
             //
-            // It's safe to add a newline when we're appending output to
-            // the end of the console, because if the next append is also
-            // output, we'll use the contents of VirtualConsole and the
-            // newline we add here will be plowed over.
-            //
-            // If we're prepending output to the top of the console, then
-            // it's safe to add a newline if the next chunk (which is already
+            // Since we're prepending output to the top of the console, it's
+            // safe to add a newline if the next chunk (which is already
             // there) is something besides output.
-            if (!addToTop ||
-                (!outEl.hasChildNodes()
-                 || outEl.getFirstChild().getNodeType() != Node.TEXT_NODE))
+            if (!outEl.hasChildNodes()
+                || outEl.getFirstChild().getNodeType() != Node.TEXT_NODE)
             {
                consoleSnapshot = ensureNewLine(consoleSnapshot);
             }
 
             node = Document.get().createTextNode(consoleSnapshot);
-            if (!addToTop)
-            {
-               trailingOutput_ = (Text) node;
-               trailingOutputConsole_ = console;
-            }
          }
          else
          {
@@ -324,7 +488,44 @@ public class ShellWidget extends Composite implements ShellDisplay,
 
          lines_ += DomUtils.countLines(node, true);
       }
-      return !trimExcess();
+   }
+
+   // bring the text nodes for the trailing output's lines up to date
+   // (lines from firstChanged on may have changed, earlier lines can't)
+   private void updateTrailingOutput(int firstChanged)
+   {
+      if (firstChanged < 0)
+         return;
+
+      int count = trailingOutputConsole_.getLineCount();
+      for (int i = firstChanged; i < count; i++)
+      {
+         // We make sure that even if output doesn't end with \n a prompt
+         // will appear on its own line. The newline we add is plowed over
+         // if the next append is also output.
+         String line = trailingOutputConsole_.getLine(i);
+         String value = (i == count - 1 && line.length() == 0) ? "" 
+                                                               : line + "\n";
+
+         if (i == firstChanged && trailingOutput_ != null)
+         {
+            lines_ += countNewLines(value) - 
+                      countNewLines(trailingOutput_.getData());
+            trailingOutput_.setData(value);
+         }
+         else
+         {
+            Text node = Document.get().createTextNode(value);
+            output_.getElement().appendChild(node);
+            trailingOutput_ = node;
+            lines_ += countNewLines(value);
+         }
+      }
+   }
+
+   private int countNewLines(String s)
+   {
+      return s.endsWith("\n") ? 1 : 0;
    }
 
    private String ensureNewLine(String s)
@@ -340,71 +541,192 @@ public class ShellWidget extends Composite implements ShellDisplay,
       if (maxLines_ <= 0)
          return false;  // No limit in effect
 
+      if (virtualized_)
+         return outputBuffer_.trim(maxLines_) > 0;
+
       int linesToTrim = lines_ - maxLines_;
       if (linesToTrim > 0)
       {
          lines_ -= DomUtils.trimLines(output_.getElement(),
                                       lines_ - maxLines_);
+
+         // if the node for the current line of trailing output was trimmed
+         // then subsequent output starts afresh
+         if (trailingOutput_ != null && trailingOutput_.getParentNode() == null)
+         {
+            trailingOutput_ = null;
+            trailingOutputConsole_ = null;
+         }
          return true;
       }
 
       return false;
    }
 
+   // Plays back the console's history. The most recent actions (enough of
+   // them to fill maxLines_, since anything older would just be trimmed)
+   // are rendered off-DOM in order and inserted in one go. If the limit
+   // isn't reached (or there is no limit) the older actions are then
+   // prepended in slices, one animation frame at a time, with each frame's
+   // work limited to PLAYBACK_FRAME_MS.
    public void playbackActions(final RpcObjectList<ConsoleAction> actions)
    {
-      Scheduler.get().scheduleIncremental(new RepeatingCommand()
+      int limit = maxLines_ > 0 ? maxLines_ : INITIAL_PLAYBACK_LINES;
+      int lines = 0;
+      int start = actions.length();
+      while (start > 0 && lines < limit)
+         lines += countPlaybackLines(actions.get(--start));
+
+      cleared_ = false;
+      boolean canContinue = playbackActions(actions, start, actions.length());
+      if (!DomUtils.selectionExists())
+         scrollToBottom();
+
+      if (!canContinue || start == 0 || (maxLines_ > 0 && lines >= maxLines_))
+         return;
+
+      // each slice runs in its own animation frame (a repeating scheduled
+      // command would be re-run back to back for up to the scheduler's
+      // time slice, blocking the ui for that long)
+      final int remaining = start;
+      AnimationScheduler.get().requestAnimationFrame(new AnimationCallback()
       {
-         private int i = actions.length() - 1;
-         private int chunksize = 1000;
+         private int end_ = remaining;
 
-         public boolean execute()
+         public void execute(double timestamp)
          {
-            int end = i - chunksize;
-            chunksize = 10;
-            for (; i > end && i >= 0; i--)
+            double started = Duration.currentTimeMillis();
+            do
             {
                // User hit Ctrl+L at some point--we're done.
                if (cleared_)
-                  return false;
-
-               boolean canContinue = false;
+                  return;
 
-               ConsoleAction action = actions.get(i);
-               switch (action.getType())
-               {
-                  case ConsoleAction.INPUT:
-                     canContinue = output(action.getData() + "\n",
-                                          styles_.command() + " " + KEYWORD_CLASS_NAME,
-                                          true);
-                     break;
-                  case ConsoleAction.OUTPUT:
-                     canContinue = output(action.getData(),
-                                          styles_.output(),
-                                          true);
-                     break;
-                  case ConsoleAction.ERROR:
-                     canContinue = output(action.getData(),
-                                          styles_.error(),
-                                          true);
-                     break;
-                  case ConsoleAction.PROMPT:
-                     canContinue = output(action.getData(),
-                                          styles_.prompt() + " " + KEYWORD_CLASS_NAME,
-                                          true);
-                     break;
-               }
+               int start = Math.max(0, end_ - PLAYBACK_SLICE_ACTIONS);
+               boolean canContinue = playbackActions(actions, start, end_);
+               end_ = start;
                if (!canContinue)
-                  return false;
+                  return;
             }
+            while (end_ > 0 &&
+                   Duration.currentTimeMillis() - started < PLAYBACK_FRAME_MS);
+
             if (!DomUtils.selectionExists())
-               scrollPanel_.scrollToBottom();
+               scrollToBottom();
 
-            return i >= 0;
+            if (end_ > 0)
+               AnimationScheduler.get().requestAnimationFrame(this);
          }
       });
    }
 
+   // render actions [start, end) in order and insert them at the top of
+   // the output (returns false if lines had to be trimmed)
+   private boolean playbackActions(RpcObjectList<ConsoleAction> actions,
+                                   int start,
+                                   int end)
+   {
+      if (virtualized_)
+      {
+         ConsoleOutputBuffer chunk = new ConsoleOutputBuffer();
+         for (int i = start; i < end; i++)
+         {
+            ConsoleAction action = actions.get(i);
+            String className = playbackClassName(action);
+            chunk.append(playbackText(action), 
+                         className,
+                         className.equals(styles_.output()));
+         }
+         outputBuffer_.prepend(chunk);
+         scheduleRenderOutput();
+         return !trimExcess();
+      }
+
+      Element outEl = output_.getElement();
+      com.google.gwt.dom.client.Element fragment = 
+                                    Document.get().createDivElement();
+      VirtualConsole console = null;
+      for (int i = start; i < end; i++)
+      {
+         ConsoleAction action = actions.get(i);
+
+         // adjacent output is run through a single VirtualConsole
+         if (action.getType() == ConsoleAction.OUTPUT)
+         {
+            if (console == null)
+               console = new VirtualConsole();
+            console.submit(action.getData());
+            continue;
+         }
+
+         if (console != null)
+         {
+            fragment.appendChild(Document.get().createTextNode(
+                                       ensureNewLine(console.toString())));
+            console = null;
+         }
+
+         SpanElement span = Document.get().createSpanElement();
+         span.setClassName(playbackClassName(action));
+         span.setInnerText(VirtualConsole.consolify(playbackText(action)));
+         fragment.appendChild(span);
+      }
+
+      // as with output(), trailing output only gets a newline if what
+      // follows it isn't output
+      if (console != null)
+      {
+         String text = console.toString();
+         if (!outEl.hasChildNodes()
+             || outEl.getFirstChild().getNodeType() != Node.TEXT_NODE)
+         {
+            text = ensureNewLine(text);
+         }
+         fragment.appendChild(Document.get().createTextNode(text));
+      }
+
+      lines_ += DomUtils.countLines(fragment, true);
+
+      Node before = outEl.getFirstChild();
+      while (fragment.hasChildNodes())
+         outEl.insertBefore(fragment.getFirstChild(), before);
+
+      return !trimExcess();
+   }
+
+   private String playbackText(ConsoleAction action)
+   {
+      if (action.getType() == ConsoleAction.INPUT)
+         return action.getData() + "\n";
+      else
+         return action.getData();
+   }
+
+   private String playbackClassName(ConsoleAction action)
+   {
+      switch (action.getType())
+      {
+         case ConsoleAction.INPUT:
+            return styles_.command() + " " + KEYWORD_CLASS_NAME;
+         case ConsoleAction.ERROR:
+            return styles_.error();
+         case ConsoleAction.PROMPT:
+            return styles_.prompt() + " " + KEYWORD_CLASS_NAME;
+         case ConsoleAction.OUTPUT:
+         default:
+            return styles_.output();
+      }
+   }
+
+   private int countPlaybackLines(ConsoleAction action)
+   {
+      String text = playbackText(action);
+      int lines = 0;
+      for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i + 1))
+         lines++;
+      return lines;
+   }
+
    public void focus()
    {
       input_.setFocus(true) ;
@@ -509,6 +831,12 @@ public class ShellWidget extends Composite implements ShellDisplay,
 
    public void clearOutput()
    {
+      renderScheduler_.discard();
+      if (virtualized_)
+      {
+         outputBuffer_.clear();
+         outputRenderer_.clear();
+      }
       output_.setText("") ;
       lines_ = 0;
       cleared_ = true;
@@ -614,6 +942,99 @@ public class ShellWidget extends Composite implements ShellDisplay,
    {
       maxLines_ = maxLines;
       trimExcess();
+      if (virtualized_)
+         scheduleRenderOutput();
+   }
+   
+   public boolean isVirtualizedOutput()
+   {
+      return virtualized_;
+   }
+   
+   // in virtualized mode output is kept in an in-memory line model and only
+   // the lines which are visible are rendered, so a large amount of output
+   // can be retained without a correspondingly large DOM. existing output
+   // is carried over when switching modes.
+   public void setVirtualizedOutput(boolean virtualized)
+   {
+      if (virtualized == virtualized_)
+         return;
+      
+      renderScheduler_.flush();
+      
+      Element outEl = output_.getElement();
+      if (virtualized)
+      {
+         outputBuffer_.clear();
+         for (Node node = outEl.getFirstChild();
+              node != null;
+              node = node.getNextSibling())
+         {
+            if (node.getNodeType() == Node.TEXT_NODE)
+            {
+               outputBuffer_.append(node.getNodeValue(), 
+                                    styles_.output(), 
+                                    true);
+            }
+            else if (node.getNodeType() == Node.ELEMENT_NODE)
+            {
+               com.google.gwt.dom.client.Element el = 
+                              com.google.gwt.dom.client.Element.as(node);
+               outputBuffer_.append(el.getInnerText(), 
+                                    el.getClassName(), 
+                                    false);
+            }
+         }
+         
+         output_.setText("");
+         lines_ = 0;
+         trailingOutput_ = null;
+         trailingOutputConsole_ = null;
+         virtualized_ = true;
+         trimExcess();
+         scheduleRenderOutput();
+      }
+      else
+      {
+         outputRenderer_.clear();
+         virtualized_ = false;
+         
+         // only replay the lines which will survive trimming
+         int lineCount = outputBuffer_.getLineCount();
+         int first = maxLines_ > 0 ? Math.max(0, lineCount - maxLines_) : 0;
+         for (int i = first; i < lineCount; i++)
+         {
+            ConsoleOutputBuffer.Line line = outputBuffer_.getLine(i);
+            for (int run = 0; run < line.getRunCount(); run++)
+            {
+               output(line.getRunText(run), 
+                      line.getRunClass(run), 
+                      false);
+            }
+            if (i < lineCount - 1)
+               output("\n", styles_.output(), false);
+         }
+         outputBuffer_.clear();
+      }
+   }
+   
+   // apply pending writes now rather than on the next animation frame
+   // (visible for testing)
+   void flushOutput()
+   {
+      renderScheduler_.flush();
+   }
+   
+   // visible for testing
+   ConsoleOutputBuffer getOutputBuffer()
+   {
+      return outputBuffer_;
+   }
+   
+   // visible for testing
+   ConsoleOutputRenderer getOutputRenderer()
+   {
+      return outputRenderer_;
    }
    
    @Override
@@ -633,8 +1054,9 @@ public class ShellWidget extends Composite implements ShellDisplay,
    private boolean cleared_ = false;
    private final PreWidget output_ ;
    private PreWidget pendingInput_ ;
-   // Save a reference to the most recent output text node in case the
-   // next bit of output contains \b or \r control characters
+   // Save a reference to the text node for the current line of the most
+   // recent output in case the next bit of output contains \b or \r
+   // control characters
    private Text trailingOutput_ ;
    private VirtualConsole trailingOutputConsole_ ;
    private final HTML prompt_ ;
@@ -643,7 +1065,21 @@ public class ShellWidget extends Composite implements ShellDisplay,
    private final VerticalPanel verticalPanel_ ;
    private final ClickableScrollPanel scrollPanel_ ;
    private ConsoleResources.ConsoleStyles styles_;
-   private final TimeBufferedCommand scrollToBottomCommand_;
+   private final ConsoleRenderScheduler renderScheduler_;
+   private HandlerRegistration metricsRegistration_;
+   private boolean virtualized_ = false;
+   private final ConsoleOutputBuffer outputBuffer_;
+   private final ConsoleOutputRenderer outputRenderer_;
+   private boolean renderOutputPending_ = false;
+   
+   // lines rendered above and below the visible lines of virtualized output
+   private static final int OVERSCAN_LINES = 50;
+   
+   // history playback: lines rendered up front when there is no line limit, 
+   // actions per slice and time per turn for the remainder
+   private static final int INITIAL_PLAYBACK_LINES = 1000;
+   private static final int PLAYBACK_SLICE_ACTIONS = 50;
+   private static final int PLAYBACK_FRAME_MS = 12;
 
    private static final String KEYWORD_CLASS_NAME = " ace_keyword";
 }
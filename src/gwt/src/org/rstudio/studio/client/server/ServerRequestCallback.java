@@ -13,6 +13,8 @@
 
 package org.rstudio.studio.client.server;
 
+import org.rstudio.core.client.Invalidation;
+
 public abstract class ServerRequestCallback<T>
 { 
    public void onResponseReceived(T response)
@@ -22,8 +24,20 @@ public abstract class ServerRequestCallback<T>
    public abstract void onError(ServerError error);
    
    public void cancel() { cancelled_ = true; }
-   public boolean cancelled() { return cancelled_; }
+   public boolean cancelled() 
+   { 
+      return cancelled_ || (token_ != null && token_.isInvalid()); 
+   }
+   
+   // the callback is treated as cancelled once the token is invalidated.
+   // cancelled callbacks aren't called, and queued background requests
+   // whose callback has been cancelled are dropped rather than sent
+   public void setInvalidationToken(Invalidation.Token token)
+   {
+      token_ = token;
+   }
    
    private boolean cancelled_ = false;
+   private Invalidation.Token token_ = null;
 }
 
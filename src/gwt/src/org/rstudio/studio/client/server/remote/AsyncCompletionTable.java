@@ -0,0 +1,250 @@
+/*
+ * AsyncCompletionTable.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.server.remote;
+
+import com.google.gwt.user.client.Timer;
+import org.rstudio.core.client.ClientMetrics;
+import org.rstudio.core.client.jsonrpc.RpcError;
+import org.rstudio.core.client.jsonrpc.RpcRequest;
+import org.rstudio.core.client.jsonrpc.RpcRequestCallback;
+import org.rstudio.core.client.jsonrpc.RpcResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Tracks async rpc requests (whose response arrives later as an
+// async_completion event) along with completions which arrive before their
+// request is registered. Requests which see no completion for
+// PENDING_TTL_MS fail with a transmission error, and unclaimed completions
+// are dropped after COMPLETION_TTL_MS. Both are also capped (oldest
+// entries are evicted first). The number of pending requests and their
+// completion latency are reported with the client metrics.
+class AsyncCompletionTable
+{
+   public AsyncCompletionTable()
+   {
+      ClientMetrics.register("Async requests", new ClientMetrics.Source()
+      {
+         public void collect(ClientMetrics.Values values)
+         {
+            collectMetrics(values);
+         }
+      });
+   }
+   
+   public void register(String handle, 
+                        RpcRequest request, 
+                        RpcRequestCallback callback)
+   {
+      // the completion may have arrived first (if the request took a long 
+      // time to return)
+      Completion completion = completions_.remove(handle);
+      if (completion != null)
+      {
+         recordLatency(0);
+         callback.onResponseReceived(request, completion.response);
+         return;
+      }
+      
+      pending_.put(handle, new PendingRequest(request, callback));
+      
+      ArrayList<PendingRequest> evicted = new ArrayList<PendingRequest>();
+      Iterator<PendingRequest> it = pending_.values().iterator();
+      while (pending_.size() > MAX_PENDING && it.hasNext())
+      {
+         evicted.add(it.next());
+         it.remove();
+      }
+      fail(evicted);
+      
+      ensureSweeping();
+   }
+   
+   public void complete(String handle, RpcResponse response)
+   {
+      PendingRequest req = pending_.remove(handle);
+      if (req != null)
+      {
+         recordLatency((int)(now() - req.startTime));
+         req.callback.onResponseReceived(req.request, response);
+      }
+      else
+      {
+         // we haven't seen this request yet. store the completion for 
+         // later, maybe it's just taking a long time for the request
+         // to return
+         completions_.put(handle, new Completion(response));
+         Iterator<Completion> it = completions_.values().iterator();
+         while (completions_.size() > MAX_COMPLETIONS && it.hasNext())
+         {
+            it.next();
+            it.remove();
+            droppedCount_++;
+         }
+         
+         ensureSweeping();
+      }
+   }
+   
+   private void recordLatency(int latencyMs)
+   {
+      latencies_[completedCount_ % SAMPLE_COUNT] = latencyMs;
+      completedCount_++;
+   }
+   
+   // completion latency (in ms) below which the given fraction of recent 
+   // requests completed
+   private int getLatencyPercentile(double fraction)
+   {
+      int samples = Math.min(completedCount_, SAMPLE_COUNT);
+      if (samples == 0)
+         return 0;
+
+      int[] sorted = new int[samples];
+      System.arraycopy(latencies_, 0, sorted, 0, samples);
+      Arrays.sort(sorted);
+      int index = (int)Math.ceil(fraction * samples) - 1;
+      return sorted[Math.max(0, Math.min(samples - 1, index))];
+   }
+   
+   private void collectMetrics(ClientMetrics.Values values)
+   {
+      values.add("Pending", pending_.size());
+      values.add("Unclaimed completions", completions_.size());
+      values.add("Completed", completedCount_);
+      values.add("Expired or evicted", expiredCount_);
+      values.add("Dropped completions", droppedCount_);
+      values.add("p50 completion (ms)", getLatencyPercentile(0.50));
+      values.add("p95 completion (ms)", getLatencyPercentile(0.95));
+      values.add("p99 completion (ms)", getLatencyPercentile(0.99));
+   }
+   
+   private void ensureSweeping()
+   {
+      if (!sweeping_)
+      {
+         sweeping_ = true;
+         sweepTimer_.scheduleRepeating(SWEEP_INTERVAL_MS);
+      }
+   }
+   
+   private void sweep()
+   {
+      long now = now();
+      
+      ArrayList<PendingRequest> expired = new ArrayList<PendingRequest>();
+      Iterator<PendingRequest> it = pending_.values().iterator();
+      while (it.hasNext())
+      {
+         PendingRequest req = it.next();
+         if (now - req.startTime > PENDING_TTL_MS)
+         {
+            expired.add(req);
+            it.remove();
+         }
+      }
+      
+      Iterator<Map.Entry<String, Completion>> completionIt =
+                                          completions_.entrySet().iterator();
+      while (completionIt.hasNext())
+      {
+         if (now - completionIt.next().getValue().receivedTime > 
+             COMPLETION_TTL_MS)
+         {
+            completionIt.remove();
+            droppedCount_++;
+         }
+      }
+      
+      if (pending_.isEmpty() && completions_.isEmpty())
+      {
+         sweepTimer_.cancel();
+         sweeping_ = false;
+      }
+      
+      // notify callers last (they may make new requests)
+      fail(expired);
+   }
+   
+   private void fail(ArrayList<PendingRequest> requests)
+   {
+      expiredCount_ += requests.size();
+      for (PendingRequest req : requests)
+      {
+         req.callback.onError(req.request, RpcError.create(
+               RpcError.TRANSMISSION_ERROR,
+               "No response received for asynchronous request"));
+      }
+   }
+   
+   private static long now()
+   {
+      return System.currentTimeMillis();
+   }
+   
+   private static class PendingRequest
+   {
+      PendingRequest(RpcRequest request, RpcRequestCallback callback)
+      {
+         this.request = request;
+         this.callback = callback;
+         this.startTime = now();
+      }
+      
+      public final RpcRequest request;
+      public final RpcRequestCallback callback;
+      public final long startTime;
+   }
+   
+   private static class Completion
+   {
+      Completion(RpcResponse response)
+      {
+         this.response = response;
+         this.receivedTime = now();
+      }
+      
+      public final RpcResponse response;
+      public final long receivedTime;
+   }
+   
+   private static final int PENDING_TTL_MS = 10 * 60 * 1000;
+   private static final int COMPLETION_TTL_MS = 60 * 1000;
+   private static final int SWEEP_INTERVAL_MS = 15 * 1000;
+   private static final int MAX_PENDING = 100;
+   private static final int MAX_COMPLETIONS = 100;
+   private static final int SAMPLE_COUNT = 256;
+   
+   // insertion ordered (oldest first)
+   private final LinkedHashMap<String, PendingRequest> pending_ =
+                           new LinkedHashMap<String, PendingRequest>();
+   private final LinkedHashMap<String, Completion> completions_ =
+                           new LinkedHashMap<String, Completion>();
+   
+   private int completedCount_ = 0;
+   private int expiredCount_ = 0;
+   private int droppedCount_ = 0;
+   private final int[] latencies_ = new int[SAMPLE_COUNT];
+   
+   private boolean sweeping_ = false;
+   private final Timer sweepTimer_ = new Timer() {
+      @Override
+      public void run()
+      {
+         sweep();
+      }
+   };
+}
@@ -13,8 +13,9 @@
 package org.rstudio.studio.client.server.remote;
 
 import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArray;
 
-class ClientEvent extends JavaScriptObject
+public class ClientEvent extends JavaScriptObject
 {   
    public static final String Busy = "busy";
    public static final String ConsolePrompt = "console_prompt";
@@ -62,20 +63,91 @@ class ClientEvent extends JavaScriptObject
    public static final String HandleUnsavedChanges = "handle_unsaved_changes";
    public static final String PosixShellOutput = "posix_shell_output";
    public static final String PosixShellExit = "posix_shell_exit";
+   public static final String SourceDocChangedOnDisk = "source_doc_changed_on_disk";
 
    protected ClientEvent()
    {
    }
    
+   public static final native ClientEvent create(int id, 
+                                                 String type, 
+                                                 Object data) /*-{
+      var event = new Object();
+      event.id = id;
+      event.type = type;
+      event.data = data;
+      return event;
+   }-*/;
+   
+   // get_events results are either an array of events or (for servers
+   // which support it) a compact batch of the form:
+   //
+   //   { ids: [...], types: [...], data: [...], strings: [...], refs: [...] }
+   //
+   // where types are indexes into strings and repeated strings within the
+   // event data may be replaced by { __sref: <index into strings> }. refs
+   // lists the events whose data contains such references. events within
+   // a compact batch are views onto the batch and references within their
+   // data are only resolved when it is first accessed
+   public static final native JsArray<ClientEvent> decodeEvents(
+                                             JavaScriptObject result) /*-{
+      if (!result || !result.ids)
+         return result;
+      
+      var events = [];
+      for (var i = 0; i < result.ids.length; i++)
+         events.push({ batch: result, index: i });
+      
+      var refs = result.refs || [];
+      for (var j = 0; j < refs.length; j++)
+         events[refs[j]].refs = true;
+      
+      return events;
+   }-*/;
+   
    public final native int getId() /*-{
-      return this.id;
+      return this.batch ? this.batch.ids[this.index] : this.id;
    }-*/;
    
    public final native String getType() /*-{
-      return this.type;
+      if (this.batch)
+         return this.batch.strings[this.batch.types[this.index]];
+      else
+         return this.type;
    }-*/;
    
    public final native <T> T getData() /*-{
-      return this.data;
+      if (!this.batch)
+         return this.data;
+      
+      // resolve references in place (the batch belongs to us)
+      var data = this.batch.data;
+      if (this.refs)
+      {
+         var strings = this.batch.strings;
+         var resolve = function(value) {
+            if (value === null || typeof(value) !== 'object')
+               return value;
+            if (typeof(value.__sref) === 'number')
+               return strings[value.__sref];
+            if (Object.prototype.toString.call(value) === '[object Array]')
+            {
+               for (var i = 0; i < value.length; i++)
+                  value[i] = resolve(value[i]);
+            }
+            else
+            {
+               for (var key in value)
+               {
+                  if (value.hasOwnProperty(key))
+                     value[key] = resolve(value[key]);
+               }
+            }
+            return value;
+         };
+         data[this.index] = resolve(data[this.index]);
+         this.refs = false;
+      }
+      return data[this.index];
    }-*/;
 }
\ No newline at end of file
@@ -0,0 +1,115 @@
+/*
+ * ClientEventCoalescer.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.server.remote;
+
+import com.google.gwt.core.client.JsArray;
+import com.google.inject.Singleton;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+// Merges redundant client events within a batch received from the server
+// (e.g. consecutive console output or repeated assignments to the same
+// workspace object) so that only the net effect is dispatched. As with
+// ClientEventDecoderRegistry, the coalescer doesn't know about any event
+// types itself: modules register merge rules for the events they receive
+// (see e.g. ConsoleClientEventDecoders). Events without a rule are
+// dispatched as they are.
+@Singleton
+public class ClientEventCoalescer
+{
+   public void register(String type, ClientEventMergeRule rule)
+   {
+      assert !rules_.containsKey(type) :
+                        "Duplicate merge rule for client event " + type;
+      rules_.put(type, rule);
+   }
+
+   public ArrayList<ClientEvent> coalesce(JsArray<ClientEvent> events)
+   {
+      // output list (merged-away events are replaced with null)
+      ArrayList<ClientEvent> output = new ArrayList<ClientEvent>(
+                                                            events.length());
+
+      // index within output of the last event seen for each key
+      HashMap<String, Integer> lastIndex = new HashMap<String, Integer>();
+
+      int merged = 0;
+      for (int i = 0; i<events.length(); i++)
+      {
+         ClientEvent event = events.get(i);
+         ClientEventMergeRule rule = rules_.get(event.getType());
+         String key = rule != null ? rule.getKey(event) : null;
+         if (key == null)
+         {
+            output.add(event);
+            continue;
+         }
+
+         // qualify the key by type
+         key = event.getType() + ":" + key;
+
+         // find candidate for merging
+         Integer candidate = lastIndex.get(key);
+         if (candidate != null &&
+             rule.adjacentOnly() &&
+             candidate.intValue() != output.size() - 1)
+         {
+            candidate = null;
+         }
+
+         // attempt to merge
+         if (candidate != null)
+         {
+            ClientEvent mergedEvent = rule.merge(output.get(candidate),
+                                                 event);
+            if (mergedEvent != null)
+            {
+               if (rule.adjacentOnly())
+               {
+                  output.set(candidate, mergedEvent);
+               }
+               else
+               {
+                  output.set(candidate, null);
+                  output.add(mergedEvent);
+                  lastIndex.put(key, output.size() - 1);
+               }
+               merged++;
+               continue;
+            }
+         }
+
+         output.add(event);
+         lastIndex.put(key, output.size() - 1);
+      }
+
+      // remove merged-away events
+      if (merged > 0)
+      {
+         ArrayList<ClientEvent> compacted = new ArrayList<ClientEvent>(
+                                                   output.size() - merged);
+         for (ClientEvent event : output)
+         {
+            if (event != null)
+               compacted.add(event);
+         }
+         output = compacted;
+      }
+
+      return output;
+   }
+
+   private final HashMap<String, ClientEventMergeRule> rules_ =
+                              new HashMap<String, ClientEventMergeRule>();
+}
@@ -0,0 +1,22 @@
+/*
+ * ClientEventDecoder.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.server.remote;
+
+import com.google.gwt.event.shared.GwtEvent;
+
+public interface ClientEventDecoder
+{
+   // create the event to fire for a client event received from the server
+   // (return null if no event should be fired)
+   GwtEvent<?> decode(ClientEvent event);
+}
@@ -0,0 +1,42 @@
+/*
+ * ClientEventDecoderRegistry.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.server.remote;
+
+import com.google.inject.Singleton;
+
+import java.util.HashMap;
+
+// Maps client event types to the decoders which create the corresponding
+// GwtEvent. The registry doesn't know about any event types itself: each
+// module registers the decoders for the events it receives (see e.g.
+// SourceClientEventDecoders), and those registrars are bound as eager
+// singletons so that they run when the injector is created (i.e. before
+// we start listening for events in either the main window or satellites).
+@Singleton
+public class ClientEventDecoderRegistry
+{
+   public void register(String type, ClientEventDecoder decoder)
+   {
+      assert !decoders_.containsKey(type) :
+                        "Duplicate decoder for client event " + type;
+      decoders_.put(type, decoder);
+   }
+   
+   public ClientEventDecoder getDecoder(String type)
+   {
+      return decoders_.get(type);
+   }
+   
+   private final HashMap<String, ClientEventDecoder> decoders_ = 
+                                    new HashMap<String, ClientEventDecoder>();
+}
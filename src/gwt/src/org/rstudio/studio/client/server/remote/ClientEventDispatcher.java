@@ -13,65 +13,44 @@
 package org.rstudio.studio.client.server.remote;
 
 
+import com.google.gwt.core.client.Duration;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.core.client.Scheduler.RepeatingCommand;
-import org.rstudio.core.client.files.FileSystemItem;
-import org.rstudio.core.client.js.JsObject;
-import org.rstudio.core.client.jsonrpc.RpcObjectList;
-import org.rstudio.studio.client.application.events.*;
-import org.rstudio.studio.client.application.model.SaveAction;
-import org.rstudio.studio.client.application.model.SessionSerializationAction;
-import org.rstudio.studio.client.common.console.ServerConsoleOutputEvent;
-import org.rstudio.studio.client.common.console.ServerProcessExitEvent;
-import org.rstudio.studio.client.common.posixshell.events.PosixShellExitEvent;
-import org.rstudio.studio.client.common.posixshell.events.PosixShellOutputEvent;
-import org.rstudio.studio.client.projects.events.OpenProjectErrorEvent;
-import org.rstudio.studio.client.projects.model.OpenProjectError;
-import org.rstudio.studio.client.server.Bool;
-import org.rstudio.studio.client.workbench.events.*;
-import org.rstudio.studio.client.workbench.model.*;
-import org.rstudio.studio.client.workbench.prefs.events.UiPrefsChangedEvent;
-import org.rstudio.studio.client.workbench.views.choosefile.events.ChooseFileEvent;
-import org.rstudio.studio.client.workbench.views.console.events.*;
-import org.rstudio.studio.client.workbench.views.console.model.ConsolePrompt;
-import org.rstudio.studio.client.workbench.views.console.model.ConsoleResetHistory;
-import org.rstudio.studio.client.workbench.views.data.events.ViewDataEvent;
-import org.rstudio.studio.client.workbench.views.data.model.DataView;
-import org.rstudio.studio.client.workbench.views.edit.events.ShowEditorEvent;
-import org.rstudio.studio.client.workbench.views.files.events.FileChangeEvent;
-import org.rstudio.studio.client.workbench.views.files.model.FileChange;
-import org.rstudio.studio.client.workbench.views.help.events.ShowHelpEvent;
-import org.rstudio.studio.client.workbench.views.history.events.HistoryEntriesAddedEvent;
-import org.rstudio.studio.client.workbench.views.history.model.HistoryEntry;
-import org.rstudio.studio.client.workbench.views.packages.events.InstalledPackagesChangedEvent;
-import org.rstudio.studio.client.workbench.views.packages.events.PackageStatusChangedEvent;
-import org.rstudio.studio.client.workbench.views.packages.model.PackageStatus;
-import org.rstudio.studio.client.workbench.views.plots.events.LocatorEvent;
-import org.rstudio.studio.client.workbench.views.plots.events.PlotsChangedEvent;
-import org.rstudio.studio.client.workbench.views.plots.model.PlotsState;
-import org.rstudio.studio.client.workbench.views.source.editors.text.events.PublishPdfEvent;
-import org.rstudio.studio.client.workbench.views.source.events.FileEditEvent;
-import org.rstudio.studio.client.workbench.views.source.events.ShowContentEvent;
-import org.rstudio.studio.client.workbench.views.source.events.ShowDataEvent;
-import org.rstudio.studio.client.workbench.views.source.model.ContentItem;
-import org.rstudio.studio.client.workbench.views.source.model.DataItem;
-import org.rstudio.studio.client.workbench.views.vcs.common.events.AskPassEvent;
-import org.rstudio.studio.client.workbench.views.vcs.common.events.VcsRefreshEvent;
-import org.rstudio.studio.client.workbench.views.vcs.common.events.VcsRefreshEvent.Reason;
-import org.rstudio.studio.client.workbench.views.workspace.events.WorkspaceObjectAssignedEvent;
-import org.rstudio.studio.client.workbench.views.workspace.events.WorkspaceObjectRemovedEvent;
-import org.rstudio.studio.client.workbench.views.workspace.events.WorkspaceRefreshEvent;
-import org.rstudio.studio.client.workbench.views.workspace.model.WorkspaceObjectInfo;
+import com.google.gwt.event.shared.GwtEvent;
+import org.rstudio.core.client.ClientMetrics;
+import org.rstudio.core.client.Debug;
+import org.rstudio.core.client.RingBuffer;
+import org.rstudio.studio.client.application.events.EventBus;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 
 public class ClientEventDispatcher 
 {
-   public ClientEventDispatcher(EventBus eventBus)
+   public ClientEventDispatcher(EventBus eventBus,
+                                ClientEventDecoderRegistry registry)
    {
       eventBus_ = eventBus;
+      registry_ = registry;
+      
+      ClientMetrics.register("Client event queue", new ClientMetrics.Source()
+      {
+         public void collect(ClientMetrics.Values values)
+         {
+            collectMetrics(values);
+         }
+      });
+      ClientMetrics.register("Client event handlers", 
+                             new ClientMetrics.Source()
+      {
+         public void collect(ClientMetrics.Values values)
+         {
+            collectDispatchStats(values);
+         }
+      });
    }
    
    public void enqueEventAsJso(JavaScriptObject event)
@@ -82,258 +61,88 @@ public class ClientEventDispatcher
 
    public void enqueEvent(ClientEvent event)
    {
-      pendingEvents_.add(event);
-      if (pendingEvents_.size() == 1)
+      pendingEvents_.add(new PendingEvent(event));
+      maxQueueDepth_ = Math.max(maxQueueDepth_, pendingEvents_.size());
+      
+      // note when the queue backs up (once per backlog)
+      if (pendingEvents_.size() == BACKLOG_WARNING_DEPTH)
+      {
+         Debug.log("WARNING: Client event queue depth reached " + 
+                   BACKLOG_WARNING_DEPTH);
+      }
+      
+      if (!dispatchScheduled_)
       {
+         dispatchScheduled_ = true;
          Scheduler.get().scheduleIncremental(new RepeatingCommand()
          {
             public boolean execute()
             {
-               final int MAX_EVENTS_AT_ONCE = 200;
-               for (int i = 0;
-                    i < MAX_EVENTS_AT_ONCE && pendingEvents_.size() > 0;
-                    i++)
+               // dispatch events until we run out of time for this 
+               // increment (always dispatch at least one event)
+               Duration duration = new Duration();
+               do
                {
-                  ClientEvent currentEvent = pendingEvents_.remove(0);
-                  dispatchEvent(currentEvent);
+                  PendingEvent pending = pendingEvents_.remove();
+                  recordDispatchLatency(pending);
+                  dispatchEvent(pending.event);
                }
-               return pendingEvents_.size() > 0;
+               while (!pendingEvents_.isEmpty() &&
+                      duration.elapsedMillis() < DISPATCH_BUDGET_MS);
+               
+               dispatchScheduled_ = !pendingEvents_.isEmpty();
+               return dispatchScheduled_;
             }
          });
       }
    }
    
+   // queue depth and dispatch latency (shown with the request log stats)
+   private void collectMetrics(ClientMetrics.Values values)
+   {
+      values.add("Queue depth", pendingEvents_.size());
+      values.add("Max queue depth", maxQueueDepth_);
+      values.add("Events dispatched", dispatchCount_);
+      values.add("Last queue latency (ms)", lastDispatchLatency_);
+      values.add("Max queue latency (ms)", maxDispatchLatency_);
+      values.add("Mean queue latency (ms)", dispatchCount_ == 0 ? 0 :
+                  Math.round(totalDispatchLatency_ / dispatchCount_));
+   }
+   
+   private void recordDispatchLatency(PendingEvent pending)
+   {
+      int latency = (int)(Duration.currentTimeMillis() - pending.enqueueTime);
+      dispatchCount_++;
+      lastDispatchLatency_ = latency;
+      maxDispatchLatency_ = Math.max(maxDispatchLatency_, latency);
+      totalDispatchLatency_ += latency;
+   }
+   
+   private static class PendingEvent
+   {
+      PendingEvent(ClientEvent event)
+      {
+         this.event = event;
+         this.enqueueTime = Duration.currentTimeMillis();
+      }
+      
+      public final ClientEvent event;
+      public final double enqueueTime;
+   }
+   
    private void dispatchEvent(ClientEvent event) 
    { 
       String type = event.getType();
       try
       {
-         if (type.equals(ClientEvent.Busy))
-         {
-            boolean busy = event.<Bool>getData().getValue();
-            eventBus_.fireEvent(new BusyEvent(busy));
-         }
-         else if (type.equals(ClientEvent.ConsoleOutput))
-         {
-            String output = event.getData();
-            eventBus_.fireEvent(new ConsoleWriteOutputEvent(output));
-         }
-         else if (type.equals(ClientEvent.ConsoleError))
-         {
-            String error = event.getData();
-            eventBus_.fireEvent(new ConsoleWriteErrorEvent(error));
-         }
-         else if (type.equals(ClientEvent.ConsoleWritePrompt))
-         {
-            String prompt = event.getData();
-            eventBus_.fireEvent(new ConsoleWritePromptEvent(prompt));
-         }
-         else if (type.equals(ClientEvent.ConsoleWriteInput))
-         {
-            String input = event.getData();
-            eventBus_.fireEvent(new ConsoleWriteInputEvent(input));
-         }
-         else if (type.equals(ClientEvent.ConsolePrompt))
-         {
-            ConsolePrompt prompt = event.getData();
-            eventBus_.fireEvent(new ConsolePromptEvent(prompt));
-         }
-         else if (type.equals(ClientEvent.ShowEditor))
-         {
-            String content = event.getData();
-            eventBus_.fireEvent(new ShowEditorEvent(content));
-         }
-         else if (type.equals(ClientEvent.FileChanged))
-         {
-            FileChange fileChange = event.getData();
-            eventBus_.fireEvent(new FileChangeEvent(fileChange));
-         }
-         else if (type.equals(ClientEvent.WorkingDirChanged))
-         {
-            String path = event.getData();
-            eventBus_.fireEvent(new WorkingDirChangedEvent(path));
-         }
-         else if (type.equals(ClientEvent.WorkspaceRefresh))
-         {
-            eventBus_.fireEvent(new WorkspaceRefreshEvent());
-         }
-         else if (type.equals(ClientEvent.WorkspaceAssign))
-         {
-            WorkspaceObjectInfo objectInfo = event.getData();
-            eventBus_.fireEvent(new WorkspaceObjectAssignedEvent(objectInfo));
-         }
-         else if (type.equals(ClientEvent.WorkspaceRemove))
-         {
-            String objectName = event.getData();
-            eventBus_.fireEvent(new WorkspaceObjectRemovedEvent(objectName));
-         }
-         else if (type.equals(ClientEvent.ShowHelp))
-         {
-            String helpUrl = event.getData();
-            eventBus_.fireEvent(new ShowHelpEvent(helpUrl));
-         }
-         else if (type.equals(ClientEvent.ShowErrorMessage))
-         {
-            ErrorMessage errorMessage = event.getData();
-            eventBus_.fireEvent(new ShowErrorMessageEvent(errorMessage));
-         }
-         else if (type.equals(ClientEvent.ChooseFile))
-         {
-            boolean newFile = event.<Bool>getData().getValue();
-            eventBus_.fireEvent(new ChooseFileEvent(newFile));
-         }
-         else if (type.equals(ClientEvent.BrowseUrl))
-         {
-            BrowseUrlInfo urlInfo = event.getData();
-            eventBus_.fireEvent(new BrowseUrlEvent(urlInfo));
-         }
-         else if (type.equals(ClientEvent.PlotsStateChanged))
-         {
-            PlotsState plotsState = event.getData();
-            eventBus_.fireEvent(new PlotsChangedEvent(plotsState));
-         }
-         else if (type.equals(ClientEvent.ViewData))
-         {
-            DataView dataView = event.getData();
-            eventBus_.fireEvent(new ViewDataEvent(dataView));
-         }
-         else if (type.equals(ClientEvent.InstalledPackagesChanged))
-         {
-            eventBus_.fireEvent(new InstalledPackagesChangedEvent());
-         }
-         else if (type.equals(ClientEvent.PackageStatusChanged))
-         {
-            PackageStatus status = event.getData();
-            eventBus_.fireEvent(new PackageStatusChangedEvent(status));
-         }
-         else if (type.equals(ClientEvent.Locator))
-         {
-            eventBus_.fireEvent(new LocatorEvent());
-         }
-         else if (type.equals(ClientEvent.ConsoleResetHistory))
+         ClientEventDecoder decoder = registry_.getDecoder(type);
+         if (decoder != null)
          {
-            ConsoleResetHistory reset = event.getData();
-            eventBus_.fireEvent(new ConsoleResetHistoryEvent(reset));
-         }
-         else if (type.equals(ClientEvent.SessionSerialization))
-         {
-            SessionSerializationAction action = event.getData();
-            eventBus_.fireEvent(new SessionSerializationEvent(action));
-         }
-         else if (type.equals(ClientEvent.HistoryEntriesAdded))
-         {
-            RpcObjectList<HistoryEntry> entries = event.getData();
-            eventBus_.fireEvent(new HistoryEntriesAddedEvent(entries));
-         }
-         else if (type.equals(ClientEvent.QuotaStatus))
-         {
-            QuotaStatus quotaStatus = event.getData();
-            eventBus_.fireEvent(new QuotaStatusEvent(quotaStatus));
-         }
-         else if (type.equals(ClientEvent.OAuthApproval))
-         {
-            OAuthApproval oauthApproval = event.getData();
-            eventBus_.fireEvent(new OAuthApprovalEvent(oauthApproval));
-         }
-         else if (type.equals(ClientEvent.PublishPdf))
-         {
-            String path = event.getData();
-            eventBus_.fireEvent(new PublishPdfEvent(path));
-         }
-         else if (type.equals(ClientEvent.FileEdit))
-         {
-            FileSystemItem file = event.getData();
-            eventBus_.fireEvent(new FileEditEvent(file));
-         }
-         else if (type.equals(ClientEvent.ShowContent))
-         {
-            ContentItem content = event.getData();
-            eventBus_.fireEvent(new ShowContentEvent(content));
-         }
-         else if (type.equals(ClientEvent.ShowData))
-         {
-            DataItem data = event.getData();
-            eventBus_.fireEvent(new ShowDataEvent(data));
-         }
-         else if (type.equals(ClientEvent.AbendWarning))
-         {            
-            eventBus_.fireEvent(new SessionAbendWarningEvent());
-         }
-         else if (type.equals(ClientEvent.ShowWarningBar))
-         {
-            WarningBarMessage message = event.getData();
-            eventBus_.fireEvent(new ShowWarningBarEvent(message));
-         }
-         else if (type.equals(ClientEvent.OpenProjectError))
-         {
-            OpenProjectError error = event.getData();
-            eventBus_.fireEvent(new OpenProjectErrorEvent(error));
-         }
-         else if (type.equals(ClientEvent.VcsRefresh))
-         {
-            JsObject data = event.getData();
-            eventBus_.fireEvent(new VcsRefreshEvent(Reason.NA,
-                                                    data.getInteger("delay")));
-         }
-         else if (type.equals(ClientEvent.AskPass))
-         {
-            AskPassEvent.Data data = event.getData();
-            eventBus_.fireEvent(new AskPassEvent(data));
-         }
-         else if (type.equals(ClientEvent.ConsoleProcessOutput))
-         {
-            ServerConsoleOutputEvent.Data data = event.getData();
-            eventBus_.fireEvent(new ServerConsoleOutputEvent(data.getHandle(),
-                                                            data.getOutput(),
-                                                            data.isError()));
-         }
-         else if (type.equals(ClientEvent.ConsoleProcessExit))
-         {
-            ServerProcessExitEvent.Data data = event.getData();
-            eventBus_.fireEvent(new ServerProcessExitEvent(data.getHandle(),
-                                                          data.getExitCode()));
-         }
-         else if (type.equals(ClientEvent.ListChanged))
-         {
-            eventBus_.fireEvent(new ListChangedEvent(event.<JsObject>getData()));
-         }
-         else if (type.equals(ClientEvent.UiPrefsChanged))
-         {
-            UiPrefsChangedEvent.Data data = event.getData();
-            eventBus_.fireEvent(new UiPrefsChangedEvent(data));
-         }
-         else if (type.equals(ClientEvent.HandleUnsavedChanges))
-         {
-            eventBus_.fireEvent(new HandleUnsavedChangesEvent());
-         }
-         else if (type.equals(ClientEvent.PosixShellOutput))
-         {
-            String output = event.getData();
-            eventBus_.fireEvent(new PosixShellOutputEvent(output));
-         }
-         else if (type.equals(ClientEvent.PosixShellExit))
-         {
-            int exitCode = ((JsObject)event.getData()).getInteger("exit_code");
-            eventBus_.fireEvent(new PosixShellExitEvent(exitCode));
-         }
-         else if (type.equals(ClientEvent.Quit))
-         {
-            boolean switchProjects = event.<Bool>getData().getValue();
-            eventBus_.fireEvent(new QuitEvent(switchProjects));
-         }
-         else if (type.equals(ClientEvent.Suicide))
-         {
-            // NOTE: we don't explicitly stop listening for events here
-            // for the reasons cited above in ClientEvent.Quit
-            
-            // fire event
-            String message = event.getData();
-            eventBus_.fireEvent(new SuicideEvent(message));
-         }
-         else if (type.equals(ClientEvent.SaveActionChanged))
-         {
-            SaveAction action = event.getData();
-            eventBus_.fireEvent(new SaveActionChangedEvent(action));
+            Duration duration = new Duration();
+            GwtEvent<?> gwtEvent = decoder.decode(event);
+            if (gwtEvent != null)
+               eventBus_.fireEvent(gwtEvent);
+            getStats(type).record(duration.elapsedMillis());
          }
          else
          {
@@ -346,10 +155,62 @@ public class ClientEventDispatcher
       }
    }
    
+   // per event type dispatch counts and cumulative handler time
+   private static class DispatchStats
+   {
+      private void record(int elapsedMs)
+      {
+         count_++;
+         totalMs_ += elapsedMs;
+      }
+      
+      private int count_ = 0;
+      private double totalMs_ = 0;
+   }
+   
+   private void collectDispatchStats(ClientMetrics.Values values)
+   {
+      ArrayList<String> types = new ArrayList<String>(dispatchStats_.keySet());
+      Collections.sort(types);
+      for (String type : types)
+      {
+         DispatchStats stats = dispatchStats_.get(type);
+         values.add(type, stats.count_ + " events, " + 
+                          Math.round(stats.totalMs_) + " ms");
+      }
+   }
+   
+   private DispatchStats getStats(String type)
+   {
+      DispatchStats stats = dispatchStats_.get(type);
+      if (stats == null)
+      {
+         stats = new DispatchStats();
+         dispatchStats_.put(type, stats);
+      }
+      return stats;
+   }
 
    private final EventBus eventBus_;
+   private final ClientEventDecoderRegistry registry_;
+   private final HashMap<String, DispatchStats> dispatchStats_ = 
+                                       new HashMap<String, DispatchStats>();
 
-   private final ArrayList<ClientEvent> pendingEvents_ = new ArrayList<ClientEvent>();
+   private final RingBuffer<PendingEvent> pendingEvents_ = 
+                                             new RingBuffer<PendingEvent>();
+   private boolean dispatchScheduled_ = false;
+   
+   // dispatch counters
+   private int maxQueueDepth_ = 0;
+   private int dispatchCount_ = 0;
+   private int lastDispatchLatency_ = 0;
+   private int maxDispatchLatency_ = 0;
+   private double totalDispatchLatency_ = 0;
+   
+   // yield to the browser after dispatching for this long
+   private static final int DISPATCH_BUDGET_MS = 25;
    
+   // log a warning when this many events are waiting
+   private static final int BACKLOG_WARNING_DEPTH = 1000;
 
 }
\ No newline at end of file
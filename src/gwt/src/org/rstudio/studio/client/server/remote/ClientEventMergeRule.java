@@ -0,0 +1,32 @@
+/*
+ * ClientEventMergeRule.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.server.remote;
+
+// Rule used by ClientEventCoalescer to merge client events of a given type
+public interface ClientEventMergeRule
+{
+   // key identifying what the event applies to (e.g. an object name or a
+   // file path). only events with equal keys are candidates for merging.
+   // return null to exempt an event from coalescing.
+   String getKey(ClientEvent event);
+   
+   // if true then events are only merged when they are directly adjacent
+   // to each other (e.g. streams of output); otherwise an earlier event is
+   // merged into a later one with the same key regardless of what occurs
+   // between them (i.e. the later event represents the final state)
+   boolean adjacentOnly();
+   
+   // merge two events, returning the event to dispatch in their place or
+   // null if they can't be merged (in which case both are dispatched)
+   ClientEvent merge(ClientEvent earlier, ClientEvent later);
+}
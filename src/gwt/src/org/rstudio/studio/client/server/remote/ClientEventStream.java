@@ -0,0 +1,124 @@
+/*
+ * ClientEventStream.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.server.remote;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArray;
+
+// Receives client events pushed by the server over a server-sent events
+// stream (events/stream_events). Each message contains a json array of
+// events. Rather than letting the browser reconnect automatically the
+// stream is closed on error so that the owner can decide whether to reopen
+// it or fall back to polling with get_events.
+class ClientEventStream
+{
+   interface Observer
+   {
+      void onOpened();
+      void onEvents(JsArray<ClientEvent> events);
+
+      // wasOpened is false if the stream never connected (e.g. the server
+      // doesn't support streaming)
+      void onError(boolean wasOpened);
+   }
+
+   public static native boolean isSupported() /*-{
+      return typeof($wnd.EventSource) !== 'undefined';
+   }-*/;
+
+   public ClientEventStream(String url, Observer observer)
+   {
+      url_ = url;
+      observer_ = observer;
+   }
+
+   public void open()
+   {
+      if (source_ == null)
+         source_ = create(url_);
+   }
+
+   public void close()
+   {
+      if (source_ != null)
+      {
+         closeSource(source_);
+         source_ = null;
+      }
+   }
+
+   public boolean isOpen()
+   {
+      return source_ != null;
+   }
+
+   private void onOpened()
+   {
+      wasOpened_ = true;
+      observer_.onOpened();
+   }
+
+   private void onMessage(JsArray<ClientEvent> events)
+   {
+      if (source_ == null)
+         return;
+
+      if (events != null)
+         observer_.onEvents(events);
+      else
+         onError();
+   }
+
+   private void onError()
+   {
+      if (source_ == null)
+         return;
+
+      close();
+      observer_.onError(wasOpened_);
+   }
+
+   private native JavaScriptObject create(String url) /*-{
+      var self = this;
+      var source = new $wnd.EventSource(url);
+      source.onopen = $entry(function(e) {
+         self.@org.rstudio.studio.client.server.remote.ClientEventStream::onOpened()();
+      });
+      source.onmessage = $entry(function(e) {
+         var events = null;
+         try
+         {
+            var json = typeof(JSON) !== 'undefined' ? JSON : $wnd.JSON;
+            events = json.parse(e.data);
+         }
+         catch(ex)
+         {
+         }
+         self.@org.rstudio.studio.client.server.remote.ClientEventStream::onMessage(Lcom/google/gwt/core/client/JsArray;)(events);
+      });
+      source.onerror = $entry(function(e) {
+         self.@org.rstudio.studio.client.server.remote.ClientEventStream::onError()();
+      });
+      return source;
+   }-*/;
+
+   private static native void closeSource(JavaScriptObject source) /*-{
+      source.onopen = source.onmessage = source.onerror = null;
+      source.close();
+   }-*/;
+
+   private final String url_;
+   private final Observer observer_;
+   private JavaScriptObject source_ = null;
+   private boolean wasOpened_ = false;
+}
@@ -0,0 +1,100 @@
+/*
+ * EventStreamFallback.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.server.remote;
+
+import com.google.gwt.user.client.Command;
+
+// Decides whether RemoteServerEventListener receives events over the
+// server-sent events stream or by polling get_events. The stream is used
+// when the session and browser support it. A stream which never connects
+// (e.g. because a proxy buffers the response) means streaming isn't
+// available, so we poll from then on. A stream which drops after
+// connecting is reopened (backing off between attempts), and we fall back
+// to polling if it keeps dropping.
+class EventStreamFallback
+{
+   interface Host
+   {
+      // true if the session and browser support the event stream
+      boolean canStream();
+
+      void openStream();
+      void poll();
+
+      // run the command after backing off (the host doesn't run it if
+      // we've stopped listening in the meantime)
+      void retryLater(Command command);
+   }
+
+   public EventStreamFallback(Host host)
+   {
+      host_ = host;
+   }
+
+   // start receiving events: over the stream if we can, otherwise by
+   // polling. returns true if the stream was opened
+   public boolean start()
+   {
+      if (openStream())
+         return true;
+
+      host_.poll();
+      return false;
+   }
+
+   public void onStreamOpened()
+   {
+      reopenCount_ = 0;
+   }
+
+   public void onStreamError(boolean wasOpened)
+   {
+      if (wasOpened && reopenCount_++ < MAX_REOPENS)
+      {
+         host_.retryLater(new Command() {
+            public void execute()
+            {
+               start();
+            }
+         });
+      }
+      else
+      {
+         reopenCount_ = 0;
+         streamDisabled_ = true;
+         host_.poll();
+      }
+   }
+
+   public boolean isStreamDisabled()
+   {
+      return streamDisabled_;
+   }
+
+   private boolean openStream()
+   {
+      if (streamDisabled_ || !host_.canStream())
+         return false;
+
+      host_.openStream();
+      return true;
+   }
+
+   private final Host host_;
+   private int reopenCount_ = 0;
+   private boolean streamDisabled_ = false;
+
+   // number of times a dropped stream is reopened (without it successfully
+   // connecting in between) before we fall back to polling
+   static final int MAX_REOPENS = 6;
+}
@@ -14,8 +14,10 @@
 package org.rstudio.studio.client.server.remote;
 
 import com.google.gwt.core.client.*;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 import com.google.gwt.http.client.URL;
 import com.google.gwt.json.client.*;
+import com.google.gwt.user.client.Command;
 import com.google.gwt.user.client.Random;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
@@ -51,9 +53,13 @@ import org.rstudio.studio.client.workbench.model.SessionInfo;
 import org.rstudio.studio.client.workbench.model.TerminalOptions;
 import org.rstudio.studio.client.workbench.model.WorkbenchMetrics;
 import org.rstudio.studio.client.workbench.prefs.model.RPrefs;
+import org.rstudio.studio.client.workbench.views.files.events.FileChangeEvent;
+import org.rstudio.studio.client.workbench.views.files.events.FileChangeHandler;
 import org.rstudio.studio.client.workbench.views.files.model.FileUploadToken;
 import org.rstudio.studio.client.workbench.views.help.model.HelpInfo;
 import org.rstudio.studio.client.workbench.views.history.model.HistoryEntry;
+import org.rstudio.studio.client.workbench.views.packages.events.InstalledPackagesChangedEvent;
+import org.rstudio.studio.client.workbench.views.packages.events.InstalledPackagesChangedHandler;
 import org.rstudio.studio.client.workbench.views.packages.model.PackageInfo;
 import org.rstudio.studio.client.workbench.views.packages.model.PackageInstallContext;
 import org.rstudio.studio.client.workbench.views.packages.model.PackageUpdate;
@@ -61,6 +67,11 @@ import org.rstudio.studio.client.workbench.views.plots.model.Point;
 import org.rstudio.studio.client.workbench.views.plots.model.SavePlotAsImageContext;
 import org.rstudio.studio.client.workbench.views.source.editors.text.IconvListResult;
 import org.rstudio.studio.client.workbench.views.source.model.CheckForExternalEditResult;
+import org.rstudio.studio.client.workbench.views.source.model.DocumentOp;
+import org.rstudio.studio.client.workbench.views.source.model.DocumentSaveRequest;
+import org.rstudio.studio.client.workbench.views.source.model.DocumentSaveResult;
+import org.rstudio.studio.client.workbench.views.source.model.FileLines;
+import org.rstudio.studio.client.workbench.views.source.model.FileLinesSearchResult;
 import org.rstudio.studio.client.workbench.views.source.model.PublishPdfResult;
 import org.rstudio.studio.client.workbench.views.source.model.SourceDocument;
 import org.rstudio.studio.client.workbench.views.vcs.dialog.CommitCount;
@@ -69,6 +80,7 @@ import org.rstudio.studio.client.workbench.views.workspace.model.*;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Singleton
@@ -79,6 +91,8 @@ public class RemoteServer implements Server
                        EventBus eventBus,
                        Satellite satellite,
                        final SatelliteManager satelliteManager,
+                       ClientEventDecoderRegistry eventDecoders,
+                       ClientEventCoalescer eventCoalescer,
                        Provider<ConsoleProcessFactory> pConsoleProcessFactory)
    {
       pConsoleProcessFactory_ = pConsoleProcessFactory;
@@ -87,6 +101,7 @@ public class RemoteServer implements Server
       listeningForEvents_ = false;
       session_ = session;
       eventBus_ = eventBus;
+      retryPolicy_ = new RetryPolicy(eventBus);
       satellite_ = satellite;
       serverAuth_ = new RemoteServerAuth(this);
       
@@ -106,7 +121,27 @@ public class RemoteServer implements Server
       
       // create server event listener
       serverEventListener_ = new RemoteServerEventListener(this, 
+                                                           eventDecoders,
+                                                           eventCoalescer,
                                                            externalListener);
+      
+      // drop cached results which we know have changed (results are always
+      // validated with the server, this just avoids holding on to them)
+      eventBus_.addHandler(InstalledPackagesChangedEvent.TYPE, 
+                           new InstalledPackagesChangedHandler() {
+         public void onInstalledPackagesChanged(
+                                       InstalledPackagesChangedEvent event)
+         {
+            resultCache_.invalidate(LIST_PACKAGES);
+            resultCache_.invalidate(SUGGEST_TOPICS);
+         }
+      });
+      eventBus_.addHandler(FileChangeEvent.TYPE, new FileChangeHandler() {
+         public void onFileChange(FileChangeEvent event)
+         {
+            resultCache_.invalidate(LIST_FILES);
+         }
+      });
    }
    
    // complete initialization now that the workbench is ready
@@ -277,7 +312,10 @@ public class RemoteServer implements Server
    public void getTerminalOptions(
                      ServerRequestCallback<TerminalOptions> requestCallback)
    {
-      sendRequest(RPC_SCOPE, GET_TERMINAL_OPTIONS, requestCallback);
+      sendIdempotentRequest(RPC_SCOPE,
+                            GET_TERMINAL_OPTIONS,
+                            new JSONArray(),
+                            requestCallback);
    }
    
    public void searchCode(
@@ -558,13 +596,19 @@ public class RemoteServer implements Server
    public void listPackages(
          ServerRequestCallback<JsArray<PackageInfo>> requestCallback)
    {
-      sendRequest(RPC_SCOPE, LIST_PACKAGES, requestCallback);
+      sendIdempotentRequest(RPC_SCOPE,
+                            LIST_PACKAGES,
+                            new JSONArray(),
+                            requestCallback);
    }
    
    public void getPackageInstallContext(
                ServerRequestCallback<PackageInstallContext> requestCallback)
    {
-      sendRequest(RPC_SCOPE, GET_PACKAGE_INSTALL_CONTEXT, requestCallback);
+      sendIdempotentRequest(RPC_SCOPE,
+                            GET_PACKAGE_INSTALL_CONTEXT,
+                            new JSONArray(),
+                            requestCallback);
    }
    
    public void isPackageLoaded(String packageName,
@@ -577,7 +621,13 @@ public class RemoteServer implements Server
          String repository,
          ServerRequestCallback<JsArrayString> requestCallback)
    {
-      sendRequest(RPC_SCOPE, AVAILABLE_PACKAGES, repository, requestCallback);
+      JSONArray params = new JSONArray();
+      params.set(0, repository != null ? new JSONString(repository) :
+                                         JSONNull.getInstance());
+      sendIdempotentRequest(RPC_SCOPE,
+                            AVAILABLE_PACKAGES,
+                            params,
+                            requestCallback);
    }
    
    public void checkForPackageUpdates(
@@ -601,13 +651,22 @@ public class RemoteServer implements Server
    public void getCRANMirrors(
                   ServerRequestCallback<JsArray<CRANMirror>> requestCallback)
    {
-      sendRequest(RPC_SCOPE, GET_CRAN_MIRRORS, requestCallback);
+      sendIdempotentRequest(RPC_SCOPE,
+                            GET_CRAN_MIRRORS,
+                            new JSONArray(),
+                            requestCallback);
    }
 
    public void suggestTopics(String prefix,
                              ServerRequestCallback<JsArrayString> requestCallback)
    {
-      sendRequest(RPC_SCOPE, "suggest_topics", prefix, requestCallback);
+      JSONArray params = new JSONArray();
+      params.set(0, prefix != null ? new JSONString(prefix) :
+                                     JSONNull.getInstance());
+      sendIdempotentRequest(RPC_SCOPE,
+                            SUGGEST_TOPICS,
+                            params,
+                            requestCallback);
    }
 
    public void getHelp(String topic,
@@ -665,10 +724,10 @@ public class RemoteServer implements Server
       paramArray.set(0, new JSONString(directory.getPath()));
       paramArray.set(1, JSONBoolean.getInstance(monitor));
       
-      sendRequest(RPC_SCOPE, 
-                  LIST_FILES, 
-                  paramArray, 
-                  requestCallback);    
+      sendIdempotentRequest(RPC_SCOPE, 
+                            LIST_FILES, 
+                            paramArray, 
+                            requestCallback);    
    }
 
    public void listAllFiles(String path,
@@ -1034,12 +1093,87 @@ public class RemoteServer implements Server
       params.set(7, new JSONString(hash));
       sendRequest(RPC_SCOPE, SAVE_DOCUMENT_DIFF, params, requestCallback);
    }
+   
+   public void saveDocumentDiff(String id,
+                                String path,
+                                String fileType,
+                                String encoding,
+                                List<DocumentOp> ops,
+                                String hash,
+                                ServerRequestCallback<String> requestCallback)
+   {
+      // the single replacement is empty when ops are passed
+      JSONArray params = new JSONArray();
+      params.set(0, new JSONString(id));
+      params.set(1, path == null ? JSONNull.getInstance() : new JSONString(path));
+      params.set(2, fileType == null ? JSONNull.getInstance() : new JSONString(fileType));
+      params.set(3, encoding == null ? JSONNull.getInstance() : new JSONString(encoding));
+      params.set(4, new JSONString(""));
+      params.set(5, new JSONNumber(0));
+      params.set(6, new JSONNumber(0));
+      params.set(7, new JSONString(hash));
+      params.set(8, toJSONOps(ops));
+      sendRequest(RPC_SCOPE, SAVE_DOCUMENT_DIFF, params, requestCallback);
+   }
+   
+   public void saveDocuments(
+         List<DocumentSaveRequest> documents,
+         ServerRequestCallback<JsArray<DocumentSaveResult>> requestCallback)
+   {
+      JSONArray jsonDocuments = new JSONArray();
+      for (int i = 0; i < documents.size(); i++)
+      {
+         DocumentSaveRequest document = documents.get(i);
+         JSONObject jsonDocument = new JSONObject();
+         jsonDocument.put("id", new JSONString(document.getId()));
+         jsonDocument.put("path", document.getPath() == null ? JSONNull.getInstance() : new JSONString(document.getPath()));
+         jsonDocument.put("type", document.getFileType() == null ? JSONNull.getInstance() : new JSONString(document.getFileType()));
+         jsonDocument.put("encoding", document.getEncoding() == null ? JSONNull.getInstance() : new JSONString(document.getEncoding()));
+         if (document.isDiff())
+         {
+            jsonDocument.put("edits", toJSONOps(document.getOps()));
+            jsonDocument.put("hash", new JSONString(document.getHash()));
+         }
+         else
+         {
+            jsonDocument.put("contents", new JSONString(document.getContents()));
+         }
+         jsonDocuments.set(i, jsonDocument);
+      }
+      
+      JSONArray params = new JSONArray();
+      params.set(0, jsonDocuments);
+      sendRequest(RPC_SCOPE, SAVE_DOCUMENTS, params, requestCallback);
+   }
+   
+   private JSONArray toJSONOps(List<DocumentOp> ops)
+   {
+      JSONArray jsonOps = new JSONArray();
+      for (int i = 0; i < ops.size(); i++)
+      {
+         DocumentOp op = ops.get(i);
+         JSONArray jsonOp = new JSONArray();
+         jsonOp.set(0, new JSONNumber(op.getOffset()));
+         jsonOp.set(1, new JSONNumber(op.getLength()));
+         jsonOp.set(2, new JSONString(op.getText()));
+         jsonOps.set(i, jsonOp);
+      }
+      return jsonOps;
+   }
 
-   public void checkForExternalEdit(
-         String id,
-         ServerRequestCallback<CheckForExternalEditResult> requestCallback)
+   public void checkForExternalEdits(
+         List<String> ids,
+         boolean unmonitoredOnly,
+         ServerRequestCallback<JsArray<CheckForExternalEditResult>> requestCallback)
    {
-      sendRequest(RPC_SCOPE, CHECK_FOR_EXTERNAL_EDIT, id, requestCallback);
+      JSONArray jsonIds = new JSONArray();
+      for (int i = 0; i < ids.size(); i++)
+         jsonIds.set(i, new JSONString(ids.get(i)));
+      
+      JSONArray params = new JSONArray();
+      params.set(0, jsonIds);
+      params.set(1, JSONBoolean.getInstance(unmonitoredOnly));
+      sendRequest(RPC_SCOPE, CHECK_FOR_EXTERNAL_EDITS, params, requestCallback);
    }
 
    public void ignoreExternalEdit(String id,
@@ -1048,6 +1182,37 @@ public class RemoteServer implements Server
       sendRequest(RPC_SCOPE, IGNORE_EXTERNAL_EDIT, id, requestCallback);
    }
 
+   public void getFileLines(String path,
+                            String encoding,
+                            int start,
+                            int count,
+                            ServerRequestCallback<FileLines> requestCallback)
+   {
+      JSONArray params = new JSONArray();
+      params.set(0, new JSONString(path));
+      params.set(1, new JSONString(encoding));
+      params.set(2, new JSONNumber(start));
+      params.set(3, new JSONNumber(count));
+      sendRequest(RPC_SCOPE, GET_FILE_LINES, params, requestCallback);
+   }
+
+   public void searchFileLines(
+         String path,
+         String encoding,
+         String query,
+         int start,
+         int maxResults,
+         ServerRequestCallback<FileLinesSearchResult> requestCallback)
+   {
+      JSONArray params = new JSONArray();
+      params.set(0, new JSONString(path));
+      params.set(1, new JSONString(encoding));
+      params.set(2, new JSONString(query));
+      params.set(3, new JSONNumber(start));
+      params.set(4, new JSONNumber(maxResults));
+      sendRequest(RPC_SCOPE, SEARCH_FILE_LINES, params, requestCallback);
+   }
+
    public void closeDocument(String id,
                              ServerRequestCallback<Void> requestCallback)
    {
@@ -1312,7 +1477,10 @@ public class RemoteServer implements Server
    @Override
    public void gitAllStatus(ServerRequestCallback<AllStatus> requestCallback)
    {
-      sendRequest(RPC_SCOPE, GIT_ALL_STATUS, requestCallback);
+      sendIdempotentRequest(RPC_SCOPE,
+                            GIT_ALL_STATUS,
+                            new JSONArray(),
+                            requestCallback);
    }
 
    @Override
@@ -1641,14 +1809,20 @@ public class RemoteServer implements Server
    // RemoveServerEventListener
 
 
+   // retry policy shared by rpc retries and the event listener
+   RetryPolicy getRetryPolicy()
+   {
+      return retryPolicy_;
+   }
+   
    EventBus getEventBus()
    {
       return eventBus_;
    }
-
+   
    RpcRequest getEvents(
                   int lastEventId,
-                  ServerRequestCallback<JsArray<ClientEvent>> requestCallback,
+                  ServerRequestCallback<JavaScriptObject> requestCallback,
                   RetryHandler retryHandler)
    {
       // satellite windows should never call getEvents directly!
@@ -1660,14 +1834,47 @@ public class RemoteServer implements Server
       
       JSONArray params = new JSONArray();
       params.set(0, new JSONNumber(lastEventId));
+      // ask for the compact encoding (servers which don't support it ignore
+      // this and return an array of events, see ClientEvent.decodeEvents)
+      params.set(1, JSONBoolean.getInstance(true));
       return sendRequest(EVENTS_SCOPE,
                          "get_events",
                          params,
                          false,
+                         false,
                          requestCallback,
                          retryHandler);
    }
 
+   // events after afterEventId up to and including upToEventId which the
+   // server delivered recently (used to fill gaps in the events we received)
+   void replayClientEvents(
+                  int afterEventId,
+                  int upToEventId,
+                  ServerRequestCallback<JsArray<ClientEvent>> requestCallback)
+   {
+      JSONArray params = new JSONArray();
+      params.set(0, new JSONNumber(afterEventId));
+      params.set(1, new JSONNumber(upToEventId));
+      sendRequest(RPC_SCOPE, REPLAY_CLIENT_EVENTS, params, requestCallback);
+   }
+
+   // url of the server-sent events stream (null if the server doesn't
+   // support streaming events, in which case getEvents should be used)
+   String getEventStreamUrl(int lastEventId)
+   {
+      if (satellite_.isCurrentWindowSatellite() || clientId_ == null)
+         return null;
+
+      SessionInfo sessionInfo = session_.getSessionInfo();
+      if (sessionInfo == null || !sessionInfo.getEventStreamSupported())
+         return null;
+
+      return GWT.getHostPageBaseURL() + EVENTS_SCOPE + "/stream_events" +
+             "?clientId=" + URL.encodeQueryString(clientId_) +
+             "&lastEventId=" + lastEventId;
+   }
+
    void handleUnauthorizedError()
    {
       // disconnect
@@ -1762,23 +1969,53 @@ public class RemoteServer implements Server
       sendRequest(scope, method, params, false, requestCallback);
    }
 
+   // for calls to read-only methods: an identical call which is made while
+   // this one is in flight shares its response rather than being sent again
+   private <T> void sendIdempotentRequest(
+                                String scope,
+                                String method,
+                                JSONArray params,
+                                ServerRequestCallback<T> requestCallback)
+   {
+      sendRequest(scope, method, params, false, true, requestCallback);
+   }
+
    private <T> void sendRequest(final String scope,
                                 final String method,
                                 final JSONArray params,
                                 final boolean redactLog,
                                 final ServerRequestCallback<T> cb)
    {
-      // if this is a satellite window then we handle this by proxying
-      // back through the main workbench window
+      sendRequest(scope, method, params, redactLog, false, cb);
+   }
+
+   private <T> void sendRequest(final String scope,
+                                final String method,
+                                final JSONArray params,
+                                final boolean redactLog,
+                                final boolean idempotent,
+                                final ServerRequestCallback<T> cb)
+   {
+      // if this is a satellite window then we send the request directly
+      // when we can and otherwise handle it by proxying back through the 
+      // main workbench window
       if (satellite_.isCurrentWindowSatellite())
       {
-         sendRequestViaMainWorkbench(scope, method, params, redactLog, cb);
-
+         if (canSendDirectFromSatellite())
+         {
+            sendRequestDirectFromSatellite(
+                              scope, method, params, redactLog, idempotent, cb);
+         }
+         else
+         {
+            sendRequestViaMainWorkbench(
+                              scope, method, params, redactLog, idempotent, cb);
+         }
       }
       // otherwise just a standard request with single retry
       else
       {
-         sendRequestWithRetry(scope, method, params, redactLog, cb); 
+         sendRequestWithRetry(scope, method, params, redactLog, idempotent, cb); 
       }
       
    }
@@ -1788,6 +2025,7 @@ public class RemoteServer implements Server
                                  final String method,
                                  final JSONArray params,
                                  final boolean redactLog,
+                                 final boolean idempotent,
                                  final ServerRequestCallback<T> requestCallback)
    {
       // retry handler (make the same call with the same params. ensure that
@@ -1802,6 +2040,7 @@ public class RemoteServer implements Server
                         method, 
                         params, 
                         redactLog, 
+                        idempotent,
                         requestCallback, 
                         null);
          }   
@@ -1818,6 +2057,7 @@ public class RemoteServer implements Server
                   method, 
                   params, 
                   redactLog, 
+                  idempotent,
                   requestCallback, 
                   retryHandler);
    }
@@ -1829,6 +2069,7 @@ public class RemoteServer implements Server
                               String method,
                               JSONArray params,
                               boolean redactLog,
+                              boolean idempotent,
                               final ServerRequestCallback<T> requestCallback,
                               RetryHandler retryHandler)
    { 
@@ -1838,6 +2079,7 @@ public class RemoteServer implements Server
             method,
             params,
             redactLog,
+            idempotent,
             new RpcResponseHandler() 
             {
                @Override
@@ -1860,6 +2102,13 @@ public class RemoteServer implements Server
                      requestCallback.onResponseReceived(result);
                   }
                }
+               
+               @Override
+               public boolean isCancelled()
+               {
+                  return requestCallback != null && 
+                         requestCallback.cancelled();
+               }
              },
              retryHandler);
 
@@ -1873,8 +2122,213 @@ public class RemoteServer implements Server
                                   String method, 
                                   JSONArray params,
                                   boolean redactLog,
-                                  final RpcResponseHandler responseHandler,
-                                  final RetryHandler retryHandler)
+                                  boolean idempotent,
+                                  RpcResponseHandler responseHandler,
+                                  RetryHandler retryHandler)
+   {
+      if (!idempotent)
+      {
+         return dispatchRequest(sourceWindow,
+                                scope,
+                                method,
+                                params,
+                                redactLog,
+                                responseHandler,
+                                retryHandler);
+      }
+      
+      // an identical call to an idempotent method which is already in
+      // flight shares that call's response
+      String key = scope + "/" + method + ":" + params.toString() + 
+                   (sourceWindow != null ? "@" + sourceWindow : "");
+      SharedRequest shared = sharedRequests_.get(key);
+      if (shared == null)
+      {
+         shared = new SharedRequest(key, 
+                                    sourceWindow, 
+                                    scope, 
+                                    method, 
+                                    params, 
+                                    redactLog,
+                                    retryHandler != null);
+         sharedRequests_.put(key, shared);
+         shared.addHandler(responseHandler);
+         shared.send();
+      }
+      else
+      {
+         shared.addHandler(responseHandler);
+      }
+      
+      return shared.getRequest();
+   }
+   
+   private boolean isCacheable(String method)
+   {
+      for (String cacheable : CACHEABLE_METHODS)
+      {
+         if (method.equals(cacheable))
+            return true;
+      }
+      return false;
+   }
+   
+   // a request to an idempotent method which fans its response out to
+   // all of the callers who made the identical request while it was in
+   // flight. retries are performed here (rather than by the first caller's
+   // retry handler) so that every caller receives the retried response
+   private class SharedRequest extends RpcResponseHandler
+   {
+      SharedRequest(String key,
+                    String sourceWindow, 
+                    String scope, 
+                    String method, 
+                    JSONArray params,
+                    boolean redactLog,
+                    boolean retry)
+      {
+         key_ = key;
+         sourceWindow_ = sourceWindow;
+         scope_ = scope;
+         method_ = method;
+         params_ = params;
+         redactLog_ = redactLog;
+         retry_ = retry;
+      }
+      
+      public void addHandler(RpcResponseHandler handler)
+      {
+         handlers_.add(handler);
+      }
+      
+      public RpcRequest getRequest()
+      {
+         return request_;
+      }
+      
+      public void send()
+      {
+         RetryHandler retryHandler = null;
+         if (retry_)
+         {
+            retryHandler = new RetryHandler() {
+               public void onRetry()
+               {
+                  // retry one time
+                  retry_ = false;
+                  send();
+               }
+               
+               public void onError(RpcError error)
+               {
+                  onResponseReceived(RpcResponse.create(error));
+               }
+            };
+         }
+         
+         request_ = dispatchRequest(sourceWindow_, 
+                                    scope_, 
+                                    method_, 
+                                    params_, 
+                                    redactLog_, 
+                                    this, 
+                                    retryHandler);
+      }
+      
+      @Override
+      public void onResponseReceived(RpcResponse response)
+      {
+         // calls made from now on need a new request
+         evict();
+         
+         for (RpcResponseHandler handler : handlers_)
+         {
+            try
+            {
+               handler.onResponseReceived(response);
+            }
+            catch(Exception e)
+            {
+               Debug.log("Error handling response for " + method_ + ": " +
+                         e.getMessage());
+            }
+         }
+      }
+      
+      // the request was cancelled or dropped, or its response won't be
+      // delivered (e.g. because we were disconnected). callers who are
+      // still waiting are sent a new request unless we are disconnected
+      @Override
+      public void onCancelled()
+      {
+         evict();
+         
+         // join the request which replaced us if there is one
+         SharedRequest resend = sharedRequests_.get(key_);
+         for (RpcResponseHandler handler : handlers_)
+         {
+            if (disconnected_ || handler.isCancelled())
+            {
+               handler.onCancelled();
+               continue;
+            }
+            
+            if (resend == null)
+            {
+               resend = new SharedRequest(key_, 
+                                          sourceWindow_, 
+                                          scope_, 
+                                          method_, 
+                                          params_, 
+                                          redactLog_, 
+                                          retry_);
+               sharedRequests_.put(key_, resend);
+               resend.addHandler(handler);
+               resend.send();
+            }
+            else
+            {
+               resend.addHandler(handler);
+            }
+         }
+      }
+      
+      @Override
+      public boolean isCancelled()
+      {
+         for (RpcResponseHandler handler : handlers_)
+         {
+            if (!handler.isCancelled())
+               return false;
+         }
+         return true;
+      }
+      
+      private void evict()
+      {
+         if (sharedRequests_.get(key_) == this)
+            sharedRequests_.remove(key_);
+      }
+      
+      private final String key_;
+      private final String sourceWindow_;
+      private final String scope_;
+      private final String method_;
+      private final JSONArray params_;
+      private final boolean redactLog_;
+      private boolean retry_;
+      private RpcRequest request_;
+      private final ArrayList<RpcResponseHandler> handlers_ = 
+                                       new ArrayList<RpcResponseHandler>();
+   }
+   
+   private RpcRequest dispatchRequest(String sourceWindow,
+                                      String scope, 
+                                      String method, 
+                                      JSONArray params,
+                                      boolean redactLog,
+                                      final RpcResponseHandler responseHandler,
+                                      final RetryHandler retryHandler)
    {      
       // ensure we are listening for events. note that we do this here
       // because we are no longer so aggressive about retrying on failed
@@ -1882,6 +2336,16 @@ public class RemoteServer implements Server
       // we may need to restart event listening.
       ensureListeningForEvents();
 
+      // requests for cacheable results carry the etag of the result we
+      // have (empty if we don't have one)
+      String etag = null;
+      final String cacheKey = isCacheable(method) ?
+                     RpcResultCache.key(method, params.toString()) : null;
+      final RpcResultCache.Entry cacheEntry = cacheKey != null ?
+                     resultCache_.get(cacheKey) : null;
+      if (cacheKey != null)
+         etag = cacheEntry != null ? cacheEntry.etag : "";
+      
       // create request
       String rserverURL = getApplicationURL(scope) + "/" + method;
       RpcRequest rpcRequest = new RpcRequest(rserverURL,
@@ -1891,19 +2355,30 @@ public class RemoteServer implements Server
                                              redactLog,
                                              sourceWindow,
                                              clientId_,
-                                             clientVersion_);
+                                             clientVersion_,
+                                             etag);
 
-      // send the request
-      rpcRequest.send(new RpcRequestCallback() {
+      // send the request (in priority order)
+      final boolean isEventsScope = scope.equals(EVENTS_SCOPE);
+      RpcRequestCallback callback = new RpcRequestCallback() {
          public void onError(RpcRequest request, RpcError error)
          {
             // ignore errors if we are disconnected
             if ( disconnected_)           
+            {
+               responseHandler.onCancelled();
                return;
+            }
+            
+            // track connectivity (the event listener tracks its own)
+            if (!isEventsScope && isConnectivityError(error))
+               retryPolicy_.onFailure();
             
             // if we have a retry handler then see if we can resolve the
             // error and then retry
-            if ( resolveRpcErrorAndRetry(error, retryHandler) )
+            if ( resolveRpcErrorAndRetry(error,
+                                         retryHandler,
+                                         !isEventsScope) )
                return ;
 
             // first crack goes to globally registered rpc error handlers
@@ -1912,6 +2387,10 @@ public class RemoteServer implements Server
                // no global handlers processed it, send on to caller
                responseHandler.onResponseReceived(RpcResponse.create(error));
             }
+            else
+            {
+               responseHandler.onCancelled();
+            }
          }
 
          public void onResponseReceived(final RpcRequest request,
@@ -1920,7 +2399,20 @@ public class RemoteServer implements Server
             // ignore response if we are disconnected
             //   - handler was cancelled
             if (disconnected_) 
-                 return;
+            {
+               responseHandler.onCancelled();
+               return;
+            }
+            
+            // track connectivity (rserver reports an unreachable session
+            // with an error response rather than an http error)
+            if (!isEventsScope)
+            {
+               if (response.getError() == null)
+                  retryPolicy_.onSuccess();
+               else if (isConnectivityError(response.getError()))
+                  retryPolicy_.onFailure();
+            }
                    
             // check for error
             if (response.getError() != null)
@@ -1930,23 +2422,32 @@ public class RemoteServer implements Server
 
                // if we have a retry handler then see if we can resolve the
                // error and then retry
-               if ( resolveRpcErrorAndRetry(error, retryHandler) )
+               if ( resolveRpcErrorAndRetry(error,
+                                            retryHandler,
+                                            !isEventsScope) )
                   return ;
 
                // give first crack to internal handlers, then forward to caller
                if (!handleRpcErrorInternally(error))
                   responseHandler.onResponseReceived(response);
+               else
+                  responseHandler.onCancelled();
             }
             else if (response.getAsyncHandle() != null)
             {
-               serverEventListener_.registerAsyncHandle(
-                     response.getAsyncHandle(),
-                     request,
-                     this);
+               registerAsyncHandle(response.getAsyncHandle(), request, this);
             }
             // no error, process the result
             else
             {
+               // complete not modified results from the cache (and cache
+               // new ones)
+               if (cacheKey != null)
+                  response = resultCache_.resolve(cacheKey, 
+                                                  cacheEntry, 
+                                                  response,
+                                                  request.getResponseSize());
+               
                // no error, forward to caller
                responseHandler.onResponseReceived(response);
                
@@ -1955,15 +2456,114 @@ public class RemoteServer implements Server
                // to be pending (e.g. an rpc call where no events were added
                // to the queue by the call)
                if (eventsPending(response))
-                  serverEventListener_.ensureEvents();
+                  ensureEvents();
             }
          }
-      });
+      };
+      
+      // event requests aren't subject to scheduling (the event listener
+      // has a dedicated connection)
+      if (isEventsScope)
+      {
+         submitRequest(scope, method, rpcRequest, callback);
+      }
+      else
+      {
+         requestScheduler_.submit(getRequestPriority(method),
+                                  scope,
+                                  method,
+                                  rpcRequest,
+                                  callback,
+                                  responseHandler);
+      }
 
       // return the request
       return rpcRequest;
    }
    
+   // maximum number of non-interactive requests in flight at once
+   public void setMaxRequestsInFlight(int maxRequests)
+   {
+      requestScheduler_.setMaxInFlight(maxRequests);
+   }
+   
+   private int getRequestPriority(String method)
+   {
+      // methods which the user (or a blocked R session) waits on
+      for (String interactive : INTERACTIVE_METHODS)
+      {
+         if (method.equals(interactive))
+            return RpcRequestScheduler.INTERACTIVE;
+      }
+      for (String unbatchable : UNBATCHABLE_METHODS)
+      {
+         if (method.equals(unbatchable))
+            return RpcRequestScheduler.INTERACTIVE;
+      }
+      
+      // refreshes which can wait
+      for (String background : BACKGROUND_METHODS)
+      {
+         if (method.equals(background))
+            return RpcRequestScheduler.BACKGROUND;
+      }
+      
+      return RpcRequestScheduler.NORMAL;
+   }
+   
+   // submit a request, either directly or (if eligible) as part of the
+   // batch of requests made during the current event loop turn
+   private void submitRequest(String scope,
+                              String method,
+                              RpcRequest rpcRequest,
+                              RpcRequestCallback callback)
+   {
+      if (!isBatchable(scope, method))
+      {
+         rpcRequest.send(callback);
+         return;
+      }
+      
+      // create a new batch if necessary and schedule it to be sent once
+      // the current event loop turn completes
+      if (pendingBatch_ == null)
+      {
+         pendingBatch_ = new RpcRequestBatch(
+               getApplicationURL(RPC_SCOPE) + "/" + RpcRequestBatch.METHOD,
+               clientId_,
+               clientVersion_);
+         
+         Scheduler.get().scheduleFinally(new ScheduledCommand() {
+            @Override
+            public void execute()
+            {
+               RpcRequestBatch batch = pendingBatch_;
+               pendingBatch_ = null;
+               batch.send();
+            }
+         });
+      }
+      
+      pendingBatch_.add(rpcRequest, callback);
+   }
+   
+   private boolean isBatchable(String scope, String method)
+   {
+      // the batch envelope carries the client id so we can't batch
+      // until we've completed client_init
+      if (!batchRequests_ || clientId_ == null)
+         return false;
+      
+      // only standard rpc calls are batched (not events, uploads, etc.)
+      if (!scope.equals(RPC_SCOPE))
+         return false;
+      
+      // interactive requests (including the methods which the server
+      // waits for by name while R is busy) are sent on their own so they
+      // aren't held for the batch or delayed by its slowest call
+      return getRequestPriority(method) != RpcRequestScheduler.INTERACTIVE;
+   }
+   
    private void ensureListeningForEvents()
    {
       // if we are in a mode where we are listening for events (running
@@ -1984,6 +2584,52 @@ public class RemoteServer implements Server
          serverEventListener_.ensureListening(10);
    }
 
+   // the main workbench owns the event stream so satellites ask it to
+   // make sure events are flowing
+   private void ensureEvents()
+   {
+      if (satellite_.isCurrentWindowSatellite())
+         ensureEventsViaMainWorkbench();
+      else
+         serverEventListener_.ensureEvents();
+   }
+   
+   private native void ensureEventsViaMainWorkbench() /*-{
+      $wnd.opener.ensureRemoteServerEvents();
+   }-*/;
+   
+   // async completions arrive as client events so satellites wait for them
+   // via the main workbench
+   private void registerAsyncHandle(String asyncHandle,
+                                    RpcRequest request,
+                                    RpcRequestCallback callback)
+   {
+      if (satellite_.isCurrentWindowSatellite())
+      {
+         awaitAsyncCompletionViaMainWorkbench(asyncHandle, request, callback);
+      }
+      else
+      {
+         serverEventListener_.registerAsyncHandle(asyncHandle, 
+                                                  request, 
+                                                  callback);
+      }
+   }
+   
+   private native void awaitAsyncCompletionViaMainWorkbench(
+                                          String asyncHandle,
+                                          RpcRequest request,
+                                          RpcRequestCallback callback) /*-{
+      var responseCallback = new Object();
+      responseCallback.onResponse = $entry(function(response) {
+         callback.@org.rstudio.core.client.jsonrpc.RpcRequestCallback::onResponseReceived(Lorg/rstudio/core/client/jsonrpc/RpcRequest;Lorg/rstudio/core/client/jsonrpc/RpcResponse;)(request, response);
+      });
+      
+      $wnd.opener.awaitRemoteServerAsyncCompletion($wnd,
+                                                   asyncHandle,
+                                                   responseCallback);
+   }-*/;
+   
    private boolean eventsPending(RpcResponse response)
    {
       String eventsPending = response.getField("ep");
@@ -1994,7 +2640,8 @@ public class RemoteServer implements Server
    }
 
    private boolean resolveRpcErrorAndRetry(final RpcError error,
-                                           final RetryHandler retryHandler)
+                                           final RetryHandler retryHandler,
+                                           boolean retryUnavailable)
    {
       // won't even attempt resolve if we don't have a retryHandler
       if (retryHandler == null)
@@ -2017,7 +2664,7 @@ public class RemoteServer implements Server
                }
                else
                {
-                  handleUnauthorizedError();
+                  onUnauthorized();
                }
             }
 
@@ -2029,21 +2676,69 @@ public class RemoteServer implements Server
 
                // unable to resolve unauthorized error through a
                // credentials check -- treat as unauthorized
-               handleUnauthorizedError();
+               onUnauthorized();
+            }
+            
+            private void onUnauthorized()
+            {
+               // satellites leave unauthorized errors to the main workbench
+               // (see sendRequestDirectFromSatellite)
+               if (satellite_.isCurrentWindowSatellite())
+                  retryHandler.onError(error);
+               else
+                  handleUnauthorizedError();
             }
          });
 
          // attempting to resolve
          return true;
       }
+      // UNAVAILABLE indicates the session is starting (or restarting) so
+      // retry once it has had some time, unless retries are suspended (the
+      // event listener handles UNAVAILABLE itself)
+      else if (error.getCode() == RpcError.UNAVAILABLE && 
+               retryUnavailable &&
+               retryPolicy_.allowRetry())
+      {
+         retryPolicy_.scheduleRetry(new Command() {
+            public void execute()
+            {
+               retryHandler.onRetry();
+            }
+         });
+         return true;
+      }
       else
       {
          return false;
       }
    }
+   
+   // errors which mean we couldn't reach the session: connection errors
+   // reported by rserver, and http requests which got no response or a
+   // server error (e.g. from a proxy while rserver restarts)
+   private boolean isConnectivityError(RpcError error)
+   {
+      switch (error.getCode())
+      {
+         case RpcError.CONNECTION_ERROR:
+         case RpcError.UNAVAILABLE:
+            return true;
+         case RpcError.TRANSMISSION_ERROR:
+            int status = error.getStatus();
+            return status == 0 || status >= 500;
+         default:
+            return false;
+      }
+   }
 
    private boolean handleRpcErrorInternally(RpcError error)
    {
+      // satellites leave session level errors to the main workbench (direct
+      // requests which fail this way are re-sent through it)
+      if (satellite_.isCurrentWindowSatellite())
+         return false;
+      
       if (error.getCode() == RpcError.UNAUTHORIZED)
       {
          handleUnauthorizedError();
@@ -2095,6 +2790,7 @@ public class RemoteServer implements Server
    private void disconnect()
    {
       disconnected_ = true;
+      sharedRequests_.clear();
       serverEventListener_.stop();
    }
    
@@ -2106,10 +2802,56 @@ public class RemoteServer implements Server
    private native void registerSatelliteCallback() /*-{
       var server = this;     
       $wnd.sendRemoteServerRequest = $entry(
-         function(sourceWindow, scope, method, params, redactLog, responseCallback) {
-            server.@org.rstudio.studio.client.server.remote.RemoteServer::sendRemoteServerRequest(Lcom/google/gwt/core/client/JavaScriptObject;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;ZLcom/google/gwt/core/client/JavaScriptObject;)(sourceWindow, scope, method, params, redactLog, responseCallback);
+         function(sourceWindow, scope, method, params, redactLog, idempotent, responseCallback) {
+            server.@org.rstudio.studio.client.server.remote.RemoteServer::sendRemoteServerRequest(Lcom/google/gwt/core/client/JavaScriptObject;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;ZZLcom/google/gwt/core/client/JavaScriptObject;)(sourceWindow, scope, method, params, redactLog, idempotent, responseCallback);
          }
       ); 
+      
+      // used by satellites which send their requests directly
+      $wnd.awaitRemoteServerAsyncCompletion = $entry(
+         function(sourceWindow, asyncHandle, responseCallback) {
+            server.@org.rstudio.studio.client.server.remote.RemoteServer::awaitRemoteServerAsyncCompletion(Lcom/google/gwt/core/client/JavaScriptObject;Ljava/lang/String;Lcom/google/gwt/core/client/JavaScriptObject;)(sourceWindow, asyncHandle, responseCallback);
+         }
+      );
+      $wnd.ensureRemoteServerEvents = $entry(
+         function() {
+            server.@org.rstudio.studio.client.server.remote.RemoteServer::ensureEvents()();
+         }
+      );
+   }-*/;
+   
+   // this code runs in the main workbench and calls back the satellite
+   // on the provided js responseCallback once the async request completes
+   private void awaitRemoteServerAsyncCompletion(
+                                 JavaScriptObject sourceWindow,
+                                 String asyncHandle,
+                                 final JavaScriptObject responseCallback)
+   {
+      final WindowEx srcWnd = sourceWindow.<WindowEx>cast();
+      serverEventListener_.registerAsyncHandle(
+            asyncHandle,
+            null,
+            new RpcRequestCallback() {
+               public void onResponseReceived(RpcRequest request,
+                                              RpcResponse response)
+               {
+                  if (!srcWnd.isClosed())
+                     performSatelliteCallback(responseCallback, response);
+               }
+
+               public void onError(RpcRequest request, RpcError error)
+               {
+                  if (!srcWnd.isClosed())
+                     performSatelliteCallback(responseCallback, 
+                                              RpcResponse.create(error));
+               }
+            });
+   }
+   
+   private static native void performSatelliteCallback(
+                                          JavaScriptObject responseCallback,
+                                          RpcResponse response) /*-{
+      responseCallback.onResponse(response);
    }-*/;
    
    // this code runs in the main workbench and implements the server request
@@ -2119,6 +2861,7 @@ public class RemoteServer implements Server
                                         final String method,
                                         final String params,
                                         final boolean redactLog,
+                                        final boolean idempotent,
                                         final JavaScriptObject responseCallback)
    {  
       // get the WindowEx from the sourceWindow
@@ -2134,20 +2877,21 @@ public class RemoteServer implements Server
          public void onResponseReceived(RpcResponse response)
          {
             if (!srcWnd.isClosed())
-               performCallback(responseCallback, response);
+               performSatelliteCallback(responseCallback, response);
          }
          
          public void onError(RpcError error)
          {
             RpcResponse errorResponse = RpcResponse.create(error);
             if (!srcWnd.isClosed())
-               performCallback(responseCallback, errorResponse);
+               performSatelliteCallback(responseCallback, errorResponse);
          }
          
-         private native void performCallback(JavaScriptObject responseCallback,
-                                             RpcResponse response) /*-{
-            responseCallback.onResponse(response);
-         }-*/;
+         @Override
+         public boolean isCancelled()
+         {
+            return srcWnd.isClosed();
+         }
       };
       final ResponseHandler responseHandler = new ResponseHandler();
       
@@ -2164,6 +2908,7 @@ public class RemoteServer implements Server
                         method, 
                         jsonParams, 
                         redactLog, 
+                        idempotent,
                         responseHandler, 
                         null);
          }   
@@ -2181,6 +2926,7 @@ public class RemoteServer implements Server
                   method, 
                   jsonParams, 
                   redactLog, 
+                  idempotent,
                   responseHandler, 
                   retryHandler);
    }
@@ -2189,6 +2935,157 @@ public class RemoteServer implements Server
       return sourceWindow.RStudioSatelliteName;
    }-*/;
    
+   // satellites send requests directly (using the client id and auth
+   // cookies shared with the main workbench) unless direct requests have
+   // been disabled or the main workbench doesn't support them
+   public void setSatelliteDirectRequests(boolean directRequests)
+   {
+      satelliteDirectRequests_ = directRequests;
+   }
+   
+   private boolean canSendDirectFromSatellite()
+   {
+      if (!satelliteDirectRequests_ || !mainWorkbenchSupportsDirectRequests())
+         return false;
+      
+      // adopt the main workbench's client id
+      if (clientId_ == null)
+      {
+         SessionInfo sessionInfo = session_.getSessionInfo();
+         if (sessionInfo == null || sessionInfo.getClientId() == null)
+            return false;
+         
+         clientId_ = sessionInfo.getClientId();
+         clientVersion_ = sessionInfo.getClientVersion();
+      }
+      
+      return true;
+   }
+   
+   private native boolean mainWorkbenchSupportsDirectRequests() /*-{
+      return !!$wnd.opener && 
+             !$wnd.opener.closed && 
+             !!$wnd.opener.awaitRemoteServerAsyncCompletion;
+   }-*/;
+   
+   // call made from satellite -- send the request directly (retrying once
+   // after a credentials update or while the session starts, as the main
+   // workbench does) and fall back to proxying through the main workbench
+   // if it still fails with a session level error (the main workbench then
+   // takes care of further retries, disconnection, etc.). connection errors
+   // of non-idempotent requests are reported rather than re-sent
+   private <T> void sendRequestDirectFromSatellite(
+                                 final String scope,
+                                 final String method,
+                                 final JSONArray params,
+                                 final boolean redactLog,
+                                 final boolean idempotent,
+                                 final ServerRequestCallback<T> requestCallback)
+   {
+      final RpcResponseHandler responseHandler = new RpcResponseHandler()
+      {
+         @Override
+         public void onResponseReceived(RpcResponse response)
+         {
+            RpcError error = response.getError();
+            
+            // a connection error may mean that the request reached the 
+            // server and only its response was lost, so only idempotent 
+            // requests can safely be sent again via the main workbench
+            if (error != null && isSessionLevelError(error) &&
+                (idempotent || error.getCode() != RpcError.CONNECTION_ERROR))
+            {
+               // errors which mean direct requests aren't allowed 
+               // for this window turn them off altogether
+               int code = error.getCode();
+               if (code == RpcError.UNAUTHORIZED ||
+                   code == RpcError.INVALID_CLIENT_ID ||
+                   code == RpcError.INVALID_CLIENT_VERSION)
+               {
+                  satelliteDirectRequests_ = false;
+               }
+               
+               sendRequestViaMainWorkbench(scope, 
+                                           method, 
+                                           params, 
+                                           redactLog, 
+                                           idempotent,
+                                           requestCallback);
+               return;
+            }
+            
+            if (requestCallback.cancelled())
+               return;
+            
+            if (error != null)
+            {
+               requestCallback.onError(new RemoteServerError(error));
+            }
+            else
+            {
+               T result = response.<T> getResult();
+               requestCallback.onResponseReceived(result);
+            }
+         }
+         
+         @Override
+         public boolean isCancelled()
+         {
+            return requestCallback.cancelled();
+         }
+      };
+      
+      // retry handler (make the same call with the same params. ensure that
+      // only one retry occurs by passing null as the retryHandler)
+      RetryHandler retryHandler = new RetryHandler() {
+         
+         public void onRetry()
+         {
+            sendRequest(satellite_.getSatelliteName(),
+                        scope,
+                        method,
+                        params,
+                        redactLog,
+                        idempotent,
+                        responseHandler,
+                        null);
+         }
+         
+         public void onError(RpcError error)
+         {
+            // propagate error which caused the retry to the caller (this
+            // falls back to the main workbench for session level errors)
+            responseHandler.onResponseReceived(RpcResponse.create(error));
+         }
+      };
+      
+      // submit request (retry same request up to one time)
+      sendRequest(satellite_.getSatelliteName(),
+                  scope,
+                  method,
+                  params,
+                  redactLog,
+                  idempotent,
+                  responseHandler,
+                  retryHandler);
+   }
+   
+   private boolean isSessionLevelError(RpcError error)
+   {
+      switch (error.getCode())
+      {
+         case RpcError.CONNECTION_ERROR:
+         case RpcError.UNAVAILABLE:
+         case RpcError.UNAUTHORIZED:
+         case RpcError.INVALID_CLIENT_ID:
+         case RpcError.INVALID_CLIENT_VERSION:
+         case RpcError.SERVER_OFFLINE:
+            return true;
+         default:
+            return false;
+      }
+   }
+   
    // call made from satellite -- this delegates to a native method which
    // sets up a javascript callback and then calls the main workbench
    private <T> void sendRequestViaMainWorkbench(
@@ -2196,6 +3093,7 @@ public class RemoteServer implements Server
                                String method,
                                JSONArray params,
                                boolean redactLog,
+                               boolean idempotent,
                                final ServerRequestCallback<T> requestCallback)
    {
       sendRequestViaMainWorkbench(
@@ -2203,6 +3101,7 @@ public class RemoteServer implements Server
             method, 
             params.toString(),
             redactLog, 
+            idempotent,
             new RpcResponseHandler() {
                @Override
                public void onResponseReceived(RpcResponse response)
@@ -2229,6 +3128,7 @@ public class RemoteServer implements Server
                                     String method,
                                     String params,
                                     boolean redactLog,
+                                    boolean idempotent,
                                     RpcResponseHandler handler) /*-{
       
       var responseCallback = new Object();
@@ -2241,6 +3141,7 @@ public class RemoteServer implements Server
                                           method, 
                                           params, 
                                           redactLog,
+                                          idempotent,
                                           responseCallback);
    }-*/;
 
@@ -2274,7 +3175,10 @@ public class RemoteServer implements Server
    @Override
    public void svnStatus(ServerRequestCallback<JsArray<StatusAndPathInfo>> requestCallback)
    {
-      sendRequest(RPC_SCOPE, SVN_STATUS, requestCallback);
+      sendIdempotentRequest(RPC_SCOPE,
+                            SVN_STATUS,
+                            new JSONArray(),
+                            requestCallback);
    }
 
    @Override
@@ -2325,6 +3229,31 @@ public class RemoteServer implements Server
    private double clientVersion_ = 0;
    private boolean listeningForEvents_;
    private boolean disconnected_;
+   private boolean satelliteDirectRequests_ = true;
+   
+   // send calls made during the same event loop turn in a single request
+   private boolean batchRequests_ = true;
+   private RpcRequestBatch pendingBatch_ = null;
+   
+   // cached results of read-mostly methods (up to 100 results and 4M chars)
+   private final RpcResultCache resultCache_ = 
+                              new RpcResultCache(100, 4 * 1024 * 1024);
+   
+   // in flight requests to idempotent methods (keyed by method and params)
+   private final HashMap<String, SharedRequest> sharedRequests_ =
+                                       new HashMap<String, SharedRequest>();
+   
+   // dispatches requests in priority order (interactive requests first)
+   private final RpcRequestScheduler requestScheduler_ = 
+      new RpcRequestScheduler(new RpcRequestScheduler.Dispatcher() {
+         public void dispatch(String scope,
+                              String method,
+                              RpcRequest request,
+                              RpcRequestCallback callback)
+         {
+            submitRequest(scope, method, request, callback);
+         }
+      });
 
    private final RemoteServerAuth serverAuth_;
    private final RemoteServerEventListener serverEventListener_ ;
@@ -2333,6 +3262,7 @@ public class RemoteServer implements Server
 
    private final Session session_;
    private final EventBus eventBus_;
+   private final RetryPolicy retryPolicy_;
    private final Satellite satellite_;
 
    // url scopes
@@ -2348,6 +3278,7 @@ public class RemoteServer implements Server
 
    // session methods
    private static final String CLIENT_INIT = "client_init";
+   private static final String REPLAY_CLIENT_EVENTS = "replay_client_events";
    private static final String ACCEPT_AGREEMENT = "accept_agreement";
    private static final String SUSPEND_SESSION = "suspend_session";
    private static final String HANDLE_UNSAVED_CHANGES_COMPLETED = "handle_unsaved_changes_completed";
@@ -2403,6 +3334,7 @@ public class RemoteServer implements Server
    private static final String GET_CRAN_MIRRORS = "get_cran_mirrors";
 
    private static final String GET_HELP = "get_help";
+   private static final String SUGGEST_TOPICS = "suggest_topics";
    private static final String SHOW_HELP_TOPIC = "show_help_topic" ;
    private static final String SEARCH = "search" ;
 
@@ -2439,8 +3371,11 @@ public class RemoteServer implements Server
    private static final String OPEN_DOCUMENT = "open_document";
    private static final String SAVE_DOCUMENT = "save_document";
    private static final String SAVE_DOCUMENT_DIFF = "save_document_diff";
-   private static final String CHECK_FOR_EXTERNAL_EDIT = "check_for_external_edit";
+   private static final String SAVE_DOCUMENTS = "save_documents";
+   private static final String CHECK_FOR_EXTERNAL_EDITS = "check_for_external_edits";
    private static final String IGNORE_EXTERNAL_EDIT = "ignore_external_edit";
+   private static final String GET_FILE_LINES = "get_file_lines";
+   private static final String SEARCH_FILE_LINES = "search_file_lines";
    private static final String CLOSE_DOCUMENT = "close_document";
    private static final String CLOSE_ALL_DOCUMENTS = "close_all_documents";
    private static final String SET_SOURCE_DOCUMENT_ON_SAVE = "set_source_document_on_save";
@@ -2513,6 +3448,47 @@ public class RemoteServer implements Server
    private static final String TERMINATE_POSIX_SHELL = "terminate_posix_shell";
    
    private static final String LOG = "log";
-
+   
+   // methods which are never queued behind other requests (or batched).
+   // event replays are included because events are held until they complete
+   private static final String[] INTERACTIVE_METHODS = new String[] {
+      GET_COMPLETIONS,
+      GET_HELP_AT_CURSOR,
+      REPLAY_CLIENT_EVENTS
+   };
+   
+   // methods which are dispatched after all other queued requests
+   private static final String[] BACKGROUND_METHODS = new String[] {
+      LIST_PACKAGES,
+      AVAILABLE_PACKAGES,
+      GET_CRAN_MIRRORS,
+      LIST_FILES,
+      GIT_ALL_STATUS,
+      SVN_STATUS
+   };
+   
+   // read-mostly methods whose results are cached (and validated with the
+   // server using an etag)
+   private static final String[] CACHEABLE_METHODS = new String[] {
+      LIST_FILES,
+      LIST_PACKAGES,
+      AVAILABLE_PACKAGES,
+      GET_CRAN_MIRRORS,
+      GET_TERMINAL_OPTIONS,
+      SUGGEST_TOPICS
+   };
+   
+   // methods which must never be sent as part of an rpc batch
+   private static final String[] UNBATCHABLE_METHODS = new String[] {
+      CLIENT_INIT,
+      QUIT_SESSION,
+      INTERRUPT,
+      CONSOLE_INPUT,
+      EDIT_COMPLETED,
+      CHOOSE_FILE_COMPLETED,
+      LOCATOR_COMPLETED,
+      HANDLE_UNSAVED_CHANGES_COMPLETED,
+      ASKPASS_COMPLETED
+   };
 
 }
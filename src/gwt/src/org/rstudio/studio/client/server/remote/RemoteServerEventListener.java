@@ -13,48 +13,39 @@
 package org.rstudio.studio.client.server.remote;
 
 import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.core.client.JsArray;
+import com.google.gwt.user.client.Command;
 import com.google.gwt.user.client.Timer;
 import com.google.gwt.user.client.Window;
 import com.google.gwt.user.client.Window.ClosingEvent;
 import com.google.gwt.user.client.Window.ClosingHandler;
+import org.rstudio.core.client.Debug;
 import org.rstudio.core.client.jsonrpc.RpcError;
 import org.rstudio.core.client.jsonrpc.RpcRequest;
 import org.rstudio.core.client.jsonrpc.RpcRequestCallback;
-import org.rstudio.core.client.jsonrpc.RpcResponse;
 import org.rstudio.studio.client.application.events.*;
 import org.rstudio.studio.client.server.ServerError;
 import org.rstudio.studio.client.server.ServerRequestCallback;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 
 
 class RemoteServerEventListener 
 {
-   /**
-    * Stores the context needed to complete an async request.
-    */
-   static class AsyncRequestInfo
-   {
-      AsyncRequestInfo(RpcRequest request, RpcRequestCallback callback)
-      {
-         this.request = request;
-         this.callback = callback;
-      }
-
-      public final RpcRequest request;
-      public final RpcRequestCallback callback;
-   }
-
    public RemoteServerEventListener(RemoteServer server,
+                                    ClientEventDecoderRegistry registry,
+                                    ClientEventCoalescer coalescer,
                                     ClientEventHandler externalEventHandler)
    {
       server_ = server;
+      eventCoalescer_ = coalescer;
       externalEventHandler_ = externalEventHandler;
-      eventDispatcher_ = new ClientEventDispatcher(server_.getEventBus());
+      eventDispatcher_ = new ClientEventDispatcher(server_.getEventBus(),
+                                                   registry);
+      asyncCompletions_ = new AsyncCompletionTable();
       lastEventId_ = -1;
       listenCount_ = 0;
-      listenErrorCount_ = 0;
       isListening_ = false;
       sessionWasQuit_ = false;
       
@@ -106,27 +97,25 @@ class RemoteServerEventListener
       // second listen (to prevent the "perpetual loading" problem)
       listenCount_ = 0;
       
-      // reset our lastEventId to make sure we get all events which are 
-      // currently pending on the server. note in the case of "restarting"
-      // the event listener setting this to -1 could in theory cause us to
-      // receive an event twice (because the reset to -1 causes us to never
-      // confirm receipt of the event with the server). in practice this
-      // would a) be very unlikely; b) not be that big of a deal; and c) is
-      // judged preferrable than doing something more complex in this code
-      // which might avoid dupes but cause other bugs (such as missing events
-      // from the server). note also that when we go multi-user we'll be 
-      // revisiting this mechanism again so there will be an opportunity to 
-      // eliminate this scenario then
-      lastEventId_ = -1;
+      // note that we don't reset lastEventId_ here: it is the id of the 
+      // last event we applied, so resuming from it on a restart means the 
+      // server only sends events we haven't seen (any which it resends
+      // anyway are dropped as duplicates in processEvents). the server
+      // syncs its event ids to ours so this also holds after a resume
       
-      // start listening
-      listen();
+      // start listening (using the event stream if we can)
+      streamFallback_.start();
    }
      
    public void stop()
    {        
       isListening_ = false;
       listenCount_ = 0;
+      if (eventStream_ != null)
+      {
+         eventStream_.close();
+         eventStream_ = null;
+      }
       if (activeRequestCallback_ != null)
       {
          activeRequestCallback_.cancel();
@@ -137,12 +126,26 @@ class RemoteServerEventListener
          activeRequest_.cancel();
          activeRequest_ = null;
       }
+      
+      // abandon any replay in progress (along with the events held for it)
+      if (replayCallback_ != null)
+      {
+         replayCallback_.cancel();
+         replayCallback_ = null;
+      }
+      replayPending_ = false;
+      heldEvents_.clear();
    }
    
    // ensure that we are actively listening for events (used to make 
    // sure that we restart listening when the session is about to resume
    // after a suspension)
-   public void ensureListening(final int attempts)
+   public void ensureListening(int attempts)
+   {
+      ensureListening(attempts, 0);
+   }
+   
+   private void ensureListening(final int attempts, final int attempt)
    {
       // exit if we are now listening
       if (isListening_)
@@ -152,19 +155,24 @@ class RemoteServerEventListener
       if (sessionWasQuit_)
          return;
       
+      // exit if retries are suspended (the listener restarts itself once
+      // they are allowed again)
+      RetryPolicy retryPolicy = server_.getRetryPolicy();
+      if (!retryPolicy.allowRetry())
+         return;
+      
       // attempt to start the service
       start();
       
-      // if appropriate, schedule another attempt in 250ms 
-      final int attemptsRemaining = attempts - 1;
-      if (attemptsRemaining > 0)
+      // if appropriate, schedule another attempt (backing off)
+      if (attempt + 1 < attempts)
       {
          new Timer() { 
             public void run()
             {
-               ensureListening(attemptsRemaining);
+               ensureListening(attempts, attempt + 1);
             } 
-         }.schedule(250);
+         }.schedule(Math.max(1, retryPolicy.getBackoffMs(attempt)));
       }
    }
    
@@ -207,6 +215,92 @@ class RemoteServerEventListener
       start();
    }
    
+   // events are pushed to us over a server-sent events stream if the server
+   // and browser support it (see EventStreamFallback for when we poll with
+   // get_events instead, resuming from lastEventId_)
+   private class StreamHost implements EventStreamFallback.Host
+   {
+      public boolean canStream()
+      {
+         return ClientEventStream.isSupported() &&
+                server_.getEventStreamUrl(lastEventId_) != null;
+      }
+
+      public void openStream()
+      {
+         openEventStream();
+      }
+
+      public void poll()
+      {
+         listen();
+      }
+
+      public void retryLater(final Command command)
+      {
+         server_.getRetryPolicy().scheduleRetry(new Command() {
+            public void execute()
+            {
+               if (isListening_ && eventStream_ == null)
+                  command.execute();
+            }
+         });
+      }
+   }
+
+   private void openEventStream()
+   {
+      String url = server_.getEventStreamUrl(lastEventId_);
+      
+      final ClientEventStream eventStream = new ClientEventStream(
+                                          url, new ClientEventStream.Observer()
+      {
+         public void onOpened()
+         {
+            server_.getRetryPolicy().onSuccess();
+            streamFallback_.onStreamOpened();
+         }
+         
+         public void onEvents(JsArray<ClientEvent> events)
+         {
+            // keep watchdog appraised of successful receipt of events
+            watchdog_.notifyResponseReceived();
+            
+            processEvents(events);
+         }
+         
+         public void onError(boolean wasOpened)
+         {
+            eventStream_ = null;
+            if (!isListening_ || sessionWasQuit_)
+               return;
+            
+            RetryPolicy retryPolicy = server_.getRetryPolicy();
+            retryPolicy.onFailure();
+            
+            // remain stopped after too many failures (as in doListen)
+            if (retryPolicy.isExhausted())
+            {
+               stop();
+               return;
+            }
+            
+            streamFallback_.onStreamError(wasOpened);
+         }
+      });
+      eventStream_ = eventStream;
+      
+      // bounce the open for the same reasons we bounce listen
+      new Timer() {
+         @Override
+         public void run()
+         {
+            if (isListening_ && eventStream_ == eventStream)
+               eventStream.open();
+         }
+      }.schedule(1);
+   }
+   
    private void listen()
    {
       // bounce listen to ensure it is never added to the browser's internal 
@@ -246,41 +340,16 @@ class RemoteServerEventListener
          return;
           
       // setup request callback (save reference for cancellation)
-      activeRequestCallback_ = new ServerRequestCallback<JsArray<ClientEvent>>() 
+      activeRequestCallback_ = new ServerRequestCallback<JavaScriptObject>() 
       {
          @Override
-         public void onResponseReceived(JsArray<ClientEvent> events)
+         public void onResponseReceived(JavaScriptObject result)
          {
             // keep watchdog appraised of successful receipt of events
             watchdog_.notifyResponseReceived();
+            server_.getRetryPolicy().onSuccess();
             
-            try
-            {
-               // only processs events if we are still listening
-               if (isListening_ && (events != null))
-               {
-                  for (int i=0; i<events.length(); i++)
-                  {
-                     // we can stop listening in the middle of dispatching
-                     // events (e.g. if we dispatch a Suicide event) so we 
-                     // need to check the listening_ flag before each event
-                     // is dispatched
-                     if (!isListening_)
-                        return;
-                     
-                     // disppatch event
-                     ClientEvent event = events.get(i);
-                     dispatchEvent(event);
-                     lastEventId_ = event.getId();
-                  }   
-               }
-            }
-            // catch all here to make sure that in all cases we call
-            // listen() again after processing
-            catch(Throwable e)
-            {
-               GWT.log("ERROR: Processing client events", e);
-            }
+            processEvents(ClientEvent.decodeEvents(result));
             
             // listen for more events
             listen();
@@ -301,28 +370,29 @@ class RemoteServerEventListener
             }
             
             // attempt to restart listening, but throttle restart attempts
-            // in both timing (500ms delay) and quantity (no more than 5
-            // attempts). We do this because unthrottled restart attempts could
-            // result in our server getting hammered with requests)
-            if (listenErrorCount_++ <= 5)
-            {
-               Timer startTimer = new Timer() {
-                  @Override
-                  public void run()
-                  {
-                     // only start again if we haven't been started 
-                     // by some other means (e.g. ensureListening, etc)
-                     if (!isListening_)
-                        start();
-                  }
-               };
-               startTimer.schedule(500);
-            }
-            // otherwise reset the listen error count and remain stopped
-            else
-            {
-               listenErrorCount_ = 0;
-            }
+            // using the shared retry policy (exponential backoff with jitter,
+            // and no attempts at all for a while after repeated failures). 
+            // We do this because unthrottled restart attempts (particularly
+            // from many clients at once) could result in our server getting
+            // hammered with requests
+            RetryPolicy retryPolicy = server_.getRetryPolicy();
+            retryPolicy.onFailure();
+            
+            // after too many failures remain stopped (the policy reports
+            // that we are disconnected). ensureListening restarts us when
+            // the next request is made
+            if (retryPolicy.isExhausted())
+               return;
+            
+            retryPolicy.scheduleRetry(new Command() {
+               public void execute()
+               {
+                  // only start again if we haven't been started 
+                  // by some other means (e.g. ensureListening, etc)
+                  if (!isListening_ && !sessionWasQuit_)
+                     start();
+               }
+            });
          }
       };
       
@@ -354,6 +424,180 @@ class RemoteServerEventListener
    }
    
    
+   private void processEvents(JsArray<ClientEvent> events)
+   {
+      processEvents(events, true);
+   }
+   
+   // events are applied exactly once and in order: events we've already
+   // applied are dropped and if events are missing (e.g. the server trimmed
+   // them while we were reconnecting) we hold subsequent events and ask the
+   // server to replay the missing ones. if they can't be replayed 
+   // (allowReplay is false for replayed events) then we skip past them
+   private void processEvents(JsArray<ClientEvent> events, 
+                              boolean allowReplay)
+   {
+      // only processs events if we are still listening
+      if (!isListening_ || (events == null))
+         return;
+      
+      // hold events which arrive while we are waiting on a replay
+      if (replayPending_)
+      {
+         holdEvents(events, 0);
+         return;
+      }
+      
+      // drop duplicates
+      int start = 0;
+      while (start < events.length() && 
+             events.get(start).getId() <= lastEventId_)
+      {
+         start++;
+      }
+      
+      // find the end of the contiguous run of events
+      int end = start;
+      int previousId = lastEventId_;
+      for (; end < events.length(); end++)
+      {
+         int id = events.get(end).getId();
+         if (previousId >= 0 && id != previousId + 1)
+         {
+            if (allowReplay)
+               break;
+            
+            Debug.log("Client events " + (previousId + 1) + "-" + (id - 1) +
+                      " were not received");
+         }
+         previousId = id;
+      }
+      
+      dispatchEvents(subArray(events, start, end));
+      
+      // request replay of missing events
+      if (end < events.length() && isListening_)
+      {
+         int upToEventId = events.get(end).getId() - 1;
+         holdEvents(events, end);
+         replayEvents(lastEventId_, upToEventId);
+      }
+   }
+   
+   private void dispatchEvents(JsArray<ClientEvent> events)
+   {
+      try
+      {
+         if (isListening_ && events.length() > 0)
+         {
+            // merge redundant events before dispatching
+            ArrayList<ClientEvent> coalesced = 
+                                    eventCoalescer_.coalesce(events);
+            
+            for (ClientEvent event : coalesced)
+            {
+               // we can stop listening in the middle of dispatching
+               // events (e.g. if we dispatch a Suicide event) so we 
+               // need to check the listening_ flag before each event
+               // is dispatched
+               if (!isListening_)
+                  return;
+               
+               // disppatch event
+               dispatchEvent(event);
+               lastEventId_ = event.getId();
+            }   
+            
+            // merged events carry the id of the last event they
+            // include, but make sure we confirm the whole batch
+            if (events.length() > 0)
+               lastEventId_ = events.get(events.length() - 1).getId();
+         }
+      }
+      // catch all here to make sure that in all cases our caller continues
+      // listening after processing
+      catch(Throwable e)
+      {
+         GWT.log("ERROR: Processing client events", e);
+      }
+   }
+   
+   private JsArray<ClientEvent> subArray(JsArray<ClientEvent> events,
+                                         int start, 
+                                         int end)
+   {
+      if (start == 0 && end == events.length())
+         return events;
+      
+      JsArray<ClientEvent> result = JsArray.createArray().cast();
+      for (int i = start; i < end; i++)
+         result.push(events.get(i));
+      return result;
+   }
+   
+   // hold events (from index start) until a replay completes. events we 
+   // already hold are ignored (the server resends unconfirmed events)
+   private void holdEvents(JsArray<ClientEvent> events, int start)
+   {
+      int lastHeldId = heldEvents_.isEmpty() ? 
+                  lastEventId_ : 
+                  heldEvents_.get(heldEvents_.size() - 1).getId();
+      
+      for (int i = start; i < events.length(); i++)
+      {
+         ClientEvent event = events.get(i);
+         if (event.getId() > lastHeldId)
+         {
+            heldEvents_.add(event);
+            lastHeldId = event.getId();
+         }
+      }
+   }
+   
+   private void replayEvents(int afterEventId, final int upToEventId)
+   {
+      replayPending_ = true;
+      replayCallback_ = new ServerRequestCallback<JsArray<ClientEvent>>() {
+         @Override
+         public void onResponseReceived(JsArray<ClientEvent> events)
+         {
+            onReplayCompleted(events, upToEventId);
+         }
+         
+         @Override
+         public void onError(ServerError error)
+         {
+            Debug.logError(error);
+            onReplayCompleted(null, upToEventId);
+         }
+      };
+      server_.replayClientEvents(afterEventId, upToEventId, replayCallback_);
+   }
+   
+   private void onReplayCompleted(JsArray<ClientEvent> replayed, 
+                                  int upToEventId)
+   {
+      replayPending_ = false;
+      replayCallback_ = null;
+      
+      JsArray<ClientEvent> held = JsArray.createArray().cast();
+      for (ClientEvent event : heldEvents_)
+         held.push(event);
+      heldEvents_.clear();
+      
+      // apply the replayed events then skip past any which the server no 
+      // longer has
+      processEvents(replayed, false);
+      if (isListening_ && lastEventId_ < upToEventId)
+      {
+         Debug.log("Client events " + (lastEventId_ + 1) + "-" + 
+                   upToEventId + " could not be replayed");
+         lastEventId_ = upToEventId;
+      }
+      
+      processEvents(held, true);
+   }
+   
    private void dispatchEvent(ClientEvent event)
    {
       // do some special handling before calling the standard dispatcher
@@ -363,20 +607,8 @@ class RemoteServerEventListener
       if (type.equals(ClientEvent.AsyncCompletion))
       {
          AsyncCompletion completion = event.getData();
-         String handle = completion.getHandle();
-         AsyncRequestInfo req = asyncRequests_.remove(handle);
-         if (req != null)
-         {
-            req.callback.onResponseReceived(req.request,
-                                            completion.getResponse());
-         }
-         else
-         {
-            // We haven't seen this request yet. Store it for later,
-            // maybe it's just taking a long time for the request
-            // to complete.
-            asyncResponses_.put(handle, completion.getResponse());
-         }
+         asyncCompletions_.complete(completion.getHandle(),
+                                    completion.getResponse());
       }
       else
       {
@@ -455,20 +687,7 @@ class RemoteServerEventListener
                                    RpcRequest request,
                                    RpcRequestCallback callback)
    {
-      RpcResponse response = asyncResponses_.remove(asyncHandle);
-      if (response == null)
-      {
-         // We don't have the response for this request--this is
-         // the normal case.
-         asyncRequests_.put(asyncHandle,
-                            new AsyncRequestInfo(request, callback));
-      }
-      else
-      {
-         // We already have the response--the request must've taken
-         // a long time to return.
-         callback.onResponseReceived(request, response);
-      }
+      asyncCompletions_.register(asyncHandle, request, callback);
    }
 
    private final RemoteServer server_;
@@ -482,25 +701,29 @@ class RemoteServerEventListener
    private boolean isListening_;
    private int lastEventId_ ;
    private int listenCount_ ;
-   private int listenErrorCount_ ;
    private boolean sessionWasQuit_ ;
    
+   private ClientEventStream eventStream_;
+   
+   private boolean replayPending_ = false;
+   private ServerRequestCallback<JsArray<ClientEvent>> replayCallback_ = null;
+   private final ArrayList<ClientEvent> heldEvents_ = 
+                                             new ArrayList<ClientEvent>();
+   private final EventStreamFallback streamFallback_ =
+                              new EventStreamFallback(new StreamHost());
+   
    private RpcRequest activeRequest_ ;
-   private ServerRequestCallback<JsArray<ClientEvent>> activeRequestCallback_;
+   private ServerRequestCallback<JavaScriptObject> activeRequestCallback_;
 
    private final ClientEventDispatcher eventDispatcher_;
    
+   private final ClientEventCoalescer eventCoalescer_;
+   
    private final ClientEventHandler externalEventHandler_;
      
    private Watchdog watchdog_ = new Watchdog();
 
-   // Stores async requests that expect to be completed later.
-   private final HashMap<String, AsyncRequestInfo> asyncRequests_
-         = new HashMap<String, AsyncRequestInfo>();
-
-   // Stores any async responses that didn't have matching requests at the
-   // time they were received. This is to deal with any race conditions where
-   // the completion occurs before we even finished making the request.
-   private final HashMap<String, RpcResponse> asyncResponses_
-         = new HashMap<String, RpcResponse>();
+   // Stores async requests that expect to be completed later (along with
+   // completions which arrive before their request is registered)
+   private final AsyncCompletionTable asyncCompletions_;
 }
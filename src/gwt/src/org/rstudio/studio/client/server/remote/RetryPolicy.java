@@ -0,0 +1,144 @@
+/*
+ * RetryPolicy.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.server.remote;
+
+import com.google.gwt.user.client.Command;
+import com.google.gwt.user.client.Random;
+import com.google.gwt.user.client.Timer;
+import org.rstudio.studio.client.application.events.EventBus;
+import org.rstudio.studio.client.application.events.ServerReconnectingEvent;
+
+// Retry policy shared by rpc retries and event listener restarts. Retries
+// are delayed by exponential backoff with full jitter (a random delay of up
+// to base * 2^attempt) so that many clients which lose their connection at
+// the same time don't retry in lock-step. After FAILURE_THRESHOLD
+// consecutive failures the circuit opens and retries are suspended until
+// a (jittered, growing) cool-off period has passed, after which a single
+// trial is allowed (half open). Any success closes the circuit. After
+// MAX_ATTEMPTS consecutive failures the policy is exhausted: automatic
+// retries (e.g. event listener restarts) stop until a request made for
+// some other reason succeeds.
+class RetryPolicy
+{
+   public RetryPolicy(EventBus eventBus)
+   {
+      eventBus_ = eventBus;
+   }
+   
+   // random delay for the given (zero based) retry attempt
+   public int getBackoffMs(int attempt)
+   {
+      double window = Math.min(MAX_BACKOFF_MS,
+                               BASE_BACKOFF_MS * Math.pow(2, Math.min(attempt, 16)));
+      return (int)(Random.nextDouble() * window);
+   }
+   
+   // whether retries are currently allowed (false while the circuit is open)
+   public boolean allowRetry()
+   {
+      if (state_ == OPEN && now() >= openUntil_)
+         state_ = HALF_OPEN;
+      
+      return state_ != OPEN;
+   }
+   
+   public boolean isCircuitOpen()
+   {
+      return !allowRetry();
+   }
+   
+   // whether automatic retries should give up
+   public boolean isExhausted()
+   {
+      return failures_ >= MAX_ATTEMPTS;
+   }
+   
+   public void onSuccess()
+   {
+      boolean wasFailing = failures_ > 0;
+      failures_ = 0;
+      openCount_ = 0;
+      state_ = CLOSED;
+      
+      if (wasFailing)
+         fireStateChanged();
+   }
+   
+   public void onFailure()
+   {
+      failures_++;
+      
+      if (state_ == HALF_OPEN || 
+          (state_ == CLOSED && failures_ >= FAILURE_THRESHOLD))
+      {
+         // cool off for between half and all of the open period
+         int openMs = (int)Math.min(MAX_OPEN_MS, 
+                                    BASE_OPEN_MS * Math.pow(2, openCount_++));
+         openUntil_ = now() + openMs / 2 + Random.nextInt(openMs / 2 + 1);
+         state_ = OPEN;
+         fireStateChanged();
+      }
+      else if (failures_ == 1 || failures_ == MAX_ATTEMPTS)
+      {
+         fireStateChanged();
+      }
+   }
+   
+   // run the command after the backoff delay for the current number of
+   // failures (or once the circuit half opens)
+   public void scheduleRetry(final Command command)
+   {
+      int delayMs;
+      if (state_ == OPEN)
+         delayMs = (int)Math.max(0, openUntil_ - now());
+      else
+         delayMs = getBackoffMs(Math.max(0, failures_ - 1));
+      
+      new Timer() {
+         @Override
+         public void run()
+         {
+            command.execute();
+         }
+      }.schedule(Math.max(1, delayMs));
+   }
+   
+   private void fireStateChanged()
+   {
+      eventBus_.fireEvent(new ServerReconnectingEvent(failures_ > 0,
+                                                      state_ == OPEN,
+                                                      isExhausted()));
+   }
+   
+   private static long now()
+   {
+      return System.currentTimeMillis();
+   }
+   
+   private static final int CLOSED = 0;
+   private static final int OPEN = 1;
+   private static final int HALF_OPEN = 2;
+   
+   private static final int BASE_BACKOFF_MS = 250;
+   private static final int MAX_BACKOFF_MS = 8000;
+   private static final int FAILURE_THRESHOLD = 6;
+   private static final int BASE_OPEN_MS = 10000;
+   private static final int MAX_OPEN_MS = 60000;
+   private static final int MAX_ATTEMPTS = 10;
+   
+   private final EventBus eventBus_;
+   private int state_ = CLOSED;
+   private int failures_ = 0;
+   private int openCount_ = 0;
+   private long openUntil_ = 0;
+}
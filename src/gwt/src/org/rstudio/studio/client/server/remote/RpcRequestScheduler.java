@@ -0,0 +1,214 @@
+/*
+ * RpcRequestScheduler.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.server.remote;
+
+import org.rstudio.core.client.RingBuffer;
+import org.rstudio.core.client.jsonrpc.RpcError;
+import org.rstudio.core.client.jsonrpc.RpcRequest;
+import org.rstudio.core.client.jsonrpc.RpcRequestCallback;
+import org.rstudio.core.client.jsonrpc.RpcResponse;
+import org.rstudio.core.client.jsonrpc.RpcResponseHandler;
+
+import com.google.gwt.user.client.Command;
+
+// Dispatches rpc requests in priority order while limiting the number of
+// requests in flight. Interactive requests (e.g. console input) are always
+// sent immediately. Other requests are sent immediately if fewer than
+// maxInFlight requests are outstanding and are otherwise queued, with
+// normal requests dispatched ahead of background ones. Queued background
+// requests whose caller has cancelled them (e.g. because the callback's
+// invalidation token has expired) are dropped without being sent.
+//
+// A request leaves the scheduler when its callback is called, when it is
+// cancelled (RpcRequest.cancel) or when it is dropped. In the latter two
+// cases its response handler is notified via onCancelled.
+//
+// Note that the limit applies to requests rather than http connections:
+// batched requests share a connection but are still executed one at a
+// time by the session.
+class RpcRequestScheduler
+{
+   public static final int INTERACTIVE = 0;
+   public static final int NORMAL = 1;
+   public static final int BACKGROUND = 2;
+
+   interface Dispatcher
+   {
+      void dispatch(String scope,
+                    String method,
+                    RpcRequest request,
+                    RpcRequestCallback callback);
+   }
+
+   public RpcRequestScheduler(Dispatcher dispatcher)
+   {
+      dispatcher_ = dispatcher;
+   }
+
+   public void submit(int priority,
+                      String scope,
+                      String method,
+                      RpcRequest request,
+                      RpcRequestCallback callback,
+                      RpcResponseHandler responseHandler)
+   {
+      final QueuedRequest queued = new QueuedRequest(priority,
+                                                     scope,
+                                                     method,
+                                                     request,
+                                                     callback,
+                                                     responseHandler);
+      request.setCancelHandler(new Command() {
+         public void execute()
+         {
+            onCancelled(queued);
+         }
+      });
+
+      if (priority == INTERACTIVE || inFlight_ < maxInFlight_)
+         dispatch(queued);
+      else if (priority == BACKGROUND)
+         backgroundQueue_.add(queued);
+      else
+         normalQueue_.add(queued);
+   }
+
+   public int getMaxInFlight()
+   {
+      return maxInFlight_;
+   }
+
+   public void setMaxInFlight(int maxInFlight)
+   {
+      maxInFlight_ = Math.max(1, maxInFlight);
+      dispatchQueued();
+   }
+
+   public int getInFlightCount()
+   {
+      return inFlight_;
+   }
+
+   public int getQueuedCount()
+   {
+      return normalQueue_.size() + backgroundQueue_.size();
+   }
+
+   private void dispatch(final QueuedRequest queued)
+   {
+      inFlight_++;
+      queued.dispatched = true;
+      dispatcher_.dispatch(queued.scope,
+                           queued.method,
+                           queued.request,
+                           new RpcRequestCallback() {
+
+         public void onError(RpcRequest request, RpcError error)
+         {
+            if (onCompleted(queued))
+               queued.callback.onError(request, error);
+         }
+
+         public void onResponseReceived(RpcRequest request,
+                                        RpcResponse response)
+         {
+            if (onCompleted(queued))
+               queued.callback.onResponseReceived(request, response);
+         }
+      });
+   }
+
+   private void dispatchQueued()
+   {
+      while (inFlight_ < maxInFlight_)
+      {
+         QueuedRequest next = !normalQueue_.isEmpty() ?
+                                                normalQueue_.remove() :
+                                                backgroundQueue_.remove();
+         if (next == null)
+            return;
+
+         // skip requests cancelled while queued
+         if (next.completed)
+            continue;
+
+         if (next.priority == BACKGROUND &&
+             next.responseHandler != null &&
+             next.responseHandler.isCancelled())
+         {
+            onCancelled(next);
+            continue;
+         }
+
+         dispatch(next);
+      }
+   }
+
+   // releases the request's slot (if it was dispatched), returning false if
+   // the request had already completed
+   private boolean onCompleted(QueuedRequest queued)
+   {
+      if (queued.completed)
+         return false;
+      queued.completed = true;
+      queued.request.setCancelHandler(null);
+
+      if (queued.dispatched)
+      {
+         inFlight_--;
+         dispatchQueued();
+      }
+      return true;
+   }
+
+   private void onCancelled(QueuedRequest queued)
+   {
+      if (onCompleted(queued) && queued.responseHandler != null)
+         queued.responseHandler.onCancelled();
+   }
+
+   private static class QueuedRequest
+   {
+      QueuedRequest(int priority,
+                    String scope,
+                    String method,
+                    RpcRequest request,
+                    RpcRequestCallback callback,
+                    RpcResponseHandler responseHandler)
+      {
+         this.priority = priority;
+         this.scope = scope;
+         this.method = method;
+         this.request = request;
+         this.callback = callback;
+         this.responseHandler = responseHandler;
+      }
+
+      public final int priority;
+      public final String scope;
+      public final String method;
+      public final RpcRequest request;
+      public final RpcRequestCallback callback;
+      public final RpcResponseHandler responseHandler;
+      public boolean dispatched = false;
+      public boolean completed = false;
+   }
+
+   private final Dispatcher dispatcher_;
+   private int maxInFlight_ = 4;
+   private int inFlight_ = 0;
+   private final RingBuffer<QueuedRequest> normalQueue_ =
+                                          new RingBuffer<QueuedRequest>();
+   private final RingBuffer<QueuedRequest> backgroundQueue_ =
+                                          new RingBuffer<QueuedRequest>();
+}
@@ -0,0 +1,184 @@
+/*
+ * RpcResultCache.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.server.remote;
+
+import org.rstudio.core.client.jsonrpc.RpcResponse;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Caches the results of read-mostly rpc calls along with the etag the
+// server computed for them. Requests for cached results carry the etag so
+// that the server can respond "not modified" rather than sending the same
+// result again. Results are stored as json text (so each caller gets its
+// own copy of the result) and evicted in least recently used order once
+// either the entry or character limit is exceeded.
+class RpcResultCache
+{
+   public static class Entry
+   {
+      Entry(String etag, String resultJson)
+      {
+         this.etag = etag;
+         this.resultJson = resultJson;
+      }
+
+      public final String etag;
+      public final String resultJson;
+   }
+
+   public RpcResultCache(int maxEntries, int maxChars)
+   {
+      maxEntries_ = maxEntries;
+      maxChars_ = maxChars;
+   }
+
+   public static String key(String method, String params)
+   {
+      return method + ":" + params;
+   }
+
+   public Entry get(String key)
+   {
+      return entries_.get(key);
+   }
+
+   // resolve the response to a request which was sent with the etag of
+   // the passed entry (null if there was no entry). not modified responses
+   // are completed with the cached result, new results are cached.
+   // responseSize is the length of the response text (-1 if unknown)
+   public RpcResponse resolve(String key, 
+                              Entry sentEntry, 
+                              RpcResponse response,
+                              int responseSize)
+   {
+      if (response.isNotModified())
+      {
+         if (sentEntry == null)
+            return response;
+
+         hits_++;
+         setResult(response, sentEntry.resultJson);
+
+         // make sure the entry is still present (it may have been evicted
+         // or invalidated while the request was in flight)
+         if (!entries_.containsKey(key))
+            put(key, sentEntry);
+      }
+      else
+      {
+         misses_++;
+         String etag = response.getEtag();
+         if (etag == null)
+            return response;
+         
+         // the result is no larger than the response text so if that is
+         // too large to cache we needn't serialize the result to find out
+         if (responseSize > maxCacheableChars())
+            remove(key);
+         else
+            put(key, new Entry(etag, stringifyResult(response)));
+      }
+
+      return response;
+   }
+
+   // remove all of the entries for the given method
+   public void invalidate(String method)
+   {
+      String prefix = method + ":";
+      Iterator<Map.Entry<String, Entry>> it = entries_.entrySet().iterator();
+      while (it.hasNext())
+      {
+         Map.Entry<String, Entry> entry = it.next();
+         if (entry.getKey().startsWith(prefix))
+         {
+            chars_ -= entry.getValue().resultJson.length();
+            it.remove();
+         }
+      }
+   }
+
+   public void clear()
+   {
+      entries_.clear();
+      chars_ = 0;
+   }
+
+   public int getHitCount()
+   {
+      return hits_;
+   }
+
+   public int getMissCount()
+   {
+      return misses_;
+   }
+
+   private void put(String key, Entry entry)
+   {
+      remove(key);
+
+      if (entry.resultJson.length() > maxCacheableChars())
+         return;
+
+      entries_.put(key, entry);
+      chars_ += entry.resultJson.length();
+
+      // evict least recently used entries
+      Iterator<Entry> it = entries_.values().iterator();
+      while (it.hasNext() &&
+             (entries_.size() > maxEntries_ || chars_ > maxChars_))
+      {
+         chars_ -= it.next().resultJson.length();
+         it.remove();
+      }
+   }
+
+   private void remove(String key)
+   {
+      Entry previous = entries_.remove(key);
+      if (previous != null)
+         chars_ -= previous.resultJson.length();
+   }
+
+   // don't cache results which would take up the entire cache
+   private int maxCacheableChars()
+   {
+      return maxChars_ / 2;
+   }
+
+   private static native String stringifyResult(RpcResponse response) /*-{
+      var json = typeof(JSON) !== 'undefined' ? JSON : $wnd.JSON;
+      var result = response.result;
+      return json.stringify(result === undefined ? null : result);
+   }-*/;
+
+   private static native void setResult(RpcResponse response,
+                                        String resultJson) /*-{
+      var json = typeof(JSON) !== 'undefined' ? JSON : $wnd.JSON;
+      response.result = json.parse(resultJson);
+      delete response.not_modified;
+   }-*/;
+
+   private final int maxEntries_;
+   private final int maxChars_;
+   private int chars_ = 0;
+   private int hits_ = 0;
+   private int misses_ = 0;
+
+   // access ordered (least recently used first)
+   private final LinkedHashMap<String, Entry> entries_ =
+                           new LinkedHashMap<String, Entry>(16, 0.75f, true);
+}
@@ -18,8 +18,10 @@ import java.util.ArrayList;
 import org.rstudio.core.client.command.CommandBinder;
 import org.rstudio.core.client.command.Handler;
 import org.rstudio.studio.client.application.events.EventBus;
+import org.rstudio.studio.client.common.satellite.Satellite;
 import org.rstudio.studio.client.common.satellite.SatelliteWindow;
 import org.rstudio.studio.client.common.vcs.StatusAndPath;
+import org.rstudio.studio.client.server.remote.ClientEvent;
 import org.rstudio.studio.client.vcs.VCSApplicationParams;
 import org.rstudio.studio.client.vcs.VCSApplicationView;
 import org.rstudio.studio.client.workbench.commands.Commands;
@@ -53,9 +55,10 @@ public class VCSApplicationWindow extends SatelliteWindow
                                Provider<Binder> pBinder,
                                Provider<EventBus> pEventBus,
                                Provider<FontSizeManager> pFontSizeManager,
+                               Provider<Satellite> pSatellite,
                                Session session)
    {
-      super(pEventBus, pFontSizeManager);
+      super(pEventBus, pFontSizeManager, pSatellite);
       pVCSCore_ = pVCSCore;
       pReviewPresenter_ = pReviewPresenter;
       pHistoryPresenter_ = pHistoryPresenter;
@@ -65,6 +68,19 @@ public class VCSApplicationWindow extends SatelliteWindow
    }
    
    
+   @Override
+   protected String[] getEventSubscriptions()
+   {
+      return new String[] {
+         ClientEvent.VcsRefresh,
+         ClientEvent.FileChanged,
+         ClientEvent.AskPass,
+         ClientEvent.ConsoleProcessOutput,
+         ClientEvent.ConsoleProcessExit,
+         ClientEvent.UiPrefsChanged
+      };
+   }
+   
    @Override
    protected void onInitialize(LayoutPanel mainPanel, 
                                JavaScriptObject params)
@@ -0,0 +1,107 @@
+/*
+ * WorkbenchClientEventDecoders.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench;
+
+import com.google.gwt.event.shared.GwtEvent;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.rstudio.core.client.js.JsObject;
+import org.rstudio.studio.client.server.Bool;
+import org.rstudio.studio.client.server.remote.ClientEvent;
+import org.rstudio.studio.client.server.remote.ClientEventDecoder;
+import org.rstudio.studio.client.server.remote.ClientEventDecoderRegistry;
+import org.rstudio.studio.client.workbench.events.BrowseUrlEvent;
+import org.rstudio.studio.client.workbench.events.BusyEvent;
+import org.rstudio.studio.client.workbench.events.ListChangedEvent;
+import org.rstudio.studio.client.workbench.events.OAuthApprovalEvent;
+import org.rstudio.studio.client.workbench.events.QuotaStatusEvent;
+import org.rstudio.studio.client.workbench.events.ShowErrorMessageEvent;
+import org.rstudio.studio.client.workbench.events.ShowWarningBarEvent;
+import org.rstudio.studio.client.workbench.model.BrowseUrlInfo;
+import org.rstudio.studio.client.workbench.model.ErrorMessage;
+import org.rstudio.studio.client.workbench.model.OAuthApproval;
+import org.rstudio.studio.client.workbench.model.QuotaStatus;
+import org.rstudio.studio.client.workbench.model.WarningBarMessage;
+import org.rstudio.studio.client.workbench.prefs.events.UiPrefsChangedEvent;
+
+// Registers the decoders for the client events this module receives
+@Singleton
+public class WorkbenchClientEventDecoders
+{
+   @Inject
+   public WorkbenchClientEventDecoders(ClientEventDecoderRegistry registry)
+   {
+      registry.register(ClientEvent.Busy, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            boolean busy = event.<Bool>getData().getValue();
+            return new BusyEvent(busy);
+         }
+      });
+
+      registry.register(ClientEvent.ShowErrorMessage, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            ErrorMessage errorMessage = event.getData();
+            return new ShowErrorMessageEvent(errorMessage);
+         }
+      });
+
+      registry.register(ClientEvent.BrowseUrl, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            BrowseUrlInfo urlInfo = event.getData();
+            return new BrowseUrlEvent(urlInfo);
+         }
+      });
+
+      registry.register(ClientEvent.QuotaStatus, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            QuotaStatus quotaStatus = event.getData();
+            return new QuotaStatusEvent(quotaStatus);
+         }
+      });
+
+      registry.register(ClientEvent.OAuthApproval, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            OAuthApproval oauthApproval = event.getData();
+            return new OAuthApprovalEvent(oauthApproval);
+         }
+      });
+
+      registry.register(ClientEvent.ShowWarningBar, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            WarningBarMessage message = event.getData();
+            return new ShowWarningBarEvent(message);
+         }
+      });
+
+      registry.register(ClientEvent.ListChanged, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            return new ListChangedEvent(event.<JsObject>getData());
+         }
+      });
+
+      registry.register(ClientEvent.UiPrefsChanged, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            UiPrefsChangedEvent.Data data = event.getData();
+            return new UiPrefsChangedEvent(data);
+         }
+      });
+   }
+}
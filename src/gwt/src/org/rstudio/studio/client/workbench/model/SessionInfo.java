@@ -70,6 +70,10 @@ public class SessionInfo extends JavaScriptObject
       return this.mode;
    }-*/;
 
+   public final native boolean getEventStreamSupported() /*-{
+      return !!this.event_stream;
+   }-*/;
+
    public final native boolean getResumed() /*-{
       return this.resumed;
    }-*/;
@@ -82,6 +82,11 @@ public class UIPrefsAccessor extends Prefs
       return bool("syntax_color_console", false);
    }
 
+   public PrefValue<Boolean> virtualizeConsole()
+   {
+      return bool("virtualize_console", true);
+   }
+
    public PrefValue<Double> fontSize()
    {
       return dbl("font_size_points", 10.0);
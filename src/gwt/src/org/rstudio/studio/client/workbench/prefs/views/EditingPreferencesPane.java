@@ -50,6 +50,7 @@ public class EditingPreferencesPane extends PreferencesPane
       add(checkboxPref("Automatically insert matching parens/quotes", prefs_.insertMatching()));
       add(checkboxPref("Soft-wrap R source files", prefs_.softWrapRFiles()));
       add(checkboxPref("Show syntax highlighting in console input", prefs_.syntaxColorConsole()));
+      add(checkboxPref("Render only visible console output (retains more scrollback)", prefs_.virtualizeConsole()));
 
       encodingValue_ = prefs_.defaultEncoding().getGlobalValue();
       add(encoding_ = new TextBoxWithButton(
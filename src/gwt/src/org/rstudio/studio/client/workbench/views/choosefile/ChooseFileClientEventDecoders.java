@@ -0,0 +1,39 @@
+/*
+ * ChooseFileClientEventDecoders.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.choosefile;
+
+import com.google.gwt.event.shared.GwtEvent;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.rstudio.studio.client.server.Bool;
+import org.rstudio.studio.client.server.remote.ClientEvent;
+import org.rstudio.studio.client.server.remote.ClientEventDecoder;
+import org.rstudio.studio.client.server.remote.ClientEventDecoderRegistry;
+import org.rstudio.studio.client.workbench.views.choosefile.events.ChooseFileEvent;
+
+// Registers the decoders for the client events this module receives
+@Singleton
+public class ChooseFileClientEventDecoders
+{
+   @Inject
+   public ChooseFileClientEventDecoders(ClientEventDecoderRegistry registry)
+   {
+      registry.register(ClientEvent.ChooseFile, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            boolean newFile = event.<Bool>getData().getValue();
+            return new ChooseFileEvent(newFile);
+         }
+      });
+   }
+}
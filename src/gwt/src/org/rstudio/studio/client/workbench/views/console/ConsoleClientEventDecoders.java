@@ -0,0 +1,126 @@
+/*
+ * ConsoleClientEventDecoders.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.console;
+
+import com.google.gwt.event.shared.GwtEvent;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.rstudio.studio.client.server.remote.ClientEvent;
+import org.rstudio.studio.client.server.remote.ClientEventCoalescer;
+import org.rstudio.studio.client.server.remote.ClientEventDecoder;
+import org.rstudio.studio.client.server.remote.ClientEventDecoderRegistry;
+import org.rstudio.studio.client.server.remote.ClientEventMergeRule;
+import org.rstudio.studio.client.workbench.views.console.events.ConsolePromptEvent;
+import org.rstudio.studio.client.workbench.views.console.events.ConsoleResetHistoryEvent;
+import org.rstudio.studio.client.workbench.views.console.events.ConsoleWriteErrorEvent;
+import org.rstudio.studio.client.workbench.views.console.events.ConsoleWriteInputEvent;
+import org.rstudio.studio.client.workbench.views.console.events.ConsoleWriteOutputEvent;
+import org.rstudio.studio.client.workbench.views.console.events.ConsoleWritePromptEvent;
+import org.rstudio.studio.client.workbench.views.console.events.WorkingDirChangedEvent;
+import org.rstudio.studio.client.workbench.views.console.model.ConsolePrompt;
+import org.rstudio.studio.client.workbench.views.console.model.ConsoleResetHistory;
+
+// Registers the decoders (and merge rules) for the client events this
+// module receives
+@Singleton
+public class ConsoleClientEventDecoders
+{
+   @Inject
+   public ConsoleClientEventDecoders(ClientEventDecoderRegistry registry,
+                                     ClientEventCoalescer coalescer)
+   {
+      registry.register(ClientEvent.ConsoleOutput, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            String output = event.getData();
+            return new ConsoleWriteOutputEvent(output);
+         }
+      });
+
+      registry.register(ClientEvent.ConsoleError, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            String error = event.getData();
+            return new ConsoleWriteErrorEvent(error);
+         }
+      });
+
+      registry.register(ClientEvent.ConsoleWritePrompt, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            String prompt = event.getData();
+            return new ConsoleWritePromptEvent(prompt);
+         }
+      });
+
+      registry.register(ClientEvent.ConsoleWriteInput, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            String input = event.getData();
+            return new ConsoleWriteInputEvent(input);
+         }
+      });
+
+      registry.register(ClientEvent.ConsolePrompt, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            ConsolePrompt prompt = event.getData();
+            return new ConsolePromptEvent(prompt);
+         }
+      });
+
+      registry.register(ClientEvent.WorkingDirChanged, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            String path = event.getData();
+            return new WorkingDirChangedEvent(path);
+         }
+      });
+
+      registry.register(ClientEvent.ConsoleResetHistory, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            ConsoleResetHistory reset = event.getData();
+            return new ConsoleResetHistoryEvent(reset);
+         }
+      });
+
+      // consecutive output (or errors) are written as a single string
+      ClientEventMergeRule streamRule = new ConsoleStreamMergeRule();
+      coalescer.register(ClientEvent.ConsoleOutput, streamRule);
+      coalescer.register(ClientEvent.ConsoleError, streamRule);
+   }
+
+   // consecutive console output (or error) is written as a single string
+   private static class ConsoleStreamMergeRule implements ClientEventMergeRule
+   {
+      public String getKey(ClientEvent event)
+      {
+         return "";
+      }
+
+      public boolean adjacentOnly()
+      {
+         return true;
+      }
+
+      public ClientEvent merge(ClientEvent earlier, ClientEvent later)
+      {
+         String earlierOutput = earlier.getData();
+         String laterOutput = later.getData();
+         return ClientEvent.create(later.getId(),
+                                   later.getType(),
+                                   earlierOutput + laterOutput);
+      }
+   }
+}
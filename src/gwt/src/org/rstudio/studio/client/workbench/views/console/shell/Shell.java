@@ -91,7 +91,19 @@ public class Shell implements ConsoleInputHandler,
       input_ = view_.getInputEditorDisplay() ;
       historyManager_ = new CommandLineHistory(input_);
 
-      view_.setMaxOutputLines(session.getSessionInfo().getConsoleActionsLimit());
+      // virtualized output only renders the visible lines so it can retain
+      // far more scrollback than the session plays back on reload
+      final int consoleActionsLimit = 
+                        session.getSessionInfo().getConsoleActionsLimit();
+      uiPrefs.virtualizeConsole().bind(new CommandWithArg<Boolean>() {
+         public void execute(Boolean arg) {
+            // apply the limit first so that switching virtualization off
+            // only replays the lines which will be kept into the DOM
+            view_.setMaxOutputLines(arg ? Math.max(consoleActionsLimit,
+                                                   VIRTUALIZED_MAX_LINES)
+                                        : consoleActionsLimit);
+            view_.setVirtualizedOutput(arg);
+         }});
 
       keyDownPreviewHandlers_ = new ArrayList<KeyDownPreviewHandler>() ;
       keyPressPreviewHandlers_ = new ArrayList<KeyPressPreviewHandler>() ;
@@ -482,6 +494,9 @@ public class Shell implements ConsoleInputHandler,
 
    private static final String GROUP_CONSOLE = "console";
    private static final String STATE_INPUT = "input";
+   
+   // scrollback retained when the console output is virtualized
+   private static final int VIRTUALIZED_MAX_LINES = 250000;
 
    private boolean restoreFocus_ = true;
 }
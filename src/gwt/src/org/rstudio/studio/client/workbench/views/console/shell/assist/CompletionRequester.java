@@ -71,6 +71,13 @@ public class CompletionRequester
       }
       
       server_.getCompletions(line, pos, new ServerRequestCallback<Completions>() {
+         // the caller's cancellation (or invalidation) applies to us too
+         @Override
+         public boolean cancelled()
+         {
+            return callback.cancelled();
+         }
+
          @Override
          public void onError(ServerError error)
          {
@@ -120,8 +120,7 @@ public class HistoryCompletionManager implements KeyDownPreviewHandler,
       final Token token = historyRequestInvalidation_.getInvalidationToken();
 
       String value = input_.getText();
-      server_.searchHistoryArchiveByPrefix(
-            value, 20,
+      SimpleRequestCallback<RpcObjectList<HistoryEntry>> callback =
             new SimpleRequestCallback<RpcObjectList<HistoryEntry>>()
             {
                @Override
@@ -168,7 +167,9 @@ public class HistoryCompletionManager implements KeyDownPreviewHandler,
                      }
                   });
                }
-            });
+            };
+      callback.setInvalidationToken(token);
+      server_.searchHistoryArchiveByPrefix(value, 20, callback);
    }
 
    public boolean previewKeyPress(char charCode)
@@ -420,6 +420,7 @@ public class RCompletionManager implements CompletionManager
                                       boolean canAutoAccept)
       {
          invalidationToken_ = token ;
+         setInvalidationToken(token) ;
          selection_ = selection ;
          canAutoAccept_ = canAutoAccept;
       }
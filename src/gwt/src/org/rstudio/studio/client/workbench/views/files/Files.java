@@ -20,6 +20,7 @@ import com.google.gwt.user.client.Command;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 
+import org.rstudio.core.client.Invalidation;
 import org.rstudio.core.client.cellview.ColumnSortInfo;
 import org.rstudio.core.client.command.CommandBinder;
 import org.rstudio.core.client.command.Handler;
@@ -604,6 +605,11 @@ public class Files
          public void requestData(
                ServerRequestCallback<JsArray<FileSystemItem>> requestCallback)
          {
+            // a new listing supersedes any listing which is still queued
+            listFilesInvalidation_.invalidate();
+            requestCallback.setInvalidationToken(
+                        listFilesInvalidation_.getInvalidationToken());
+            
             // pass true to enable monitoring for all calls to list_files
             server_.listFiles(currentPath_, true, requestCallback);
          }
@@ -620,6 +626,7 @@ public class Files
    private final Session session_;
    private FileSystemItem currentPath_ = FileSystemItem.home();
    private boolean hasNavigatedToDirectory_ = false;
+   private final Invalidation listFilesInvalidation_ = new Invalidation();
    private final Provider<FilesCopy> pFilesCopy_;
    private final Provider<FilesUpload> pFilesUpload_;
    private static final String MODULE_FILES = "files-pane";
@@ -0,0 +1,93 @@
+/*
+ * FilesClientEventDecoders.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.files;
+
+import com.google.gwt.event.shared.GwtEvent;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.rstudio.studio.client.server.remote.ClientEvent;
+import org.rstudio.studio.client.server.remote.ClientEventCoalescer;
+import org.rstudio.studio.client.server.remote.ClientEventDecoder;
+import org.rstudio.studio.client.server.remote.ClientEventDecoderRegistry;
+import org.rstudio.studio.client.server.remote.ClientEventMergeRule;
+import org.rstudio.studio.client.workbench.views.files.events.FileChangeEvent;
+import org.rstudio.studio.client.workbench.views.files.model.FileChange;
+
+// Registers the decoders (and merge rules) for the client events this
+// module receives
+@Singleton
+public class FilesClientEventDecoders
+{
+   @Inject
+   public FilesClientEventDecoders(ClientEventDecoderRegistry registry,
+                                   ClientEventCoalescer coalescer)
+   {
+      registry.register(ClientEvent.FileChanged, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            FileChange fileChange = event.getData();
+            return new FileChangeEvent(fileChange);
+         }
+      });
+
+      coalescer.register(ClientEvent.FileChanged, new FileChangeMergeRule());
+   }
+
+   // repeated changes to the same path collapse to the last state
+   private static class FileChangeMergeRule implements ClientEventMergeRule
+   {
+      public String getKey(ClientEvent event)
+      {
+         FileChange fileChange = event.getData();
+         return fileChange.getFile().getPath();
+      }
+
+      public boolean adjacentOnly()
+      {
+         return false;
+      }
+
+      public ClientEvent merge(ClientEvent earlier, ClientEvent later)
+      {
+         FileChange earlierChange = earlier.getData();
+         FileChange laterChange = later.getData();
+         int earlierType = earlierChange.getType();
+         int laterType = laterChange.getType();
+
+         // a modification (or deletion) supersedes prior modifications
+         if (earlierType == FileChange.MODIFIED)
+            return later;
+
+         // a file which was added then modified is an add (of the file in
+         // its latest state)
+         if (earlierType == FileChange.ADD &&
+             laterType == FileChange.MODIFIED)
+         {
+            return ClientEvent.create(
+                           later.getId(),
+                           later.getType(),
+                           FileChange.createAdd(laterChange.getFile()));
+         }
+
+         // a file which was added then deleted only needs the delete
+         if (earlierType == FileChange.ADD &&
+             laterType == FileChange.DELETE)
+         {
+            return later;
+         }
+
+         // otherwise (e.g. delete followed by add) dispatch both
+         return null;
+      }
+   }
+}
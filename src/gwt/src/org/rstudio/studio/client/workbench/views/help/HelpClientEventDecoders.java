@@ -0,0 +1,38 @@
+/*
+ * HelpClientEventDecoders.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.help;
+
+import com.google.gwt.event.shared.GwtEvent;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.rstudio.studio.client.server.remote.ClientEvent;
+import org.rstudio.studio.client.server.remote.ClientEventDecoder;
+import org.rstudio.studio.client.server.remote.ClientEventDecoderRegistry;
+import org.rstudio.studio.client.workbench.views.help.events.ShowHelpEvent;
+
+// Registers the decoders for the client events this module receives
+@Singleton
+public class HelpClientEventDecoders
+{
+   @Inject
+   public HelpClientEventDecoders(ClientEventDecoderRegistry registry)
+   {
+      registry.register(ClientEvent.ShowHelp, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            String helpUrl = event.getData();
+            return new ShowHelpEvent(helpUrl);
+         }
+      });
+   }
+}
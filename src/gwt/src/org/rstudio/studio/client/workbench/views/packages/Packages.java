@@ -17,6 +17,7 @@ import com.google.gwt.event.shared.HandlerRegistration;
 import com.google.gwt.user.client.Command;
 import com.google.inject.Inject;
 
+import org.rstudio.core.client.Invalidation;
 import org.rstudio.core.client.StringUtil;
 import org.rstudio.core.client.command.CommandBinder;
 import org.rstudio.core.client.files.FileSystemItem;
@@ -470,7 +471,10 @@ public class Packages
    public void listPackages()
    {
       view_.setProgress(true);
-      server_.listPackages(
+      
+      // a new listing supersedes any listing which is still queued
+      listPackagesInvalidation_.invalidate();
+      SimpleRequestCallback<JsArray<PackageInfo>> callback =
             new SimpleRequestCallback<JsArray<PackageInfo>>("Error Listing Packages")
       {
          @Override
@@ -497,7 +501,10 @@ public class Packages
             view_.setProgress(false);
             setViewPackageList();
          }
-      });
+      };
+      callback.setInvalidationToken(
+                  listPackagesInvalidation_.getInvalidationToken());
+      server_.listPackages(callback);
    }
 
    
@@ -656,6 +663,7 @@ public class Packages
    private ArrayList<PackageInfo> allPackages_ = new ArrayList<PackageInfo>();
    private String packageFilter_ = new String();
    private HandlerRegistration consolePromptHandlerReg_ = null;
+   private final Invalidation listPackagesInvalidation_ = new Invalidation();
    private final EventBus events_ ;
    private final GlobalDisplay globalDisplay_ ;
    private final DefaultCRANMirror defaultCRANMirror_;
@@ -17,6 +17,8 @@ import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 import com.google.gwt.event.dom.client.ChangeEvent;
 import com.google.gwt.event.dom.client.ChangeHandler;
+import com.google.gwt.event.dom.client.FocusEvent;
+import com.google.gwt.event.dom.client.FocusHandler;
 import com.google.gwt.event.logical.shared.*;
 import com.google.gwt.event.shared.HandlerRegistration;
 import com.google.gwt.resources.client.ImageResource;
@@ -27,6 +29,7 @@ import com.google.inject.Inject;
 import com.google.inject.Provider;
 import org.rstudio.core.client.*;
 import org.rstudio.core.client.command.AppCommand;
+import org.rstudio.core.client.dom.WindowEx;
 import org.rstudio.core.client.command.Handler;
 import org.rstudio.core.client.command.KeyboardShortcut;
 import org.rstudio.core.client.events.*;
@@ -62,6 +65,7 @@ import org.rstudio.studio.client.workbench.views.data.events.ViewDataHandler;
 import org.rstudio.studio.client.workbench.views.source.editors.EditingTarget;
 import org.rstudio.studio.client.workbench.views.source.editors.EditingTargetSource;
 import org.rstudio.studio.client.workbench.views.source.editors.codebrowser.CodeBrowserEditingTarget;
+import org.rstudio.studio.client.workbench.views.source.editors.largefile.LargeFileEditingTarget;
 import org.rstudio.studio.client.workbench.views.source.editors.data.DataEditingTarget;
 import org.rstudio.studio.client.workbench.views.source.editors.text.TextEditingTarget;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.FileTypeChangedEvent;
@@ -69,6 +73,7 @@ import org.rstudio.studio.client.workbench.views.source.editors.text.events.File
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.SourceOnSaveChangedEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.SourceOnSaveChangedHandler;
 import org.rstudio.studio.client.workbench.views.source.events.*;
+import org.rstudio.studio.client.workbench.views.source.model.CheckForExternalEditResult;
 import org.rstudio.studio.client.workbench.views.source.model.ContentItem;
 import org.rstudio.studio.client.workbench.views.source.model.DataItem;
 import org.rstudio.studio.client.workbench.views.source.model.SourceDocument;
@@ -280,6 +285,18 @@ public class Source implements InsertSourceHandler,
          }
       });
       
+      // documents whose files aren't in a directory the server monitors
+      // won't get pushed notifications of external edits, so check all of 
+      // them when the window is focused (e.g. on return from an external
+      // editor)
+      WindowEx.addFocusHandler(new FocusHandler()
+      {
+         public void onFocus(FocusEvent event)
+         {
+            checkForExternalEdits();
+         }
+      });
+      
       sourceNavigationHistory_.addChangeHandler(new ChangeHandler()
       {
 
@@ -307,6 +324,8 @@ public class Source implements InsertSourceHandler,
             {
                editors_.get(view_.getActiveTabIndex()).onInitiallyLoaded();
             }
+            
+            checkForExternalEdits();
 
             // clear the history manager
             sourceNavigationHistory_.clear();
@@ -566,21 +585,76 @@ public class Source implements InsertSourceHandler,
    @Handler
    public void onSaveAllSourceDocs()
    {
-      cpsExecuteForEachEditor(editors_, new CPSEditingTargetCommand()
+      ArrayList<EditingTarget> dirtyTargets = new ArrayList<EditingTarget>();
+      for (EditingTarget target : editors_)
+         if (target.dirtyState().getValue())
+            dirtyTargets.add(target);
+      
+      saveEditingTargets(dirtyTargets, null);
+   }
+   
+   /**
+    * Save the given editors. Those which can be saved without prompting are
+    * all saved at once (so that their saves reach the server in a single
+    * request) and then the others are saved one at a time (each prompts for
+    * a path or an encoding, and prompts mustn't stack up).
+    */
+   private void saveEditingTargets(ArrayList<EditingTarget> targets,
+                                   final Command onCompleted)
+   {
+      final ArrayList<EditingTarget> promptTargets = 
+                                          new ArrayList<EditingTarget>();
+      ArrayList<EditingTarget> batchTargets = 
+                                          new ArrayList<EditingTarget>();
+      for (EditingTarget target : targets)
+      {
+         if (target.isSavePromptRequired())
+            promptTargets.add(target);
+         else
+            batchTargets.add(target);
+      }
+      
+      final Command savePromptTargets = new Command()
       {
          @Override
-         public void execute(EditingTarget target, Command continuation)
+         public void execute()
          {
-            if (target.dirtyState().getValue())
-            {
-               target.save(continuation);
-            }
-            else
+            cpsExecuteForEachEditor(
+               promptTargets, 
+               new CPSEditingTargetCommand()
+               {
+                  @Override
+                  public void execute(EditingTarget saveTarget, 
+                                      Command continuation)
+                  {
+                     saveTarget.save(continuation);
+                  }
+               },
+               onCompleted);
+         }
+      };
+      
+      if (batchTargets.isEmpty())
+      {
+         savePromptTargets.execute();
+         return;
+      }
+      
+      // as with cpsExecuteForEachEditor we only continue once all of the 
+      // saves have completed successfully
+      final int[] remaining = new int[] { batchTargets.size() };
+      for (EditingTarget target : batchTargets)
+      {
+         target.save(new Command()
+         {
+            @Override
+            public void execute()
             {
-               continuation.execute();
+               if (--remaining[0] == 0)
+                  savePromptTargets.execute();
             }
-         }
-      });
+         });
+      }
    }
    
    
@@ -641,27 +715,69 @@ public class Source implements InsertSourceHandler,
       }
         
       // execute the save
-      cpsExecuteForEachEditor(
-         
-         // targets the user chose to save
-         saveTargets, 
-         
-         // save each editor
-         new CPSEditingTargetCommand()
+      saveEditingTargets(saveTargets, onCompleted);
+   }
+          
+   
+   /**
+    * Check all of the open documents whose files the server doesn't monitor
+    * for changes made to their files on disk (in a single request). Changes
+    * are delivered to the editors as SourceDocChangedOnDiskEvents, just as
+    * those pushed by the server are.
+    */
+   private void checkForExternalEdits()
+   {
+      if (!externalEditCheckInterval_.hasElapsed())
+         return;
+      externalEditCheckInterval_.reset();
+      
+      ArrayList<String> ids = new ArrayList<String>();
+      for (EditingTarget target : editors_)
+      {
+         if (target instanceof TextEditingTarget && target.getPath() != null)
+            ids.add(target.getId());
+      }
+      checkForExternalEdits(ids);
+   }
+   
+   // check the document being activated (if its file isn't monitored) so
+   // that changes made while the window had focus are still picked up
+   private void checkForExternalEdit(EditingTarget target)
+   {
+      if (!(target instanceof TextEditingTarget) || target.getPath() == null)
+         return;
+      
+      ArrayList<String> ids = new ArrayList<String>();
+      ids.add(target.getId());
+      checkForExternalEdits(ids);
+   }
+   
+   private void checkForExternalEdits(ArrayList<String> ids)
+   {
+      if (ids.isEmpty())
+         return;
+      
+      server_.checkForExternalEdits(
+         ids,
+         true,
+         new ServerRequestCallback<JsArray<CheckForExternalEditResult>>()
          {
             @Override
-            public void execute(EditingTarget saveTarget, 
-                                Command continuation)
-            {         
-               saveTarget.save(continuation); 
+            public void onResponseReceived(
+                              JsArray<CheckForExternalEditResult> results)
+            {
+               for (int i = 0; i < results.length(); i++)
+                  events_.fireEvent(
+                        new SourceDocChangedOnDiskEvent(results.get(i)));
             }
-         },
-         
-         // onCompleted at the end
-         onCompleted
-      );          
+            
+            @Override
+            public void onError(ServerError error)
+            {
+               Debug.logError(error);
+            }
+         });
    }
-          
    
    private EditingTarget getEditingTargetForId(String id)
    {
@@ -915,7 +1031,7 @@ public class Source implements InsertSourceHandler,
    // top-level wrapper for opening files. takes care of:
    //  - making sure the view is visible
    //  - checking whether it is already open and re-selecting its tab
-   //  - prohibit opening very large files (>500KB)
+   //  - opening very large files (>500KB) in the large file viewer
    //  - confirmation of opening large files (>100KB)
    //  - finally, actually opening the file from the server
    //    via the call to the lower level openFile method
@@ -950,9 +1066,7 @@ public class Source implements InsertSourceHandler,
 
       if (file.getLength() > target.getFileSizeLimit())
       {
-         if (resultCallback != null)
-            resultCallback.onCancelled();
-         showFileTooLargeWarning(file, target.getFileSizeLimit());
+         openLargeFile(file, resultCallback);
       }
       else if (file.getLength() > target.getLargeFileSize())
       {
@@ -976,19 +1090,40 @@ public class Source implements InsertSourceHandler,
       }
    }
   
-   private void showFileTooLargeWarning(FileSystemItem file,
-                                        long sizeLimit)
+   // files too large for the editor are opened (read-only) in a viewer
+   // which reads them from the server a range of lines at a time
+   private void openLargeFile(
+         final FileSystemItem file,
+         final ResultCallback<EditingTarget, ServerError> resultCallback)
    {
-      StringBuilder msg = new StringBuilder();
-      msg.append("The file '" + file.getName() + "' is too ");
-      msg.append("large to open in the source editor (the file is ");
-      msg.append(StringUtil.formatFileSize(file.getLength()) + " and the ");
-      msg.append("maximum file size is ");
-      msg.append(StringUtil.formatFileSize(sizeLimit) + ")");
-
-      globalDisplay_.showMessage(GlobalDisplay.MSG_WARNING,
-                                 "Selected File Too Large",
-                                 msg.toString());
+      JsObject properties = JsObject.createJsObject();
+      properties.setString(LargeFileEditingTarget.PATH_PROPERTY,
+                           file.getPath());
+      properties.setString(LargeFileEditingTarget.ENCODING_PROPERTY,
+                           uiPrefs_.defaultEncoding().getValue());
+
+      server_.newDocument(
+            FileTypeRegistry.LARGEFILE.getTypeId(),
+            properties,
+            new ServerRequestCallback<SourceDocument>()
+            {
+               @Override
+               public void onError(ServerError error)
+               {
+                  Debug.logError(error);
+                  if (resultCallback != null)
+                     resultCallback.onFailure(error);
+               }
+
+               @Override
+               public void onResponseReceived(SourceDocument document)
+               {
+                  pMruList_.get().add(file.getPath());
+                  EditingTarget target = addTab(document);
+                  if (resultCallback != null)
+                     resultCallback.onSuccess(target);
+               }
+            });
    }
 
    private void confirmOpenLargeFile(FileSystemItem file,
@@ -1212,6 +1347,7 @@ public class Source implements InsertSourceHandler,
          activeEditor_.onActivate();
          if (initialized_)
          {
+            checkForExternalEdit(activeEditor_);
             Scheduler.get().scheduleDeferred(new ScheduledCommand()
             {
                public void execute()
@@ -1581,6 +1717,10 @@ public class Source implements InsertSourceHandler,
                                               new SourceNavigationHistory(30);
 
    private boolean suspendSourceNavigationAdding_;
+   
+   // Prevents external edit checks from happening too soon after each other
+   private final IntervalTracker externalEditCheckInterval_ =
+         new IntervalTracker(1000, true);
   
    private static final String MODULE_SOURCE = "source-pane";
    private static final String KEY_ACTIVETAB = "activeTab";
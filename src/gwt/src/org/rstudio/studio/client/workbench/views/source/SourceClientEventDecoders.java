@@ -0,0 +1,78 @@
+/*
+ * SourceClientEventDecoders.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source;
+
+import com.google.gwt.event.shared.GwtEvent;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.rstudio.core.client.files.FileSystemItem;
+import org.rstudio.studio.client.server.remote.ClientEvent;
+import org.rstudio.studio.client.server.remote.ClientEventDecoder;
+import org.rstudio.studio.client.server.remote.ClientEventDecoderRegistry;
+import org.rstudio.studio.client.workbench.views.source.editors.text.events.PublishPdfEvent;
+import org.rstudio.studio.client.workbench.views.source.events.FileEditEvent;
+import org.rstudio.studio.client.workbench.views.source.events.ShowContentEvent;
+import org.rstudio.studio.client.workbench.views.source.events.ShowDataEvent;
+import org.rstudio.studio.client.workbench.views.source.events.SourceDocChangedOnDiskEvent;
+import org.rstudio.studio.client.workbench.views.source.model.CheckForExternalEditResult;
+import org.rstudio.studio.client.workbench.views.source.model.ContentItem;
+import org.rstudio.studio.client.workbench.views.source.model.DataItem;
+
+// Registers the decoders for the client events this module receives
+@Singleton
+public class SourceClientEventDecoders
+{
+   @Inject
+   public SourceClientEventDecoders(ClientEventDecoderRegistry registry)
+   {
+      registry.register(ClientEvent.FileEdit, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            FileSystemItem file = event.getData();
+            return new FileEditEvent(file);
+         }
+      });
+
+      registry.register(ClientEvent.SourceDocChangedOnDisk, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            CheckForExternalEditResult result = event.getData();
+            return new SourceDocChangedOnDiskEvent(result);
+         }
+      });
+
+      registry.register(ClientEvent.ShowContent, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            ContentItem content = event.getData();
+            return new ShowContentEvent(content);
+         }
+      });
+
+      registry.register(ClientEvent.ShowData, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            DataItem data = event.getData();
+            return new ShowDataEvent(data);
+         }
+      });
+
+      registry.register(ClientEvent.PublishPdf, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            String path = event.getData();
+            return new PublishPdfEvent(path);
+         }
+      });
+   }
+}
@@ -75,6 +75,11 @@ public interface EditingTarget extends IsWidget,
     */
    void save(Command onCompleted);
    
+   /**
+    * @return True if save would prompt (e.g. for a path or an encoding)
+    */
+   boolean isSavePromptRequired();
+   
    /**
     * Save the document, always prompting if the file is dirty
     */
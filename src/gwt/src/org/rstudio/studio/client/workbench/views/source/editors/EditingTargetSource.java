@@ -19,6 +19,7 @@ import org.rstudio.studio.client.common.filetypes.*;
 import org.rstudio.studio.client.workbench.model.RemoteFileSystemContext;
 import org.rstudio.studio.client.workbench.views.source.editors.codebrowser.CodeBrowserEditingTarget;
 import org.rstudio.studio.client.workbench.views.source.editors.data.DataEditingTarget;
+import org.rstudio.studio.client.workbench.views.source.editors.largefile.LargeFileEditingTarget;
 import org.rstudio.studio.client.workbench.views.source.editors.text.TextEditingTarget;
 import org.rstudio.studio.client.workbench.views.source.editors.urlcontent.UrlContentEditingTarget;
 import org.rstudio.studio.client.workbench.views.source.model.SourceDocument;
@@ -37,13 +38,15 @@ public interface EditingTargetSource
                   Provider<TextEditingTarget> pTextEditingTarget,
                   Provider<DataEditingTarget> pDataEditingTarget,
                   Provider<UrlContentEditingTarget> pUrlContentEditingTarget,
-                  Provider<CodeBrowserEditingTarget> pCodeBrowserEditingTarget)
+                  Provider<CodeBrowserEditingTarget> pCodeBrowserEditingTarget,
+                  Provider<LargeFileEditingTarget> pLargeFileEditingTarget)
       {
          registry_ = registry;
          pTextEditingTarget_ = pTextEditingTarget;
          pDataEditingTarget_ = pDataEditingTarget;
          pUrlContentEditingTarget_ = pUrlContentEditingTarget;
          pCodeBrowserEditingTarget_ = pCodeBrowserEditingTarget;
+         pLargeFileEditingTarget_ = pLargeFileEditingTarget;
       }
 
       public EditingTarget getEditingTarget(FileType type)
@@ -56,6 +59,8 @@ public interface EditingTargetSource
             return pUrlContentEditingTarget_.get();
          else if (type instanceof CodeBrowserType)
             return pCodeBrowserEditingTarget_.get();
+         else if (type instanceof LargeFileType)
+            return pLargeFileEditingTarget_.get();
          else
             return null;
       }
@@ -84,5 +89,6 @@ public interface EditingTargetSource
       private final Provider<DataEditingTarget> pDataEditingTarget_;
       private final Provider<UrlContentEditingTarget> pUrlContentEditingTarget_;
       private final Provider<CodeBrowserEditingTarget> pCodeBrowserEditingTarget_;
+      private final Provider<LargeFileEditingTarget> pLargeFileEditingTarget_;
    }
 }
@@ -398,6 +398,12 @@ public class CodeBrowserEditingTarget implements EditingTarget
       onCompleted.execute();
    }
    
+   @Override
+   public boolean isSavePromptRequired()
+   {
+      return false;
+   }
+   
    @Override
    public void saveWithPrompt(Command onCompleted, Command onCancelled)
    {
@@ -0,0 +1,344 @@
+/*
+ * LargeFileEditingTarget.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.editors.largefile;
+
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.event.logical.shared.CloseHandler;
+import com.google.gwt.event.shared.GwtEvent;
+import com.google.gwt.event.shared.HandlerRegistration;
+import com.google.gwt.resources.client.ImageResource;
+import com.google.gwt.user.client.Command;
+import com.google.gwt.user.client.ui.HasValue;
+import com.google.gwt.user.client.ui.IsWidget;
+import com.google.gwt.user.client.ui.Widget;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+import org.rstudio.core.client.Debug;
+import org.rstudio.core.client.StringUtil;
+import org.rstudio.core.client.command.AppCommand;
+import org.rstudio.core.client.command.CommandBinder;
+import org.rstudio.core.client.command.Handler;
+import org.rstudio.core.client.events.EnsureVisibleHandler;
+import org.rstudio.core.client.files.FileSystemContext;
+import org.rstudio.core.client.files.FileSystemItem;
+import org.rstudio.core.client.widget.ProgressIndicator;
+import org.rstudio.core.client.widget.ProgressOperationWithInput;
+import org.rstudio.studio.client.application.events.EventBus;
+import org.rstudio.studio.client.common.GlobalDisplay;
+import org.rstudio.studio.client.common.ReadOnlyValue;
+import org.rstudio.studio.client.common.Value;
+import org.rstudio.studio.client.common.filetypes.FileType;
+import org.rstudio.studio.client.common.filetypes.FileTypeRegistry;
+import org.rstudio.studio.client.workbench.commands.Commands;
+import org.rstudio.studio.client.workbench.views.source.editors.EditingTarget;
+import org.rstudio.studio.client.workbench.views.source.events.SourceNavigationEvent;
+import org.rstudio.studio.client.workbench.views.source.model.SourceDocument;
+import org.rstudio.studio.client.workbench.views.source.model.SourceNavigation;
+import org.rstudio.studio.client.workbench.views.source.model.SourcePosition;
+import org.rstudio.studio.client.workbench.views.source.model.SourceServerOperations;
+
+import java.util.HashSet;
+
+/**
+ * Read-only editing target for files which are too large to open in the
+ * editor. The document doesn't hold the file's contents, just its path
+ * (in the "path" property); lines are read from the file as they're
+ * viewed.
+ */
+public class LargeFileEditingTarget implements EditingTarget
+{
+   public interface Display extends IsWidget
+   {
+      void onActivate();
+      void focus();
+      void showFind();
+      void navigateToLine(int line);
+      int getCurrentLine();
+      int getTotalLines();
+      void onDismiss();
+   }
+
+   interface MyBinder extends CommandBinder<Commands, LargeFileEditingTarget>
+   {}
+
+   public static final String PATH_PROPERTY = "path";
+   public static final String ENCODING_PROPERTY = "encoding";
+
+   @Inject
+   public LargeFileEditingTarget(SourceServerOperations server,
+                                 Commands commands,
+                                 GlobalDisplay globalDisplay,
+                                 FileTypeRegistry fileTypeRegistry,
+                                 EventBus events)
+   {
+      server_ = server;
+      commands_ = commands;
+      globalDisplay_ = globalDisplay;
+      fileTypeRegistry_ = fileTypeRegistry;
+      events_ = events;
+   }
+
+   public String getId()
+   {
+      return doc_.getId();
+   }
+
+   public HasValue<String> getName()
+   {
+      return new Value<String>(getFile().getName());
+   }
+
+   public String getTitle()
+   {
+      return getFile().getName();
+   }
+
+   public String getPath()
+   {
+      return getFile().getPath();
+   }
+
+   public String getContext()
+   {
+      return null;
+   }
+
+   public ImageResource getIcon()
+   {
+      return fileTypeRegistry_.getIconForFile(getFile());
+   }
+
+   public String getTabTooltip()
+   {
+      return getFile().getPath() + " (read-only)";
+   }
+
+   public HashSet<AppCommand> getSupportedCommands()
+   {
+      HashSet<AppCommand> commands = new HashSet<AppCommand>();
+      commands.add(commands_.find());
+      commands.add(commands_.findReplace());
+      commands.add(commands_.goToLine());
+      return commands;
+   }
+
+   @Handler
+   void onFind()
+   {
+      view_.showFind();
+   }
+
+   @Handler
+   void onFindReplace()
+   {
+      view_.showFind();
+   }
+
+   @Handler
+   void onGoToLine()
+   {
+      globalDisplay_.promptForInteger(
+            "Jump to Line",
+            "Enter line number:",
+            null,
+            new ProgressOperationWithInput<Integer>()
+            {
+               @Override
+               public void execute(Integer line, ProgressIndicator indicator)
+               {
+                  view_.navigateToLine(Math.max(1, line) - 1);
+               }
+            },
+            null);
+   }
+
+   public void focus()
+   {
+      view_.focus();
+   }
+
+   public void onActivate()
+   {
+      if (commandReg_ != null)
+      {
+         Debug.log("Warning: onActivate called twice without intervening onDeactivate");
+         commandReg_.removeHandler();
+         commandReg_ = null;
+      }
+      commandReg_ = binder_.bind(commands_, this);
+
+      view_.onActivate();
+   }
+
+   public void onDeactivate()
+   {
+      commandReg_.removeHandler();
+      commandReg_ = null;
+
+      recordCurrentNavigationPosition();
+   }
+
+   @Override
+   public void onInitiallyLoaded()
+   {
+   }
+
+   @Override
+   public void recordCurrentNavigationPosition()
+   {
+      events_.fireEvent(new SourceNavigationEvent(
+            SourceNavigation.create(
+            getId(),
+            getPath(),
+            SourcePosition.create(view_.getCurrentLine(), 0))));
+   }
+
+   @Override
+   public void navigateToPosition(SourcePosition position,
+                                  boolean recordCurrent)
+   {
+      if (recordCurrent)
+         recordCurrentNavigationPosition();
+
+      view_.navigateToLine(position.getRow());
+   }
+
+   @Override
+   public void restorePosition(SourcePosition position)
+   {
+      view_.navigateToLine(position.getRow());
+   }
+
+   @Override
+   public boolean isAtSourceRow(SourcePosition position)
+   {
+      return view_.getCurrentLine() == position.getRow();
+   }
+
+   public boolean onBeforeDismiss()
+   {
+      return true;
+   }
+
+   public void onDismiss()
+   {
+      view_.onDismiss();
+   }
+
+   public ReadOnlyValue<Boolean> dirtyState()
+   {
+      return dirtyState_;
+   }
+
+   @Override
+   public boolean isSaveCommandActive()
+   {
+      return false;
+   }
+
+   public void save(Command onCompleted)
+   {
+      onCompleted.execute();
+   }
+   
+   public boolean isSavePromptRequired()
+   {
+      return false;
+   }
+
+   public void saveWithPrompt(Command onCompleted, Command onCancelled)
+   {
+      onCompleted.execute();
+   }
+
+   public void revertChanges(Command onCompleted)
+   {
+      onCompleted.execute();
+   }
+
+   public void initialize(SourceDocument document,
+                          FileSystemContext fileContext,
+                          FileType type,
+                          Provider<String> defaultNameProvider)
+   {
+      doc_ = document;
+      view_ = new LargeFileViewer(commands_,
+                                  globalDisplay_,
+                                  server_,
+                                  getPath(),
+                                  getEncoding());
+   }
+
+   public long getFileSizeLimit()
+   {
+      return Long.MAX_VALUE;
+   }
+
+   public long getLargeFileSize()
+   {
+      return Long.MAX_VALUE;
+   }
+
+   public Widget asWidget()
+   {
+      return view_.asWidget();
+   }
+
+   public HandlerRegistration addEnsureVisibleHandler(EnsureVisibleHandler handler)
+   {
+      return new HandlerRegistration()
+      {
+         public void removeHandler()
+         {
+         }
+      };
+   }
+
+   public HandlerRegistration addCloseHandler(
+         CloseHandler<java.lang.Void> voidCloseHandler)
+   {
+      return addEnsureVisibleHandler(null);
+   }
+
+   public void fireEvent(GwtEvent<?> event)
+   {
+      assert false : "Not implemented";
+   }
+
+   private FileSystemItem getFile()
+   {
+      return FileSystemItem.createFile(
+                        doc_.getProperties().getString(PATH_PROPERTY));
+   }
+
+   // the encoding to read the file with (empty for the system encoding)
+   private String getEncoding()
+   {
+      return StringUtil.notNull(
+                  doc_.getProperties().getString(ENCODING_PROPERTY));
+   }
+
+   private SourceDocument doc_;
+   private Display view_;
+   private Value<Boolean> dirtyState_ = new Value<Boolean>(false);
+   private HandlerRegistration commandReg_;
+
+   private final SourceServerOperations server_;
+   private final Commands commands_;
+   private final GlobalDisplay globalDisplay_;
+   private final FileTypeRegistry fileTypeRegistry_;
+   private final EventBus events_;
+
+   private static final MyBinder binder_ = GWT.create(MyBinder.class);
+}
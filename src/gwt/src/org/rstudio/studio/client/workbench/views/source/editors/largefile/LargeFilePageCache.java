@@ -0,0 +1,175 @@
+/*
+ * LargeFilePageCache.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.editors.largefile;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.gwt.core.client.JsArrayString;
+
+import org.rstudio.studio.client.server.ServerError;
+import org.rstudio.studio.client.server.ServerRequestCallback;
+import org.rstudio.studio.client.workbench.views.source.model.FileLines;
+import org.rstudio.studio.client.workbench.views.source.model.SourceServerOperations;
+
+/**
+ * Reads a file a page (fixed-size range of lines) at a time, keeping the
+ * most recently used pages in memory. While the server is still indexing
+ * the file the number of lines grows and pages past the end of the index
+ * come back incomplete (they aren't kept, and are requested again). If the
+ * number of lines changes once the index is complete (i.e. the file was
+ * modified) the pages read before the change are discarded.
+ */
+public class LargeFilePageCache
+{
+   public interface Observer
+   {
+      void onPageLoaded(int page, boolean totalLinesChanged);
+      void onPageError(int page, ServerError error);
+   }
+
+   public LargeFilePageCache(SourceServerOperations server,
+                             String path,
+                             String encoding,
+                             Observer observer)
+   {
+      server_ = server;
+      path_ = path;
+      encoding_ = encoding;
+      observer_ = observer;
+   }
+
+   /**
+    * @return The lines of the page, or null if it hasn't been read (see
+    * requestPage).
+    */
+   public JsArrayString getPage(int page)
+   {
+      return pages_.get(page);
+   }
+
+   public void requestPage(final int page)
+   {
+      if (pages_.containsKey(page) || pending_.contains(page))
+         return;
+      if (complete_ && page * PAGE_SIZE >= totalLines_)
+         return;
+
+      pending_.add(page);
+      final int generation = generation_;
+      server_.getFileLines(
+            path_,
+            encoding_,
+            page * PAGE_SIZE,
+            PAGE_SIZE,
+            new ServerRequestCallback<FileLines>()
+            {
+               @Override
+               public void onResponseReceived(FileLines response)
+               {
+                  if (generation != generation_)
+                     return;
+                  pending_.remove(page);
+
+                  boolean totalLinesChanged =
+                                 response.getTotalLines() != totalLines_;
+                  if (totalLinesChanged && complete_)
+                     pages_.clear();
+                  totalLines_ = response.getTotalLines();
+                  complete_ = response.isComplete();
+
+                  // a page which runs past the end of the index so far
+                  // will be requested again
+                  if (complete_ || response.getLines().length() == PAGE_SIZE)
+                     pages_.put(page, response.getLines());
+
+                  observer_.onPageLoaded(page, totalLinesChanged);
+               }
+
+               @Override
+               public void onError(ServerError error)
+               {
+                  if (generation != generation_)
+                     return;
+                  pending_.remove(page);
+
+                  observer_.onPageError(page, error);
+               }
+            });
+   }
+
+   /**
+    * Discards all pages (and ignores responses to outstanding requests).
+    */
+   public void clear()
+   {
+      generation_++;
+      pages_.clear();
+      pending_.clear();
+      totalLines_ = -1;
+      complete_ = false;
+   }
+
+   /**
+    * @return The number of lines in the file, or -1 if no pages have been
+    * read yet.
+    */
+   public int getTotalLines()
+   {
+      return totalLines_;
+   }
+
+   /**
+    * @return False if the server is still indexing the file (in which case
+    * getTotalLines is the number of lines indexed so far).
+    */
+   public boolean isComplete()
+   {
+      return complete_;
+   }
+
+   public static int pageForLine(int line)
+   {
+      return line / PAGE_SIZE;
+   }
+
+   public static int offsetInPage(int line)
+   {
+      return line % PAGE_SIZE;
+   }
+
+   private final SourceServerOperations server_;
+   private final String path_;
+   private final String encoding_;
+   private final Observer observer_;
+
+   // access-ordered, so the eldest entry is the least recently used page
+   private final LinkedHashMap<Integer, JsArrayString> pages_ =
+         new LinkedHashMap<Integer, JsArrayString>(MAX_PAGES, 0.75f, true)
+         {
+            @Override
+            protected boolean removeEldestEntry(
+                              Map.Entry<Integer, JsArrayString> eldest)
+            {
+               return size() > MAX_PAGES;
+            }
+         };
+   private final HashSet<Integer> pending_ = new HashSet<Integer>();
+   private int totalLines_ = -1;
+   private boolean complete_ = false;
+   private int generation_ = 0;
+
+   public static final int PAGE_SIZE = 1000;
+   private static final int MAX_PAGES = 20;
+}
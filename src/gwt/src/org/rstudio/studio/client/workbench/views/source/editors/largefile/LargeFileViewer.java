@@ -0,0 +1,680 @@
+/*
+ * LargeFileViewer.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.editors.largefile;
+
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.JsArrayString;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+import com.google.gwt.dom.client.DivElement;
+import com.google.gwt.dom.client.Document;
+import com.google.gwt.dom.client.NativeEvent;
+import com.google.gwt.dom.client.Style.Unit;
+import com.google.gwt.event.dom.client.ClickEvent;
+import com.google.gwt.event.dom.client.ClickHandler;
+import com.google.gwt.event.dom.client.KeyCodes;
+import com.google.gwt.event.dom.client.KeyDownEvent;
+import com.google.gwt.event.dom.client.KeyDownHandler;
+import com.google.gwt.event.dom.client.MouseWheelEvent;
+import com.google.gwt.event.dom.client.MouseWheelHandler;
+import com.google.gwt.event.dom.client.ScrollEvent;
+import com.google.gwt.event.dom.client.ScrollHandler;
+import com.google.gwt.resources.client.ClientBundle;
+import com.google.gwt.resources.client.CssResource;
+import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
+import com.google.gwt.user.client.Timer;
+import com.google.gwt.user.client.ui.FlowPanel;
+import com.google.gwt.user.client.ui.Label;
+import com.google.gwt.user.client.ui.ResizeComposite;
+import com.google.gwt.user.client.ui.ScrollPanel;
+
+import org.rstudio.core.client.StringUtil;
+import org.rstudio.core.client.widget.FindTextBox;
+import org.rstudio.core.client.widget.SmallButton;
+import org.rstudio.core.client.widget.Toolbar;
+import org.rstudio.studio.client.common.GlobalDisplay;
+import org.rstudio.studio.client.server.ServerError;
+import org.rstudio.studio.client.server.ServerRequestCallback;
+import org.rstudio.studio.client.workbench.commands.Commands;
+import org.rstudio.studio.client.workbench.views.source.PanelWithToolbars;
+import org.rstudio.studio.client.workbench.views.source.editors.EditingTargetToolbar;
+import org.rstudio.studio.client.workbench.views.source.model.FileLinesSearchResult;
+import org.rstudio.studio.client.workbench.views.source.model.SourceServerOperations;
+
+/**
+ * Read-only view of a file which is too large to open in the editor. Only
+ * the lines in view are rendered, and they are read from the server a page
+ * at a time as the view is scrolled. The height of the scrollable area is
+ * capped (browsers don't support arbitrarily tall elements) so the scroll
+ * position is mapped to a line proportionally rather than by line height.
+ * When it is capped the mouse wheel and navigation keys scroll by lines
+ * (rather than by pixels, which could skip thousands of lines).
+ */
+public class LargeFileViewer extends ResizeComposite
+                             implements LargeFileEditingTarget.Display,
+                                        LargeFilePageCache.Observer
+{
+   interface Resources extends ClientBundle
+   {
+      @Source("LargeFileViewer.css")
+      Styles styles();
+   }
+   private static Resources resources = GWT.create(Resources.class);
+
+   public interface Styles extends CssResource
+   {
+      String viewport();
+      String content();
+      String lines();
+      String line();
+      String lineNumber();
+      String selectedLine();
+      String match();
+      String loading();
+      String status();
+   }
+
+   static
+   {
+      resources.styles().ensureInjected();
+   }
+
+   public LargeFileViewer(Commands commands,
+                          GlobalDisplay globalDisplay,
+                          SourceServerOperations server,
+                          String path,
+                          String encoding)
+   {
+      commands_ = commands;
+      globalDisplay_ = globalDisplay;
+      server_ = server;
+      path_ = path;
+      encoding_ = encoding;
+      styles_ = resources.styles();
+      cache_ = new LargeFilePageCache(server, path, encoding, this);
+
+      FlowPanel content = new FlowPanel();
+      content.setStylePrimaryName(styles_.content());
+      spacer_ = Document.get().createDivElement();
+      content.getElement().appendChild(spacer_);
+      lines_ = Document.get().createDivElement();
+      lines_.setClassName(styles_.lines());
+      content.getElement().appendChild(lines_);
+
+      scrollPanel_ = new ScrollPanel(content);
+      scrollPanel_.setStylePrimaryName(styles_.viewport());
+      scrollPanel_.getElement().setTabIndex(0);
+      scrollPanel_.addScrollHandler(new ScrollHandler()
+      {
+         public void onScroll(ScrollEvent event)
+         {
+            render();
+         }
+      });
+      scrollPanel_.addDomHandler(new MouseWheelHandler()
+      {
+         public void onMouseWheel(MouseWheelEvent event)
+         {
+            if (!isScrollHeightCapped())
+               return;
+
+            event.preventDefault();
+
+            // keep fractions of a line (e.g. from trackpads) for next time
+            wheelLines_ += getWheelLines(event.getNativeEvent());
+            int lines = (int)wheelLines_;
+            wheelLines_ -= lines;
+            scrollByLines(lines);
+         }
+      }, MouseWheelEvent.getType());
+      scrollPanel_.addDomHandler(new KeyDownHandler()
+      {
+         public void onKeyDown(KeyDownEvent event)
+         {
+            if (isScrollHeightCapped() && onNavigationKey(event))
+               event.preventDefault();
+         }
+      }, KeyDownEvent.getType());
+
+      initWidget(new PanelWithToolbars(createToolbar(), scrollPanel_));
+
+      cache_.requestPage(0);
+   }
+
+   private Toolbar createToolbar()
+   {
+      Toolbar toolbar = new EditingTargetToolbar(commands_);
+
+      findBox_ = new FindTextBox("Find");
+      findBox_.setOverrideWidth(120);
+      toolbar.addLeftWidget(findBox_);
+      final SmallButton findButton = new SmallButton("Find");
+      findButton.setTabIndex(-1);
+      findButton.addClickHandler(new ClickHandler()
+      {
+         public void onClick(ClickEvent event)
+         {
+            findNext();
+         }
+      });
+      toolbar.addLeftWidget(findButton);
+
+      findBox_.addKeyDownHandler(new KeyDownHandler()
+      {
+         public void onKeyDown(KeyDownEvent event)
+         {
+            if (event.getNativeKeyCode() == KeyCodes.KEY_ENTER)
+            {
+               event.preventDefault();
+               event.stopPropagation();
+               findButton.click();
+            }
+            else if (event.getNativeKeyCode() == KeyCodes.KEY_ESCAPE)
+            {
+               event.preventDefault();
+               event.stopPropagation();
+               cancelFind();
+               focus();
+            }
+         }
+      });
+
+      status_ = new Label("", false);
+      status_.addStyleName(styles_.status());
+      toolbar.addRightWidget(status_);
+
+      return toolbar;
+   }
+
+   public void onActivate()
+   {
+      Scheduler.get().scheduleDeferred(new ScheduledCommand()
+      {
+         public void execute()
+         {
+            render();
+         }
+      });
+   }
+
+   @Override
+   public void onResize()
+   {
+      super.onResize();
+      render();
+   }
+
+   public void focus()
+   {
+      scrollPanel_.getElement().focus();
+   }
+
+   public void showFind()
+   {
+      findBox_.focus();
+      findBox_.selectAll();
+   }
+
+   public int getCurrentLine()
+   {
+      return selectedLine_ >= 0 ? selectedLine_ : getFirstVisibleLine();
+   }
+
+   public int getTotalLines()
+   {
+      return cache_.getTotalLines();
+   }
+
+   public void navigateToLine(int line)
+   {
+      int totalLines = cache_.getTotalLines();
+      if (totalLines < 0 || (line >= totalLines && !cache_.isComplete()))
+      {
+         // wait until we know how long the file is (or until the server
+         // has indexed it as far as the line)
+         pendingLine_ = line;
+         if (totalLines >= 0)
+            cache_.requestPage(LargeFilePageCache.pageForLine(line));
+         return;
+      }
+
+      line = Math.max(0, Math.min(line, totalLines - 1));
+      selectedLine_ = line;
+
+      int visibleLines = getViewportHeight() / LINE_HEIGHT;
+      int firstLine = getFirstVisibleLine();
+      if (line < firstLine || line >= firstLine + visibleLines)
+         scrollToFirstLine(Math.max(0, line - CONTEXT_LINES));
+
+      render();
+   }
+
+   public void onDismiss()
+   {
+      cancelFind();
+      fetchTimer_.cancel();
+      indexTimer_.cancel();
+      cache_.clear();
+   }
+
+   public void onPageLoaded(int page, boolean totalLinesChanged)
+   {
+      if (totalLinesChanged)
+      {
+         spacer_.getStyle().setHeight(
+               Math.min((double)cache_.getTotalLines() * LINE_HEIGHT,
+                        MAX_SCROLL_HEIGHT),
+               Unit.PX);
+         pinnedFirstLine_ = -1;
+      }
+
+      // keep asking for the page past the end of the index until the
+      // server has indexed the whole file (so the scroll range grows)
+      if (!cache_.isComplete())
+         indexTimer_.schedule(INDEX_POLL_MS);
+
+      if (pendingLine_ >= 0)
+      {
+         int line = pendingLine_;
+         pendingLine_ = -1;
+         navigateToLine(line);
+      }
+      else
+      {
+         render();
+      }
+   }
+
+   public void onPageError(int page, ServerError error)
+   {
+      status_.setText("Error reading file: " + error.getUserMessage());
+   }
+
+   private void render()
+   {
+      int totalLines = cache_.getTotalLines();
+      int viewportHeight = getViewportHeight();
+      if (totalLines < 0 || viewportHeight <= 0)
+         return;
+
+      int firstLine = getFirstVisibleLine();
+      int lastLine = Math.min(totalLines,
+                              firstLine + viewportHeight / LINE_HEIGHT + 1);
+
+      // keep the lines in view (the spacer provides the scrolling)
+      lines_.getStyle().setTop(scrollPanel_.getVerticalScrollPosition(),
+                               Unit.PX);
+      lines_.getStyle().setHeight(viewportHeight, Unit.PX);
+
+      int digits = Integer.toString(totalLines).length();
+      boolean missingPages = false;
+      SafeHtmlBuilder html = new SafeHtmlBuilder();
+      for (int line = firstLine; line < lastLine; line++)
+      {
+         String className = styles_.line();
+         if (line == selectedLine_)
+            className += " " + styles_.selectedLine();
+         html.appendHtmlConstant("<div class=\"" + className + "\">");
+
+         html.appendHtmlConstant(
+               "<span class=\"" + styles_.lineNumber() + "\">");
+         html.appendEscaped(padLineNumber(line + 1, digits));
+         html.appendHtmlConstant("</span>");
+
+         JsArrayString page = cache_.getPage(
+                                 LargeFilePageCache.pageForLine(line));
+         int offset = LargeFilePageCache.offsetInPage(line);
+         if (page != null && offset < page.length())
+         {
+            appendLine(html, page.get(offset));
+         }
+         else
+         {
+            missingPages = true;
+            html.appendHtmlConstant(
+                  "<span class=\"" + styles_.loading() + "\">");
+            html.appendEscaped("...");
+            html.appendHtmlConstant("</span>");
+         }
+
+         html.appendHtmlConstant("</div>");
+      }
+      lines_.setInnerHTML(html.toSafeHtml().asString());
+
+      // let long lines scroll horizontally
+      int width = Math.max(lines_.getScrollWidth(), scrollPanel_.getElement()
+                                                      .getClientWidth());
+      if (width > contentWidth_)
+      {
+         contentWidth_ = width;
+         spacer_.getStyle().setWidth(width, Unit.PX);
+         lines_.getStyle().setWidth(width, Unit.PX);
+      }
+
+      // fetch the pages around the view once scrolling has paused
+      firstRenderedLine_ = firstLine;
+      lastRenderedLine_ = lastLine;
+      if (missingPages || isNearPageBoundary(firstLine, lastLine))
+         fetchTimer_.schedule(FETCH_DELAY_MS);
+
+      if (searchId_ == completedSearchId_)
+         updatePositionStatus(firstLine, lastLine, totalLines);
+   }
+
+   private void appendLine(SafeHtmlBuilder html, String text)
+   {
+      // highlight occurrences of the last search
+      if (highlight_ != null)
+      {
+         String lowerText = text.toLowerCase();
+         int pos = 0;
+         int match;
+         while ((match = lowerText.indexOf(highlight_, pos)) >= 0)
+         {
+            html.appendEscaped(text.substring(pos, match));
+            html.appendHtmlConstant(
+                  "<span class=\"" + styles_.match() + "\">");
+            html.appendEscaped(
+                  text.substring(match, match + highlight_.length()));
+            html.appendHtmlConstant("</span>");
+            pos = match + highlight_.length();
+         }
+         text = text.substring(pos);
+      }
+      html.appendEscaped(text);
+   }
+
+   private boolean isNearPageBoundary(int firstLine, int lastLine)
+   {
+      return LargeFilePageCache.pageForLine(firstLine - PREFETCH_LINES) !=
+                        LargeFilePageCache.pageForLine(firstLine) ||
+             LargeFilePageCache.pageForLine(lastLine + PREFETCH_LINES) !=
+                        LargeFilePageCache.pageForLine(lastLine);
+   }
+
+   private void fetchVisiblePages()
+   {
+      int firstPage = LargeFilePageCache.pageForLine(
+                           Math.max(0, firstRenderedLine_ - PREFETCH_LINES));
+      int lastPage = LargeFilePageCache.pageForLine(
+                           lastRenderedLine_ + PREFETCH_LINES);
+      for (int page = firstPage; page <= lastPage; page++)
+         cache_.requestPage(page);
+   }
+
+   private void updatePositionStatus(int firstLine,
+                                     int lastLine,
+                                     int totalLines)
+   {
+      if (totalLines == 0)
+      {
+         status_.setText("Empty file");
+         return;
+      }
+
+      status_.setText("Lines " + StringUtil.formatGeneralNumber(firstLine + 1)
+                      + "-" + StringUtil.formatGeneralNumber(lastLine)
+                      + " of " + StringUtil.formatGeneralNumber(totalLines)
+                      + (cache_.isComplete() ? "" : "+"));
+   }
+
+   private int getViewportHeight()
+   {
+      return scrollPanel_.getElement().getClientHeight();
+   }
+
+   private int getScrollRange()
+   {
+      return spacer_.getOffsetHeight() - getViewportHeight();
+   }
+
+   private int getMaxFirstLine()
+   {
+      return Math.max(0, cache_.getTotalLines() -
+                         getViewportHeight() / LINE_HEIGHT);
+   }
+
+   private int getFirstVisibleLine()
+   {
+      int scrollTop = scrollPanel_.getVerticalScrollPosition();
+      if (pinnedFirstLine_ >= 0 && scrollTop == pinnedScrollTop_)
+         return pinnedFirstLine_;
+
+      int scrollRange = getScrollRange();
+      if (scrollRange <= 0)
+         return 0;
+
+      double fraction = Math.min(1.0, (double)scrollTop / scrollRange);
+      return (int)Math.round(fraction * getMaxFirstLine());
+   }
+
+   private boolean isScrollHeightCapped()
+   {
+      return (double)cache_.getTotalLines() * LINE_HEIGHT > MAX_SCROLL_HEIGHT;
+   }
+
+   private boolean onNavigationKey(KeyDownEvent event)
+   {
+      int pageLines = Math.max(1, getViewportHeight() / LINE_HEIGHT - 1);
+      switch (event.getNativeKeyCode())
+      {
+         case KeyCodes.KEY_UP:
+            scrollByLines(-1);
+            return true;
+         case KeyCodes.KEY_DOWN:
+            scrollByLines(1);
+            return true;
+         case KeyCodes.KEY_PAGEUP:
+            scrollByLines(-pageLines);
+            return true;
+         case KeyCodes.KEY_PAGEDOWN:
+            scrollByLines(pageLines);
+            return true;
+         case KeyCodes.KEY_HOME:
+            scrollToFirstLine(0);
+            render();
+            return true;
+         case KeyCodes.KEY_END:
+            scrollToFirstLine(getMaxFirstLine());
+            render();
+            return true;
+         default:
+            return false;
+      }
+   }
+
+   // lines scrolled by a wheel event (positive is down). browsers report
+   // wheel deltas differently: wheelDelta is 120 per notch (where a notch
+   // scrolls 3 lines) and detail is in lines
+   private static native double getWheelLines(NativeEvent event) /*-{
+      if (event.wheelDelta)
+         return -event.wheelDelta / 40;
+      return event.detail || 0;
+   }-*/;
+
+   private void scrollByLines(int lines)
+   {
+      if (lines == 0)
+         return;
+
+      scrollToFirstLine(Math.max(0, getFirstVisibleLine() + lines));
+
+      // the scroll position may not have changed (so there's no scroll
+      // event) if the lines scrolled span less than a pixel
+      render();
+   }
+
+   private void scrollToFirstLine(int firstLine)
+   {
+      int maxFirstLine = getMaxFirstLine();
+      firstLine = Math.min(firstLine, maxFirstLine);
+
+      int scrollTop = 0;
+      if (maxFirstLine > 0)
+      {
+         scrollTop = (int)Math.round(
+               (double)firstLine / maxFirstLine * getScrollRange());
+      }
+      scrollPanel_.setVerticalScrollPosition(scrollTop);
+
+      // the mapping from scroll position to line is inexact when the
+      // scrollable area is capped, so remember the line we scrolled to
+      pinnedFirstLine_ = firstLine;
+      pinnedScrollTop_ = scrollPanel_.getVerticalScrollPosition();
+   }
+
+   private void findNext()
+   {
+      String query = findBox_.getValue();
+      if (query.length() == 0)
+         return;
+
+      int start;
+      if (wrapFind_)
+         start = 0;
+      else if (selectedLine_ >= 0)
+         start = selectedLine_ + 1;
+      else
+         start = getFirstVisibleLine();
+      wrapFind_ = false;
+
+      find(++searchId_, query, start);
+   }
+
+   private void find(final int searchId, final String query, int start)
+   {
+      status_.setText("Searching...");
+      server_.searchFileLines(
+            path_,
+            encoding_,
+            query,
+            start,
+            1,
+            new ServerRequestCallback<FileLinesSearchResult>()
+            {
+               @Override
+               public void onResponseReceived(FileLinesSearchResult result)
+               {
+                  if (searchId != searchId_)
+                     return;
+
+                  if (result.getMatches().length() > 0)
+                  {
+                     completedSearchId_ = searchId;
+                     highlight_ = query.toLowerCase();
+                     navigateToLine(result.getMatches().get(0));
+                  }
+                  else if (result.getNextLine() >= 0)
+                  {
+                     // the server scans a limited number of lines per
+                     // request, so carry on from where it stopped
+                     String of = result.getTotalLines() < 0 ? "" :
+                        " of " +
+                        StringUtil.formatGeneralNumber(result.getTotalLines());
+                     status_.setText(
+                        "Searching (line " +
+                        StringUtil.formatGeneralNumber(result.getNextLine())
+                        + of + ")...");
+                     find(searchId, query, result.getNextLine());
+                  }
+                  else
+                  {
+                     completedSearchId_ = searchId;
+                     wrapFind_ = true;
+                     status_.setText("Reached end of file");
+                  }
+               }
+
+               @Override
+               public void onError(ServerError error)
+               {
+                  if (searchId != searchId_)
+                     return;
+
+                  completedSearchId_ = searchId;
+                  globalDisplay_.showErrorMessage("Find",
+                                                  error.getUserMessage());
+                  render();
+               }
+            });
+   }
+
+   private void cancelFind()
+   {
+      completedSearchId_ = ++searchId_;
+      highlight_ = null;
+      render();
+   }
+
+   private static String padLineNumber(int lineNumber, int digits)
+   {
+      String result = Integer.toString(lineNumber);
+      while (result.length() < digits)
+         result = " " + result;
+      return result;
+   }
+
+   private final Timer fetchTimer_ = new Timer()
+   {
+      @Override
+      public void run()
+      {
+         fetchVisiblePages();
+      }
+   };
+
+   private final Timer indexTimer_ = new Timer()
+   {
+      @Override
+      public void run()
+      {
+         cache_.requestPage(
+               LargeFilePageCache.pageForLine(cache_.getTotalLines()));
+      }
+   };
+
+   private final Commands commands_;
+   private final GlobalDisplay globalDisplay_;
+   private final SourceServerOperations server_;
+   private final String path_;
+   private final String encoding_;
+   private final Styles styles_;
+   private final LargeFilePageCache cache_;
+
+   private final ScrollPanel scrollPanel_;
+   private final DivElement spacer_;
+   private final DivElement lines_;
+   private FindTextBox findBox_;
+   private Label status_;
+
+   private int contentWidth_ = 0;
+   private int firstRenderedLine_ = 0;
+   private int lastRenderedLine_ = 0;
+   private int selectedLine_ = -1;
+   private int pendingLine_ = -1;
+   private int pinnedFirstLine_ = -1;
+   private int pinnedScrollTop_ = -1;
+   private double wheelLines_ = 0;
+
+   private int searchId_ = 0;
+   private int completedSearchId_ = 0;
+   private boolean wrapFind_ = false;
+   private String highlight_ = null;
+
+   private static final int LINE_HEIGHT = 15; // see .line in the css
+   private static final double MAX_SCROLL_HEIGHT = 1000000;
+   private static final int CONTEXT_LINES = 5;
+   private static final int PREFETCH_LINES = 200;
+   private static final int FETCH_DELAY_MS = 100;
+   private static final int INDEX_POLL_MS = 500;
+}
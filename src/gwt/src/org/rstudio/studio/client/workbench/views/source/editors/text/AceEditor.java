@@ -63,6 +63,7 @@ import org.rstudio.studio.client.workbench.views.source.editors.text.ace.AceClic
 import org.rstudio.studio.client.workbench.views.source.editors.text.ace.Position;
 import org.rstudio.studio.client.workbench.views.source.editors.text.ace.Renderer.ScreenCoordinates;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.CursorChangedHandler;
+import org.rstudio.studio.client.workbench.views.source.editors.text.events.DocumentChangedHandler;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.PasteEvent;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.UndoRedoHandler;
 import org.rstudio.studio.client.workbench.views.source.events.RecordNavigationPositionEvent;
@@ -882,6 +883,12 @@ public class AceEditor implements DocDisplay,
       widget_.getEditor().setReadOnly(readOnly);
    }
 
+   public HandlerRegistration addDocumentChangedHandler(
+                                          DocumentChangedHandler handler)
+   {
+      return widget_.addDocumentChangedHandler(handler);
+   }
+
    public HandlerRegistration addCursorChangedHandler(final CursorChangedHandler handler)
    {
       return widget_.addCursorChangedHandler(handler);
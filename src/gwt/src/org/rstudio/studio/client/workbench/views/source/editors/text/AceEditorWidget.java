@@ -35,6 +35,7 @@ import org.rstudio.studio.client.workbench.views.source.editors.text.ace.AceClic
 import org.rstudio.studio.client.workbench.views.source.editors.text.ace.AceEditorNative;
 import org.rstudio.studio.client.workbench.views.source.editors.text.ace.AceMouseEventNative;
 import org.rstudio.studio.client.workbench.views.source.editors.text.ace.Position;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.DocumentChange;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.*;
 
 public class AceEditorWidget extends Composite
@@ -69,6 +70,13 @@ public class AceEditorWidget extends Composite
             ValueChangeEvent.fire(AceEditorWidget.this, null);
          }
       });
+      editor_.onDocumentChange(new CommandWithArg<DocumentChange>()
+      {
+         public void execute(DocumentChange change)
+         {
+            AceEditorWidget.this.fireEvent(new DocumentChangedEvent(change));
+         }
+      });
       editor_.getSession().getSelection().addCursorChangeHandler(new CommandWithArg<Position>()
       {
          public void execute(Position arg)
@@ -119,6 +127,12 @@ public class AceEditorWidget extends Composite
                   });
    }
 
+   public HandlerRegistration addDocumentChangedHandler(
+         DocumentChangedHandler handler)
+   {
+      return addHandler(handler, DocumentChangedEvent.TYPE);
+   }
+
    public HandlerRegistration addCursorChangedHandler(
          CursorChangedHandler handler)
    {
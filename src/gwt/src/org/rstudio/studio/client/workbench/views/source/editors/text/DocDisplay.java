@@ -20,6 +20,7 @@ import org.rstudio.studio.client.workbench.views.console.shell.editor.InputEdito
 import org.rstudio.studio.client.workbench.views.source.editors.text.ace.Position;
 import org.rstudio.studio.client.workbench.views.source.editors.text.ace.AceClickEvent.Handler;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.CursorChangedHandler;
+import org.rstudio.studio.client.workbench.views.source.editors.text.events.DocumentChangedHandler;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.UndoRedoHandler;
 
 import com.google.gwt.core.client.JavaScriptObject;
@@ -86,6 +87,7 @@ public interface DocDisplay extends HasValueChangeHandlers<Void>,
    HandlerRegistration addAceClickHandler(Handler handler);
    
    HandlerRegistration addCursorChangedHandler(CursorChangedHandler handler);
+   HandlerRegistration addDocumentChangedHandler(DocumentChangedHandler handler);
    Position getCursorPosition();
    void setCursorPosition(Position position);
 
@@ -28,7 +28,6 @@ import com.google.gwt.user.client.ui.*;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import org.rstudio.core.client.*;
-import org.rstudio.core.client.Invalidation.Token;
 import org.rstudio.core.client.command.AppCommand;
 import org.rstudio.core.client.command.CommandBinder;
 import org.rstudio.core.client.command.Handler;
@@ -57,9 +56,6 @@ import org.rstudio.studio.client.workbench.model.Session;
 import org.rstudio.studio.client.workbench.prefs.model.UIPrefs;
 import org.rstudio.studio.client.workbench.ui.FontSizeManager;
 import org.rstudio.studio.client.workbench.views.console.events.SendToConsoleEvent;
-import org.rstudio.studio.client.workbench.views.files.events.FileChangeEvent;
-import org.rstudio.studio.client.workbench.views.files.events.FileChangeHandler;
-import org.rstudio.studio.client.workbench.views.files.model.FileChange;
 import org.rstudio.studio.client.workbench.views.source.editors.EditingTarget;
 import org.rstudio.studio.client.workbench.views.source.editors.text.DocDisplay.AnchoredSelection;
 import org.rstudio.studio.client.workbench.views.source.editors.text.ace.Position;
@@ -71,6 +67,8 @@ import org.rstudio.studio.client.workbench.views.source.editors.text.ui.PublishP
 import org.rstudio.studio.client.workbench.views.source.events.RecordNavigationPositionEvent;
 import org.rstudio.studio.client.workbench.views.source.events.RecordNavigationPositionHandler;
 import org.rstudio.studio.client.workbench.views.source.events.SourceFileSavedEvent;
+import org.rstudio.studio.client.workbench.views.source.events.SourceDocChangedOnDiskEvent;
+import org.rstudio.studio.client.workbench.views.source.events.SourceDocChangedOnDiskHandler;
 import org.rstudio.studio.client.workbench.views.source.events.SourceNavigationEvent;
 import org.rstudio.studio.client.workbench.views.source.model.*;
 import org.rstudio.studio.client.workbench.views.vcs.common.events.ShowVcsDiffEvent;
@@ -127,11 +125,6 @@ public class TextEditingTarget implements EditingTarget
 
       public void onCompleted()
       {
-         // don't need to check again soon because we just saved
-         // (without this and when file monitoring is active we'd
-         // end up immediately checking for external edits)
-         externalEditCheckInterval_.reset(250);
-
          if (newFileType_ != null)
             fileType_ = newFileType_;
 
@@ -192,7 +185,8 @@ public class TextEditingTarget implements EditingTarget
                             Session session,
                             FontSizeManager fontSizeManager,
                             DocDisplay docDisplay,
-                            UIPrefs prefs)
+                            UIPrefs prefs,
+                            DocumentSaveBatcher saveBatcher)
    {
       commands_ = commands;
       server_ = server;
@@ -205,6 +199,7 @@ public class TextEditingTarget implements EditingTarget
       session_ = session;
       fontSizeManager_ = fontSizeManager;
       pPublishPdf_ = pPublishPdf;
+      saveBatcher_ = saveBatcher;
 
       docDisplay_ = docDisplay;
       dirtyState_ = new DirtyState(docDisplay_, false);
@@ -359,7 +354,8 @@ public class TextEditingTarget implements EditingTarget
             document,
             globalDisplay_.getProgressIndicator("Save File"),
             dirtyState_,
-            events_);
+            events_,
+            saveBatcher_);
 
       name_.setValue(getNameFromDocument(document, defaultNameProvider), true);
       docDisplay_.setCode(document.getContents(), false);
@@ -390,22 +386,6 @@ public class TextEditingTarget implements EditingTarget
          }
       });
 
-      docDisplay_.addFocusHandler(new FocusHandler()
-      {
-         public void onFocus(FocusEvent event)
-         {
-            Scheduler.get().scheduleFixedDelay(new RepeatingCommand()
-            {
-               public boolean execute()
-               {
-                  if (view_.isAttached())
-                     checkForExternalEdit();
-                  return false;
-               }
-            }, 500);
-         }
-      });
-
       if (fileType_.canCompilePDF()
           && !session_.getSessionInfo().isTexInstalled())
       {
@@ -450,31 +430,30 @@ public class TextEditingTarget implements EditingTarget
             }
       ));
 
-      releaseOnDismiss_.add(events_.addHandler(FileChangeEvent.TYPE,
-                                               new FileChangeHandler() {
+      // changes to our file on disk are detected by the server (or when
+      // Source checks all of the open documents)
+      releaseOnDismiss_.add(events_.addHandler(
+            SourceDocChangedOnDiskEvent.TYPE,
+            new SourceDocChangedOnDiskHandler() {
          @Override
-         public void onFileChange(FileChangeEvent event)
+         public void onSourceDocChangedOnDisk(SourceDocChangedOnDiskEvent event)
          {
-            // screen out adds and events that aren't for our path
-            FileChange fileChange = event.getFileChange();
-            if (fileChange.getType() == FileChange.ADD)
-               return;
-            else if (!fileChange.getFile().getPath().equals(getPath()))
+            if (!event.getId().equals(id_))
                return;
 
-            // always check for changes if this is the active editor
-            if (commandHandlerReg_ != null)
+            // if we're not the active editor then only reload unmodified
+            // documents right away (we prompt about other changes once 
+            // we're activated)
+            CheckForExternalEditResult result = event.getResult();
+            if (commandHandlerReg_ != null ||
+                (result.isModified() && !dirtyState_.getValue()))
             {
-               checkForExternalEdit();
+               pendingExternalEdit_ = null;
+               onExternalEdit(result);
             }
-
-            // also check for changes on modifications if we are not dirty
-            // note that we don't check for changes on removed files because
-            // this will show a confirmation dialog
-            else if (event.getFileChange().getType() == FileChange.MODIFIED &&
-                     dirtyState().getValue() == false)
+            else
             {
-               checkForExternalEdit();
+               pendingExternalEdit_ = result;
             }
          }
       }));
@@ -718,6 +697,20 @@ public class TextEditingTarget implements EditingTarget
       });
 
       view_.onActivate();
+      
+      if (pendingExternalEdit_ != null)
+      {
+         Scheduler.get().scheduleDeferred(new ScheduledCommand()
+         {
+            public void execute()
+            {
+               CheckForExternalEditResult result = pendingExternalEdit_;
+               pendingExternalEdit_ = null;
+               if (result != null && commandHandlerReg_ != null)
+                  onExternalEdit(result);
+            }
+         });
+      }
    }
 
    public void onDeactivate()
@@ -726,8 +719,6 @@ public class TextEditingTarget implements EditingTarget
       // CodeBrowserEditingTarget (no straightforward way to create a
       // re-usable implementation) so changes here need to be synced
       
-      externalEditCheckInvalidation_.invalidate();
-
       commandHandlerReg_.removeHandler();
       commandHandlerReg_ = null;
 
@@ -745,7 +736,8 @@ public class TextEditingTarget implements EditingTarget
    @Override
    public void onInitiallyLoaded()
    {
-      checkForExternalEdit();
+      // Source checks all of the open documents for external edits once
+      // they're loaded
    }
 
    public boolean onBeforeDismiss()
@@ -771,6 +763,12 @@ public class TextEditingTarget implements EditingTarget
                                              onCompleted));
    }
    
+   public boolean isSavePromptRequired()
+   {
+      return docUpdateSentinel_.getPath() == null ||
+             isEncodingPromptRequired(null);
+   }
+   
    public void saveWithPrompt(final Command command, final Command onCancelled)
    {
       view_.ensureVisible();
@@ -847,15 +845,26 @@ public class TextEditingTarget implements EditingTarget
             });
    }
 
-   private void withEncodingRequiredUnlessAscii(
-         final String encodingOverride,
-         final CommandWithArg<String> command)
+   private String getSaveEncoding(String encodingOverride)
    {
-      final String encoding = StringUtil.firstNotNullOrEmpty(new String[] {
+      return StringUtil.firstNotNullOrEmpty(new String[] {
             encodingOverride,
             docUpdateSentinel_.getEncoding(),
             prefs_.defaultEncoding().getValue()
       });
+   }
+   
+   private boolean isEncodingPromptRequired(String encodingOverride)
+   {
+      return StringUtil.isNullOrEmpty(getSaveEncoding(encodingOverride)) &&
+             !docUpdateSentinel_.isAscii();
+   }
+
+   private void withEncodingRequiredUnlessAscii(
+         final String encodingOverride,
+         final CommandWithArg<String> command)
+   {
+      final String encoding = getSaveEncoding(encodingOverride);
 
       if (StringUtil.isNullOrEmpty(encoding))
       {
@@ -1639,110 +1648,77 @@ public class TextEditingTarget implements EditingTarget
       };
    }
 
-   public void checkForExternalEdit()
+   private void onExternalEdit(CheckForExternalEditResult response)
    {
-      if (!externalEditCheckInterval_.hasElapsed())
-         return;
-      externalEditCheckInterval_.reset();
-
-      externalEditCheckInvalidation_.invalidate();
-
-      // If the doc has never been saved, don't even bother checking
-      if (getPath() == null)
-         return;
-
-      final Token token = externalEditCheckInvalidation_.getInvalidationToken();
-
-      server_.checkForExternalEdit(
-            id_,
-            new ServerRequestCallback<CheckForExternalEditResult>()
-            {
-               @Override
-               public void onResponseReceived(CheckForExternalEditResult response)
+      if (response.isDeleted())
+      {
+         if (ignoreDeletes_)
+            return;
+
+         globalDisplay_.showYesNoMessage(
+               GlobalDisplay.MSG_WARNING,
+               "File Deleted",
+               "The file " + name_.getValue() + " has been " +
+               "deleted. Do you want to close this file now?",
+               false,
+               new Operation()
                {
-                  if (token.isInvalid())
-                     return;
-
-                  if (response.isDeleted())
+                  public void execute()
                   {
-                     if (ignoreDeletes_)
-                        return;
-
-                     globalDisplay_.showYesNoMessage(
-                           GlobalDisplay.MSG_WARNING,
-                           "File Deleted",
-                           "The file " + name_.getValue() + " has been " +
-                           "deleted. Do you want to close this file now?",
-                           false,
-                           new Operation()
-                           {
-                              public void execute()
-                              {
-                                 CloseEvent.fire(TextEditingTarget.this, null);
-                              }
-                           },
-                           new Operation()
-                           {
-                              public void execute()
-                              {
-                                 externalEditCheckInterval_.reset();
-                                 ignoreDeletes_ = true;
-                                 // Make sure it stays dirty
-                                 dirtyState_.markDirty(false);
-                              }
-                           },
-                           false
-                     );
+                     CloseEvent.fire(TextEditingTarget.this, null);
                   }
-                  else if (response.isModified())
+               },
+               new Operation()
+               {
+                  public void execute()
                   {
-                     ignoreDeletes_ = false; // Now we know it exists
+                     ignoreDeletes_ = true;
+                     // Make sure it stays dirty
+                     dirtyState_.markDirty(false);
+                  }
+               },
+               false
+         );
+      }
+      else if (response.isModified())
+      {
+         ignoreDeletes_ = false; // Now we know it exists
 
-                     // Use StringUtil.formatDate(response.getLastModified())?
+         // Use StringUtil.formatDate(response.getLastModified())?
 
-                     if (!dirtyState_.getValue())
+         if (!dirtyState_.getValue())
+         {
+            docUpdateSentinel_.revert();
+         }
+         else
+         {
+            globalDisplay_.showYesNoMessage(
+                  GlobalDisplay.MSG_WARNING,
+                  "File Changed",
+                  "The file " + name_.getValue() + " has changed " +
+                  "on disk. Do you want to reload the file from " +
+                  "disk and discard your unsaved changes?",
+                  false,
+                  new Operation()
+                  {
+                     public void execute()
                      {
                         docUpdateSentinel_.revert();
                      }
-                     else
+                  },
+                  new Operation()
+                  {
+                     public void execute()
                      {
-                        externalEditCheckInterval_.reset();
-                        globalDisplay_.showYesNoMessage(
-                              GlobalDisplay.MSG_WARNING,
-                              "File Changed",
-                              "The file " + name_.getValue() + " has changed " +
-                              "on disk. Do you want to reload the file from " +
-                              "disk and discard your unsaved changes?",
-                              false,
-                              new Operation()
-                              {
-                                 public void execute()
-                                 {
-                                    docUpdateSentinel_.revert();
-                                 }
-                              },
-                              new Operation()
-                              {
-                                 public void execute()
-                                 {
-                                    externalEditCheckInterval_.reset();
-                                    docUpdateSentinel_.ignoreExternalEdit();
-                                    // Make sure it stays dirty
-                                    dirtyState_.markDirty(false);
-                                 }
-                              },
-                              true
-                        );
+                        docUpdateSentinel_.ignoreExternalEdit();
+                        // Make sure it stays dirty
+                        dirtyState_.markDirty(false);
                      }
-                  }
-               }
-
-               @Override
-               public void onError(ServerError error)
-               {
-                  Debug.logError(error);
-               }
-            });
+                  },
+                  true
+            );
+         }
+      }
    }
    
    private SourcePosition toSourcePosition(FunctionStart func)
@@ -1881,13 +1857,10 @@ public class TextEditingTarget implements EditingTarget
    private HandlerManager handlers_ = new HandlerManager(this);
    private FileSystemContext fileContext_;
    private final Provider<PublishPdf> pPublishPdf_;
+   private final DocumentSaveBatcher saveBatcher_;
    private boolean ignoreDeletes_;
 
-   // Allows external edit checks to supercede one another
-   private final Invalidation externalEditCheckInvalidation_ =
-         new Invalidation();
-   // Prevents external edit checks from happening too soon after each other
-   private final IntervalTracker externalEditCheckInterval_ =
-         new IntervalTracker(1000, true);
+   // external edit which we'll handle once we're activated
+   private CheckForExternalEditResult pendingExternalEdit_;
    private AnchoredSelection lastExecutedCode_;
 }
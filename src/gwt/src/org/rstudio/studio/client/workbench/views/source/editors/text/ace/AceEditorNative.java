@@ -76,6 +76,56 @@ public class AceEditorNative extends JavaScriptObject {
               }));
    }-*/;
 
+   // invokes the command with a DocumentChange for each change to the
+   // document. offsets come from a table of row start offsets: a change
+   // doesn't affect the rows before its start row, so the table is only
+   // extended up to that row and then invalidated from it onward (typing
+   // on the same row costs O(1) rather than O(rows))
+   public native final void onDocumentChange(
+                              CommandWithArg<DocumentChange> command) /*-{
+      var doc = this.getSession().getDocument();
+      var starts = [0];
+      var validRows = 0;
+      var startsNl = null;
+      doc.on("change",
+              $entry(function (e) {
+                 var delta = e.data;
+                 var nl = doc.getNewLineCharacter();
+                 if (nl !== startsNl)
+                 {
+                    startsNl = nl;
+                    validRows = 0;
+                 }
+                 
+                 var start = delta.range.start;
+                 for (; validRows < start.row; validRows++)
+                 {
+                    starts[validRows + 1] = starts[validRows] +
+                                   doc.getLine(validRows).length + nl.length;
+                 }
+                 var offset = starts[start.row] + start.column;
+                 validRows = start.row;
+                 
+                 var change = { offset: offset, length: 0, text: "" };
+                 switch (delta.action)
+                 {
+                    case "insertText":
+                       change.text = delta.text;
+                       break;
+                    case "insertLines":
+                       change.text = delta.lines.join(nl) + nl;
+                       break;
+                    case "removeText":
+                       change.length = delta.text.length;
+                       break;
+                    case "removeLines":
+                       change.length = delta.lines.join(nl).length + nl.length;
+                       break;
+                 }
+                 command.@org.rstudio.core.client.CommandWithArg::execute(Ljava/lang/Object;)(change);
+              }));
+   }-*/;
+
    public final HandlerRegistration delegateEventsTo(HasHandlers handlers)
    {
       final LinkedList<JavaScriptObject> handles = new LinkedList<JavaScriptObject>();
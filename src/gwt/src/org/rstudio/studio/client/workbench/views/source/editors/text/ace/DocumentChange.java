@@ -0,0 +1,38 @@
+/*
+ * DocumentChange.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.editors.text.ace;
+
+import com.google.gwt.core.client.JavaScriptObject;
+
+/**
+ * A change to an Ace document expressed in terms of the document's text
+ * (as returned by getValue): the length characters at offset were replaced
+ * by text.
+ */
+public class DocumentChange extends JavaScriptObject
+{
+   protected DocumentChange()
+   {}
+
+   public native final int getOffset() /*-{
+      return this.offset;
+   }-*/;
+
+   public native final int getLength() /*-{
+      return this.length;
+   }-*/;
+
+   public native final String getText() /*-{
+      return this.text;
+   }-*/;
+}
@@ -0,0 +1,45 @@
+/*
+ * DocumentChangedEvent.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.editors.text.events;
+
+import com.google.gwt.event.shared.GwtEvent;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.DocumentChange;
+
+public class DocumentChangedEvent extends GwtEvent<DocumentChangedHandler>
+{
+   public static final Type<DocumentChangedHandler> TYPE = new Type<DocumentChangedHandler>();
+
+   public DocumentChangedEvent(DocumentChange change)
+   {
+      change_ = change;
+   }
+
+   public DocumentChange getChange()
+   {
+      return change_;
+   }
+
+   private final DocumentChange change_;
+
+   @Override
+   public Type<DocumentChangedHandler> getAssociatedType()
+   {
+      return TYPE;
+   }
+
+   @Override
+   protected void dispatch(DocumentChangedHandler handler)
+   {
+      handler.onDocumentChanged(this);
+   }
+}
@@ -228,6 +228,11 @@ public class UrlContentEditingTarget implements EditingTarget
       onCompleted.execute();
    }
    
+   public boolean isSavePromptRequired()
+   {
+      return false;
+   }
+   
    public void saveWithPrompt(Command onCompleted, Command onCancelled)
    {
       onCompleted.execute();
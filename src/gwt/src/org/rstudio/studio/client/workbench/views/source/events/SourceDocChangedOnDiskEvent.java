@@ -0,0 +1,57 @@
+/*
+ * SourceDocChangedOnDiskEvent.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.events;
+
+import com.google.gwt.event.shared.GwtEvent;
+import org.rstudio.studio.client.workbench.views.source.model.CheckForExternalEditResult;
+
+/**
+ * Fired when the file of an open document has been modified or deleted
+ * on disk (by the server's file monitor, or as the result of checking all
+ * of the open documents)
+ */
+public class SourceDocChangedOnDiskEvent 
+                           extends GwtEvent<SourceDocChangedOnDiskHandler>
+{
+   public static final GwtEvent.Type<SourceDocChangedOnDiskHandler> TYPE =
+      new GwtEvent.Type<SourceDocChangedOnDiskHandler>();
+   
+   public SourceDocChangedOnDiskEvent(CheckForExternalEditResult result)
+   {
+      result_ = result;
+   }
+   
+   public String getId()
+   {
+      return result_.getId();
+   }
+   
+   public CheckForExternalEditResult getResult()
+   {
+      return result_;
+   }
+   
+   @Override
+   protected void dispatch(SourceDocChangedOnDiskHandler handler)
+   {
+      handler.onSourceDocChangedOnDisk(this);
+   }
+
+   @Override
+   public GwtEvent.Type<SourceDocChangedOnDiskHandler> getAssociatedType()
+   {
+      return TYPE;
+   }
+   
+   private final CheckForExternalEditResult result_;
+}
@@ -21,6 +21,10 @@ public class CheckForExternalEditResult extends JavaScriptObject
    {
    }
 
+   public native final String getId() /*-{
+      return this.id;
+   }-*/;
+
    public native final boolean isModified() /*-{
       return this.modified;
    }-*/;
@@ -23,7 +23,7 @@ import org.rstudio.core.client.Barrier.Token;
 import org.rstudio.core.client.Debug;
 import org.rstudio.core.client.TimeBufferedCommand;
 import org.rstudio.core.client.js.JsObject;
-import org.rstudio.core.client.patch.SubstringDiff;
+import org.rstudio.core.client.patch.LineDiff;
 import org.rstudio.core.client.widget.ProgressIndicator;
 import org.rstudio.studio.client.application.events.EventBus;
 import org.rstudio.studio.client.common.SimpleRequestCallback;
@@ -34,8 +34,12 @@ import org.rstudio.studio.client.workbench.events.LastChanceSaveEvent;
 import org.rstudio.studio.client.workbench.events.LastChanceSaveHandler;
 import org.rstudio.studio.client.workbench.model.ChangeTracker;
 import org.rstudio.studio.client.workbench.views.source.editors.text.DocDisplay;
+import org.rstudio.studio.client.workbench.views.source.editors.text.ace.DocumentChange;
+import org.rstudio.studio.client.workbench.views.source.editors.text.events.DocumentChangedEvent;
+import org.rstudio.studio.client.workbench.views.source.editors.text.events.DocumentChangedHandler;
 import org.rstudio.studio.client.workbench.views.source.editors.text.events.SourceOnSaveChangedEvent;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -60,6 +64,10 @@ public class DocUpdateSentinel
          sourceDoc_ = response;
          docDisplay_.setCode(sourceDoc_.getContents(), true);
          dirtyState_.markClean();
+         
+         // the editor now matches the server's copy of the document
+         contentsStale_ = false;
+         deltas_.reset();
 
          if (progress_ != null)
             progress_.onCompleted();
@@ -85,9 +93,11 @@ public class DocUpdateSentinel
                             SourceDocument sourceDoc,
                             ProgressIndicator progress,
                             DirtyState dirtyState,
-                            EventBus events)
+                            EventBus events,
+                            DocumentSaveBatcher batcher)
    {
       server_ = server;
+      batcher_ = batcher;
       docDisplay_ = docDisplay;
       sourceDoc_ = sourceDoc;
       progress_ = progress;
@@ -106,6 +116,21 @@ public class DocUpdateSentinel
       };
 
       docDisplay_.addValueChangeHandler(this);
+      batcher_.addSentinel(this);
+      
+      // the log starts out invalid (the first save after the document is
+      // loaded is a diff against its contents, which validates it)
+      documentChangedReg_ = docDisplay_.addDocumentChangedHandler(
+                                             new DocumentChangedHandler()
+      {
+         public void onDocumentChanged(DocumentChangedEvent event)
+         {
+            DocumentChange change = event.getChange();
+            deltas_.record(change.getOffset(), 
+                           change.getLength(), 
+                           change.getText());
+         }
+      });
 
       // Web only
       closeHandlerReg_ = Window.addWindowClosingHandler(new ClosingHandler()
@@ -167,6 +192,15 @@ public class DocUpdateSentinel
 
    private boolean maybeAutoSave()
    {
+      // a save made while another is in flight would be sent against the
+      // hash which that save is replacing (so it would be rejected). try
+      // again once the save in flight has completed
+      if (savesInFlight_ > 0)
+      {
+         bufferedCommand_.nudge();
+         return true;
+      }
+      
       if (changeTracker_.hasChanged())
       {
          return doSave(null, null, null, progress_);
@@ -238,6 +272,11 @@ public class DocUpdateSentinel
                           final String encoding,
                           final ProgressIndicator progress)
    {
+      // if we've recorded all of the edits since the document was last in
+      // sync with the server then just send those
+      if (deltas_.isValid())
+         return doSaveDeltas(deltas_.take(), path, fileType, encoding, progress);
+
       /* We need to fork the change tracker so that we can "mark" the moment
          in history when we took the contents from the source doc, so that
          if the document is edited while the save is in progress we don't
@@ -248,9 +287,20 @@ public class DocUpdateSentinel
       final String newContents = docDisplay_.getCode();
       String oldContents = sourceDoc_.getContents();
       final String hash = sourceDoc_.getHash();
+      
+      // edits from here on are relative to newContents
+      deltas_.reset();
+      
+      // if our copy of the contents is out of date (because we've been
+      // sending deltas) we can't diff against it
+      if (contentsStale_)
+      {
+         saveSnapshot(newContents, path, fileType, encoding, 
+                      thisChangeTracker, progress);
+         return true;
+      }
 
-      //String patch = DiffMatchPatch.diff(oldContents, newContents);
-      SubstringDiff diff = new SubstringDiff(oldContents, newContents);
+      LineDiff diff = new LineDiff(oldContents, newContents);
 
       // Don't auto-save when there are no changes. In addition to being
       // wasteful, it causes the server to think the document is dirty.
@@ -269,20 +319,29 @@ public class DocUpdateSentinel
          // acting funny. If we add the extra \n but don't do this
          // check, then reloading the browser causes empty documents
          // to appear dirty.
+         //
+         // (The server's copy doesn't match ours in this case so edits
+         // can't be sent as deltas.)
+         deltas_.invalidate();
          changesPending_ = false;
          return false;
       }
 
-      server_.saveDocumentDiff(
-            sourceDoc_.getId(),
-            path,
-            fileType,
-            encoding,
-            diff.getReplacement(),
-            diff.getOffset(),
-            diff.getLength(),
-            hash,
-            new ServerRequestCallback<String>()
+      ArrayList<DocumentOp> ops = new ArrayList<DocumentOp>();
+      for (LineDiff.Hunk hunk : diff.getHunks())
+      {
+         ops.add(new DocumentOp(hunk.getOffset(),
+                                hunk.getLength(),
+                                hunk.getReplacement()));
+      }
+
+      send(DocumentSaveRequest.diff(sourceDoc_.getId(),
+                                    path,
+                                    fileType,
+                                    encoding,
+                                    ops,
+                                    hash),
+           new ServerRequestCallback<String>()
             {
                @Override
                public void onError(ServerError error)
@@ -291,6 +350,7 @@ public class DocUpdateSentinel
                   if (progress != null)
                      progress.onError(error.getUserMessage());
                   changesPending_ = false;
+                  deltas_.invalidate();
                }
 
                @Override
@@ -314,27 +374,170 @@ public class DocUpdateSentinel
                   else if (!hash.equals(sourceDoc_.getHash()))
                   {
                      // We just hit a race condition where two updates
-                     // happened at once. Try again
+                     // happened at once. Try again (the edits recorded
+                     // since newContents can't be sent as deltas because
+                     // the server doesn't have it)
+                     deltas_.invalidate();
                      doSave(path, fileType, encoding, progress);
                   }
                   else
                   {
                      /*Debug.log("Diff-based save failed--falling back to " +
                                "snapshot save");*/
-                     server_.saveDocument(
-                           sourceDoc_.getId(),
-                           path,
-                           fileType,
-                           encoding,
-                           newContents,
-                           this);
+                     saveSnapshot(newContents, path, fileType, encoding,
+                                  thisChangeTracker, progress);
+                  }
+               }
+            });
+
+      return true;
+   }
+
+   private boolean doSaveDeltas(final ArrayList<DocumentOp> ops,
+                                final String path,
+                                final String fileType,
+                                final String encoding,
+                                final ProgressIndicator progress)
+   {
+      // Don't auto-save when there are no changes.
+      if (path == null && fileType == null && ops.isEmpty())
+      {
+         changesPending_ = false;
+         return false;
+      }
+      
+      final ChangeTracker thisChangeTracker = changeTracker_.fork();
+      final String hash = sourceDoc_.getHash();
+
+      send(DocumentSaveRequest.diff(sourceDoc_.getId(),
+                                    path,
+                                    fileType,
+                                    encoding,
+                                    ops,
+                                    hash),
+           new ServerRequestCallback<String>()
+            {
+               @Override
+               public void onError(ServerError error)
+               {
+                  Debug.logError(error);
+                  if (progress != null)
+                     progress.onError(error.getUserMessage());
+                  changesPending_ = false;
+                  
+                  // the server doesn't have these ops so the ones recorded
+                  // since can't be applied either
+                  deltas_.invalidate();
+               }
+
+               @Override
+               public void onResponseReceived(String newHash)
+               {
+                  if (newHash != null)
+                  {
+                     if (!thisChangeTracker.hasChanged())
+                        changeTracker_.reset();
+
+                     onSuccessfulUpdate(null,
+                                        newHash,
+                                        path,
+                                        fileType,
+                                        encoding);
+                     if (progress != null)
+                        progress.onCompleted();
+                  }
+                  else
+                  {
+                     // The ops couldn't be applied (e.g. because the 
+                     // server's copy of the document was changed by another
+                     // save). Fall back to sending the contents (edits from
+                     // here on are relative to them).
+                     String contents = docDisplay_.getCode();
+                     deltas_.reset();
+                     saveSnapshot(contents, path, fileType, encoding,
+                                  thisChangeTracker, progress);
                   }
                }
             });
 
       return true;
    }
+   
+   private void saveSnapshot(final String contents,
+                             final String path,
+                             final String fileType,
+                             final String encoding,
+                             final ChangeTracker thisChangeTracker,
+                             final ProgressIndicator progress)
+   {
+      send(DocumentSaveRequest.contents(sourceDoc_.getId(),
+                                        path,
+                                        fileType,
+                                        encoding,
+                                        contents),
+           new ServerRequestCallback<String>()
+            {
+               @Override
+               public void onError(ServerError error)
+               {
+                  Debug.logError(error);
+                  if (progress != null)
+                     progress.onError(error.getUserMessage());
+                  changesPending_ = false;
+                  deltas_.invalidate();
+               }
 
+               @Override
+               public void onResponseReceived(String newHash)
+               {
+                  if (!thisChangeTracker.hasChanged())
+                     changeTracker_.reset();
+
+                  onSuccessfulUpdate(contents,
+                                     newHash,
+                                     path,
+                                     fileType,
+                                     encoding);
+                  if (progress != null)
+                     progress.onCompleted();
+               }
+            });
+   }
+
+   // save via the batcher (so that saves of several documents made at
+   // the same time go in one request)
+   private void send(DocumentSaveRequest request,
+                     final ServerRequestCallback<String> callback)
+   {
+      savesInFlight_++;
+      batcher_.save(request, new ServerRequestCallback<String>()
+      {
+         @Override
+         public void onResponseReceived(String newHash)
+         {
+            savesInFlight_--;
+            callback.onResponseReceived(newHash);
+         }
+
+         @Override
+         public void onError(ServerError error)
+         {
+            savesInFlight_--;
+            callback.onError(error);
+         }
+      });
+   }
+
+   // called by the batcher when it's about to send a batch of saves: if
+   // we have changes waiting to be autosaved then send them along with it
+   void onBatchSave()
+   {
+      if (changesPending_ && savesInFlight_ == 0)
+         maybeAutoSave();
+   }
+
+   // contents is null if the update was made by sending deltas (in which
+   // case we no longer have an up to date copy of the contents)
    private void onSuccessfulUpdate(String contents,
                                    String hash,
                                    String path,
@@ -342,7 +545,15 @@ public class DocUpdateSentinel
                                    String encoding)
    {
       changesPending_ = false;
-      sourceDoc_.setContents(contents);
+      if (contents != null)
+      {
+         sourceDoc_.setContents(contents);
+         contentsStale_ = false;
+      }
+      else
+      {
+         contentsStale_ = true;
+      }
       sourceDoc_.setHash(hash);
       if (path != null)
       {
@@ -468,6 +679,8 @@ public class DocUpdateSentinel
    public void stop()
    {
       bufferedCommand_.suspend();
+      documentChangedReg_.removeHandler();
+      batcher_.removeSentinel(this);
       closeHandlerReg_.removeHandler();
       lastChanceSaveHandlerReg_.removeHandler();
    }
@@ -516,8 +729,13 @@ public class DocUpdateSentinel
    }
 
    private boolean changesPending_ = false;
+   private int savesInFlight_ = 0;
+   private final DocumentDeltaLog deltas_ = new DocumentDeltaLog();
+   private boolean contentsStale_ = false;
+   private final HandlerRegistration documentChangedReg_;
    private final ChangeTracker changeTracker_;
    private final SourceServerOperations server_;
+   private final DocumentSaveBatcher batcher_;
    private final DocDisplay docDisplay_;
    private SourceDocument sourceDoc_;
    private final ProgressIndicator progress_;
@@ -0,0 +1,119 @@
+/*
+ * DocumentDeltaLog.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.model;
+
+import java.util.ArrayList;
+
+// Records the edits made to a document since it was last known to be in 
+// sync with the server, so they can be sent rather than the whole document.
+// Each edit is merged into the previous one if they touch (e.g. typing or
+// backspacing a run of characters yields a single op). The log is only
+// valid if it was reset at a point where the document matched what the 
+// server has; it is invalidated if it grows too large or if a save of its
+// ops fails (in which case the caller needs to fall back to sending the 
+// document's contents).
+class DocumentDeltaLog
+{
+   public boolean isValid()
+   {
+      return valid_;
+   }
+
+   // the document as it is now matches what the server has
+   public void reset()
+   {
+      ops_ = new ArrayList<DocumentOp>();
+      chars_ = 0;
+      valid_ = true;
+   }
+
+   public void invalidate()
+   {
+      ops_ = new ArrayList<DocumentOp>();
+      chars_ = 0;
+      valid_ = false;
+   }
+
+   public void record(int offset, int length, String text)
+   {
+      if (!valid_ || (length == 0 && text.length() == 0))
+         return;
+
+      int last = ops_.size() - 1;
+      DocumentOp merged = last >= 0 ? merge(ops_.get(last),
+                                            offset,
+                                            length,
+                                            text)
+                                    : null;
+      if (merged != null)
+      {
+         chars_ += merged.getText().length() - ops_.get(last).getText().length();
+         ops_.set(last, merged);
+      }
+      else
+      {
+         chars_ += text.length();
+         ops_.add(new DocumentOp(offset, length, text));
+      }
+
+      if (ops_.size() > MAX_OPS || chars_ > MAX_CHARS)
+         invalidate();
+   }
+
+   // take the ops recorded so far (subsequent ops are relative to the
+   // document with these applied)
+   public ArrayList<DocumentOp> take()
+   {
+      ArrayList<DocumentOp> ops = ops_;
+      ops_ = new ArrayList<DocumentOp>();
+      chars_ = 0;
+      return ops;
+   }
+
+   // merge an edit into the previous op if the range it replaces touches
+   // the text the previous op inserted (otherwise returns null)
+   private static DocumentOp merge(DocumentOp op,
+                                   int offset,
+                                   int length,
+                                   String text)
+   {
+      int start = op.getOffset();
+      String inserted = op.getText();
+      int insertedEnd = start + inserted.length();
+      if (offset > insertedEnd || offset + length < start)
+         return null;
+
+      // the portions of the previous op's text which survive the edit
+      int keepBefore = Math.max(0, offset - start);
+      int keepAfter = Math.min(inserted.length(),
+                               Math.max(keepBefore, offset + length - start));
+
+      // characters the edit removes beyond either end of that text come
+      // from the document as it was before the previous op
+      int removedBefore = Math.max(0, start - offset);
+      int removedAfter = Math.max(0, offset + length - insertedEnd);
+
+      return new DocumentOp(start - removedBefore,
+                            op.getLength() + removedBefore + removedAfter,
+                            inserted.substring(0, keepBefore) +
+                            text +
+                            inserted.substring(keepAfter));
+   }
+
+   private ArrayList<DocumentOp> ops_ = new ArrayList<DocumentOp>();
+   private int chars_ = 0;
+   private boolean valid_ = false;
+
+   private static final int MAX_OPS = 1000;
+   private static final int MAX_CHARS = 1024 * 1024;
+}
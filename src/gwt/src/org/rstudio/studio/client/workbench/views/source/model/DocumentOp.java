@@ -0,0 +1,47 @@
+/*
+ * DocumentOp.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.model;
+
+/**
+ * An edit to a document: the length characters at offset are replaced by
+ * text. Offsets are relative to the document as it was after the previous
+ * op was applied.
+ */
+public class DocumentOp
+{
+   public DocumentOp(int offset, int length, String text)
+   {
+      offset_ = offset;
+      length_ = length;
+      text_ = text;
+   }
+
+   public int getOffset()
+   {
+      return offset_;
+   }
+
+   public int getLength()
+   {
+      return length_;
+   }
+
+   public String getText()
+   {
+      return text_;
+   }
+
+   private final int offset_;
+   private final int length_;
+   private final String text_;
+}
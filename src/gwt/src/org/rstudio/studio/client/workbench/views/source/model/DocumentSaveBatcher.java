@@ -0,0 +1,221 @@
+/*
+ * DocumentSaveBatcher.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.model;
+
+import java.util.ArrayList;
+
+import org.rstudio.studio.client.server.ServerError;
+import org.rstudio.studio.client.server.ServerErrorCause;
+import org.rstudio.studio.client.server.ServerRequestCallback;
+
+import com.google.gwt.core.client.JsArray;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+import com.google.gwt.json.client.JSONNull;
+import com.google.gwt.json.client.JSONValue;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Collects the document saves made during an event (e.g. Save All, or
+ * quitting, which save every document at once) and sends them to the
+ * server in a single request. When a batch is sent, any other documents
+ * with changes which haven't been autosaved yet are given the chance to
+ * join it, rather than each sending its own request when its autosave
+ * timer fires.
+ */
+@Singleton
+public class DocumentSaveBatcher
+{
+   @Inject
+   public DocumentSaveBatcher(SourceServerOperations server)
+   {
+      server_ = server;
+   }
+
+   void addSentinel(DocUpdateSentinel sentinel)
+   {
+      sentinels_.add(sentinel);
+   }
+
+   void removeSentinel(DocUpdateSentinel sentinel)
+   {
+      sentinels_.remove(sentinel);
+   }
+
+   public void save(DocumentSaveRequest request,
+                    ServerRequestCallback<String> callback)
+   {
+      requests_.add(request);
+      callbacks_.add(callback);
+
+      if (!flushScheduled_ && !flushing_)
+      {
+         flushScheduled_ = true;
+         Scheduler.get().scheduleFinally(new ScheduledCommand()
+         {
+            public void execute()
+            {
+               flushScheduled_ = false;
+               flush();
+            }
+         });
+      }
+   }
+
+   private void flush()
+   {
+      // let documents with unsaved changes add them to the batch
+      flushing_ = true;
+      try
+      {
+         for (DocUpdateSentinel sentinel :
+                           new ArrayList<DocUpdateSentinel>(sentinels_))
+         {
+            sentinel.onBatchSave();
+         }
+      }
+      finally
+      {
+         flushing_ = false;
+      }
+
+      final ArrayList<DocumentSaveRequest> requests = requests_;
+      final ArrayList<ServerRequestCallback<String>> callbacks = callbacks_;
+      requests_ = new ArrayList<DocumentSaveRequest>();
+      callbacks_ = new ArrayList<ServerRequestCallback<String>>();
+
+      if (requests.size() == 1)
+      {
+         send(requests.get(0), callbacks.get(0));
+         return;
+      }
+
+      server_.saveDocuments(
+            requests,
+            new ServerRequestCallback<JsArray<DocumentSaveResult>>()
+            {
+               @Override
+               public void onResponseReceived(JsArray<DocumentSaveResult> results)
+               {
+                  for (int i = 0; i < requests.size(); i++)
+                  {
+                     DocumentSaveResult result =
+                                 i < results.length() ? results.get(i) : null;
+
+                     // documents which failed get the server's error (they
+                     // aren't sent again since the save may not be
+                     // idempotent)
+                     if (result == null)
+                     {
+                        callbacks.get(i).onError(new DocumentSaveError(
+                                 "No result for document " +
+                                 requests.get(i).getId()));
+                     }
+                     else if (result.getError() != null)
+                     {
+                        callbacks.get(i).onError(
+                                 new DocumentSaveError(result.getError()));
+                     }
+                     else
+                     {
+                        callbacks.get(i).onResponseReceived(result.getHash());
+                     }
+                  }
+               }
+
+               @Override
+               public void onError(ServerError error)
+               {
+                  for (ServerRequestCallback<String> callback : callbacks)
+                     callback.onError(error);
+               }
+            });
+   }
+
+   private void send(DocumentSaveRequest request,
+                     ServerRequestCallback<String> callback)
+   {
+      if (request.isDiff())
+      {
+         server_.saveDocumentDiff(request.getId(),
+                                  request.getPath(),
+                                  request.getFileType(),
+                                  request.getEncoding(),
+                                  request.getOps(),
+                                  request.getHash(),
+                                  callback);
+      }
+      else
+      {
+         server_.saveDocument(request.getId(),
+                              request.getPath(),
+                              request.getFileType(),
+                              request.getEncoding(),
+                              request.getContents(),
+                              callback);
+      }
+   }
+
+   // the error reported by the server for one of the documents in a batch
+   private static class DocumentSaveError implements ServerError
+   {
+      public DocumentSaveError(String message)
+      {
+         message_ = message;
+      }
+
+      public int getCode()
+      {
+         return ServerError.EXECUTION;
+      }
+
+      public String getMessage()
+      {
+         return message_;
+      }
+
+      public ServerErrorCause getCause()
+      {
+         return null;
+      }
+
+      public String getUserMessage()
+      {
+         return message_;
+      }
+
+      public JSONValue getClientInfo()
+      {
+         return JSONNull.getInstance();
+      }
+
+      @Override
+      public String toString()
+      {
+         return getCode() + ": " + message_ + "\n";
+      }
+
+      private final String message_;
+   }
+
+   private final SourceServerOperations server_;
+   private final ArrayList<DocUpdateSentinel> sentinels_ =
+                                       new ArrayList<DocUpdateSentinel>();
+   private ArrayList<DocumentSaveRequest> requests_ =
+                                       new ArrayList<DocumentSaveRequest>();
+   private ArrayList<ServerRequestCallback<String>> callbacks_ =
+                           new ArrayList<ServerRequestCallback<String>>();
+   private boolean flushScheduled_ = false;
+   private boolean flushing_ = false;
+}
@@ -0,0 +1,111 @@
+/*
+ * DocumentSaveRequest.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.model;
+
+import java.util.List;
+
+/**
+ * One of the documents in a saveDocuments request: either the full 
+ * contents of the document (as per saveDocument) or a list of ops and the
+ * hash of the contents they apply to (as per saveDocumentDiff).
+ */
+public class DocumentSaveRequest
+{
+   public static DocumentSaveRequest contents(String id,
+                                              String path,
+                                              String fileType,
+                                              String encoding,
+                                              String contents)
+   {
+      return new DocumentSaveRequest(id, path, fileType, encoding, 
+                                     contents, null, null);
+   }
+
+   public static DocumentSaveRequest diff(String id,
+                                          String path,
+                                          String fileType,
+                                          String encoding,
+                                          List<DocumentOp> ops,
+                                          String hash)
+   {
+      return new DocumentSaveRequest(id, path, fileType, encoding, 
+                                     null, ops, hash);
+   }
+
+   private DocumentSaveRequest(String id,
+                               String path,
+                               String fileType,
+                               String encoding,
+                               String contents,
+                               List<DocumentOp> ops,
+                               String hash)
+   {
+      id_ = id;
+      path_ = path;
+      fileType_ = fileType;
+      encoding_ = encoding;
+      contents_ = contents;
+      ops_ = ops;
+      hash_ = hash;
+   }
+
+   public String getId()
+   {
+      return id_;
+   }
+
+   public String getPath()
+   {
+      return path_;
+   }
+
+   public String getFileType()
+   {
+      return fileType_;
+   }
+
+   public String getEncoding()
+   {
+      return encoding_;
+   }
+
+   public boolean isDiff()
+   {
+      return ops_ != null;
+   }
+
+   // null for a diff
+   public String getContents()
+   {
+      return contents_;
+   }
+
+   // null unless this is a diff
+   public List<DocumentOp> getOps()
+   {
+      return ops_;
+   }
+
+   public String getHash()
+   {
+      return hash_;
+   }
+
+   private final String id_;
+   private final String path_;
+   private final String fileType_;
+   private final String encoding_;
+   private final String contents_;
+   private final List<DocumentOp> ops_;
+   private final String hash_;
+}
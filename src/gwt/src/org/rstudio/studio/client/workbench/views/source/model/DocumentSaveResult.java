@@ -0,0 +1,40 @@
+/*
+ * DocumentSaveResult.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.model;
+
+import com.google.gwt.core.client.JavaScriptObject;
+
+/**
+ * The result of saving one of the documents in a saveDocuments request.
+ */
+public class DocumentSaveResult extends JavaScriptObject
+{
+   protected DocumentSaveResult()
+   {
+   }
+
+   /**
+    * The hash of the new contents (null if the document's ops couldn't
+    * be applied, as per saveDocumentDiff)
+    */
+   public native final String getHash() /*-{
+      return this.hash;
+   }-*/;
+
+   /**
+    * Only non-null if the document couldn't be saved
+    */
+   public native final String getError() /*-{
+      return this.error || null;
+   }-*/;
+}
@@ -0,0 +1,40 @@
+/*
+ * FileLines.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.model;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArrayString;
+
+public class FileLines extends JavaScriptObject
+{
+   protected FileLines()
+   {
+   }
+
+   public native final int getStart() /*-{
+      return this.start;
+   }-*/;
+
+   public native final JsArrayString getLines() /*-{
+      return this.lines;
+   }-*/;
+
+   // the number of lines indexed so far if the file's index isn't complete
+   public native final int getTotalLines() /*-{
+      return this.total_lines;
+   }-*/;
+
+   public native final boolean isComplete() /*-{
+      return this.complete;
+   }-*/;
+}
@@ -0,0 +1,40 @@
+/*
+ * FileLinesSearchResult.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.source.model;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArrayInteger;
+
+public class FileLinesSearchResult extends JavaScriptObject
+{
+   protected FileLinesSearchResult()
+   {
+   }
+
+   public native final JsArrayInteger getMatches() /*-{
+      return this.matches;
+   }-*/;
+
+   /**
+    * The line to continue searching from, or -1 if the search reached the
+    * end of the file.
+    */
+   public native final int getNextLine() /*-{
+      return this.next_line;
+   }-*/;
+
+   // -1 if the file hasn't been completely indexed yet
+   public native final int getTotalLines() /*-{
+      return this.total_lines;
+   }-*/;
+}
@@ -12,6 +12,7 @@
  */
 package org.rstudio.studio.client.workbench.views.source.model;
 
+import com.google.gwt.core.client.JsArray;
 import com.google.gwt.core.client.JsArrayString;
 import org.rstudio.core.client.js.JsObject;
 import org.rstudio.studio.client.common.codetools.CodeToolsServerOperations;
@@ -22,6 +23,7 @@ import org.rstudio.studio.client.workbench.views.files.model.FilesServerOperatio
 import org.rstudio.studio.client.workbench.views.source.editors.text.IconvListResult;
 
 import java.util.HashMap;
+import java.util.List;
 
 /**
  * The server manages a "working list" of documents that are being edited by
@@ -94,14 +96,66 @@ public interface SourceServerOperations extends FilesServerOperations,
                          int length,
                          String hash,
                          ServerRequestCallback<String> requestCallback);
+   
+   /**
+    * As above, but the changes are given as an ordered list of ops (each
+    * relative to the document with the previous ops applied).
+    */
+   void saveDocumentDiff(String id,
+                         String path,
+                         String fileType,
+                         String encoding,
+                         List<DocumentOp> ops,
+                         String hash,
+                         ServerRequestCallback<String> requestCallback);
 
-   void checkForExternalEdit(
-         String id,
-         ServerRequestCallback<CheckForExternalEditResult> requestCallback);
+   /**
+    * Saves a set of documents in one request. There is one result per
+    * document (in the same order) which holds either the new hash (as per
+    * saveDocument/saveDocumentDiff) or an error message.
+    */
+   void saveDocuments(List<DocumentSaveRequest> documents,
+                      ServerRequestCallback<JsArray<DocumentSaveResult>> requestCallback);
+
+   /**
+    * Checks a set of documents at once. Results are only returned for the
+    * documents which have been modified or deleted. If unmonitoredOnly is
+    * true, documents in directories the server monitors (whose changes are
+    * pushed as SourceDocChangedOnDiskEvents) aren't checked.
+    */
+   void checkForExternalEdits(
+         List<String> ids,
+         boolean unmonitoredOnly,
+         ServerRequestCallback<JsArray<CheckForExternalEditResult>> requestCallback);
 
    void ignoreExternalEdit(String id,
                            ServerRequestCallback<Void> requestCallback);
 
+   /**
+    * Reads a range of lines from a file (used to view files which are too
+    * large to open as documents), converting them from the given encoding.
+    * Long lines are truncated. The server indexes large files
+    * incrementally, so fewer lines than requested may be returned until
+    * the index is complete.
+    */
+   void getFileLines(String path,
+                     String encoding,
+                     int start,
+                     int count,
+                     ServerRequestCallback<FileLines> requestCallback);
+
+   /**
+    * Finds the lines (from start onwards) which contain the query (ignoring
+    * case). The server stops after maxResults matches or after scanning a
+    * fixed number of lines, returning the line to continue from.
+    */
+   void searchFileLines(String path,
+                        String encoding,
+                        String query,
+                        int start,
+                        int maxResults,
+                        ServerRequestCallback<FileLinesSearchResult> requestCallback);
+
    /**
     * Removes an item from the working list.
     */
@@ -0,0 +1,50 @@
+/*
+ * VcsClientEventDecoders.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.vcs;
+
+import com.google.gwt.event.shared.GwtEvent;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.rstudio.core.client.js.JsObject;
+import org.rstudio.studio.client.server.remote.ClientEvent;
+import org.rstudio.studio.client.server.remote.ClientEventDecoder;
+import org.rstudio.studio.client.server.remote.ClientEventDecoderRegistry;
+import org.rstudio.studio.client.workbench.views.vcs.common.events.AskPassEvent;
+import org.rstudio.studio.client.workbench.views.vcs.common.events.VcsRefreshEvent;
+import org.rstudio.studio.client.workbench.views.vcs.common.events.VcsRefreshEvent.Reason;
+
+// Registers the decoders for the client events this module receives
+@Singleton
+public class VcsClientEventDecoders
+{
+   @Inject
+   public VcsClientEventDecoders(ClientEventDecoderRegistry registry)
+   {
+      registry.register(ClientEvent.VcsRefresh, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            JsObject data = event.getData();
+            return new VcsRefreshEvent(Reason.NA,
+                                       data.getInteger("delay"));
+         }
+      });
+
+      registry.register(ClientEvent.AskPass, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            AskPassEvent.Data data = event.getData();
+            return new AskPassEvent(data);
+         }
+      });
+   }
+}
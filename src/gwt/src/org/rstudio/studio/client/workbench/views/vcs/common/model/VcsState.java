@@ -19,6 +19,7 @@ import com.google.gwt.event.shared.HandlerManager;
 import com.google.gwt.event.shared.HandlerRegistration;
 import com.google.gwt.user.client.ui.Widget;
 import org.rstudio.core.client.HandlerRegistrations;
+import org.rstudio.core.client.Invalidation;
 import org.rstudio.core.client.StringUtil;
 import org.rstudio.core.client.WidgetHandlerRegistration;
 import org.rstudio.core.client.files.FileSystemItem;
@@ -178,6 +179,8 @@ public abstract class VcsState
    protected abstract boolean isInitialized();
 
    protected final HandlerManager handlers_ = new HandlerManager(this);
+   // a new refresh supersedes any refresh which is still queued
+   protected final Invalidation refreshInvalidation_ = new Invalidation();
    protected ArrayList<StatusAndPath> status_;
    protected final EventBus eventBus_;
    protected final GlobalDisplay globalDisplay_;
@@ -275,9 +275,7 @@ public class HistoryPresenter
 
       final Token token = invalidation_.getInvalidationToken();
 
-      server_.gitShow(
-            commitInfo.getId(),
-            noSizeWarning,
+      SimpleRequestCallback<String> callback =
             new SimpleRequestCallback<String>()
             {
                @Override
@@ -304,7 +302,9 @@ public class HistoryPresenter
                   else
                      super.onError(error);
                }
-            });
+            };
+      callback.setInvalidationToken(token);
+      server_.gitShow(commitInfo.getId(), noSizeWarning, callback);
    }
 
    private void refreshHistory()
@@ -616,11 +616,7 @@ public class GitReviewPresenter implements ReviewPresenter
       final PatchMode patchMode = view_.getStagedCheckBox().getValue()
                                   ? PatchMode.Stage
                                   : PatchMode.Working;
-      server_.gitDiffFile(
-            item.getPath(),
-            patchMode,
-            view_.getContextLines().getValue(),
-            overrideSizeWarning_,
+      SimpleRequestCallback<String> callback =
             new SimpleRequestCallback<String>("Diff Error")
             {
                @Override
@@ -663,7 +659,13 @@ public class GitReviewPresenter implements ReviewPresenter
                   else
                      super.onError(error);
                }
-            });
+            };
+      callback.setInvalidationToken(token);
+      server_.gitDiffFile(item.getPath(),
+                          patchMode,
+                          view_.getContextLines().getValue(),
+                          overrideSizeWarning_,
+                          callback);
    }
 
    private void clearDiff()
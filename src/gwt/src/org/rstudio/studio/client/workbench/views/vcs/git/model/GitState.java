@@ -65,7 +65,9 @@ public class GitState extends VcsState
 
    public void refresh(final boolean showError)
    {
-      server_.gitAllStatus(new ServerRequestCallback<AllStatus>()
+      refreshInvalidation_.invalidate();
+      ServerRequestCallback<AllStatus> callback =
+                                 new ServerRequestCallback<AllStatus>()
       {
          @Override
          public void onResponseReceived(AllStatus response)
@@ -84,7 +86,9 @@ public class GitState extends VcsState
                globalDisplay_.showErrorMessage("Error",
                                                error.getUserMessage());
          }
-      });
+      };
+      callback.setInvalidationToken(refreshInvalidation_.getInvalidationToken());
+      server_.gitAllStatus(callback);
    }
 
    private BranchesInfo branches_;
@@ -413,10 +413,7 @@ public class SVNReviewPresenter implements ReviewPresenter
       diffInvalidation_.invalidate();
       final Token token = diffInvalidation_.getInvalidationToken();
 
-      server_.svnDiffFile(
-            item.getPath(),
-            view_.getContextLines().getValue(),
-            overrideSizeWarning_,
+      SimpleRequestCallback<String> callback =
             new SimpleRequestCallback<String>("Diff Error")
             {
                @Override
@@ -459,7 +456,12 @@ public class SVNReviewPresenter implements ReviewPresenter
                   else
                      super.onError(error);
                }
-            });
+            };
+      callback.setInvalidationToken(token);
+      server_.svnDiffFile(item.getPath(),
+                          view_.getContextLines().getValue(),
+                          overrideSizeWarning_,
+                          callback);
    }
 
    private void clearDiff()
@@ -44,7 +44,9 @@ public class SVNState extends VcsState
    @Override
    public void refresh(final boolean showError)
    {
-      server_.svnStatus(new ServerRequestCallback<JsArray<StatusAndPathInfo>>()
+      refreshInvalidation_.invalidate();
+      ServerRequestCallback<JsArray<StatusAndPathInfo>> callback =
+                                 new ServerRequestCallback<JsArray<StatusAndPathInfo>>()
       {
          @Override
          public void onResponseReceived(JsArray<StatusAndPathInfo> response)
@@ -61,7 +63,9 @@ public class SVNState extends VcsState
                globalDisplay_.showErrorMessage("Error",
                                                error.getUserMessage());
          }
-      });
+      };
+      callback.setInvalidationToken(refreshInvalidation_.getInvalidationToken());
+      server_.svnStatus(callback);
    }
 
    @Override
@@ -0,0 +1,84 @@
+/*
+ * WorkspaceClientEventDecoders.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.workbench.views.workspace;
+
+import com.google.gwt.event.shared.GwtEvent;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.rstudio.studio.client.server.remote.ClientEvent;
+import org.rstudio.studio.client.server.remote.ClientEventCoalescer;
+import org.rstudio.studio.client.server.remote.ClientEventDecoder;
+import org.rstudio.studio.client.server.remote.ClientEventDecoderRegistry;
+import org.rstudio.studio.client.server.remote.ClientEventMergeRule;
+import org.rstudio.studio.client.workbench.views.workspace.events.WorkspaceObjectAssignedEvent;
+import org.rstudio.studio.client.workbench.views.workspace.events.WorkspaceObjectRemovedEvent;
+import org.rstudio.studio.client.workbench.views.workspace.events.WorkspaceRefreshEvent;
+import org.rstudio.studio.client.workbench.views.workspace.model.WorkspaceObjectInfo;
+
+// Registers the decoders (and merge rules) for the client events this
+// module receives
+@Singleton
+public class WorkspaceClientEventDecoders
+{
+   @Inject
+   public WorkspaceClientEventDecoders(ClientEventDecoderRegistry registry,
+                                       ClientEventCoalescer coalescer)
+   {
+      registry.register(ClientEvent.WorkspaceRefresh, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            return new WorkspaceRefreshEvent();
+         }
+      });
+
+      registry.register(ClientEvent.WorkspaceAssign, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            WorkspaceObjectInfo objectInfo = event.getData();
+            return new WorkspaceObjectAssignedEvent(objectInfo);
+         }
+      });
+
+      registry.register(ClientEvent.WorkspaceRemove, new ClientEventDecoder() {
+         public GwtEvent<?> decode(ClientEvent event)
+         {
+            String objectName = event.getData();
+            return new WorkspaceObjectRemovedEvent(objectName);
+         }
+      });
+
+      coalescer.register(ClientEvent.WorkspaceAssign,
+                         new WorkspaceAssignMergeRule());
+   }
+
+   // only the last assignment to a workspace object needs to be shown
+   private static class WorkspaceAssignMergeRule
+                                          implements ClientEventMergeRule
+   {
+      public String getKey(ClientEvent event)
+      {
+         WorkspaceObjectInfo objectInfo = event.getData();
+         return objectInfo.getName();
+      }
+
+      public boolean adjacentOnly()
+      {
+         return false;
+      }
+
+      public ClientEvent merge(ClientEvent earlier, ClientEvent later)
+      {
+         return later;
+      }
+   }
+}
@@ -0,0 +1,133 @@
+/*
+ * RingBufferTest.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client;
+
+import junit.framework.TestCase;
+
+import java.util.LinkedList;
+import java.util.Random;
+
+public class RingBufferTest extends TestCase
+{
+   public void testEmpty()
+   {
+      RingBuffer<Integer> buffer = new RingBuffer<Integer>(4);
+      assertTrue(buffer.isEmpty());
+      assertEquals(0, buffer.size());
+      assertNull(buffer.peek());
+      assertNull(buffer.remove());
+   }
+
+   public void testWrapAround()
+   {
+      RingBuffer<Integer> buffer = new RingBuffer<Integer>(4);
+
+      // move the head along so that later adds wrap past the end of the
+      // backing array
+      for (int i = 0; i < 3; i++)
+         buffer.add(i);
+      for (int i = 0; i < 3; i++)
+         assertEquals(Integer.valueOf(i), buffer.remove());
+
+      for (int i = 10; i < 14; i++)
+         buffer.add(i);
+      assertEquals(4, buffer.size());
+      for (int i = 0; i < 4; i++)
+         assertEquals(Integer.valueOf(10 + i), buffer.get(i));
+      for (int i = 10; i < 14; i++)
+         assertEquals(Integer.valueOf(i), buffer.remove());
+      assertTrue(buffer.isEmpty());
+   }
+
+   public void testGrowWhileWrapped()
+   {
+      RingBuffer<Integer> buffer = new RingBuffer<Integer>(4);
+      buffer.add(0);
+      buffer.add(1);
+      buffer.remove();
+      buffer.remove();
+
+      // fills the array with the head in the middle, then grows
+      for (int i = 0; i < 9; i++)
+         buffer.add(i);
+      assertEquals(9, buffer.size());
+      for (int i = 0; i < 9; i++)
+         assertEquals(Integer.valueOf(i), buffer.get(i));
+   }
+
+   public void testAddFirst()
+   {
+      RingBuffer<Integer> buffer = new RingBuffer<Integer>(2);
+      buffer.add(2);
+      buffer.addFirst(1);
+      buffer.addFirst(0);  // grows
+      buffer.add(3);
+      assertEquals(4, buffer.size());
+      for (int i = 0; i < 4; i++)
+         assertEquals(Integer.valueOf(i), buffer.get(i));
+      assertEquals(Integer.valueOf(0), buffer.peek());
+   }
+
+   public void testGetOutOfRange()
+   {
+      RingBuffer<Integer> buffer = new RingBuffer<Integer>(4);
+      buffer.add(0);
+      try
+      {
+         buffer.get(1);
+         fail("expected IndexOutOfBoundsException");
+      }
+      catch (IndexOutOfBoundsException e)
+      {
+      }
+   }
+
+   public void testClear()
+   {
+      RingBuffer<Integer> buffer = new RingBuffer<Integer>(4);
+      for (int i = 0; i < 6; i++)
+         buffer.add(i);
+      buffer.clear();
+      assertTrue(buffer.isEmpty());
+      buffer.add(7);
+      assertEquals(Integer.valueOf(7), buffer.peek());
+   }
+
+   public void testMatchesDeque()
+   {
+      Random random = new Random(42);
+      RingBuffer<Integer> buffer = new RingBuffer<Integer>(1);
+      LinkedList<Integer> expected = new LinkedList<Integer>();
+      for (int i = 0; i < 10000; i++)
+      {
+         switch (random.nextInt(3))
+         {
+            case 0:
+               buffer.add(i);
+               expected.addLast(i);
+               break;
+            case 1:
+               buffer.addFirst(i);
+               expected.addFirst(i);
+               break;
+            case 2:
+               assertEquals(expected.poll(), buffer.remove());
+               break;
+         }
+         assertEquals(expected.size(), buffer.size());
+         assertEquals(expected.peek(), buffer.peek());
+      }
+      for (int i = 0; i < expected.size(); i++)
+         assertEquals(expected.get(i), buffer.get(i));
+   }
+}
@@ -0,0 +1,95 @@
+/*
+ * VirtualConsoleTests.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client;
+
+import junit.framework.Assert ;
+
+import com.google.gwt.junit.client.GWTTestCase ;
+
+// VirtualConsole matches control characters with native regexes, so it is
+// tested in GWT rather than on the JVM
+public class VirtualConsoleTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudio" ;
+   }
+
+   public void testEmpty()
+   {
+      VirtualConsole console = new VirtualConsole() ;
+      Assert.assertEquals(-1, console.submit("")) ;
+      Assert.assertEquals(-1, console.submit(null)) ;
+      Assert.assertEquals(1, console.getLineCount()) ;
+      Assert.assertEquals("", console.toString()) ;
+   }
+
+   public void testPlainText()
+   {
+      VirtualConsole console = new VirtualConsole() ;
+      Assert.assertEquals(0, console.submit("one\ntwo")) ;
+      Assert.assertEquals(2, console.getLineCount()) ;
+      Assert.assertEquals("one", console.getLine(0)) ;
+      Assert.assertEquals("two", console.getLine(1)) ;
+
+      // only the current line and those after it change
+      Assert.assertEquals(1, console.submit("\nthree\n")) ;
+      Assert.assertEquals(4, console.getLineCount()) ;
+      Assert.assertEquals("one\ntwo\nthree\n", console.toString()) ;
+   }
+
+   public void testCarriageReturn()
+   {
+      Assert.assertEquals("30%", VirtualConsole.consolify("10%\r20%\r3")) ;
+      Assert.assertEquals("a\nxb", VirtualConsole.consolify("a\nbb\rx")) ;
+   }
+
+   public void testBackspace()
+   {
+      Assert.assertEquals("ad", VirtualConsole.consolify("abc\b\bd")) ;
+      Assert.assertEquals("ab", VirtualConsole.consolify("abc\b\b\b\bab")) ;
+   }
+
+   public void testBackspaceAtLineStart()
+   {
+      // \b at the start of a line doesn't reach back into the previous line
+      Assert.assertEquals("", VirtualConsole.consolify("\b")) ;
+      Assert.assertEquals("ab\nc", VirtualConsole.consolify("ab\n\b\bc")) ;
+      Assert.assertEquals("ab\nc", VirtualConsole.consolify("ab\n\r\bc")) ;
+
+      VirtualConsole console = new VirtualConsole() ;
+      console.submit("first\n") ;
+      Assert.assertEquals(1, console.submit("\b\bsecond")) ;
+      Assert.assertEquals("first", console.getLine(0)) ;
+      Assert.assertEquals("second", console.getLine(1)) ;
+   }
+
+   public void testOverwriteKeepsTail()
+   {
+      // \r overwrites in place whereas \b deletes
+      Assert.assertEquals("xbcd", VirtualConsole.consolify("abcd\rx")) ;
+      Assert.assertEquals("abx", VirtualConsole.consolify("abcd\b\bx")) ;
+      Assert.assertEquals("xb", VirtualConsole.consolify("abcd\b\b\rx")) ;
+   }
+
+   public void testSubmitsSpanningControlChars()
+   {
+      VirtualConsole console = new VirtualConsole() ;
+      console.submit("line\n") ;
+      console.submit("progress 1") ;
+      Assert.assertEquals(1, console.submit("\rprogress 2")) ;
+      Assert.assertEquals(1, console.submit("\b3\n")) ;
+      Assert.assertEquals("line\nprogress 3\n", console.toString()) ;
+   }
+}
@@ -0,0 +1,182 @@
+/*
+ * LineDiffTests.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.core.client.patch;
+
+import junit.framework.Assert ;
+
+import com.google.gwt.junit.client.GWTTestCase ;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+public class LineDiffTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudio" ;
+   }
+
+   public void testIdentical()
+   {
+      Assert.assertTrue(new LineDiff("", "").isEmpty()) ;
+      Assert.assertTrue(new LineDiff("a\nb\n", "a\nb\n").isEmpty()) ;
+   }
+
+   public void testEmpty()
+   {
+      verify("", "a\nb\n") ;
+      verify("a\nb\n", "") ;
+      verify("", "no newline") ;
+      verify("no newline", "") ;
+   }
+
+   public void testDeleteEverything()
+   {
+      LineDiff diff = verify("one\ntwo\nthree\n", "") ;
+      Assert.assertEquals(1, diff.getHunks().size()) ;
+      Assert.assertEquals(0, diff.getHunks().get(0).getOffset()) ;
+      Assert.assertEquals("", diff.getHunks().get(0).getReplacement()) ;
+   }
+
+   public void testTrailingNewline()
+   {
+      verify("a\nb", "a\nb\n") ;
+      verify("a\nb\n", "a\nb") ;
+      verify("a\nb\n", "a\nb\n\n") ;
+      verify("\n", "") ;
+      verify("x", "x\n") ;
+   }
+
+   public void testSeparateHunks()
+   {
+      String orig = "first\n" + lines(50) + "last\n" ;
+      String edited = "FIRST\n" + lines(50) + "LAST\n" ;
+      LineDiff diff = verify(orig, edited) ;
+      Assert.assertTrue(diff.isComplete()) ;
+      Assert.assertEquals(2, diff.getHunks().size()) ;
+
+      // each hunk is narrowed down to the characters which changed
+      Assert.assertEquals(0, diff.getHunks().get(0).getOffset()) ;
+      Assert.assertEquals(5, diff.getHunks().get(0).getLength()) ;
+      Assert.assertEquals(edited.length() - 5,
+                          diff.getHunks().get(1).getOffset()) ;
+      Assert.assertEquals(4, diff.getHunks().get(1).getLength()) ;
+   }
+
+   public void testRepeatedLines()
+   {
+      verify("a\na\na\nb\na\n", "a\nb\na\na\na\n") ;
+      verify("}\n}\n}\n", "}\n{\n}\n}\n") ;
+   }
+
+   public void testFallsBackWhenOutOfTime()
+   {
+      String orig = "first\n" + lines(50) + "last\n" ;
+      String edited = "FIRST\n" + lines(50) + "LAST\n" ;
+      LineDiff diff = new LineDiff(orig, edited, -1) ;
+      Assert.assertFalse(diff.isComplete()) ;
+      Assert.assertEquals(1, diff.getHunks().size()) ;
+      Assert.assertEquals(edited, diff.patch(orig)) ;
+   }
+
+   public void testRandomEdits()
+   {
+      Random random = new Random(1234) ;
+      for (int i = 0; i < 500; i++)
+      {
+         ArrayList<String> orig = randomLines(random, random.nextInt(30)) ;
+         ArrayList<String> edited = new ArrayList<String>(orig) ;
+         int edits = random.nextInt(6) ;
+         for (int e = 0; e < edits; e++)
+            randomEdit(random, edited) ;
+
+         String origVal = join(orig, random.nextBoolean()) ;
+         String newVal = join(edited, random.nextBoolean()) ;
+         verify(origVal, newVal) ;
+      }
+   }
+
+   private static LineDiff verify(String orig, String edited)
+   {
+      LineDiff diff = new LineDiff(orig, edited) ;
+      Assert.assertEquals(edited, diff.patch(orig)) ;
+      Assert.assertEquals(orig.equals(edited), diff.isEmpty()) ;
+      return diff ;
+   }
+
+   private static void randomEdit(Random random, ArrayList<String> lines)
+   {
+      int index = random.nextInt(lines.size() + 1) ;
+      switch (random.nextInt(4))
+      {
+         case 0:
+            lines.add(index, randomLine(random)) ;
+            break;
+         case 1:
+            if (index < lines.size())
+               lines.remove(index) ;
+            break;
+         case 2:
+            if (index < lines.size())
+               lines.set(index, lines.get(index) + randomLine(random)) ;
+            break;
+         case 3:
+            // delete a block
+            int end = Math.min(lines.size(), index + random.nextInt(10)) ;
+            for (int i = index; i < end; i++)
+               lines.remove(index) ;
+            break;
+      }
+   }
+
+   private static ArrayList<String> randomLines(Random random, int count)
+   {
+      ArrayList<String> lines = new ArrayList<String>() ;
+      for (int i = 0; i < count; i++)
+         lines.add(randomLine(random)) ;
+      return lines ;
+   }
+
+   // a small alphabet so that lines (and parts of lines) repeat
+   private static String randomLine(Random random)
+   {
+      StringBuilder line = new StringBuilder() ;
+      int length = random.nextInt(5) ;
+      for (int i = 0; i < length; i++)
+         line.append("ab{} ".charAt(random.nextInt(5))) ;
+      return line.toString() ;
+   }
+
+   private static String join(ArrayList<String> lines, boolean trailingNewline)
+   {
+      StringBuilder result = new StringBuilder() ;
+      for (int i = 0; i < lines.size(); i++)
+      {
+         if (i > 0)
+            result.append('\n') ;
+         result.append(lines.get(i)) ;
+      }
+      if (trailingNewline && lines.size() > 0)
+         result.append('\n') ;
+      return result.toString() ;
+   }
+
+   private static String lines(int count)
+   {
+      StringBuilder result = new StringBuilder() ;
+      for (int i = 0; i < count; i++)
+         result.append("line ").append(i).append('\n') ;
+      return result.toString() ;
+   }
+}
@@ -0,0 +1,170 @@
+/*
+ * ConsoleOutputBufferTest.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.common.shell;
+
+import junit.framework.TestCase;
+
+public class ConsoleOutputBufferTest extends TestCase
+{
+   public void testEmpty()
+   {
+      ConsoleOutputBuffer buffer = new ConsoleOutputBuffer();
+      assertTrue(buffer.isEmpty());
+      assertEquals(1, buffer.getLineCount());
+      assertEquals("", buffer.getLine(0).getText());
+   }
+
+   public void testLines()
+   {
+      ConsoleOutputBuffer buffer = new ConsoleOutputBuffer();
+      buffer.append("one\ntwo\nthr", OUTPUT, true);
+      buffer.append("ee\n", OUTPUT, true);
+      assertEquals(4, buffer.getLineCount());
+      assertEquals("one\ntwo\nthree\n", buffer.getText(0, 4));
+   }
+
+   public void testRuns()
+   {
+      ConsoleOutputBuffer buffer = new ConsoleOutputBuffer();
+      buffer.append("> ", PROMPT, false);
+      buffer.append("x\n", INPUT, false);
+      buffer.append("[1] 1", OUTPUT, true);
+
+      ConsoleOutputBuffer.Line line = buffer.getLine(0);
+      assertEquals("> x", line.getText());
+      assertEquals(2, line.getRunCount());
+      assertEquals(PROMPT, line.getRunClass(0));
+      assertEquals("> ", line.getRunText(0));
+      assertEquals(INPUT, line.getRunClass(1));
+      assertEquals("x", line.getRunText(1));
+
+      // output isn't left unterminated when other text follows it
+      buffer.append("> ", PROMPT, false);
+      assertEquals("> x\n[1] 1\n> ", buffer.getText(0, 3));
+   }
+
+   public void testCarriageReturn()
+   {
+      ConsoleOutputBuffer buffer = new ConsoleOutputBuffer();
+      buffer.append("10%", OUTPUT, true);
+      buffer.append("\r20%", OUTPUT, true);
+      buffer.append("\r3", OUTPUT, true);
+      assertEquals("30%", buffer.getLine(0).getText());
+   }
+
+   public void testBackspace()
+   {
+      ConsoleOutputBuffer buffer = new ConsoleOutputBuffer();
+      buffer.append("abc\b\bd", OUTPUT, true);
+      assertEquals("ad", buffer.getLine(0).getText());
+
+      // \b at the start of a line has nothing to remove
+      buffer.append("\n\b\bx", OUTPUT, true);
+      assertEquals("x", buffer.getLine(1).getText());
+   }
+
+   public void testControlCharsDontReachPreviousText()
+   {
+      ConsoleOutputBuffer buffer = new ConsoleOutputBuffer();
+      buffer.append("> ", PROMPT, false);
+      buffer.append("\b\b\rout", OUTPUT, true);
+      assertEquals("> out", buffer.getLine(0).getText());
+   }
+
+   public void testTrim()
+   {
+      ConsoleOutputBuffer buffer = new ConsoleOutputBuffer();
+      for (int i = 0; i < 10; i++)
+         buffer.append("line" + i + "\n", OUTPUT, true);
+      assertEquals(11, buffer.getLineCount());
+
+      ConsoleOutputBuffer.Line kept = buffer.getLine(7);
+      assertEquals(6, buffer.trim(5));
+      assertEquals(5, buffer.getLineCount());
+      assertEquals("line6", buffer.getLine(0).getText());
+      assertEquals(1, buffer.indexOf(kept));
+      assertEquals(0, buffer.trim(5));
+
+      // the current line is never trimmed
+      buffer.trim(0);
+      assertEquals(1, buffer.getLineCount());
+      assertEquals(-1, buffer.indexOf(kept));
+   }
+
+   public void testTrimAfterRingWraps()
+   {
+      // trimming as we go keeps the ring small, so its head wraps around
+      // the backing array many times
+      ConsoleOutputBuffer buffer = new ConsoleOutputBuffer();
+      for (int i = 0; i < 1000; i++)
+      {
+         buffer.append(i + "\n", OUTPUT, true);
+         buffer.trim(3);
+      }
+      assertEquals(3, buffer.getLineCount());
+      assertEquals("998\n999\n", buffer.getText(0, 3));
+      assertEquals(1, buffer.indexOf(buffer.getLine(1)));
+   }
+
+   public void testPrepend()
+   {
+      ConsoleOutputBuffer buffer = new ConsoleOutputBuffer();
+      buffer.append("three\n", OUTPUT, true);
+      buffer.prepend("> ", PROMPT, false);
+      buffer.prepend("one\ntwo\n", OUTPUT, true);
+      assertEquals("one\ntwo\n> three\n", buffer.getText(0, 4));
+
+      ConsoleOutputBuffer.Line first = buffer.getLine(0);
+      assertEquals(0, buffer.indexOf(first));
+      buffer.trim(2);
+      assertEquals(-1, buffer.indexOf(first));
+      assertEquals("> three", buffer.getLine(0).getText());
+   }
+
+   public void testPrependToUnterminatedLine()
+   {
+      ConsoleOutputBuffer buffer = new ConsoleOutputBuffer();
+      buffer.append("abc", OUTPUT, true);
+      buffer.prepend("XY", OUTPUT, true);
+      buffer.append("d", OUTPUT, true);
+      assertEquals("XYabcd", buffer.getLine(0).getText());
+
+      // \r and \b don't reach back into the prepended text
+      buffer.append("\r\b\bz", OUTPUT, true);
+      assertEquals("XYzbcd", buffer.getLine(0).getText());
+   }
+
+   public void testVersion()
+   {
+      ConsoleOutputBuffer buffer = new ConsoleOutputBuffer();
+      buffer.append("a", OUTPUT, true);
+      ConsoleOutputBuffer.Line line = buffer.getLine(0);
+      int version = line.getVersion();
+      buffer.append("b", OUTPUT, true);
+      assertTrue(line.getVersion() > version);
+   }
+
+   public void testClear()
+   {
+      ConsoleOutputBuffer buffer = new ConsoleOutputBuffer();
+      buffer.append("a\nb\n", OUTPUT, true);
+      buffer.clear();
+      assertTrue(buffer.isEmpty());
+      buffer.append("c", OUTPUT, true);
+      assertEquals("c", buffer.getText(0, 1));
+   }
+
+   private static final String OUTPUT = "output";
+   private static final String PROMPT = "prompt";
+   private static final String INPUT = "input";
+}
@@ -0,0 +1,134 @@
+/*
+ * ShellWidgetTests.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.common.shell;
+
+import junit.framework.Assert ;
+
+import com.google.gwt.junit.client.GWTTestCase ;
+import com.google.gwt.user.client.Command;
+import com.google.gwt.user.client.ui.RootPanel;
+import org.rstudio.studio.client.workbench.views.console.ConsoleResources;
+import org.rstudio.studio.client.workbench.views.source.editors.text.AceEditor;
+
+// the shell needs an input editor (and a document to render into) so it is
+// tested in GWT rather than on the JVM
+public class ShellWidgetTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudio" ;
+   }
+
+   public void testVirtualizedAppendTrimRender()
+   {
+      withShell(new ShellTest()
+      {
+         public void execute(ShellWidget shell)
+         {
+            shell.setMaxOutputLines(100) ;
+            for (int i = 0; i < 500; i++)
+               shell.consoleWriteOutput("line " + i + "\n") ;
+            shell.flushOutput() ;
+
+            // trimmed to the limit (the last line is the empty line which
+            // follows the final newline)
+            ConsoleOutputBuffer buffer = shell.getOutputBuffer() ;
+            Assert.assertEquals(100, buffer.getLineCount()) ;
+            Assert.assertEquals("line 401", buffer.getLine(0).getText()) ;
+            Assert.assertEquals("line 499", buffer.getLine(98).getText()) ;
+
+            // only the lines at the bottom are rendered
+            ConsoleOutputRenderer renderer = shell.getOutputRenderer() ;
+            Assert.assertEquals(100, renderer.getLastRendered()) ;
+            Assert.assertTrue(renderer.getFirstRendered() > 0) ;
+         }
+      }) ;
+   }
+
+   public void testVirtualizedControlCharacters()
+   {
+      withShell(new ShellTest()
+      {
+         public void execute(ShellWidget shell)
+         {
+            shell.consoleWriteOutput("10%") ;
+            shell.consoleWriteOutput("\r20%") ;
+            shell.consoleWriteOutput("\r100%\n") ;
+            shell.consoleWriteError("error\n") ;
+            shell.flushOutput() ;
+
+            ConsoleOutputBuffer buffer = shell.getOutputBuffer() ;
+            Assert.assertEquals("100%", buffer.getLine(0).getText()) ;
+            ConsoleOutputBuffer.Line error = buffer.getLine(1) ;
+            Assert.assertEquals("error", error.getText()) ;
+            Assert.assertEquals(
+                  ConsoleResources.INSTANCE.consoleStyles().error(),
+                  error.getRunClass(0)) ;
+         }
+      }) ;
+   }
+
+   public void testLeaveVirtualizedOutput()
+   {
+      withShell(new ShellTest()
+      {
+         public void execute(ShellWidget shell)
+         {
+            for (int i = 0; i < 10; i++)
+               shell.consoleWriteOutput("line " + i + "\n") ;
+            shell.flushOutput() ;
+
+            // the output which survives trimming is carried over
+            shell.setMaxOutputLines(5) ;
+            shell.setVirtualizedOutput(false) ;
+            Assert.assertFalse(shell.isVirtualizedOutput()) ;
+            String text = shell.getElement().getInnerText() ;
+            Assert.assertTrue(text.contains("line 9")) ;
+            Assert.assertFalse(text.contains("line 5")) ;
+            Assert.assertTrue(shell.getOutputBuffer().isEmpty()) ;
+            Assert.assertEquals(0, shell.getOutputRenderer().getLastRendered()) ;
+         }
+      }) ;
+   }
+
+   private interface ShellTest
+   {
+      void execute(ShellWidget shell) ;
+   }
+
+   // run the test against an attached, virtualized shell once ace is loaded
+   private void withShell(final ShellTest test)
+   {
+      delayTestFinish(10000) ;
+      AceEditor.load(new Command()
+      {
+         public void execute()
+         {
+            ShellWidget shell = new ShellWidget(new AceEditor()) ;
+            shell.setSize("400px", "200px") ;
+            RootPanel.get().add(shell) ;
+            try
+            {
+               shell.setVirtualizedOutput(true) ;
+               test.execute(shell) ;
+            }
+            finally
+            {
+               RootPanel.get().remove(shell) ;
+            }
+            finishTest() ;
+         }
+      }) ;
+   }
+}
@@ -0,0 +1,131 @@
+/*
+ * ClientEventStreamTests.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.server.remote;
+
+import junit.framework.Assert ;
+
+import com.google.gwt.core.client.GWT ;
+import com.google.gwt.core.client.JsArray ;
+import com.google.gwt.junit.client.GWTTestCase ;
+
+import java.util.ArrayList ;
+
+// streams events from a stand-in session (StandInEventStreamServlet) over
+// a real EventSource. browsers without EventSource (including the default
+// htmlunit browser) can't stream so the tests only run in browsers which
+// can (e.g. with -runStyle Manual)
+public class ClientEventStreamTests extends GWTTestCase
+{
+   @Override
+   public String getModuleName()
+   {
+      return "org.rstudio.studio.RStudioEventStreamTests" ;
+   }
+
+   public void testStreamDropAndResume()
+   {
+      if (!ClientEventStream.isSupported())
+         return ;
+
+      delayTestFinish(10000) ;
+
+      // the session drops the stream after event 3. as the event listener
+      // does, we then reopen the stream from the last event we received
+      // and should get the rest of the events without duplicates
+      final ArrayList<Integer> ids = new ArrayList<Integer>() ;
+      openStream("lastEventId=0&dropAfter=3", ids, new Command()
+      {
+         public void execute(boolean wasOpened)
+         {
+            Assert.assertTrue(wasOpened) ;
+            assertIds(ids, 3) ;
+
+            int lastEventId = ids.get(ids.size() - 1) ;
+            openStream("lastEventId=" + lastEventId, ids, new Command()
+            {
+               public void execute(boolean wasOpened)
+               {
+                  Assert.assertTrue(wasOpened) ;
+                  assertIds(ids, EVENT_COUNT) ;
+                  finishTest() ;
+               }
+            }) ;
+         }
+      }) ;
+   }
+
+   public void testStreamUnsupported()
+   {
+      if (!ClientEventStream.isSupported())
+         return ;
+
+      delayTestFinish(10000) ;
+
+      // a session which can't stream never opens the stream (which is what
+      // makes the event listener fall back to get_events)
+      final ArrayList<Integer> ids = new ArrayList<Integer>() ;
+      openStream("unsupported=1", ids, new Command()
+      {
+         public void execute(boolean wasOpened)
+         {
+            Assert.assertFalse(wasOpened) ;
+            Assert.assertTrue(ids.isEmpty()) ;
+            finishTest() ;
+         }
+      }) ;
+   }
+
+   // events queued by the stand-in session (the servlet isn't translatable
+   // so we can't refer to its EVENT_COUNT)
+   private static final int EVENT_COUNT = 5 ;
+
+   private interface Command
+   {
+      void execute(boolean wasOpened) ;
+   }
+
+   // collect the ids of the events on the stream until it ends
+   private void openStream(String query,
+                           final ArrayList<Integer> ids,
+                           final Command onEnded)
+   {
+      String url = GWT.getModuleBaseURL() + "events/stream_events?" + query ;
+      ClientEventStream stream = new ClientEventStream(
+                                       url, new ClientEventStream.Observer()
+      {
+         public void onOpened()
+         {
+         }
+
+         public void onEvents(JsArray<ClientEvent> events)
+         {
+            for (int i = 0; i < events.length(); i++)
+               ids.add(events.get(i).getId()) ;
+         }
+
+         public void onError(boolean wasOpened)
+         {
+            onEnded.execute(wasOpened) ;
+         }
+      }) ;
+      stream.open() ;
+   }
+
+   // events 1 through lastId, each received once and in order
+   private static void assertIds(ArrayList<Integer> ids, int lastId)
+   {
+      Assert.assertEquals(lastId, ids.size()) ;
+      for (int i = 0; i < ids.size(); i++)
+         Assert.assertEquals(i + 1, ids.get(i).intValue()) ;
+   }
+}
@@ -0,0 +1,166 @@
+/*
+ * EventStreamFallbackTest.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.client.server.remote;
+
+import junit.framework.TestCase;
+
+import com.google.gwt.user.client.Command;
+
+import java.util.ArrayList;
+
+public class EventStreamFallbackTest extends TestCase
+{
+   // stands in for an rsession (and the listener's connection to it): opening
+   // the stream connects or fails as scripted, and backed off retries are
+   // queued until the test runs them
+   private static class FakeSession implements EventStreamFallback.Host
+   {
+      public boolean canStream()
+      {
+         return streamSupported;
+      }
+
+      public void openStream()
+      {
+         streamOpens++;
+         streamOpen = true;
+      }
+
+      public void poll()
+      {
+         polls++;
+      }
+
+      public void retryLater(Command command)
+      {
+         retries.add(command);
+      }
+
+      void runRetries()
+      {
+         ArrayList<Command> pending = new ArrayList<Command>(retries);
+         retries.clear();
+         for (Command command : pending)
+            command.execute();
+      }
+
+      // the session accepts the stream and then drops it
+      void connectThenDrop(EventStreamFallback fallback)
+      {
+         assertTrue(streamOpen);
+         fallback.onStreamOpened();
+         dropStream(fallback, true);
+      }
+
+      void dropStream(EventStreamFallback fallback, boolean wasOpened)
+      {
+         streamOpen = false;
+         fallback.onStreamError(wasOpened);
+      }
+
+      boolean streamSupported = true;
+      boolean streamOpen = false;
+      int streamOpens = 0;
+      int polls = 0;
+      final ArrayList<Command> retries = new ArrayList<Command>();
+   }
+
+   public void setUp() throws Exception
+   {
+      session_ = new FakeSession();
+      fallback_ = new EventStreamFallback(session_);
+   }
+
+   public void testPollsWhenStreamUnsupported()
+   {
+      session_.streamSupported = false;
+
+      assertFalse(fallback_.start());
+      assertEquals(0, session_.streamOpens);
+      assertEquals(1, session_.polls);
+   }
+
+   public void testOpensStreamWhenSupported()
+   {
+      assertTrue(fallback_.start());
+      assertEquals(1, session_.streamOpens);
+      assertEquals(0, session_.polls);
+   }
+
+   public void testPollsWhenStreamNeverConnects()
+   {
+      fallback_.start();
+      session_.dropStream(fallback_, false);
+
+      assertTrue(fallback_.isStreamDisabled());
+      assertEquals(1, session_.polls);
+      assertTrue(session_.retries.isEmpty());
+
+      // restarting (e.g. after a resume) keeps polling
+      assertFalse(fallback_.start());
+      assertEquals(1, session_.streamOpens);
+      assertEquals(2, session_.polls);
+   }
+
+   public void testReopensDroppedStream()
+   {
+      fallback_.start();
+      session_.connectThenDrop(fallback_);
+
+      assertEquals(0, session_.polls);
+      assertEquals(1, session_.retries.size());
+      assertEquals(1, session_.streamOpens);
+
+      session_.runRetries();
+      assertEquals(2, session_.streamOpens);
+      assertFalse(fallback_.isStreamDisabled());
+   }
+
+   public void testPollsWhenReopenedStreamKeepsFailing()
+   {
+      fallback_.start();
+      session_.connectThenDrop(fallback_);
+
+      // each reopen fails before it connects
+      for (int i = 0; i < EventStreamFallback.MAX_REOPENS; i++)
+      {
+         assertEquals(0, session_.polls);
+         session_.runRetries();
+         session_.dropStream(fallback_, true);
+      }
+
+      assertEquals(1 + EventStreamFallback.MAX_REOPENS, session_.streamOpens);
+      assertEquals(1, session_.polls);
+      assertTrue(session_.retries.isEmpty());
+      assertTrue(fallback_.isStreamDisabled());
+   }
+
+   public void testSuccessfulOpenResetsReopenCount()
+   {
+      fallback_.start();
+
+      // the stream drops far more often than MAX_REOPENS but reconnects
+      // each time, so we never fall back to polling
+      for (int i = 0; i < EventStreamFallback.MAX_REOPENS * 3; i++)
+      {
+         session_.connectThenDrop(fallback_);
+         session_.runRetries();
+      }
+
+      assertEquals(0, session_.polls);
+      assertFalse(fallback_.isStreamDisabled());
+   }
+
+   private FakeSession session_;
+   private EventStreamFallback fallback_;
+}
@@ -0,0 +1,84 @@
+/*
+ * StandInEventStreamServlet.java
+ *
+ * Copyright (C) 2009-11 by RStudio, Inc.
+ *
+ * This program is licensed to you under the terms of version 3 of the
+ * GNU Affero General Public License. This program is distributed WITHOUT
+ * ANY EXPRESS OR IMPLIED WARRANTY, INCLUDING THOSE OF NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE. Please refer to the
+ * AGPL (http://www.gnu.org/licenses/agpl-3.0.txt) for more details.
+ *
+ */
+package org.rstudio.studio.server;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+// Stands in for an rsession's events/stream_events: the session has queued
+// EVENT_COUNT console output events and streams those after lastEventId in
+// the same frame format as the session (two events per frame, the frame id
+// being that of its last event). The connection is dropped after the event
+// with id dropAfter (or once all of the events have been sent). A session
+// which doesn't support streaming (unsupported=1) responds with an rpc
+// error as it would to any other unknown events method.
+public class StandInEventStreamServlet extends HttpServlet
+{
+   public static final int EVENT_COUNT = 5;
+
+   @Override
+   protected void doGet(HttpServletRequest request,
+                        HttpServletResponse response) throws IOException
+   {
+      if (request.getParameter("unsupported") != null)
+      {
+         response.setContentType("application/json");
+         response.getWriter().write(
+               "{\"error\":{\"code\":3,\"message\":\"Method not found\"}}");
+         return;
+      }
+
+      int lastEventId = intParam(request, "lastEventId", 0);
+      int dropAfter = Math.min(intParam(request, "dropAfter", EVENT_COUNT),
+                               EVENT_COUNT);
+
+      response.setContentType("text/event-stream");
+      response.setHeader("Cache-Control", "no-cache");
+      PrintWriter writer = response.getWriter();
+
+      // heartbeat (ignored by the client)
+      writer.write(": heartbeat\n\n");
+      writer.flush();
+
+      for (int id = lastEventId + 1; id <= dropAfter; id += 2)
+      {
+         int lastId = Math.min(id + 1, dropAfter);
+         StringBuilder data = new StringBuilder("[");
+         for (int i = id; i <= lastId; i++)
+         {
+            if (i > id)
+               data.append(",");
+            data.append("{\"id\":" + i + "," +
+                        "\"type\":\"console_output\"," +
+                        "\"data\":\"line " + i + "\\n\"}");
+         }
+         data.append("]");
+
+         writer.write("id: " + lastId + "\n");
+         writer.write("data: " + data + "\n\n");
+         writer.flush();
+      }
+   }
+
+   private static int intParam(HttpServletRequest request,
+                               String name,
+                               int defaultValue)
+   {
+      String value = request.getParameter(name);
+      return value != null ? Integer.parseInt(value) : defaultValue;
+   }
+}